@@ -0,0 +1,448 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.interestrate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.math.interpolation.Interpolator1D;
+import com.opengamma.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * A compact form of the sensitivity of a value to a family of yield curves. For each curve the (time, sensitivity) points are held
+ * in a pair of primitive arrays rather than a list of {@link DoublesPair}, and {@link #plus}, {@link #multiply} and {@link #clean}
+ * work in place. This avoids the allocation of the map based {@link InterestRateCurveSensitivity} when aggregating the sensitivities
+ * of large numbers of instruments; {@link #toMap()} and {@link #toInterestRateCurveSensitivity()} convert back to that form.
+ * <p>
+ * Instances are mutable and not thread-safe.
+ */
+public class ArrayInterestRateCurveSensitivity {
+  private static final int INITIAL_CAPACITY = 8;
+  private static final int INSERTION_SORT_SIZE = 16;
+
+  /**
+   * The points for a single curve.
+   */
+  private static final class CurvePoints {
+    private double[] _times;
+    private double[] _values;
+    private int _size;
+    /** True if the points are in ascending (time, value) order */
+    private boolean _sorted;
+
+    private CurvePoints(final int capacity) {
+      _times = new double[Math.max(capacity, INITIAL_CAPACITY)];
+      _values = new double[_times.length];
+      _sorted = true;
+    }
+
+    private CurvePoints(final CurvePoints copy) {
+      _times = copy._times.clone();
+      _values = copy._values.clone();
+      _size = copy._size;
+      _sorted = copy._sorted;
+    }
+
+    private void ensureCapacity(final int capacity) {
+      if (capacity > _times.length) {
+        final int newCapacity = Math.max(capacity, _times.length * 2);
+        final double[] times = new double[newCapacity];
+        final double[] values = new double[newCapacity];
+        System.arraycopy(_times, 0, times, 0, _size);
+        System.arraycopy(_values, 0, values, 0, _size);
+        _times = times;
+        _values = values;
+      }
+    }
+
+    private void add(final double time, final double value) {
+      ensureCapacity(_size + 1);
+      if (_sorted && _size > 0 && compare(_times[_size - 1], _values[_size - 1], time, value) > 0) {
+        _sorted = false;
+      }
+      _times[_size] = time;
+      _values[_size] = value;
+      _size++;
+    }
+
+    private void add(final CurvePoints other) {
+      if (other._size == 0) {
+        return;
+      }
+      if (_sorted && other._sorted) {
+        merge(other);
+        return;
+      }
+      ensureCapacity(_size + other._size);
+      System.arraycopy(other._times, 0, _times, _size, other._size);
+      System.arraycopy(other._values, 0, _values, _size, other._size);
+      _size += other._size;
+      _sorted = false;
+    }
+
+    /**
+     * Merges another sorted set of points into this one, working back from the end so no temporary arrays are needed.
+     */
+    private void merge(final CurvePoints other) {
+      final int n = _size + other._size;
+      ensureCapacity(n);
+      int i = _size - 1;
+      int j = other._size - 1;
+      int k = n - 1;
+      while (j >= 0) {
+        if (i >= 0 && compare(_times[i], _values[i], other._times[j], other._values[j]) > 0) {
+          _times[k] = _times[i];
+          _values[k--] = _values[i--];
+        } else {
+          _times[k] = other._times[j];
+          _values[k--] = other._values[j--];
+        }
+      }
+      _size = n;
+    }
+
+    private void sort() {
+      if (!_sorted) {
+        sortRange(_times, _values, 0, _size - 1);
+        _sorted = true;
+      }
+    }
+
+    /**
+     * Sorts and nets the points in place, following {@link InterestRateCurveSensitivityUtils#clean(List, double, double)}.
+     */
+    private void clean(final double relTol, final double absTol) {
+      if (_size == 0) {
+        return;
+      }
+      sort();
+      int k = 0;
+      double t = _times[0];
+      double sum = _values[0];
+      double scale = Math.abs(sum);
+      for (int i = 1; i < _size; i++) {
+        if (_times[i] > t) {
+          if (Math.abs(sum) > absTol && Math.abs(sum) / scale > relTol) {
+            _times[k] = t;
+            _values[k++] = sum;
+          }
+          t = _times[i];
+          sum = _values[i];
+          scale = Math.abs(sum);
+        } else {
+          sum += _values[i];
+          scale += Math.abs(_values[i]);
+        }
+      }
+      if (Math.abs(sum) > absTol && Math.abs(sum) / scale > relTol) {
+        _times[k] = t;
+        _values[k++] = sum;
+      }
+      _size = k;
+    }
+
+    private List<DoublesPair> toList() {
+      final List<DoublesPair> result = new ArrayList<DoublesPair>(_size);
+      for (int i = 0; i < _size; i++) {
+        result.add(new DoublesPair(_times[i], _values[i]));
+      }
+      return result;
+    }
+
+  }
+
+  private final Map<String, CurvePoints> _sensitivity;
+
+  /**
+   * Creates an empty sensitivity.
+   */
+  public ArrayInterestRateCurveSensitivity() {
+    _sensitivity = new HashMap<String, CurvePoints>();
+  }
+
+  /**
+   * Creates a sensitivity from the map form.
+   * @param sensitivity A map from curve name to a list of (time, sensitivity) pairs, not null
+   */
+  public ArrayInterestRateCurveSensitivity(final Map<String, List<DoublesPair>> sensitivity) {
+    this();
+    plus(sensitivity);
+  }
+
+  /**
+   * Creates a sensitivity from an {@link InterestRateCurveSensitivity}.
+   * @param sensitivity The sensitivity, not null
+   */
+  public ArrayInterestRateCurveSensitivity(final InterestRateCurveSensitivity sensitivity) {
+    this(sensitivity.getSensitivities());
+  }
+
+  private CurvePoints getOrCreate(final String name, final int capacity) {
+    CurvePoints points = _sensitivity.get(name);
+    if (points == null) {
+      points = new CurvePoints(capacity);
+      _sensitivity.put(name, points);
+    }
+    return points;
+  }
+
+  /**
+   * Adds a single sensitivity point.
+   * @param name The curve name, not null
+   * @param time The time
+   * @param value The sensitivity
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity add(final String name, final double time, final double value) {
+    Validate.notNull(name, "name");
+    getOrCreate(name, 0).add(time, value);
+    return this;
+  }
+
+  /**
+   * Adds another sensitivity to this one in place. Sensitivities at the same time are not netted; use {@link #clean} to do this.
+   * @param other The sensitivity to add, not null. It is not modified
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity plus(final ArrayInterestRateCurveSensitivity other) {
+    Validate.notNull(other, "other");
+    if (other == this) {
+      return plus(new ArrayInterestRateCurveSensitivity().plus(other));
+    }
+    for (final Map.Entry<String, CurvePoints> entry : other._sensitivity.entrySet()) {
+      final CurvePoints points = _sensitivity.get(entry.getKey());
+      if (points == null) {
+        _sensitivity.put(entry.getKey(), new CurvePoints(entry.getValue()));
+      } else {
+        points.add(entry.getValue());
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Adds a sensitivity in the map form to this one in place.
+   * @param sensitivity A map from curve name to a list of (time, sensitivity) pairs, not null
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity plus(final Map<String, List<DoublesPair>> sensitivity) {
+    Validate.notNull(sensitivity, "sensitivity");
+    for (final Map.Entry<String, List<DoublesPair>> entry : sensitivity.entrySet()) {
+      final List<DoublesPair> list = entry.getValue();
+      final CurvePoints points = getOrCreate(entry.getKey(), list.size());
+      points.ensureCapacity(points._size + list.size());
+      for (final DoublesPair pair : list) {
+        points.add(pair.first, pair.second);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Multiplies all of the sensitivities by a common factor in place.
+   * @param factor The factor
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity multiply(final double factor) {
+    for (final CurvePoints points : _sensitivity.values()) {
+      for (int i = 0; i < points._size; i++) {
+        points._values[i] *= factor;
+      }
+      if (factor < 0) {
+        // ties on time are ordered by value, which a negative factor reverses
+        points._sorted = points._size < 2;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Sorts the times and nets sensitivities at the same time in place.
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity clean() {
+    return clean(0, 0);
+  }
+
+  /**
+   * Sorts the times and nets sensitivities at the same time in place. The tolerances are as for
+   * {@link InterestRateCurveSensitivity#clean(double, double)}.
+   * @param relTol Relative tolerance - if the net divided by gross sensitivity is less than this it is removed
+   * @param absTol Absolute tolerance - if the net sensitivity is less than this it is removed
+   * @return This instance
+   */
+  public ArrayInterestRateCurveSensitivity clean(final double relTol, final double absTol) {
+    Validate.isTrue(relTol >= 0.0 && absTol >= 0.0);
+    for (final CurvePoints points : _sensitivity.values()) {
+      points.clean(relTol, absTol);
+    }
+    return this;
+  }
+
+  /**
+   * @return The names of the curves with sensitivities, not null
+   */
+  public Set<String> getCurveNames() {
+    return Collections.unmodifiableSet(_sensitivity.keySet());
+  }
+
+  /**
+   * @param name The curve name
+   * @return The number of sensitivity points for the curve, zero if there are none
+   */
+  public int size(final String name) {
+    final CurvePoints points = _sensitivity.get(name);
+    return points == null ? 0 : points._size;
+  }
+
+  /**
+   * @param name The curve name
+   * @return A copy of the times of the sensitivity points for the curve, empty if there are none
+   */
+  public double[] getTimes(final String name) {
+    final CurvePoints points = _sensitivity.get(name);
+    if (points == null) {
+      return new double[0];
+    }
+    final double[] result = new double[points._size];
+    System.arraycopy(points._times, 0, result, 0, points._size);
+    return result;
+  }
+
+  /**
+   * @param name The curve name
+   * @return A copy of the values of the sensitivity points for the curve, in the same order as {@link #getTimes}, empty if there are none
+   */
+  public double[] getValues(final String name) {
+    final CurvePoints points = _sensitivity.get(name);
+    if (points == null) {
+      return new double[0];
+    }
+    final double[] result = new double[points._size];
+    System.arraycopy(points._values, 0, result, 0, points._size);
+    return result;
+  }
+
+  /**
+   * Projects the sensitivity to a curve onto the nodes of that curve, adding the node sensitivities to an array. Points at the same
+   * time are netted first, so the interpolator is only asked for the node sensitivities once per distinct time. The points may be
+   * reordered but are otherwise unchanged.
+   * @param name The curve name, not null
+   * @param interpolator The interpolator of the curve, not null
+   * @param data The data bundle of the curve, not null
+   * @param useFiniteDifferenceSensitivities True to use finite difference node sensitivities
+   * @param result The array to add the node sensitivities to, not null
+   * @param offset The index in the result array of the first node of the curve
+   */
+  public void addNodeSensitivities(final String name, final Interpolator1D interpolator, final Interpolator1DDataBundle data, final boolean useFiniteDifferenceSensitivities,
+      final double[] result, final int offset) {
+    Validate.notNull(name, "name");
+    Validate.notNull(interpolator, "interpolator");
+    Validate.notNull(data, "data");
+    Validate.notNull(result, "result");
+    final CurvePoints points = _sensitivity.get(name);
+    if (points == null || points._size == 0) {
+      return;
+    }
+    points.sort();
+    final double[] times = points._times;
+    final double[] values = points._values;
+    int i = 0;
+    while (i < points._size) {
+      final double t = times[i];
+      double sum = values[i++];
+      while (i < points._size && times[i] == t) {
+        sum += values[i++];
+      }
+      if (sum != 0.0) {
+        final double[] nodeSensitivity = interpolator.getNodeSensitivitiesForValue(data, t, useFiniteDifferenceSensitivities);
+        for (int j = 0; j < nodeSensitivity.length; j++) {
+          result[offset + j] += sum * nodeSensitivity[j];
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The sensitivity in map form, with the points for each curve in their current order, not null
+   */
+  public Map<String, List<DoublesPair>> toMap() {
+    final Map<String, List<DoublesPair>> result = new HashMap<String, List<DoublesPair>>();
+    for (final Map.Entry<String, CurvePoints> entry : _sensitivity.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().toList());
+    }
+    return result;
+  }
+
+  /**
+   * @return The sensitivity as an {@link InterestRateCurveSensitivity}, not null
+   */
+  public InterestRateCurveSensitivity toInterestRateCurveSensitivity() {
+    return new InterestRateCurveSensitivity(toMap());
+  }
+
+  //-------------------------------------------------------------------------
+  private static int compare(final double t1, final double v1, final double t2, final double v2) {
+    final int c = Double.compare(t1, t2);
+    return c != 0 ? c : Double.compare(v1, v2);
+  }
+
+  private static void swap(final double[] times, final double[] values, final int i, final int j) {
+    final double t = times[i];
+    times[i] = times[j];
+    times[j] = t;
+    final double v = values[i];
+    values[i] = values[j];
+    values[j] = v;
+  }
+
+  /**
+   * Sorts the parallel arrays between the indices (inclusive) into ascending (time, value) order.
+   */
+  private static void sortRange(final double[] times, final double[] values, final int lo, final int hi) {
+    if (hi - lo < INSERTION_SORT_SIZE) {
+      for (int i = lo + 1; i <= hi; i++) {
+        final double t = times[i];
+        final double v = values[i];
+        int j = i - 1;
+        while (j >= lo && compare(times[j], values[j], t, v) > 0) {
+          times[j + 1] = times[j];
+          values[j + 1] = values[j];
+          j--;
+        }
+        times[j + 1] = t;
+        values[j + 1] = v;
+      }
+      return;
+    }
+    final int mid = (lo + hi) >>> 1;
+    final double pt = times[mid];
+    final double pv = values[mid];
+    int i = lo;
+    int j = hi;
+    while (i <= j) {
+      while (compare(times[i], values[i], pt, pv) < 0) {
+        i++;
+      }
+      while (compare(times[j], values[j], pt, pv) > 0) {
+        j--;
+      }
+      if (i <= j) {
+        swap(times, values, i++, j--);
+      }
+    }
+    sortRange(times, values, lo, j);
+    sortRange(times, values, i, hi);
+  }
+
+}
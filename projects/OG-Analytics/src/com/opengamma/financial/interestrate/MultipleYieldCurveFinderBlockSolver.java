@@ -0,0 +1,372 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.interestrate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.math.interpolation.Interpolator1D;
+import com.opengamma.math.linearalgebra.Decomposition;
+import com.opengamma.math.linearalgebra.DecompositionResult;
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.math.matrix.DoubleMatrixUtils;
+import com.opengamma.math.rootfinding.newton.NewtonRootFinderResult;
+import com.opengamma.math.rootfinding.newton.NewtonVectorRootFinder;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Finds the nodes of a set of curves by splitting the set into blocks that can be solved one after the other. Typically the discount
+ * curve only depends on its own instruments, and the forward curves depend on it and on their own instruments: rather than one dense
+ * system for all the nodes, the discount curve is solved first and each forward curve is then solved with the discount curve known.
+ * <p>
+ * The instruments are assigned to the curves in order: when there are as many instruments as nodes, the first instruments, as many as
+ * the nodes of the first curve, belong to the first curve, and so on. The dependencies of the instruments of each curve on the other curves
+ * are read from the curve sensitivities; the curves that depend on each other form a block (a strongly connected component of the dependency
+ * graph), and the blocks are solved in an order where each block only depends on the ones already solved. If there are not as many
+ * instruments as nodes, or an instrument does not depend on any curve of its own block, the set is solved as a single block.
+ * If a block fails to converge, the set is also solved as a single block, starting from the nodes of the blocks already solved.
+ * <p>
+ * The inverse Jacobian of the full system, needed for node sensitivities, is block lower triangular in the solving order and is assembled
+ * from the inverses of the diagonal blocks.
+ */
+public class MultipleYieldCurveFinderBlockSolver {
+  private static final Logger s_logger = LoggerFactory.getLogger(MultipleYieldCurveFinderBlockSolver.class);
+  private final MultipleYieldCurveFinderDataBundle _data;
+  private final InstrumentDerivativeVisitor<YieldCurveBundle, Double> _calculator;
+  private final InstrumentDerivativeVisitor<YieldCurveBundle, Map<String, List<DoublesPair>>> _sensitivityCalculator;
+  private final NewtonVectorRootFinder _rootFinder;
+  private final Decomposition<?> _decomposition;
+  /** The index of the first node of each curve, and the total number of nodes */
+  private final int[] _offsets;
+
+  /**
+   * @param data The data describing the curves and instruments, not null
+   * @param calculator The calculator of the instrument values, not null
+   * @param sensitivityCalculator The calculator of the instrument curve sensitivities, not null
+   * @param rootFinder The root finder used for each block, not null
+   * @param decomposition The decomposition used to invert the diagonal blocks of the Jacobian, not null
+   */
+  public MultipleYieldCurveFinderBlockSolver(final MultipleYieldCurveFinderDataBundle data, final InstrumentDerivativeVisitor<YieldCurveBundle, Double> calculator,
+      final InstrumentDerivativeVisitor<YieldCurveBundle, Map<String, List<DoublesPair>>> sensitivityCalculator, final NewtonVectorRootFinder rootFinder,
+      final Decomposition<?> decomposition) {
+    Validate.notNull(data, "data");
+    Validate.notNull(calculator, "calculator");
+    Validate.notNull(sensitivityCalculator, "sensitivity calculator");
+    Validate.notNull(rootFinder, "root finder");
+    Validate.notNull(decomposition, "decomposition");
+    _data = data;
+    _calculator = calculator;
+    _sensitivityCalculator = sensitivityCalculator;
+    _rootFinder = rootFinder;
+    _decomposition = decomposition;
+    final List<String> names = data.getCurveNames();
+    _offsets = new int[names.size() + 1];
+    for (int i = 0; i < names.size(); i++) {
+      _offsets[i + 1] = _offsets[i] + data.getCurveNodePointsForCurve(names.get(i)).length;
+    }
+  }
+
+  /**
+   * Gets the blocks of curves, in the order in which they are solved.
+   * @param x The node values at which the dependencies are read, not null
+   * @return The names of the curves in each block
+   */
+  public List<List<String>> getBlocks(final DoubleMatrix1D x) {
+    checkPosition(x);
+    final List<String> names = _data.getCurveNames();
+    final List<List<String>> result = new ArrayList<List<String>>();
+    for (final int[] block : getCurveBlocks(x)) {
+      final List<String> blockNames = new ArrayList<String>(block.length);
+      for (final int curve : block) {
+        blockNames.add(names.get(curve));
+      }
+      result.add(blockNames);
+    }
+    return result;
+  }
+
+  /**
+   * Solves for the node values of all the curves.
+   * @param startPosition The node values to start from, in the order of the curves in the data, not null
+   * @return The node values, the inverse Jacobian of the full system at those values, and the total number of iterations over the blocks
+   * and any joint solve
+   */
+  public NewtonRootFinderResult solve(final DoubleMatrix1D startPosition) {
+    checkPosition(startPosition);
+    final List<int[]> blocks = getCurveBlocks(startPosition);
+    if (blocks.size() == 1) {
+      return solveJointly(startPosition, 0);
+    }
+    final double[] x = Arrays.copyOf(startPosition.getData(), startPosition.getNumberOfElements());
+    final YieldCurveBundle solved = _data.getKnownCurves() == null ? new YieldCurveBundle() : new YieldCurveBundle(_data.getKnownCurves());
+    final List<String> names = _data.getCurveNames();
+    int iterations = 0;
+    try {
+      for (final int[] block : blocks) {
+        final LinkedHashMap<String, double[]> nodes = new LinkedHashMap<String, double[]>();
+        final LinkedHashMap<String, Interpolator1D> interpolators = new LinkedHashMap<String, Interpolator1D>();
+        final List<InstrumentDerivative> derivatives = new ArrayList<InstrumentDerivative>();
+        final int[] indices = getIndices(block);
+        final double[] marketValues = new double[indices.length];
+        final double[] blockStart = new double[indices.length];
+        for (final int curve : block) {
+          final String name = names.get(curve);
+          nodes.put(name, _data.getCurveNodePointsForCurve(name));
+          interpolators.put(name, _data.getInterpolatorForCurve(name));
+        }
+        for (int i = 0; i < indices.length; i++) {
+          derivatives.add(_data.getDerivative(indices[i]));
+          marketValues[i] = _data.getMarketValue(indices[i]);
+          blockStart[i] = x[indices[i]];
+        }
+        final MultipleYieldCurveFinderDataBundle blockData = new MultipleYieldCurveFinderDataBundle(derivatives, marketValues, new YieldCurveBundle(solved), nodes,
+            interpolators, _data.useFiniteDifferenceForNodeSensitivities());
+        final NewtonRootFinderResult blockResult = _rootFinder.findRoot(new MultipleYieldCurveFinderFunction(blockData, _calculator), new MultipleYieldCurveFinderJacobian(blockData,
+            _sensitivityCalculator), new DoubleMatrix1D(blockStart), null);
+        final double[] blockRoot = blockResult.getRoot().getData();
+        for (int i = 0; i < indices.length; i++) {
+          x[indices[i]] = blockRoot[i];
+        }
+        iterations += blockResult.getIterations();
+        solved.addAll(new InterpolatedYieldCurveBuildingFunction(nodes, interpolators).evaluate(blockResult.getRoot()));
+      }
+      final DoubleMatrix1D root = new DoubleMatrix1D(x);
+      return new NewtonRootFinderResult(root, getInverseJacobian(root, blocks), iterations);
+    } catch (final RuntimeException e) {
+      // the equations of the blocks are those of the joint system, so the nodes of the blocks already solved are a good start
+      s_logger.info("Could not solve the curves block by block; solving them jointly. Error was: {}", e.getMessage());
+      return solveJointly(new DoubleMatrix1D(x), iterations);
+    }
+  }
+
+  private NewtonRootFinderResult solveJointly(final DoubleMatrix1D startPosition, final int previousIterations) {
+    final NewtonRootFinderResult result = _rootFinder.findRoot(new MultipleYieldCurveFinderFunction(_data, _calculator), new MultipleYieldCurveFinderJacobian(_data,
+        _sensitivityCalculator), startPosition, null);
+    return new NewtonRootFinderResult(result.getRoot(), getInverseJacobian(result.getRoot(), getSingleBlock()), previousIterations + result.getIterations());
+  }
+
+  /**
+   * Calculates the inverse Jacobian of the full system from the inverses of its diagonal blocks.
+   * @param x The node values, not null
+   * @return The inverse Jacobian
+   */
+  public DoubleMatrix2D getInverseJacobian(final DoubleMatrix1D x) {
+    checkPosition(x);
+    return getInverseJacobian(x, getCurveBlocks(x));
+  }
+
+  private DoubleMatrix2D getInverseJacobian(final DoubleMatrix1D x, final List<int[]> blocks) {
+    final double[][] jacobian = new MultipleYieldCurveFinderJacobian(_data, _sensitivityCalculator).evaluate(x).getData();
+    final int n = jacobian.length;
+    final double[][] inverse = new double[n][n];
+    final int nBlocks = blocks.size();
+    final int[][] indices = new int[nBlocks][];
+    for (int k = 0; k < nBlocks; k++) {
+      indices[k] = getIndices(blocks.get(k));
+    }
+    for (int k = 0; k < nBlocks; k++) {
+      final int[] rows = indices[k];
+      final int nk = rows.length;
+      final double[][] diagonal = new double[nk][nk];
+      for (int a = 0; a < nk; a++) {
+        for (int b = 0; b < nk; b++) {
+          diagonal[a][b] = jacobian[rows[a]][rows[b]];
+        }
+      }
+      final DecompositionResult decomposition = _decomposition.evaluate(new DoubleMatrix2D(diagonal));
+      final double[][] diagonalInverse = decomposition.solve(DoubleMatrixUtils.getIdentityMatrix2D(nk)).getData();
+      for (int a = 0; a < nk; a++) {
+        for (int b = 0; b < nk; b++) {
+          inverse[rows[a]][rows[b]] = diagonalInverse[a][b];
+        }
+      }
+      // X_kj = -D_k^-1 sum_{j <= m < k} J_km X_mj, as X_mj = 0 for m < j
+      for (int j = 0; j < k; j++) {
+        final int[] columns = indices[j];
+        final double[][] sum = new double[nk][columns.length];
+        for (int m = j; m < k; m++) {
+          for (int a = 0; a < nk; a++) {
+            for (final int node : indices[m]) {
+              final double jacobianEntry = jacobian[rows[a]][node];
+              if (jacobianEntry != 0) {
+                for (int c = 0; c < columns.length; c++) {
+                  sum[a][c] += jacobianEntry * inverse[node][columns[c]];
+                }
+              }
+            }
+          }
+        }
+        for (int a = 0; a < nk; a++) {
+          for (int c = 0; c < columns.length; c++) {
+            double value = 0;
+            for (int b = 0; b < nk; b++) {
+              value -= diagonalInverse[a][b] * sum[b][c];
+            }
+            inverse[rows[a]][columns[c]] = value;
+          }
+        }
+      }
+    }
+    return new DoubleMatrix2D(inverse);
+  }
+
+  private void checkPosition(final DoubleMatrix1D x) {
+    Validate.notNull(x, "x");
+    Validate.isTrue(x.getNumberOfElements() == _data.getTotalNodes(), "x must have one value per node");
+  }
+
+  /**
+   * @param block The indices of the curves in a block
+   * @return The indices of their nodes, which are also the indices of their instruments
+   */
+  private int[] getIndices(final int[] block) {
+    int n = 0;
+    for (final int curve : block) {
+      n += _offsets[curve + 1] - _offsets[curve];
+    }
+    final int[] result = new int[n];
+    int i = 0;
+    for (final int curve : block) {
+      for (int node = _offsets[curve]; node < _offsets[curve + 1]; node++) {
+        result[i++] = node;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return All the curves as one block
+   */
+  private List<int[]> getSingleBlock() {
+    final int nCurves = _data.getCurveNames().size();
+    final int[] all = new int[nCurves];
+    for (int i = 0; i < nCurves; i++) {
+      all[i] = i;
+    }
+    final List<int[]> single = new ArrayList<int[]>();
+    single.add(all);
+    return single;
+  }
+
+  /**
+   * @param x The node values
+   * @return The indices of the curves in each block, in solving order
+   */
+  private List<int[]> getCurveBlocks(final DoubleMatrix1D x) {
+    final List<String> names = _data.getCurveNames();
+    final int nCurves = names.size();
+    final List<int[]> single = getSingleBlock();
+    if (nCurves == 1 || _data.getNumInstruments() != _data.getTotalNodes()) {
+      return single;
+    }
+    final YieldCurveBundle curves = new InterpolatedYieldCurveBuildingFunction(_data.getUnknownCurveNodePoints(), _data.getUnknownCurveInterpolators()).evaluate(x);
+    if (_data.getKnownCurves() != null) {
+      curves.addAll(_data.getKnownCurves());
+    }
+    final boolean[][] instrumentDependencies = new boolean[_data.getNumInstruments()][nCurves];
+    final boolean[][] curveDependencies = new boolean[nCurves][nCurves];
+    for (int curve = 0; curve < nCurves; curve++) {
+      for (int i = _offsets[curve]; i < _offsets[curve + 1]; i++) {
+        final Map<String, List<DoublesPair>> sensitivities = _sensitivityCalculator.visit(_data.getDerivative(i), curves);
+        for (final Map.Entry<String, List<DoublesPair>> entry : sensitivities.entrySet()) {
+          final int dependency = names.indexOf(entry.getKey());
+          if (dependency >= 0 && !entry.getValue().isEmpty()) {
+            instrumentDependencies[i][dependency] = true;
+            curveDependencies[curve][dependency] = true;
+          }
+        }
+      }
+    }
+    final List<int[]> blocks = new StronglyConnectedComponents(curveDependencies).getComponents();
+    // each instrument must depend on its own block, otherwise the Jacobian of the block is singular
+    for (final int[] block : blocks) {
+      for (final int curve : block) {
+        for (int i = _offsets[curve]; i < _offsets[curve + 1]; i++) {
+          boolean dependsOnBlock = false;
+          for (final int other : block) {
+            dependsOnBlock |= instrumentDependencies[i][other];
+          }
+          if (!dependsOnBlock) {
+            return single;
+          }
+        }
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * Tarjan's algorithm. The components are found in reverse topological order of the dependencies, i.e. a component is only found after
+   * all the components it depends on, which is the order in which they can be solved.
+   */
+  private static final class StronglyConnectedComponents {
+    private final boolean[][] _edges;
+    private final int[] _index;
+    private final int[] _lowLink;
+    private final boolean[] _onStack;
+    private final int[] _stack;
+    private int _stackSize;
+    private int _nextIndex;
+    private final List<int[]> _components = new ArrayList<int[]>();
+
+    private StronglyConnectedComponents(final boolean[][] edges) {
+      final int n = edges.length;
+      _edges = edges;
+      _index = new int[n];
+      Arrays.fill(_index, -1);
+      _lowLink = new int[n];
+      _onStack = new boolean[n];
+      _stack = new int[n];
+      for (int v = 0; v < n; v++) {
+        if (_index[v] < 0) {
+          visit(v);
+        }
+      }
+    }
+
+    private void visit(final int v) {
+      _index[v] = _nextIndex;
+      _lowLink[v] = _nextIndex;
+      _nextIndex++;
+      _stack[_stackSize++] = v;
+      _onStack[v] = true;
+      for (int w = 0; w < _edges.length; w++) {
+        if (_edges[v][w]) {
+          if (_index[w] < 0) {
+            visit(w);
+            _lowLink[v] = Math.min(_lowLink[v], _lowLink[w]);
+          } else if (_onStack[w]) {
+            _lowLink[v] = Math.min(_lowLink[v], _index[w]);
+          }
+        }
+      }
+      if (_lowLink[v] == _index[v]) {
+        int start = _stackSize;
+        do {
+          start--;
+          _onStack[_stack[start]] = false;
+        } while (_stack[start] != v);
+        final int[] component = Arrays.copyOfRange(_stack, start, _stackSize);
+        Arrays.sort(component);
+        _components.add(component);
+        _stackSize = start;
+      }
+    }
+
+    private List<int[]> getComponents() {
+      return _components;
+    }
+  }
+
+}
@@ -13,7 +13,6 @@ import org.apache.commons.lang.Validate;
 import com.opengamma.math.curve.Curve;
 import com.opengamma.math.curve.InterpolatedDoublesCurve;
 import com.opengamma.math.function.Function1D;
-import com.opengamma.math.interpolation.Interpolator1D;
 import com.opengamma.math.interpolation.data.Interpolator1DDataBundle;
 import com.opengamma.math.matrix.DoubleMatrix1D;
 import com.opengamma.math.matrix.DoubleMatrix2D;
@@ -51,33 +50,16 @@ public class MultipleYieldCurveFinderJacobian extends Function1D<DoubleMatrix1D,
 
     final double[][] res = new double[_data.getNumInstruments()][totalNodes];
     for (int i = 0; i < _data.getNumInstruments(); i++) { // loop over all instruments
-      final Map<String, List<DoublesPair>> senseMap = _calculator.visit(_data.getDerivative(i), curves);
+      final ArrayInterestRateCurveSensitivity sense = new ArrayInterestRateCurveSensitivity(_calculator.visit(_data.getDerivative(i), curves));
       int offset = 0;
       for (final String name : curveNames) { // loop over all curves (by name)
-        if (senseMap.containsKey(name)) {
+        if (sense.size(name) != 0) {
           final Curve<Double, Double> curve = curves.getCurve(name).getCurve();
           if (!(curve instanceof InterpolatedDoublesCurve)) {
             throw new IllegalArgumentException("Can only handle InterpolatedDoublesCurve");
           }
-          final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) curve;
-          final Interpolator1DDataBundle data = interpolatedCurve.getDataBundle();
-          final Interpolator1D sensitivityCalculator = _data.getInterpolatorForCurve(name);
-          final List<DoublesPair> senseList = senseMap.get(name);
-          if (senseList.size() != 0) {
-            final double[][] sensitivity = new double[senseList.size()][];
-            int k = 0;
-            for (final DoublesPair timeAndDF : senseList) {
-              sensitivity[k++] = sensitivityCalculator.getNodeSensitivitiesForValue(data, timeAndDF.getFirst(), _data.useFiniteDifferenceForNodeSensitivities());
-            }
-            for (int j = 0; j < sensitivity[0].length; j++) {
-              double temp = 0.0;
-              k = 0;
-              for (final DoublesPair timeAndDF : senseList) {
-                temp += timeAndDF.getSecond() * sensitivity[k++][j];
-              }
-              res[i][j + offset] = temp;
-            }
-          }
+          final Interpolator1DDataBundle data = ((InterpolatedDoublesCurve) curve).getDataBundle();
+          sense.addNodeSensitivities(name, _data.getInterpolatorForCurve(name), data, _data.useFiniteDifferenceForNodeSensitivities(), res[i], offset);
         }
         offset += _data.getCurveNodePointsForCurve(name).length;
       }
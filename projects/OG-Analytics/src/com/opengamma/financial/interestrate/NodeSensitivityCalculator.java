@@ -5,7 +5,6 @@
  */
 package com.opengamma.financial.interestrate;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -14,8 +13,6 @@ import org.apache.commons.lang.Validate;
 import com.opengamma.financial.model.interestrate.curve.YieldAndDiscountCurve;
 import com.opengamma.financial.model.option.definition.SABRInterestRateDataBundle;
 import com.opengamma.math.curve.InterpolatedDoublesCurve;
-import com.opengamma.math.interpolation.Interpolator1D;
-import com.opengamma.math.interpolation.data.Interpolator1DDataBundle;
 import com.opengamma.math.matrix.DoubleMatrix1D;
 import com.opengamma.util.tuple.DoublesPair;
 
@@ -50,67 +47,50 @@ public abstract class NodeSensitivityCalculator {
   }
 
   public DoubleMatrix1D curveToNodeSensitivities(final Map<String, List<DoublesPair>> curveSensitivities, final YieldCurveBundle interpolatedCurves) {
-    final List<Double> result = new ArrayList<Double>();
+    return curveToNodeSensitivities(new ArrayInterestRateCurveSensitivity(curveSensitivities), interpolatedCurves);
+  }
+
+  /**
+   * Projects curve sensitivities onto the nodes of the interpolated curves, in the order of the curve names in the bundle.
+   * @param curveSensitivities The curve sensitivities, not null. The points may be reordered
+   * @param interpolatedCurves The interpolated curves, not null
+   * @return The node sensitivities
+   */
+  public DoubleMatrix1D curveToNodeSensitivities(final ArrayInterestRateCurveSensitivity curveSensitivities, final YieldCurveBundle interpolatedCurves) {
+    Validate.notNull(curveSensitivities, "curve sensitivities");
+    Validate.notNull(interpolatedCurves, "interpolated curves");
+    int totalNodes = 0;
+    for (final String name : interpolatedCurves.getAllNames()) {
+      totalNodes += getInterpolatedCurve(interpolatedCurves.getCurve(name), "Can only handle interpolated curves at the moment").size();
+    }
+    final double[] result = new double[totalNodes];
+    int offset = 0;
     for (final String name : interpolatedCurves.getAllNames()) { // loop over all curves (by name)
-      final YieldAndDiscountCurve curve = interpolatedCurves.getCurve(name);
-      if (!(curve.getCurve() instanceof InterpolatedDoublesCurve)) {
-        throw new IllegalArgumentException("Can only handle interpolated curves at the moment");
-      }
-      final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) curve.getCurve();
-      final Interpolator1D interpolator = interpolatedCurve.getInterpolator();
-      final Interpolator1DDataBundle data = interpolatedCurve.getDataBundle();
-      final List<DoublesPair> sensitivityList = curveSensitivities.get(name);
-      if (sensitivityList != null && sensitivityList.size() > 0) {
-        final double[][] sensitivity = new double[sensitivityList.size()][];
-        int k = 0;
-        for (final DoublesPair timeAndDF : sensitivityList) {
-          sensitivity[k++] = interpolator.getNodeSensitivitiesForValue(data, timeAndDF.getFirst());
-        }
-        for (int j = 0; j < sensitivity[0].length; j++) {
-          double temp = 0.0;
-          k = 0;
-          for (final DoublesPair timeAndDF : sensitivityList) {
-            temp += timeAndDF.getSecond() * sensitivity[k++][j];
-          }
-          result.add(temp);
-        }
-      } else {
-        for (int i = 0; i < interpolatedCurve.size(); i++) {
-          result.add(0.);
-        }
-      }
+      final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) interpolatedCurves.getCurve(name).getCurve();
+      curveSensitivities.addNodeSensitivities(name, interpolatedCurve.getInterpolator(), interpolatedCurve.getDataBundle(), false, result, offset);
+      offset += interpolatedCurve.size();
     }
-    return new DoubleMatrix1D(result.toArray(new Double[0]));
+    return new DoubleMatrix1D(result);
   }
 
   public DoubleMatrix1D curveToNodeSensitivities(final List<DoublesPair> curveSensitivities, final YieldAndDiscountCurve yieldCurve) {
-    if (!(yieldCurve.getCurve() instanceof InterpolatedDoublesCurve)) {
-      throw new IllegalArgumentException("Can only handle InterpolatedDoublesCurve");
-    }
-    final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) yieldCurve.getCurve();
+    final InterpolatedDoublesCurve interpolatedCurve = getInterpolatedCurve(yieldCurve, "Can only handle InterpolatedDoublesCurve");
     final double[] result = new double[interpolatedCurve.size()];
-    final Interpolator1D interpolator = interpolatedCurve.getInterpolator();
-    final Interpolator1DDataBundle data = interpolatedCurve.getDataBundle();
-    if (curveSensitivities == null) {
-      for (int i = 0; i < interpolatedCurve.size(); i++) {
-        result[i] = 0;
-      }
-    } else {
-      final double[][] sensitivity = new double[curveSensitivities.size()][];
-      int k = 0;
+    if (curveSensitivities != null) {
+      final ArrayInterestRateCurveSensitivity sensitivities = new ArrayInterestRateCurveSensitivity();
       for (final DoublesPair timeAndDF : curveSensitivities) {
-        sensitivity[k++] = interpolator.getNodeSensitivitiesForValue(data, timeAndDF.getFirst());
-      }
-      for (int j = 0; j < sensitivity[0].length; j++) {
-        double temp = 0.0;
-        k = 0;
-        for (final DoublesPair timeAndDF : curveSensitivities) {
-          temp += timeAndDF.getSecond() * sensitivity[k++][j];
-        }
-        result[j] = temp;
+        sensitivities.add("", timeAndDF.first, timeAndDF.second);
       }
+      sensitivities.addNodeSensitivities("", interpolatedCurve.getInterpolator(), interpolatedCurve.getDataBundle(), false, result, 0);
     }
     return new DoubleMatrix1D(result);
   }
 
+  private static InterpolatedDoublesCurve getInterpolatedCurve(final YieldAndDiscountCurve yieldCurve, final String message) {
+    if (!(yieldCurve.getCurve() instanceof InterpolatedDoublesCurve)) {
+      throw new IllegalArgumentException(message);
+    }
+    return (InterpolatedDoublesCurve) yieldCurve.getCurve();
+  }
+
 }
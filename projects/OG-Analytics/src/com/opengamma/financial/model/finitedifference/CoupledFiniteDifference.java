@@ -9,10 +9,9 @@ import java.util.Arrays;
 
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.math.linearalgebra.BandedMatrix;
 import com.opengamma.math.linearalgebra.Decomposition;
-import com.opengamma.math.linearalgebra.DecompositionResult;
 import com.opengamma.math.linearalgebra.LUDecompositionCommons;
-import com.opengamma.math.matrix.DoubleMatrix2D;
 import com.opengamma.math.surface.Surface;
 
 /**
@@ -61,7 +60,7 @@ public class CoupledFiniteDifference {
     final int tNodes = grid.getNumTimeNodes();
     final int xNodes = grid.getNumSpaceNodes();
 
-    double[] f = new double[2 * xNodes];
+    final double[] f = new double[2 * xNodes];
     double[][] full1 = null;
     double[][] full2 = null;
     if (_showFullResults) {
@@ -69,7 +68,8 @@ public class CoupledFiniteDifference {
       full2 = new double[tNodes][xNodes];
     }
     final double[] q = new double[2 * xNodes];
-    final double[][] m = new double[2 * xNodes][2 * xNodes];
+    final double[] work = new double[2 * xNodes];
+    final BandedMatrix m = createMatrix(pdeData1, pdeData2, grid, lowerBoundary1, upperBoundary1, lowerBoundary2, upperBoundary2);
 
     double[][] rho1 = new double[2][xNodes - 2];
     final double[][] rho2 = new double[2][xNodes - 2];
@@ -113,9 +113,6 @@ public class CoupledFiniteDifference {
       rho1[1][i] = getFittingParameter(grid, a1[1][i], b1[1][i], i + 1);
     }
 
-    final boolean first = true;
-    DecompositionResult decompRes = null;
-
     for (int n = 1; n < tNodes; n++) {
 
       t1 = grid.getTimeNode(n - 1);
@@ -149,37 +146,37 @@ public class CoupledFiniteDifference {
         c2[1][i - 1] = pdeData2.getC(t2, x);
         rho2[1][i - 1] = getFittingParameter(grid, a2[1][i - 1], b2[1][i - 1], i);
 
-        m[i][i - 1] = _theta * dt * (x2nd[0] * rho2[0][i - 1] + x1st[0] * b2[0][i - 1]);
-        m[i][i] = 1 + _theta * dt * (x2nd[1] * rho2[0][i - 1] + x1st[1] * b2[0][i - 1] + c2[0][i - 1]);
-        m[i][i + 1] = _theta * dt * (x2nd[2] * rho2[0][i - 1] + x1st[2] * b2[0][i - 1]);
-        m[i][i + xNodes] = dt * _theta * lambda1;
+        setM(m, xNodes, i, i - 1, _theta * dt * (x2nd[0] * rho2[0][i - 1] + x1st[0] * b2[0][i - 1]));
+        setM(m, xNodes, i, i, 1 + _theta * dt * (x2nd[1] * rho2[0][i - 1] + x1st[1] * b2[0][i - 1] + c2[0][i - 1]));
+        setM(m, xNodes, i, i + 1, _theta * dt * (x2nd[2] * rho2[0][i - 1] + x1st[2] * b2[0][i - 1]));
+        setM(m, xNodes, i, i + xNodes, dt * _theta * lambda1);
 
-        m[xNodes + i][xNodes + i - 1] = _theta * dt * (x2nd[0] * rho2[1][i - 1] + x1st[0] * b2[1][i - 1]);
-        m[xNodes + i][xNodes + i] = 1 + _theta * dt * (x2nd[1] * rho2[1][i - 1] + x1st[1] * b2[1][i - 1] + c2[1][i - 1]);
-        m[xNodes + i][xNodes + i + 1] = _theta * dt * (x2nd[2] * rho2[1][i - 1] + x1st[2] * b2[1][i - 1]);
-        m[xNodes + i][i] = dt * _theta * lambda2;
+        setM(m, xNodes, xNodes + i, xNodes + i - 1, _theta * dt * (x2nd[0] * rho2[1][i - 1] + x1st[0] * b2[1][i - 1]));
+        setM(m, xNodes, xNodes + i, xNodes + i, 1 + _theta * dt * (x2nd[1] * rho2[1][i - 1] + x1st[1] * b2[1][i - 1] + c2[1][i - 1]));
+        setM(m, xNodes, xNodes + i, xNodes + i + 1, _theta * dt * (x2nd[2] * rho2[1][i - 1] + x1st[2] * b2[1][i - 1]));
+        setM(m, xNodes, xNodes + i, i, dt * _theta * lambda2);
       }
 
 
 
       double[] temp = lowerBoundary1.getLeftMatrixCondition(pdeData1, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[0][k] = temp[k];
+        setM(m, xNodes, 0, k, temp[k]);
       }
 
       temp = upperBoundary1.getLeftMatrixCondition(pdeData1, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[xNodes - 1][xNodes - temp.length + k] = temp[k];
+        setM(m, xNodes, xNodes - 1, xNodes - temp.length + k, temp[k]);
       }
 
       temp = lowerBoundary2.getLeftMatrixCondition(pdeData2, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[xNodes][xNodes + k] = temp[k];
+        setM(m, xNodes, xNodes, xNodes + k, temp[k]);
       }
 
       temp = upperBoundary2.getLeftMatrixCondition(pdeData2, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[2 * xNodes - 1][2 * xNodes - temp.length + k] = temp[k];
+        setM(m, xNodes, 2 * xNodes - 1, 2 * xNodes - temp.length + k, temp[k]);
       }
 
       temp = lowerBoundary1.getRightMatrixCondition(pdeData1, grid, t1);
@@ -231,14 +228,7 @@ public class CoupledFiniteDifference {
       //      }
       //      oldCount = count;
 
-      if (first) {
-        final DoubleMatrix2D mM = new DoubleMatrix2D(m);
-        decompRes = DCOMP.evaluate(mM);
-
-        // first = false;
-      }
-
-      f = decompRes.solve(q);
+      solve(m, xNodes, q, work, f);
 
       a1 = a2;
       b1 = b2;
@@ -299,6 +289,67 @@ public class CoupledFiniteDifference {
     return count;
   }
 
+  /**
+   * The unknowns of the two PDEs are interleaved in the matrix system, so that the coupling terms lie next to the diagonal and the
+   * system is banded
+   * @param i The index in the stacked vector, i.e. the values of the first PDE followed by those of the second
+   * @param xNodes The number of space nodes
+   * @return The index in the interleaved system
+   */
+  protected static int interleave(final int i, final int xNodes) {
+    return i < xNodes ? 2 * i : 2 * (i - xNodes) + 1;
+  }
+
+  /**
+   * Creates the (interleaved) matrix for the coupled system, wide enough for the boundary conditions
+   * @param pdeData1 The data of the first PDE
+   * @param pdeData2 The data of the second PDE
+   * @param grid The grid
+   * @param lowerBoundary1 The lower boundary of the first PDE
+   * @param upperBoundary1 The upper boundary of the first PDE
+   * @param lowerBoundary2 The lower boundary of the second PDE
+   * @param upperBoundary2 The upper boundary of the second PDE
+   * @return The matrix
+   */
+  protected static BandedMatrix createMatrix(final PDEDataBundle pdeData1, final PDEDataBundle pdeData2, final PDEGrid1D grid, final BoundaryCondition lowerBoundary1,
+      final BoundaryCondition upperBoundary1, final BoundaryCondition lowerBoundary2, final BoundaryCondition upperBoundary2) {
+    final double t0 = grid.getTimeNode(0);
+    final int lower = Math.max(upperBoundary1.getLeftMatrixCondition(pdeData1, grid, t0).length, upperBoundary2.getLeftMatrixCondition(pdeData2, grid, t0).length);
+    final int upper = Math.max(lowerBoundary1.getLeftMatrixCondition(pdeData1, grid, t0).length, lowerBoundary2.getLeftMatrixCondition(pdeData2, grid, t0).length);
+    return new BandedMatrix(2 * grid.getNumSpaceNodes(), Math.max(2, 2 * (lower - 1)), Math.max(2, 2 * (upper - 1)));
+  }
+
+  /**
+   * Sets an entry of the matrix
+   * @param m The (interleaved) matrix
+   * @param xNodes The number of space nodes
+   * @param i The row in the stacked system
+   * @param j The column in the stacked system
+   * @param value The value
+   */
+  protected static void setM(final BandedMatrix m, final int xNodes, final int i, final int j, final double value) {
+    m.setEntry(interleave(i, xNodes), interleave(j, xNodes), value);
+  }
+
+  /**
+   * Solves the coupled system
+   * @param m The (interleaved) matrix
+   * @param xNodes The number of space nodes
+   * @param q The right hand side in the stacked order
+   * @param work A work array the same length as q
+   * @param f An array to write the solution to in the stacked order
+   */
+  protected static void solve(final BandedMatrix m, final int xNodes, final double[] q, final double[] work, final double[] f) {
+    final int n = 2 * xNodes;
+    for (int i = 0; i < n; i++) {
+      work[interleave(i, xNodes)] = q[i];
+    }
+    m.solve(work, work);
+    for (int i = 0; i < n; i++) {
+      f[i] = work[interleave(i, xNodes)];
+    }
+  }
+
   /**
    * Checks that the lower and upper boundaries match up with the grid
    * @param grid The grid
@@ -9,9 +9,7 @@ import java.util.Arrays;
 
 import org.apache.commons.lang.Validate;
 
-import com.opengamma.math.linearalgebra.Decomposition;
-import com.opengamma.math.linearalgebra.DecompositionResult;
-import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.math.linearalgebra.BandedMatrix;
 import com.opengamma.math.surface.Surface;
 
 /**
@@ -34,14 +32,14 @@ public class ExtendedCoupledFiniteDifference extends CoupledFiniteDifference {
     final int tNodes = grid.getNumTimeNodes();
     final int xNodes = grid.getNumSpaceNodes();
     final double theta = getTheta();
-    final Decomposition<?> dcomp = getDecomposition();
 
-    double[] f = new double[2 * xNodes];
+    final double[] f = new double[2 * xNodes];
     final double[][] full1 = new double[tNodes][xNodes];
     final double[][] full2 = new double[tNodes][xNodes];
 
     final double[] q = new double[2 * xNodes];
-    final double[][] m = new double[2 * xNodes][2 * xNodes];
+    final double[] work = new double[2 * xNodes];
+    final BandedMatrix m = createMatrix(pdeData1, pdeData2, grid, lowerBoundary1, upperBoundary1, lowerBoundary2, upperBoundary2);
 
     final double[][] a1 = new double[2][xNodes - 2];
     final double[][] a2 = new double[2][xNodes - 2];
@@ -92,9 +90,6 @@ public class ExtendedCoupledFiniteDifference extends CoupledFiniteDifference {
       beta1[1][i] = pdeData2.getBeta(0, x);
     }
 
-    final boolean first = true;
-    DecompositionResult decompRes = null;
-
     for (int n = 1; n < tNodes; n++) {
 
       t1 = grid.getTimeNode(n - 1);
@@ -133,35 +128,35 @@ public class ExtendedCoupledFiniteDifference extends CoupledFiniteDifference {
         b2[1][i - 1] = pdeData2.getB(t2, x);
         c2[1][i - 1] = pdeData2.getC(t2, x);
 
-        m[i][i - 1] = theta * dt * (x2nd[0] * a2[0][i - 1] * alpha2[0][i - 1] + x1st[0] * b2[0][i - 1] * beta2[0][i - 1]);
-        m[i][i] = 1 + theta * dt * (x2nd[1] * a2[0][i - 1] * alpha2[0][i] + x1st[1] * b2[0][i - 1] * beta2[0][i] + c2[0][i - 1]);
-        m[i][i + 1] = theta * dt * (x2nd[2] * a2[0][i - 1] * alpha2[0][i + 1] + x1st[2] * b2[0][i - 1] * beta2[0][i + 1]);
-        m[i][i + xNodes] = dt * theta * lambda1;
+        setM(m, xNodes, i, i - 1, theta * dt * (x2nd[0] * a2[0][i - 1] * alpha2[0][i - 1] + x1st[0] * b2[0][i - 1] * beta2[0][i - 1]));
+        setM(m, xNodes, i, i, 1 + theta * dt * (x2nd[1] * a2[0][i - 1] * alpha2[0][i] + x1st[1] * b2[0][i - 1] * beta2[0][i] + c2[0][i - 1]));
+        setM(m, xNodes, i, i + 1, theta * dt * (x2nd[2] * a2[0][i - 1] * alpha2[0][i + 1] + x1st[2] * b2[0][i - 1] * beta2[0][i + 1]));
+        setM(m, xNodes, i, i + xNodes, dt * theta * lambda1);
 
-        m[xNodes + i][xNodes + i - 1] = theta * dt * (x2nd[0] * a2[1][i - 1] * alpha2[1][i - 1] + x1st[0] * b2[1][i - 1] * beta2[1][i - 1]);
-        m[xNodes + i][xNodes + i] = 1 + theta * dt * (x2nd[1] * a2[1][i - 1] * alpha2[1][i] + x1st[1] * b2[1][i - 1] * beta2[1][i] + c2[1][i - 1]);
-        m[xNodes + i][xNodes + i + 1] = theta * dt * (x2nd[2] * a2[1][i - 1] * alpha2[1][i + 1] + x1st[2] * b2[1][i - 1] * beta2[1][i + 1]);
-        m[xNodes + i][i] = dt * theta * lambda2;
+        setM(m, xNodes, xNodes + i, xNodes + i - 1, theta * dt * (x2nd[0] * a2[1][i - 1] * alpha2[1][i - 1] + x1st[0] * b2[1][i - 1] * beta2[1][i - 1]));
+        setM(m, xNodes, xNodes + i, xNodes + i, 1 + theta * dt * (x2nd[1] * a2[1][i - 1] * alpha2[1][i] + x1st[1] * b2[1][i - 1] * beta2[1][i] + c2[1][i - 1]));
+        setM(m, xNodes, xNodes + i, xNodes + i + 1, theta * dt * (x2nd[2] * a2[1][i - 1] * alpha2[1][i + 1] + x1st[2] * b2[1][i - 1] * beta2[1][i + 1]));
+        setM(m, xNodes, xNodes + i, i, dt * theta * lambda2);
       }
 
       double[] temp = lowerBoundary1.getLeftMatrixCondition(pdeData1, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[0][k] = temp[k];
+        setM(m, xNodes, 0, k, temp[k]);
       }
 
       temp = upperBoundary1.getLeftMatrixCondition(pdeData1, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[xNodes - 1][xNodes - temp.length + k] = temp[k];
+        setM(m, xNodes, xNodes - 1, xNodes - temp.length + k, temp[k]);
       }
 
       temp = lowerBoundary2.getLeftMatrixCondition(pdeData2, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[xNodes][xNodes + k] = temp[k];
+        setM(m, xNodes, xNodes, xNodes + k, temp[k]);
       }
 
       temp = upperBoundary2.getLeftMatrixCondition(pdeData2, grid, t2);
       for (int k = 0; k < temp.length; k++) {
-        m[2 * xNodes - 1][2 * xNodes - temp.length + k] = temp[k];
+        setM(m, xNodes, 2 * xNodes - 1, 2 * xNodes - temp.length + k, temp[k]);
       }
 
       temp = lowerBoundary1.getRightMatrixCondition(pdeData1, grid, t1);
@@ -213,12 +208,7 @@ public class ExtendedCoupledFiniteDifference extends CoupledFiniteDifference {
       //      }
       //      oldCount = count;
 
-      if (first) {
-        final DoubleMatrix2D mM = new DoubleMatrix2D(m);
-        decompRes = dcomp.evaluate(mM);
-        // first = false;
-      }
-      f = decompRes.solve(q);
+      solve(m, xNodes, q, work, f);
 
       a1[0] = Arrays.copyOf(a2[0], xNodes - 2);
       b1[0] = Arrays.copyOf(b2[0], xNodes - 2);
@@ -9,6 +9,7 @@ import java.util.Arrays;
 
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.math.linearalgebra.BandedMatrix;
 import com.opengamma.math.linearalgebra.Decomposition;
 import com.opengamma.math.linearalgebra.DecompositionResult;
 import com.opengamma.math.linearalgebra.LUDecompositionCommons;
@@ -16,7 +17,8 @@ import com.opengamma.math.matrix.DoubleMatrix2D;
 import com.opengamma.math.surface.Surface;
 
 /**
- * A theta (i.e. weighted between explicit and implicit time stepping) scheme using SOR algorithm to solve the matrix system at each time step
+ * A theta (i.e. weighted between explicit and implicit time stepping) scheme. The matrix system at each time step is banded (tridiagonal apart from
+ * the boundary rows), so is solved directly by banded LU decomposition, or by projected SOR restricted to the band when there is a free boundary
  * This uses the exponentially fitted scheme of duffy
  */
 public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver {
@@ -86,7 +88,7 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     private double[][] _full;
 
     private final double[] _q;
-    private final double[][] _m;
+    private final BandedMatrix _m;
 
     private final double[] _rho;
     private final double[] _a;
@@ -115,7 +117,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       }
 
       _q = new double[xNodes];
-      _m = new double[xNodes][xNodes];
+      // the interior rows are tridiagonal; the boundary conditions can reach further from the diagonal
+      final double t0 = grid.getTimeNode(0);
+      final int lowerBandwidth = Math.max(1, upperBoundary.getLeftMatrixCondition(pdeData, grid, t0).length - 1);
+      final int upperBandwidth = Math.max(1, lowerBoundary.getLeftMatrixCondition(pdeData, grid, t0).length - 1);
+      _m = new BandedMatrix(xNodes, lowerBandwidth, upperBandwidth);
       _rho = new double[xNodes - 2];
       _a = new double[xNodes - 2];
       _b = new double[xNodes - 2];
@@ -252,6 +258,10 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     }
 
     private void solveMatrixSystem() {
+      if (_freeBoundary == null) {
+        _m.solve(_q, _f);
+        return;
+      }
       final double omega = 1.0;
       @SuppressWarnings("unused")
       //NOTE get this working again with dynamic omega
@@ -272,7 +282,7 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
 
     @SuppressWarnings({"unused", "synthetic-access" })
     private void solveByLU() {
-      DoubleMatrix2D temp = new DoubleMatrix2D(_m);
+      DoubleMatrix2D temp = _m.toDoubleMatrix2D();
       DecompositionResult res = DCOMP.evaluate(temp);
       double[] f = res.solve(_q);
       for (int i = 0; i < f.length; i++) {
@@ -281,7 +291,9 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     }
 
     private int solveBySOR(final double omega) {
-
+      final int xNodes = getGrid().getNumSpaceNodes();
+      final int lowerBandwidth = _m.getLowerBandwidth();
+      final int upperBandwidth = _m.getUpperBandwidth();
       double sum;
       int count = 0;
       double scale = 1.0;
@@ -289,9 +301,10 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       while (errorSqr / (scale + 1e-10) > 1e-18) {
         errorSqr = 0.0;
         scale = 0.0;
-        for (int j = 0; j < getGrid().getNumSpaceNodes(); j++) {
+        for (int j = 0; j < xNodes; j++) {
           sum = 0;
-          for (int k = 0; k < getGrid().getNumSpaceNodes(); k++) {
+          final int kMax = Math.min(xNodes - 1, j + upperBandwidth);
+          for (int k = Math.max(0, j - lowerBandwidth); k <= kMax; k++) {
             sum += getM(j, k) * getF(k);
           }
           double correction = omega / getM(j, j) * (getQ(j) - sum);
@@ -377,11 +390,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     }
 
     public double getM(final int i, final int j) {
-      return _m[i][j];
+      return _m.getEntry(i, j);
     }
 
     public void setM(final int i, final int j, final double value) {
-      _m[i][j] = value;
+      _m.setEntry(i, j, value);
     }
 
     public double getF(final int i) {
@@ -26,4 +26,14 @@ public class DiscountCurve extends YieldAndDiscountCurve {
     return getCurve().getYValue(t);
   }
 
+  @Override
+  public double getInterestRate(final double t) {
+    return -Math.log(getDiscountFactor(t)) / t;
+  }
+
+  @Override
+  public double getDiscountFactor(final double t) {
+    return getCurveValue(t);
+  }
+
 }
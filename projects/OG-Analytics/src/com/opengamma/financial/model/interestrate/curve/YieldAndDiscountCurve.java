@@ -8,6 +8,7 @@ package com.opengamma.financial.model.interestrate.curve;
 import com.opengamma.financial.model.interestrate.InterestRateModel;
 import com.opengamma.math.curve.Curve;
 import com.opengamma.math.curve.CurveShiftFunctionFactory;
+import com.opengamma.math.curve.DoublesCurve;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
@@ -20,10 +21,12 @@ import org.apache.commons.lang.Validate;
 
 public abstract class YieldAndDiscountCurve  implements InterestRateModel<Double> {
   private final Curve<Double, Double> _curve;
+  private final DoublesCurve _doublesCurve;
 
   public YieldAndDiscountCurve(final Curve<Double, Double> curve) {
     Validate.notNull(curve, "curve");
     _curve = curve;
+    _doublesCurve = (curve instanceof DoublesCurve) ? (DoublesCurve) curve : null;
   }
 
   /**
@@ -43,6 +46,46 @@ public abstract class YieldAndDiscountCurve  implements InterestRateModel<Double
    */
   public abstract double getDiscountFactor(final Double t);
 
+  /**
+   * @param t The time
+   * @return The interest rate for time to maturity <i>t</i>, computed without boxing where the curve allows it
+   */
+  public double getInterestRate(final double t) {
+    return getInterestRate(Double.valueOf(t));
+  }
+
+  /**
+   * @param t The time
+   * @return The discount factor for time to maturity <i>t</i>, computed without boxing where the curve allows it
+   */
+  public double getDiscountFactor(final double t) {
+    return getDiscountFactor(Double.valueOf(t));
+  }
+
+  /**
+   * @param t The times, not null
+   * @param discountFactors An array to write the discount factors to, not null. It must be the same length as the times
+   */
+  public void getDiscountFactors(final double[] t, final double[] discountFactors) {
+    Validate.notNull(t, "t");
+    Validate.notNull(discountFactors, "discount factors");
+    Validate.isTrue(t.length == discountFactors.length, "t and discount factors must be the same length");
+    for (int i = 0; i < t.length; i++) {
+      discountFactors[i] = getDiscountFactor(t[i]);
+    }
+  }
+
+  /**
+   * @param t The time
+   * @return The value of the underlying curve at <i>t</i>
+   */
+  protected double getCurveValue(final double t) {
+    if (_doublesCurve != null) {
+      return _doublesCurve.getYValue(t);
+    }
+    return _curve.getYValue(t);
+  }
+
   public Curve<Double, Double> getCurve() {
     return _curve;
   }
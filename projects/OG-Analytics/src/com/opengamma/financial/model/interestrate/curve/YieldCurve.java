@@ -28,4 +28,14 @@ public class YieldCurve extends YieldAndDiscountCurve {
   public double getDiscountFactor(final Double t) {
     return Math.exp(-t * getInterestRate(t));
   }
+
+  @Override
+  public double getInterestRate(final double t) {
+    return getCurveValue(t);
+  }
+
+  @Override
+  public double getDiscountFactor(final double t) {
+    return Math.exp(-t * getCurveValue(t));
+  }
 }
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.lang.Validate;
 
@@ -22,6 +23,7 @@ import com.opengamma.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.math.matrix.DoubleMatrix2D;
 import com.opengamma.math.random.RandomNumberGenerator;
+import com.opengamma.math.random.RandomNumberStreamFactory;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.CurrencyAmount;
 import com.opengamma.util.tuple.DoublesPair;
@@ -65,10 +67,21 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * Constructor for a method generating the paths in blocks of BLOCK_SIZE, each with its own random stream.
+   * @param streamFactory The factory of the random streams for each block. The streams should generate normally distributed numbers.
+   * @param nbPath The number of paths.
+   * @param executor The executor to run the blocks, null to run them on the calling thread.
+   */
+  public HullWhiteMonteCarloMethod(RandomNumberStreamFactory streamFactory, int nbPath, ExecutorService executor) {
+    super(streamFactory, nbPath, executor);
+  }
+
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price. 
+   * block price is the total price. If the method was created with a stream factory, each block draws one vector per path from its own stream and the blocks
+   * are run by the executor.
    * @param instrument The swaption.
    * @param ccy The currency
    * @param dscName The discounting curve name.
@@ -132,13 +145,21 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
+    double[][] impactAmount = decision.getImpactAmount();
+    if (getStreamFactory() != null) {
+      double pv = 0;
+      double[] pvBlock = evaluateBlocks(new PresentValueBlockCalculator(instrument, impactAmount, pDI, covCD, h, h2, gamma), nbJump, BLOCK_SIZE);
+      for (int loopblock = 0; loopblock < pvBlock.length; loopblock++) {
+        pv += pvBlock[loopblock]; // In block order, so the result does not depend on the number of threads.
+      }
+      return CurrencyAmount.of(ccy, pv * (pDN / getNbPath())); // Multiply by the numeraire.
+    }
     int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     int[] nbPath2 = new int[nbBlock];
     for (int i = 0; i < nbBlock - 1; i++) {
       nbPath2[i] = BLOCK_SIZE;
     }
     nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
-    double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
       double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
@@ -150,7 +171,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
           }
         }
       }
-      Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+      double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
       pv += MCC.visit(instrument, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
     }
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
@@ -258,7 +279,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
           }
         }
       }
-      Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+      double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
       MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
       pvBlock[loopblock] = MCDC.visit(instrument, mcdDB) * nbPath2[loopblock];
       pv += pvBlock[loopblock];
@@ -268,10 +289,10 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
           impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
         }
       }
-      Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
+      double[][][] pDBar = new double[nbPath2[loopblock]][nbJump][];
       for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
         for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-          pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
+          pDBar[looppath][loopjump] = new double[impactAmount[loopjump].length];
           for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
             pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
           }
@@ -339,10 +360,24 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
    * @param gamma The gamma parameters.
    * @return The discount factor paths (path/jump/cf).
    */
-  private Double[][][] pathGeneratorDiscount(double[][] initDiscountFactor, double[][] y, double[][] h, double[][] h2, double[] gamma) {
+  private double[][][] pathGeneratorDiscount(double[][] initDiscountFactor, double[][] y, double[][] h, double[][] h2, double[] gamma) {
+    double[][][] pD = new double[y[0].length][y.length][];
+    pathGeneratorDiscount(initDiscountFactor, y, h, h2, gamma, pD);
+    return pD;
+  }
+
+  /**
+   * Construct the discount factors on the simulated paths from the random variables and the model constants, in an existing array.
+   * @param initDiscountFactor The initial discount factors.
+   * @param y The correlated random variables. The number of paths is the length of pD, and can be less than the length of each row.
+   * @param h The H parameters.
+   * @param h2 The H^2 parameters.
+   * @param gamma The gamma parameters.
+   * @param pD The discount factor paths (path/jump/cf), filled by this method. Missing cash flow arrays are created.
+   */
+  private static void pathGeneratorDiscount(double[][] initDiscountFactor, double[][] y, double[][] h, double[][] h2, double[] gamma, double[][][] pD) {
     int nbJump = y.length;
-    int nbPath = y[0].length;
-    Double[][][] pD = new Double[nbPath][nbJump][];
+    int nbPath = pD.length;
     double[] h2gamma;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       int nbCF = h[loopjump].length;
@@ -351,13 +386,14 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         h2gamma[loopcf] = h2[loopjump][loopcf] * gamma[loopjump];
       }
       for (int looppath = 0; looppath < nbPath; looppath++) {
-        pD[looppath][loopjump] = new Double[nbCF];
+        if (pD[looppath][loopjump] == null) {
+          pD[looppath][loopjump] = new double[nbCF];
+        }
         for (int loopcf = 0; loopcf < nbCF; loopcf++) {
           pD[looppath][loopjump][loopcf] = initDiscountFactor[loopjump][loopcf] * Math.exp(-h[loopjump][loopcf] * y[loopjump][looppath] - h2gamma[loopcf]);
         }
       }
     }
-    return pD;
   }
 
   /**
@@ -370,7 +406,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
    * @param pDBar The simulated discount factor adjoints (path/jump/cf).
    * @return The initial discount factor adjoints (jump/cf).
    */
-  private double[][] pathGeneratorDiscountAdjointIDF(double[][] initDiscountFactor, double[][] y, double[][] h, double[][] h2, double[] gamma, Double[][][] pDBar) {
+  private double[][] pathGeneratorDiscountAdjointIDF(double[][] initDiscountFactor, double[][] y, double[][] h, double[][] h2, double[] gamma, double[][][] pDBar) {
     int nbJump = y.length;
     int nbPath = y[0].length;
     double[] h2gamma;
@@ -392,6 +428,74 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     return initDiscountFactorBar;
   }
 
+  /**
+   * The work buffers for one block of paths.
+   */
+  private static final class PathBuffers {
+    /**
+     * The correlated random variables (jump/path).
+     */
+    private final double[][] _y;
+    /**
+     * The discount factor paths (path/jump/cf).
+     */
+    private final double[][][] _pD;
+
+    private PathBuffers(int nbJump, int nbPath) {
+      _y = new double[nbJump][nbPath];
+      _pD = new double[nbPath][nbJump][];
+    }
+  }
+
+  /**
+   * The present value of one block of paths, times the number of paths in the block.
+   */
+  private static final class PresentValueBlockCalculator implements BlockCalculator<PathBuffers> {
+    private final InstrumentDerivative _instrument;
+    private final double[][] _impactAmount;
+    private final double[][] _initDiscountFactor;
+    private final double[][] _covCD;
+    private final double[][] _h;
+    private final double[][] _h2;
+    private final double[] _gamma;
+
+    private PresentValueBlockCalculator(InstrumentDerivative instrument, double[][] impactAmount, double[][] initDiscountFactor, double[][] covCD, double[][] h,
+        double[][] h2, double[] gamma) {
+      _instrument = instrument;
+      _impactAmount = impactAmount;
+      _initDiscountFactor = initDiscountFactor;
+      _covCD = covCD;
+      _h = h;
+      _h2 = h2;
+      _gamma = gamma;
+    }
+
+    @Override
+    public PathBuffers createBuffers(int nbPath) {
+      return new PathBuffers(_gamma.length, nbPath);
+    }
+
+    @Override
+    public double evaluate(RandomNumberGenerator stream, int nbPath, PathBuffers buffers) {
+      int nbJump = _gamma.length;
+      double[][] y = buffers._y;
+      // The calculator takes the number of paths from the array, so a shorter (last) block needs its own.
+      double[][][] pD = (buffers._pD.length == nbPath) ? buffers._pD : new double[nbPath][nbJump][];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        double[] x = stream.getVector(nbJump);
+        for (int i = 0; i < nbJump; i++) {
+          double sum = 0;
+          for (int j = 0; j <= i; j++) { // covCD is lower triangular
+            sum += x[j] * _covCD[i][j];
+          }
+          y[i][looppath] = sum;
+        }
+      }
+      pathGeneratorDiscount(_initDiscountFactor, y, _h, _h2, _gamma, pD);
+      return MCC.visit(_instrument, new MonteCarloDiscountFactorDataBundle(pD, _impactAmount)) * nbPath;
+    }
+  }
+
   @Override
   public CurrencyAmount presentValue(InstrumentDerivative instrument, YieldCurveBundle curves) {
     Validate.isTrue(curves instanceof HullWhiteOneFactorPiecewiseConstantDataBundle, "Bundle should contain Hull-White data");
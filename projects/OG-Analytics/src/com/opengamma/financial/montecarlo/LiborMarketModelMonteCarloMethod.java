@@ -6,6 +6,7 @@
 package com.opengamma.financial.montecarlo;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 
 import com.opengamma.financial.interestrate.InstrumentDerivative;
 import com.opengamma.financial.interestrate.YieldCurveBundle;
@@ -16,6 +17,7 @@ import com.opengamma.math.matrix.CommonsMatrixAlgebra;
 import com.opengamma.math.matrix.DoubleMatrix2D;
 import com.opengamma.math.matrix.MatrixAlgebra;
 import com.opengamma.math.random.RandomNumberGenerator;
+import com.opengamma.math.random.RandomNumberStreamFactory;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.CurrencyAmount;
 
@@ -67,6 +69,18 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
     _maxJump = maxJump;
   }
 
+  /**
+   * Constructor for a method generating the paths in blocks of BLOCK_SIZE, each with its own random stream.
+   * @param streamFactory The factory of the random streams for each block. The streams should generate normally distributed numbers.
+   * @param nbPath The number of paths.
+   * @param maxJump The maximum length of a jump in the path generation.
+   * @param executor The executor to run the blocks, null to run them on the calling thread.
+   */
+  public LiborMarketModelMonteCarloMethod(RandomNumberStreamFactory streamFactory, int nbPath, double maxJump, ExecutorService executor) {
+    super(streamFactory, nbPath, executor);
+    _maxJump = maxJump;
+  }
+
   public CurrencyAmount presentValue(final InstrumentDerivative instrument, Currency ccy, YieldAndDiscountCurve dsc, final LiborMarketModelDisplacedDiffusionDataBundle lmmData) {
     // The numeraire is the last time in the LMM description.
     DecisionSchedule decision = DC.visit(instrument, lmmData);
@@ -83,6 +97,22 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       initL[loopper] = (dfL[loopper] / dfL[loopper + 1] - 1.0) / deltaLMM[loopper];
     }
 
+    if (getStreamFactory() != null) {
+      double dfNumeraire = dsc.getDiscountFactor(lmmData.getLmmParameter().getIborTime()[lmmData.getLmmParameter().getIborTime().length - 1]);
+      double[][] jumpIn = jumpTimes(decision.getDecisionTime());
+      int nbFactor = lmmData.getLmmParameter().getNbFactor();
+      int nbStep = 0;
+      for (double[] jumps : jumpIn) {
+        nbStep += jumps.length - 1;
+      }
+      double[] priceBlock = evaluateBlocks(new PresentValueBlockCalculator(instrument, decision, impactIndex, initL, jumpIn, nbStep, lmmData.getLmmParameter()), nbStep
+          * nbFactor, BLOCK_SIZE);
+      double price = 0.0;
+      for (int loopblock = 0; loopblock < priceBlock.length; loopblock++) {
+        price += priceBlock[loopblock]; // In block order, so the result does not depend on the number of threads.
+      }
+      return CurrencyAmount.of(ccy, price * (dfNumeraire / getNbPath()));
+    }
     int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     int[] nbPath2 = new int[nbBlock];
     for (int i = 0; i < nbBlock - 1; i++) {
@@ -125,9 +155,12 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    * Create one step in the LMM diffusion. The step is done through several jump times. The diffusion is approximated with a predictor-corrector approach.
    * @param jumpTime The jump times.
    * @param initIbor Rate at the start of the period. Size: nbPeriodLMM x nbPath.
+   * @param lmm The LMM parameters.
+   * @param dwAll The normal increments for all the steps (step/factor/path), null to draw them from the number generator.
+   * @param firstStep The index in dwAll of the first step.
    * @return The Ibor rates at the end of the jump period. Size: nbPeriodLMM x nbPath.
    */
-  private double[][] stepPC(double[] jumpTime, double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
+  private double[][] stepPC(double[] jumpTime, double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm, final double[][][] dwAll, final int firstStep) {
     double amr = lmm.getMeanReversion();
     double[] iborTime = lmm.getIborTime();
     double[] almm = lmm.getDisplacement();
@@ -166,7 +199,7 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       }
       DoubleMatrix2D salpha2 = new DoubleMatrix2D(salpha2Array);
       // Random seed
-      double[][] dw = getNormalArray(nbFactorLMM, nbPath);
+      double[][] dw = (dwAll == null) ? getNormalArray(nbFactorLMM, nbPath) : dwAll[firstStep + loopjump];
       // Common figures
       double[] dr1 = new double[nI];
       for (int loopn = 0; loopn < nI; loopn++) {
@@ -222,17 +255,47 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
    */
   private double[][][] pathgeneratorlibor(double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
+    return pathgeneratorlibor(jumpTimes(jumpTime), initIbor, lmm, null);
+  }
+
+  /**
+   * @param jumpIn The jump times between each mandatory jump, including the intermediary jumps, as returned by {@link #jumpTimes}.
+   * @param initIbor The Ibor rates at the start. nbPeriodLMM x nbPath
+   * @param lmm The LMM parameters.
+   * @param dwAll The normal increments for all the steps (step/factor/path), null to draw them from the number generator.
+   * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
+   */
+  private double[][][] pathgeneratorlibor(double[][] jumpIn, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm, final double[][][] dwAll) {
     int nbPeriod = initIbor.length;
     int nbPath = initIbor[0].length;
-    int nbJump = jumpTime.length;
+    int nbJump = jumpIn.length;
     double[][] initTmp = new double[nbPeriod][nbPath];
     for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
       System.arraycopy(initIbor[loop1], 0, initTmp[loop1], 0, nbPath);
     }
+    double[][][] result = new double[nbJump][nbPeriod][nbPath];
+    int step = 0;
+    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      initTmp = stepPC(jumpIn[loopjump], initTmp, lmm, dwAll, step);
+      step += jumpIn[loopjump].length - 1;
+      for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
+        System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the jump times for each mandatory jump, adding intermediary jumps so that no jump is longer than the maximum jump.
+   * @param jumpTime The time of the mandatory jumps.
+   * @return The jump times from the previous mandatory jump (or 0) to each mandatory jump.
+   */
+  private double[][] jumpTimes(double[] jumpTime) {
+    int nbJump = jumpTime.length;
     double[] jumpTimeA = new double[nbJump + 1];
     jumpTimeA[0] = 0;
     System.arraycopy(jumpTime, 0, jumpTimeA, 1, nbJump);
-    double[][][] result = new double[nbJump][nbPeriod][nbPath];
+    double[][] result = new double[nbJump][];
     // TODO: add intermediary jump dates if necessary
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       // Intermediary jumps
@@ -248,14 +311,59 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
           jumpIn[loopJumpIn] = jumpTimeA[loopjump] + loopJumpIn * jump / nbJumpIn;
         }
       }
-      initTmp = stepPC(jumpIn, initTmp, lmm);
-      for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
-        System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
-      }
+      result[loopjump] = jumpIn;
     }
     return result;
   }
 
+  /**
+   * The price of one block of paths (before discounting by the numeraire). The buffers are the normal increments (step/factor/path).
+   */
+  private final class PresentValueBlockCalculator implements BlockCalculator<double[][][]> {
+    private final InstrumentDerivative _instrument;
+    private final DecisionSchedule _decision;
+    private final int[][] _impactIndex;
+    private final double[] _initL;
+    private final double[][] _jumpIn;
+    private final int _nbStep;
+    private final LiborMarketModelDisplacedDiffusionParameters _lmm;
+
+    private PresentValueBlockCalculator(InstrumentDerivative instrument, DecisionSchedule decision, int[][] impactIndex, double[] initL, double[][] jumpIn, int nbStep,
+        LiborMarketModelDisplacedDiffusionParameters lmm) {
+      _instrument = instrument;
+      _decision = decision;
+      _impactIndex = impactIndex;
+      _initL = initL;
+      _jumpIn = jumpIn;
+      _nbStep = nbStep;
+      _lmm = lmm;
+    }
+
+    @Override
+    public double[][][] createBuffers(int nbPath) {
+      return new double[_nbStep][_lmm.getNbFactor()][nbPath];
+    }
+
+    @Override
+    public double evaluate(RandomNumberGenerator stream, int nbPath, double[][][] dw) {
+      int nbFactor = _lmm.getNbFactor();
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        double[] x = stream.getVector(_nbStep * nbFactor);
+        for (int loopstep = 0; loopstep < _nbStep; loopstep++) {
+          for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+            dw[loopstep][loopfact][looppath] = x[loopstep * nbFactor + loopfact];
+          }
+        }
+      }
+      double[][] initLPath = new double[_initL.length][nbPath];
+      for (int loopper = 0; loopper < _initL.length; loopper++) {
+        Arrays.fill(initLPath[loopper], _initL[loopper]);
+      }
+      double[][][] pathIbor = pathgeneratorlibor(_jumpIn, initLPath, _lmm, dw);
+      return MCC.visit(_instrument, new MonteCarloIborRateDataBundle(pathIbor, _lmm.getAccrualFactor(), _decision.getImpactAmount(), _impactIndex));
+    }
+  }
+
   /**
    * Gets a 2D-array of independent normally distributed variables.
    * @param nbJump The number of jumps.
@@ -13,7 +13,7 @@ public class MonteCarloDiscountFactorDataBundle {
   /**
    * The paths discount factors. The dimensions are path/step/cash-flow.
    */
-  private final Double[][][] _pathDiscountingFactor;
+  private final double[][][] _pathDiscountingFactor;
   /**
    * The reference amounts at the impact dates. The dimensions are step/cash-flow.
    */
@@ -24,7 +24,7 @@ public class MonteCarloDiscountFactorDataBundle {
    * @param pathDiscountingFactor The paths discount factors.
    * @param impactAmount The reference amounts at the impact dates.
    */
-  public MonteCarloDiscountFactorDataBundle(Double[][][] pathDiscountingFactor, double[][] impactAmount) {
+  public MonteCarloDiscountFactorDataBundle(double[][][] pathDiscountingFactor, double[][] impactAmount) {
     super();
     _pathDiscountingFactor = pathDiscountingFactor;
     _impactAmount = impactAmount;
@@ -34,7 +34,7 @@ public class MonteCarloDiscountFactorDataBundle {
    * Gets the path discounting factors.
    * @return The path discounting factors.
    */
-  public Double[][][] getPathDiscountingFactor() {
+  public double[][][] getPathDiscountingFactor() {
     return _pathDiscountingFactor;
   }
 
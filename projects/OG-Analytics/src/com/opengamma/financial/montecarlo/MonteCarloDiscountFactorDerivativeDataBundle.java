@@ -12,7 +12,7 @@ public class MonteCarloDiscountFactorDerivativeDataBundle extends MonteCarloDisc
   /**
    * The derivatives of the paths discount factors. The dimensions are path/step/cash-flow.
    */
-  private Double[][][] _pathDiscountingFactorDerivative;
+  private double[][][] _pathDiscountingFactorDerivative;
   /**
    * The derivatives of the reference amounts at the impact dates. The dimensions are step/cash-flow.
    */
@@ -23,9 +23,9 @@ public class MonteCarloDiscountFactorDerivativeDataBundle extends MonteCarloDisc
    * @param pathDiscountingFactor The paths discount factors.
    * @param impactAmount The reference amounts at the impact dates.
    */
-  public MonteCarloDiscountFactorDerivativeDataBundle(Double[][][] pathDiscountingFactor, double[][] impactAmount) {
+  public MonteCarloDiscountFactorDerivativeDataBundle(double[][][] pathDiscountingFactor, double[][] impactAmount) {
     super(pathDiscountingFactor, impactAmount);
-    _pathDiscountingFactorDerivative = new Double[0][0][0];
+    _pathDiscountingFactorDerivative = new double[0][0][0];
     _impactAmountDerivative = new double[0][0];
   }
 
@@ -33,7 +33,7 @@ public class MonteCarloDiscountFactorDerivativeDataBundle extends MonteCarloDisc
    * Gets the derivatives of path discounting factors.
    * @return The derivatives of path discounting factors.
    */
-  public Double[][][] getPathDiscountingFactorDerivative() {
+  public double[][][] getPathDiscountingFactorDerivative() {
     return _pathDiscountingFactorDerivative;
   }
 
@@ -41,7 +41,7 @@ public class MonteCarloDiscountFactorDerivativeDataBundle extends MonteCarloDisc
    * Sets the derivatives of path discounting factors.
    * @param pathDiscountingFactorDerivative The derivatives of path discounting factors.
    */
-  public void setPathDiscountingFactorDerivative(Double[][][] pathDiscountingFactorDerivative) {
+  public void setPathDiscountingFactorDerivative(double[][][] pathDiscountingFactorDerivative) {
     _pathDiscountingFactorDerivative = pathDiscountingFactorDerivative;
   }
 
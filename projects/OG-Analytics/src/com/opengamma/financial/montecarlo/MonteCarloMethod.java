@@ -5,11 +5,26 @@
  */
 package com.opengamma.financial.montecarlo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.financial.interestrate.method.PricingMethod;
 import com.opengamma.math.random.RandomNumberGenerator;
+import com.opengamma.math.random.RandomNumberStreamFactory;
 
 /**
  * Generic Monte-Carlo pricing method.
+ * <p>
+ * A method is created either with a single random number generator, used for all the paths in turn on the calling thread, or with a
+ * {@link RandomNumberStreamFactory}. In the second case the paths are divided in blocks, each with its own random stream, and the
+ * blocks can be run in parallel by an executor. The block results are combined in block order, so the price does not depend on the
+ * number of threads.
  */
 public abstract class MonteCarloMethod implements PricingMethod {
 
@@ -21,6 +36,14 @@ public abstract class MonteCarloMethod implements PricingMethod {
    * The number of paths.
    */
   private final int _nbPath;
+  /**
+   * The factory of per-block random streams, null if the single generator is used.
+   */
+  private final RandomNumberStreamFactory _streamFactory;
+  /**
+   * The executor for the blocks, null to run them on the calling thread.
+   */
+  private final ExecutorService _executor;
 
   /**
    * Constructor.
@@ -30,6 +53,22 @@ public abstract class MonteCarloMethod implements PricingMethod {
   public MonteCarloMethod(RandomNumberGenerator numberGenerator, int nbPath) {
     _numberGenerator = numberGenerator;
     _nbPath = nbPath;
+    _streamFactory = null;
+    _executor = null;
+  }
+
+  /**
+   * Constructor for a method generating the paths in independent blocks.
+   * @param streamFactory The factory of the random streams for each block, not null.
+   * @param nbPath The number of paths.
+   * @param executor The executor to run the blocks, null to run them on the calling thread.
+   */
+  public MonteCarloMethod(RandomNumberStreamFactory streamFactory, int nbPath, ExecutorService executor) {
+    Validate.notNull(streamFactory, "stream factory");
+    _numberGenerator = null;
+    _nbPath = nbPath;
+    _streamFactory = streamFactory;
+    _executor = executor;
   }
 
   /**
@@ -48,4 +87,97 @@ public abstract class MonteCarloMethod implements PricingMethod {
     return _nbPath;
   }
 
+  /**
+   * Gets the _streamFactory field.
+   * @return the _streamFactory, null if the single generator is used
+   */
+  public RandomNumberStreamFactory getStreamFactory() {
+    return _streamFactory;
+  }
+
+  /**
+   * Gets the _executor field.
+   * @return the _executor, null if the blocks are run on the calling thread
+   */
+  public ExecutorService getExecutor() {
+    return _executor;
+  }
+
+  /**
+   * The calculation on one block of paths.
+   * @param <B> The type of the work buffers
+   */
+  protected interface BlockCalculator<B> {
+
+    /**
+     * Creates the work buffers. A set of buffers is only used by one thread at a time, and is reused for several blocks.
+     * @param nbPath The maximum number of paths in a block.
+     * @return The buffers.
+     */
+    B createBuffers(int nbPath);
+
+    /**
+     * Computes the result for one block.
+     * @param stream The random stream for the block, giving one vector per path.
+     * @param nbPath The number of paths in the block.
+     * @param buffers The work buffers.
+     * @return The block result.
+     */
+    double evaluate(RandomNumberGenerator stream, int nbPath, B buffers);
+
+  }
+
+  /**
+   * Runs the calculation on each block of paths using the stream factory. The blocks are divided between a number of tasks, each
+   * with its own buffers; the result for a block only depends on its position.
+   * @param <B> The type of the work buffers
+   * @param calculator The block calculation.
+   * @param dimension The number of random variables for each path.
+   * @param blockSize The maximum number of paths in a block.
+   * @return The result of each block, in path order.
+   */
+  protected <B> double[] evaluateBlocks(final BlockCalculator<B> calculator, final int dimension, final int blockSize) {
+    Validate.notNull(_streamFactory, "the method was created with a single random number generator");
+    final int nbBlock = (_nbPath + blockSize - 1) / blockSize;
+    final double[] result = new double[nbBlock];
+    final int nbTask = (_executor == null) ? 1 : Math.min(nbBlock, Runtime.getRuntime().availableProcessors());
+    final List<Runnable> tasks = new ArrayList<Runnable>(nbTask);
+    for (int looptask = 0; looptask < nbTask; looptask++) {
+      final int firstBlock = looptask;
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          final B buffers = calculator.createBuffers(Math.min(blockSize, _nbPath));
+          for (int loopblock = firstBlock; loopblock < nbBlock; loopblock += nbTask) {
+            final int firstPath = loopblock * blockSize;
+            final int nbPath = Math.min(blockSize, _nbPath - firstPath);
+            result[loopblock] = calculator.evaluate(_streamFactory.getStream(dimension, firstPath), nbPath, buffers);
+          }
+        }
+      });
+    }
+    if (_executor == null) {
+      tasks.get(0).run();
+    } else {
+      final List<Future<?>> futures = new ArrayList<Future<?>>(nbTask);
+      for (final Runnable task : tasks) {
+        futures.add(_executor.submit(task));
+      }
+      try {
+        for (final Future<?> future : futures) {
+          future.get();
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OpenGammaRuntimeException("Interrupted while running Monte Carlo blocks", e);
+      } catch (final ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new OpenGammaRuntimeException("Monte Carlo block failed", e.getCause());
+      }
+    }
+    return result;
+  }
+
 }
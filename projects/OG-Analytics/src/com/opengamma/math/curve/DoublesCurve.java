@@ -413,6 +413,29 @@ public abstract class DoublesCurve extends Curve<Double, Double> {
     return _n;
   }
 
+  /**
+   * Returns the <i>y</i> value for an <i>x</i> value without boxing. The default implementation delegates to {@link #getYValue(Double)}
+   * @param x The <i>x</i> value
+   * @return The <i>y</i> value
+   */
+  public double getYValue(final double x) {
+    return getYValue(Double.valueOf(x));
+  }
+
+  /**
+   * Returns the <i>y</i> values for an array of <i>x</i> values
+   * @param x The <i>x</i> values, not null
+   * @param y An array to write the <i>y</i> values to, not null. It must be the same length as the <i>x</i> values
+   */
+  public void getYValues(final double[] x, final double[] y) {
+    Validate.notNull(x, "x");
+    Validate.notNull(y, "y");
+    Validate.isTrue(x.length == y.length, "x and y must be the same length");
+    for (int i = 0; i < x.length; i++) {
+      y[i] = getYValue(x[i]);
+    }
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -509,9 +509,19 @@ public class InterpolatedDoublesCurve extends DoublesCurve {
   @Override
   public Double getYValue(final Double x) {
     Validate.notNull(x, "x");
+    return _interpolator.interpolate(_dataBundle, x.doubleValue());
+  }
+
+  @Override
+  public double getYValue(final double x) {
     return _interpolator.interpolate(_dataBundle, x);
   }
 
+  @Override
+  public void getYValues(final double[] x, final double[] y) {
+    _interpolator.interpolate(_dataBundle, x, y);
+  }
+
   public Interpolator1D getInterpolator() {
     return _interpolator;
   }
@@ -69,11 +69,18 @@ public class CombinedInterpolatorExtrapolator extends Interpolator1D {
   public Double interpolate(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(data, "data");
     Validate.notNull(value, "value");
-    if (value < data.firstKey()) {
+    return interpolate(data, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
+    Validate.notNull(data, "data");
+    final double[] keys = data.getKeys();
+    if (value < keys[0]) {
       if (_leftExtrapolator != null) {
         return _leftExtrapolator.interpolate(data, value);
       }
-    } else if (value > data.lastKey()) {
+    } else if (value > keys[keys.length - 1]) {
       if (_rightExtrapolator != null) {
         return _rightExtrapolator.interpolate(data, value);
       }
@@ -27,12 +27,18 @@ public class FlatExtrapolator1D extends Interpolator1D {
 
   @Override
   public Double interpolate(final Interpolator1DDataBundle data, final Double value) {
-    Validate.notNull(data, "data");
     Validate.notNull(value, "value");
-    if (value < data.firstKey()) {
-      return data.firstValue();
-    } else if (value > data.lastKey()) {
-      return data.lastValue();
+    return interpolate(data, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
+    Validate.notNull(data, "data");
+    final double[] keys = data.getKeys();
+    if (value < keys[0]) {
+      return data.getValues()[0];
+    } else if (value > keys[keys.length - 1]) {
+      return data.getValues()[keys.length - 1];
     }
     throw new IllegalArgumentException("Value " + value + " was within data range");
   }
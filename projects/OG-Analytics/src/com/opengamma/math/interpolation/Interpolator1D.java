@@ -25,6 +25,31 @@ public abstract class Interpolator1D implements Interpolator<Interpolator1DDataB
   @Override
   public abstract Double interpolate(Interpolator1DDataBundle data, Double value);
 
+  /**
+   * Interpolates without boxing. The interpolators used for curves override this; the default delegates to the boxed method.
+   * @param data The data bundle
+   * @param value The value to interpolate at
+   * @return The interpolated value
+   */
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
+    return interpolate(data, Double.valueOf(value));
+  }
+
+  /**
+   * Interpolates at each of an array of values.
+   * @param data The data bundle
+   * @param values The values to interpolate at, not null
+   * @param results An array to write the interpolated values to, not null. It must be the same length as the values
+   */
+  public void interpolate(final Interpolator1DDataBundle data, final double[] values, final double[] results) {
+    Validate.notNull(values, "values");
+    Validate.notNull(results, "results");
+    Validate.isTrue(values.length == results.length, "values and results must be the same length");
+    for (int i = 0; i < values.length; i++) {
+      results[i] = interpolate(data, values[i]);
+    }
+  }
+
   public double[] getNodeSensitivitiesForValue(Interpolator1DDataBundle data, Double value, boolean useFiniteDifferenceSensitivities) {
     return useFiniteDifferenceSensitivities ? getFiniteDifferenceSensitivities(data, value) : getNodeSensitivitiesForValue(data, value);
   }
@@ -41,6 +41,12 @@ public class LinearExtrapolator1D extends Interpolator1D {
   public Double interpolate(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(data, "data");
     Validate.notNull(value, "value");
+    return interpolate(data, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
+    Validate.notNull(data, "data");
     if (value < data.firstKey()) {
       return leftExtrapolate(data, value);
     } else if (value > data.lastKey()) {
@@ -60,9 +66,7 @@ public class LinearExtrapolator1D extends Interpolator1D {
     throw new IllegalArgumentException("Value " + value + " was within data range");
   }
 
-  private Double leftExtrapolate(final Interpolator1DDataBundle data, final Double value) {
-    Validate.notNull(data, "data");
-    Validate.notNull(value, "value");
+  private double leftExtrapolate(final Interpolator1DDataBundle data, final double value) {
     final double x = data.firstKey();
     final double y = data.firstValue();
     final double eps = _eps * (data.lastKey() - x);
@@ -70,9 +74,7 @@ public class LinearExtrapolator1D extends Interpolator1D {
     return y + (value - x) * m;
   }
 
-  private Double rightExtrapolate(final Interpolator1DDataBundle data, final Double value) {
-    Validate.notNull(data, "data");
-    Validate.notNull(value, "value");
+  private double rightExtrapolate(final Interpolator1DDataBundle data, final double value) {
     final double x = data.lastKey();
     final double y = data.lastValue();
     final double eps = _eps * (x - data.firstKey());
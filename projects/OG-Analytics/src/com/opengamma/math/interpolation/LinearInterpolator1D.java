@@ -24,16 +24,21 @@ public class LinearInterpolator1D extends Interpolator1D {
   @Override
   public Double interpolate(final Interpolator1DDataBundle model, final Double value) {
     Validate.notNull(value, "Value to be interpolated must not be null");
+    return interpolate(model, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle model, final double value) {
     Validate.notNull(model, "Data bundle must not be null");
-    final InterpolationBoundedValues boundedValues = model.getBoundedValues(value);
-    final double x1 = boundedValues.getLowerBoundKey();
-    final double y1 = boundedValues.getLowerBoundValue();
-    if (model.getLowerBoundIndex(value) == model.size() - 1) {
+    final int index = model.getLowerBoundIndex(value);
+    final double[] keys = model.getKeys();
+    final double[] values = model.getValues();
+    final double y1 = values[index];
+    if (index == model.size() - 1) {
       return y1;
     }
-    final double x2 = boundedValues.getHigherBoundKey();
-    final double y2 = boundedValues.getHigherBoundValue();
-    return y1 + (value - x1) / (x2 - x1) * (y2 - y1);
+    final double x1 = keys[index];
+    return y1 + (value - x1) / (keys[index + 1] - x1) * (values[index + 1] - y1);
   }
 
 
@@ -8,7 +8,6 @@ package com.opengamma.math.interpolation;
 import org.apache.commons.lang.Validate;
 
 import com.opengamma.math.interpolation.data.ArrayInterpolator1DDataBundle;
-import com.opengamma.math.interpolation.data.InterpolationBoundedValues;
 import com.opengamma.math.interpolation.data.Interpolator1DDataBundle;
 
 /**
@@ -28,16 +27,21 @@ public class LogLinearInterpolator1D extends Interpolator1D {
   @Override
   public Double interpolate(final Interpolator1DDataBundle model, final Double value) {
     Validate.notNull(value, "value");
+    return interpolate(model, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle model, final double value) {
     Validate.notNull(model, "data bundle");
-    final InterpolationBoundedValues boundedValues = model.getBoundedValues(value);
-    final Double x1 = boundedValues.getLowerBoundKey();
-    final Double y1 = boundedValues.getLowerBoundValue();
-    if (model.getLowerBoundIndex(value) == model.size() - 1) {
+    final int index = model.getLowerBoundIndex(value);
+    final double[] keys = model.getKeys();
+    final double[] values = model.getValues();
+    final double y1 = values[index];
+    if (index == model.size() - 1) {
       return y1;
     }
-    final Double x2 = boundedValues.getHigherBoundKey();
-    final Double y2 = boundedValues.getHigherBoundValue();
-    return Math.pow(y2 / y1, (value - x1) / (x2 - x1)) * y1;
+    final double x1 = keys[index];
+    return Math.pow(values[index + 1] / y1, (value - x1) / (keys[index + 1] - x1)) * y1;
   }
 
   @Override
@@ -30,6 +30,11 @@ public class NaturalCubicSplineInterpolator1D extends Interpolator1D {
   @Override
   public Double interpolate(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(value, "value");
+    return interpolate(data, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
     Validate.notNull(data, "data bundle");
     Validate.isTrue(data instanceof Interpolator1DCubicSplineDataBundle);
     Interpolator1DCubicSplineDataBundle splineData = (Interpolator1DCubicSplineDataBundle) data;
@@ -38,7 +43,7 @@ public class NaturalCubicSplineInterpolator1D extends Interpolator1D {
     final int n = data.size() - 1;
     final double[] xData = data.getKeys();
     final double[] yData = data.getValues();
-    if (data.getLowerBoundIndex(value) == n) {
+    if (low == n) {
       return yData[n];
     }
     final double delta = xData[high] - xData[low];
@@ -19,8 +19,13 @@ public class StepInterpolator1D extends Interpolator1D {
   @Override
   public Double interpolate(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(value, "value");
+    return interpolate(data, value.doubleValue());
+  }
+
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
     Validate.notNull(data, "data bundle");
-    return data.get(data.getLowerBoundKey(value));
+    return data.getValues()[data.getLowerBoundIndex(value)];
   }
 
   @Override
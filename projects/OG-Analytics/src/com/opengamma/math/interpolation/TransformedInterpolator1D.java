@@ -47,6 +47,11 @@ public class TransformedInterpolator1D extends Interpolator1D {
     return _transform.inverseTransform(_base.interpolate(data, value));
   }
 
+  @Override
+  public double interpolate(final Interpolator1DDataBundle data, final double value) {
+    return _transform.inverseTransform(_base.interpolate(data, value));
+  }
+
   @Override
   public double[] getNodeSensitivitiesForValue(Interpolator1DDataBundle data, Double value) {
 
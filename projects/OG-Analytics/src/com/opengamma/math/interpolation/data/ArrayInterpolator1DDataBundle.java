@@ -129,6 +129,11 @@ public class ArrayInterpolator1DDataBundle implements Interpolator1DDataBundle {
 
   @Override
   public int getLowerBoundIndex(final Double value) {
+    return getLowerBoundIndex(value.doubleValue());
+  }
+
+  @Override
+  public int getLowerBoundIndex(final double value) {
     if (value < _keys[0]) {
       throw new IllegalArgumentException("Could not get lower bound index for " + value + ": lowest x-value is "
           + _keys[0]);
@@ -18,6 +18,8 @@ public interface Interpolator1DDataBundle {
 
   int getLowerBoundIndex(Double value);
 
+  int getLowerBoundIndex(double value);
+
   Double get(Double key);
 
   Double firstKey();
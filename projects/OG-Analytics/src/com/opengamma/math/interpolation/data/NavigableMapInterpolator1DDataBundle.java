@@ -39,6 +39,11 @@ public class NavigableMapInterpolator1DDataBundle implements Interpolator1DDataB
     return _backingMap.floorKey(value);
   }
 
+  @Override
+  public int getLowerBoundIndex(final double value) {
+    return getLowerBoundIndex(Double.valueOf(value));
+  }
+
   @Override
   public int getLowerBoundIndex(final Double value) {
     final Double lower = getLowerBoundKey(value);
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.math.matrix.DoubleMatrix2D;
+
+/**
+ * A mutable square matrix whose non-zero entries all lie within a band around the diagonal, i.e. {@latex.inline $a_{ij} = 0$} for
+ * {@latex.inline $j < i - m_l$} or {@latex.inline $j > i + m_u$}. Only the band is stored, and a system {@latex.inline $Ax = b$} is solved
+ * by LU decomposition in {@latex.inline $O(n m_l m_u)$} operations - for a tridiagonal matrix this is the Thomas algorithm.
+ * <p>
+ * The decomposition does not pivot, so is intended for matrices that are diagonally dominant, such as those arising from finite
+ * difference schemes. The work arrays are allocated once, so a matrix can be updated and solved repeatedly (e.g. at each time
+ * step of a PDE solver) without creating garbage. Instances are not thread-safe.
+ */
+public class BandedMatrix {
+  private final int _n;
+  private final int _lower;
+  private final int _upper;
+  private final double[][] _band;
+  private final double[][] _lu;
+
+  /**
+   * @param n The number of rows (and columns) of the matrix, greater than zero
+   * @param lowerBandwidth The number of sub-diagonals that can be non-zero, not negative
+   * @param upperBandwidth The number of super-diagonals that can be non-zero, not negative
+   */
+  public BandedMatrix(final int n, final int lowerBandwidth, final int upperBandwidth) {
+    Validate.isTrue(n > 0, "n must be greater than zero");
+    Validate.isTrue(lowerBandwidth >= 0, "lower bandwidth must not be negative");
+    Validate.isTrue(upperBandwidth >= 0, "upper bandwidth must not be negative");
+    _n = n;
+    _lower = lowerBandwidth;
+    _upper = upperBandwidth;
+    _band = new double[n][lowerBandwidth + upperBandwidth + 1];
+    _lu = new double[n][lowerBandwidth + upperBandwidth + 1];
+  }
+
+  /**
+   * @return The number of rows (and columns)
+   */
+  public int getSize() {
+    return _n;
+  }
+
+  /**
+   * @return The number of sub-diagonals
+   */
+  public int getLowerBandwidth() {
+    return _lower;
+  }
+
+  /**
+   * @return The number of super-diagonals
+   */
+  public int getUpperBandwidth() {
+    return _upper;
+  }
+
+  /**
+   * @param i The row
+   * @param j The column
+   * @return The entry, zero if it lies outside the band
+   */
+  public double getEntry(final int i, final int j) {
+    final int k = j - i + _lower;
+    if (k < 0 || k > _lower + _upper) {
+      return 0.0;
+    }
+    return _band[i][k];
+  }
+
+  /**
+   * @param i The row
+   * @param j The column, which must lie within the band
+   * @param value The value
+   */
+  public void setEntry(final int i, final int j, final double value) {
+    final int k = j - i + _lower;
+    if (k < 0 || k > _lower + _upper) {
+      throw new IllegalArgumentException("Entry (" + i + ", " + j + ") is outside the band");
+    }
+    _band[i][k] = value;
+  }
+
+  /**
+   * Solves {@latex.inline $Ax = b$}. The matrix itself is not modified.
+   * @param b The right hand side, not null. Its length must be the size of the matrix
+   * @param x An array to write the solution to, not null. Its length must be the size of the matrix. This can be the same array as b
+   */
+  public void solve(final double[] b, final double[] x) {
+    Validate.notNull(b, "b");
+    Validate.notNull(x, "x");
+    Validate.isTrue(b.length == _n, "b has the wrong length");
+    Validate.isTrue(x.length == _n, "x has the wrong length");
+    final int width = _lower + _upper + 1;
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_band[i], 0, _lu[i], 0, width);
+    }
+    // Doolittle decomposition in place; L has a unit diagonal so only its multipliers are stored
+    for (int k = 0; k < _n; k++) {
+      final double[] pivotRow = _lu[k];
+      final double pivot = pivotRow[_lower];
+      if (pivot == 0.0) {
+        throw new IllegalArgumentException("Matrix is singular or needs pivoting at row " + k);
+      }
+      final int iMax = Math.min(_n - 1, k + _lower);
+      final int jMax = Math.min(_n - 1, k + _upper);
+      for (int i = k + 1; i <= iMax; i++) {
+        final double[] row = _lu[i];
+        final int offset = _lower - i;
+        final double l = row[k + offset] / pivot;
+        row[k + offset] = l;
+        if (l != 0.0) {
+          for (int j = k + 1; j <= jMax; j++) {
+            row[j + offset] -= l * pivotRow[j - k + _lower];
+          }
+        }
+      }
+    }
+    // forward substitution with L
+    for (int i = 0; i < _n; i++) {
+      final double[] row = _lu[i];
+      final int offset = _lower - i;
+      double sum = b[i];
+      for (int j = Math.max(0, i - _lower); j < i; j++) {
+        sum -= row[j + offset] * x[j];
+      }
+      x[i] = sum;
+    }
+    // back substitution with U
+    for (int i = _n - 1; i >= 0; i--) {
+      final double[] row = _lu[i];
+      final int offset = _lower - i;
+      double sum = x[i];
+      final int jMax = Math.min(_n - 1, i + _upper);
+      for (int j = i + 1; j <= jMax; j++) {
+        sum -= row[j + offset] * x[j];
+      }
+      x[i] = sum / row[_lower];
+    }
+  }
+
+  /**
+   * @return The matrix as a {@link com.opengamma.math.matrix.DoubleMatrix2D}
+   */
+  public DoubleMatrix2D toDoubleMatrix2D() {
+    final double[][] data = new double[_n][_n];
+    for (int i = 0; i < _n; i++) {
+      final int jMax = Math.min(_n - 1, i + _upper);
+      for (int j = Math.max(0, i - _lower); j <= jMax; j++) {
+        data[i][j] = getEntry(i, j);
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+}
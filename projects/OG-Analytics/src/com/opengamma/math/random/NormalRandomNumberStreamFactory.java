@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.random;
+
+import cern.jet.random.engine.MersenneTwister;
+
+/**
+ * Creates streams of pseudo-random standard normal numbers. Each stream is a {@link NormalRandomNumberGenerator} with its own
+ * Mersenne twister, seeded from the base seed and the index of the first path.
+ */
+public class NormalRandomNumberStreamFactory implements RandomNumberStreamFactory {
+  private final long _seed;
+
+  /**
+   * @param seed The base seed
+   */
+  public NormalRandomNumberStreamFactory(final long seed) {
+    _seed = seed;
+  }
+
+  @Override
+  public RandomNumberGenerator getStream(final int dimension, final long firstPath) {
+    return new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister(getSeed(firstPath)));
+  }
+
+  /**
+   * Mixes the base seed and the path index (the finalizer of the SplitMix64 generator), so that nearby indices give unrelated seeds.
+   */
+  private int getSeed(final long firstPath) {
+    long z = _seed + (firstPath + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) (z ^ (z >>> 32));
+  }
+
+}
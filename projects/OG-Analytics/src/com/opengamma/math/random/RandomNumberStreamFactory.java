@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.random;
+
+/**
+ * Creates reproducible streams of random vectors, so that disjoint parts of a simulation can be generated independently (e.g. on
+ * different threads) and still give the same numbers however the work is divided.
+ */
+public interface RandomNumberStreamFactory {
+
+  /**
+   * Gets the stream for the paths starting at an index. The same arguments always give the same stream.
+   * @param dimension The number of random variables needed for each path
+   * @param firstPath The index of the first path that will use the stream
+   * @return A generator that gives one vector of the given dimension per path
+   */
+  RandomNumberGenerator getStream(int dimension, long firstPath);
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.random;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+import cern.jet.stat.Probability;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A quasi-random generator of standard normal vectors, from the Sobol' low-discrepancy sequence mapped through the inverse of the
+ * normal cumulative distribution function. Each call to {@link #getVector(int)} returns the next point of the sequence, so for
+ * Monte Carlo simulation the dimension should be the number of normal variables needed for one path, and there should be one
+ * call per path.
+ * <p>
+ * The points are generated in Gray code order (Antonov and Saleev, 1979). The first dimension is the van der Corput sequence; the
+ * others use the primitive polynomials modulo two in order of increasing degree. The initial direction numbers of the first sixteen
+ * dimensions are those of Joe and Kuo (2008); beyond that they are drawn from a fixed-seed generator, which gives a valid but less
+ * uniform sequence. The point at the origin is skipped. The sequence can be started at any point with {@link #skipTo(long)},
+ * so disjoint segments of it can be generated independently.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class SobolRandomNumberGenerator implements RandomNumberGenerator {
+  /** The number of bits in each coordinate, which limits the number of points to {@latex.inline $2^{31} - 1$} */
+  private static final int BITS = 31;
+  private static final double SCALE = 1.0 / (1L << BITS);
+  /** Seed of the linear congruential generator for the initial direction numbers beyond those tabulated */
+  private static final long DIRECTION_SEED = 20120201L;
+  /** Initial direction numbers for the second and subsequent dimensions, from Joe and Kuo (2008) */
+  private static final int[][] INITIAL_DIRECTION = new int[][] { {1}, {1, 3}, {1, 3, 1}, {1, 1, 1}, {1, 1, 3, 3}, {1, 3, 5, 13}, {1, 1, 5, 5, 17}, {1, 1, 5, 5, 5},
+    {1, 1, 7, 11, 19}, {1, 1, 5, 1, 1}, {1, 1, 1, 3, 11}, {1, 3, 5, 5, 31}, {1, 3, 3, 9, 7, 49}, {1, 1, 1, 15, 21, 21}, {1, 3, 1, 13, 27, 49}};
+
+  private final int _dimension;
+  /** Direction numbers, indexed by dimension and then bit */
+  private final int[][] _direction;
+  /** The current point, as integers */
+  private final int[] _x;
+  /** The index of the current point */
+  private long _index;
+
+  /**
+   * @param dimension The maximum dimension of the vectors, greater than zero
+   */
+  public SobolRandomNumberGenerator(final int dimension) {
+    ArgumentChecker.notNegativeOrZero(dimension, "dimension");
+    _dimension = dimension;
+    _direction = getDirectionNumbers(dimension);
+    _x = new int[dimension];
+  }
+
+  /**
+   * @return The maximum dimension of the vectors
+   */
+  public int getDimension() {
+    return _dimension;
+  }
+
+  /**
+   * Moves to a point of the sequence, so the next vector returned is the one after it.
+   * @param index The index of the point, not negative. Zero is the origin, which is where a new generator starts
+   */
+  public void skipTo(final long index) {
+    Validate.isTrue(index >= 0 && index < (1L << BITS), "index out of range");
+    final long gray = index ^ (index >>> 1);
+    for (int i = 0; i < _dimension; i++) {
+      int x = 0;
+      for (int k = 0; k < BITS; k++) {
+        if ((gray & (1L << k)) != 0) {
+          x ^= _direction[i][k];
+        }
+      }
+      _x[i] = x;
+    }
+    _index = index;
+  }
+
+  private void next() {
+    if (_index + 1 >= (1L << BITS)) {
+      throw new IllegalStateException("The Sobol sequence has been exhausted");
+    }
+    final int c = Long.numberOfTrailingZeros(~_index);
+    for (int i = 0; i < _dimension; i++) {
+      _x[i] ^= _direction[i][c];
+    }
+    _index++;
+  }
+
+  /**
+   * {@inheritDoc}
+   * Returns the first coordinates of the next point of the sequence.
+   * @param dimension The dimension, not negative and not greater than the dimension of the generator
+   */
+  @Override
+  public double[] getVector(final int dimension) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    Validate.isTrue(dimension <= _dimension, "dimension is greater than the dimension of the generator");
+    next();
+    final double[] result = new double[dimension];
+    for (int i = 0; i < dimension; i++) {
+      result[i] = Probability.normalInverse(_x[i] * SCALE);
+    }
+    return result;
+  }
+
+  @Override
+  public List<double[]> getVectors(final int dimension, final int n) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    ArgumentChecker.notNegative(n, "n");
+    final List<double[]> result = new ArrayList<double[]>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(getVector(dimension));
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  private static int[][] getDirectionNumbers(final int dimension) {
+    final int[][] direction = new int[dimension][BITS];
+    for (int k = 0; k < BITS; k++) {
+      direction[0][k] = 1 << (BITS - 1 - k);
+    }
+    long seed = DIRECTION_SEED;
+    int degree = 1;
+    long polynomial = 1;
+    final int[] m = new int[BITS];
+    for (int i = 1; i < dimension; i++) {
+      // the next primitive polynomial, as a bit mask with bit j the coefficient of x^j
+      do {
+        polynomial += 2;
+        if (polynomial >= 1L << (degree + 1)) {
+          degree++;
+          polynomial = (1L << degree) + 1;
+        }
+      } while (!isPrimitive(polynomial, degree));
+      final int s = Math.min(degree, BITS);
+      if (i <= INITIAL_DIRECTION.length) {
+        System.arraycopy(INITIAL_DIRECTION[i - 1], 0, m, 0, s);
+      } else {
+        for (int k = 0; k < s; k++) {
+          // an odd number less than 2^(k + 1)
+          seed = seed * 6364136223846793005L + 1442695040888963407L;
+          m[k] = (int) ((seed >>> 33) & ((1L << k) - 1)) << 1 | 1;
+        }
+      }
+      for (int k = s; k < BITS; k++) {
+        int value = m[k - s] ^ (m[k - s] << s);
+        for (int j = 1; j < s; j++) {
+          if ((polynomial & (1L << (s - j))) != 0) {
+            value ^= m[k - j] << j;
+          }
+        }
+        m[k] = value;
+      }
+      for (int k = 0; k < BITS; k++) {
+        direction[i][k] = m[k] << (BITS - 1 - k);
+      }
+    }
+    return direction;
+  }
+
+  /**
+   * Tests whether a polynomial over GF(2) is primitive, i.e. whether x has order {@latex.inline $2^d - 1$} modulo the polynomial.
+   */
+  private static boolean isPrimitive(final long polynomial, final int degree) {
+    final long order = (1L << degree) - 1;
+    if (powerOfX(order, polynomial, degree) != 1) {
+      return false;
+    }
+    long n = order;
+    for (long q = 2; q * q <= n; q++) {
+      if (n % q == 0) {
+        if (powerOfX(order / q, polynomial, degree) == 1) {
+          return false;
+        }
+        while (n % q == 0) {
+          n /= q;
+        }
+      }
+    }
+    return n == 1 || n == order || powerOfX(order / n, polynomial, degree) != 1;
+  }
+
+  /**
+   * Calculates {@latex.inline $x^e$} modulo a polynomial over GF(2).
+   */
+  private static long powerOfX(final long e, final long polynomial, final int degree) {
+    long result = 1;
+    long base = degree == 1 ? polynomial ^ 2 : 2; // x mod p
+    long exponent = e;
+    while (exponent > 0) {
+      if ((exponent & 1) != 0) {
+        result = multiply(result, base, polynomial, degree);
+      }
+      base = multiply(base, base, polynomial, degree);
+      exponent >>>= 1;
+    }
+    return result;
+  }
+
+  private static long multiply(final long a, final long b, final long polynomial, final int degree) {
+    long result = 0;
+    long x = a;
+    long y = b;
+    while (y != 0) {
+      if ((y & 1) != 0) {
+        result ^= x;
+      }
+      y >>>= 1;
+      x <<= 1;
+      if ((x & (1L << degree)) != 0) {
+        x ^= polynomial;
+      }
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.random;
+
+/**
+ * Creates streams that are consecutive segments of one Sobol' sequence: the stream for the paths starting at index {@latex.inline $i$}
+ * starts at point {@latex.inline $i + 1$} of the sequence, so the paths of a simulation use the points in order however they are
+ * divided.
+ */
+public class SobolRandomNumberStreamFactory implements RandomNumberStreamFactory {
+
+  @Override
+  public RandomNumberGenerator getStream(final int dimension, final long firstPath) {
+    final SobolRandomNumberGenerator generator = new SobolRandomNumberGenerator(dimension);
+    generator.skipTo(firstPath);
+    return generator;
+  }
+
+}
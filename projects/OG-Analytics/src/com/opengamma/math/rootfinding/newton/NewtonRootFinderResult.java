@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.rootfinding.newton;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
+
+/**
+ * The result of a {@link NewtonVectorRootFinder}: the root, the estimate of the matrix (Jacobian or inverse Jacobian, depending on the root
+ * finder) used for the last step, and the number of iterations. The matrix can be used to start the root finder on a nearby problem.
+ */
+public class NewtonRootFinderResult {
+  private final DoubleMatrix1D _root;
+  private final DoubleMatrix2D _matrix;
+  private final int _iterations;
+
+  /**
+   * @param root The root, not null
+   * @param matrix The final matrix estimate, not null
+   * @param iterations The number of iterations, not negative
+   */
+  public NewtonRootFinderResult(final DoubleMatrix1D root, final DoubleMatrix2D matrix, final int iterations) {
+    Validate.notNull(root, "root");
+    Validate.notNull(matrix, "matrix");
+    Validate.isTrue(iterations >= 0, "iterations must be non-negative");
+    _root = root;
+    _matrix = matrix;
+    _iterations = iterations;
+  }
+
+  /**
+   * @return The root
+   */
+  public DoubleMatrix1D getRoot() {
+    return _root;
+  }
+
+  /**
+   * @return The final estimate of the matrix
+   */
+  public DoubleMatrix2D getMatrix() {
+    return _matrix;
+  }
+
+  /**
+   * @return The number of iterations
+   */
+  public int getIterations() {
+    return _iterations;
+  }
+
+}
@@ -58,23 +58,49 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
   * @param startPosition where to start the root finder for. Note if multiple roots exist which one if found (if at all) will depend on startPosition 
   * @return the vector root of the collection of functions 
    */
+  public DoubleMatrix1D getRoot(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction, final DoubleMatrix1D startPosition) {
+    return findRoot(function, jacobianFunction, startPosition, null).getRoot();
+  }
 
+  /**
+   * Finds the root, optionally starting from a known estimate of the matrix used by this root finder (the Jacobian, or its inverse, depending on the
+   * initialization function). This is intended for warm starts, when a problem close to this one has already been solved: the final matrix
+   * of the previous solve (see {@link NewtonRootFinderResult#getMatrix()}) avoids the calculation and decomposition of the Jacobian at the start.
+   *@param function a vector function (i.e. vector to vector) 
+   *@param jacobianFunction calculates the Jacobian
+   *@param startPosition where to start the root finder for
+   *@param initialEstimate the estimate of the matrix at the start position, null to calculate it with the initialization function
+   *@return the root, the final matrix estimate and the number of iterations
+   */
   @SuppressWarnings("synthetic-access")
-  public DoubleMatrix1D getRoot(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction, final DoubleMatrix1D startPosition) {
+  public NewtonRootFinderResult findRoot(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction,
+      final DoubleMatrix1D startPosition, final DoubleMatrix2D initialEstimate) {
     checkInputs(function, startPosition);
+    if (initialEstimate != null) {
+      final int n = startPosition.getNumberOfElements();
+      ArgumentChecker.isTrue(initialEstimate.getNumberOfRows() == n && initialEstimate.getNumberOfColumns() == n, "initial estimate must be a square matrix of the same size as the start position");
+    }
 
     final DataBundle data = new DataBundle();
     final DoubleMatrix1D y = function.evaluate(startPosition);
     data.setX(startPosition);
     data.setY(y);
     data.setG0(_algebra.getInnerProduct(y, y));
-    DoubleMatrix2D estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, startPosition);
+    DoubleMatrix2D estimate = initialEstimate == null ? _initializationFunction.getInitializedMatrix(jacobianFunction, startPosition) : initialEstimate;
 
     if (!getNextPosition(function, estimate, data)) {
       if (isConverged(data)) {
-        return data.getX(); // this can happen if the starting position is the root
+        return new NewtonRootFinderResult(data.getX(), estimate, 0); // this can happen if the starting position is the root
+      }
+      if (initialEstimate == null) {
+        throw new MathException("Cannot work with this starting position. Please choose another point");
+      }
+      // the supplied estimate may be too far from the Jacobian at this position
+      s_logger.debug("Could not use the initial estimate; recalculating the Jacobian");
+      estimate = _initializationFunction.getInitializedMatrix(jacobianFunction, startPosition);
+      if (!getNextPosition(function, estimate, data)) {
+        throw new MathException("Cannot work with this starting position. Please choose another point");
       }
-      throw new MathException("Cannot work with this starting position. Please choose another point");
     }
 
     int count = 0;
@@ -103,7 +129,7 @@ public class NewtonVectorRootFinder extends VectorRootFinder {
         throw new MathException("Failed to converge");
       }
     }
-    return data.getX();
+    return new NewtonRootFinderResult(data.getX(), estimate, count + 1);
   }
 
   private boolean getNextPosition(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final DoubleMatrix2D estimate, final DataBundle data) {
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.math.interpolation.Interpolator1D;
+import com.opengamma.math.interpolation.LinearInterpolator1D;
+import com.opengamma.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Tests {@link ArrayInterestRateCurveSensitivity}
+ */
+public class ArrayInterestRateCurveSensitivityTest {
+  private static final String CURVE_1 = "A";
+  private static final String CURVE_2 = "B";
+  private static final double TOLERANCE = 1e-12;
+
+  private static List<DoublesPair> getList(final int n, final int seed) {
+    final List<DoublesPair> result = new ArrayList<DoublesPair>();
+    for (int i = 0; i < n; i++) {
+      // repeated times, in no particular order
+      result.add(new DoublesPair(0.5 + ((i * seed) % 17) * 0.5, Math.sin(i + seed)));
+    }
+    return result;
+  }
+
+  private static void assertEqualLists(final List<DoublesPair> expected, final List<DoublesPair> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).first, actual.get(i).first, 0.0);
+      assertEquals(expected.get(i).second, actual.get(i).second, TOLERANCE);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullMap() {
+    new ArrayInterestRateCurveSensitivity((Map<String, List<DoublesPair>>) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeTolerance() {
+    new ArrayInterestRateCurveSensitivity().clean(-1, 0);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    final Map<String, List<DoublesPair>> map = new HashMap<String, List<DoublesPair>>();
+    map.put(CURVE_1, getList(20, 3));
+    map.put(CURVE_2, getList(5, 7));
+    final ArrayInterestRateCurveSensitivity sensitivity = new ArrayInterestRateCurveSensitivity(map);
+    assertEquals(map, sensitivity.toMap());
+    assertEquals(new InterestRateCurveSensitivity(map), sensitivity.toInterestRateCurveSensitivity());
+    assertEquals(20, sensitivity.size(CURVE_1));
+    assertEquals(0, sensitivity.size("C"));
+    assertEquals(0, sensitivity.getTimes("C").length);
+  }
+
+  @Test
+  public void testClean() {
+    final List<DoublesPair> list = getList(100, 5);
+    for (final double[] tolerances : new double[][] { {0, 0}, {1e-9, 1e-12}, {0.1, 0.2}}) {
+      final ArrayInterestRateCurveSensitivity sensitivity = new ArrayInterestRateCurveSensitivity();
+      for (final DoublesPair pair : list) {
+        sensitivity.add(CURVE_1, pair.first, pair.second);
+      }
+      sensitivity.clean(tolerances[0], tolerances[1]);
+      assertEqualLists(InterestRateCurveSensitivityUtils.clean(list, tolerances[0], tolerances[1]), sensitivity.toMap().get(CURVE_1));
+    }
+  }
+
+  @Test
+  public void testPlusMultiply() {
+    final Map<String, List<DoublesPair>> map1 = new HashMap<String, List<DoublesPair>>();
+    map1.put(CURVE_1, getList(30, 3));
+    final Map<String, List<DoublesPair>> map2 = new HashMap<String, List<DoublesPair>>();
+    map2.put(CURVE_1, getList(40, 11));
+    map2.put(CURVE_2, getList(10, 7));
+    final InterestRateCurveSensitivity expected = new InterestRateCurveSensitivity(map1).plus(new InterestRateCurveSensitivity(map2)).multiply(-2.5).clean();
+    // unsorted
+    ArrayInterestRateCurveSensitivity sensitivity = new ArrayInterestRateCurveSensitivity(map1).plus(new ArrayInterestRateCurveSensitivity(map2)).multiply(-2.5).clean();
+    assertTrue(InterestRateCurveSensitivity.compare(expected, sensitivity.toInterestRateCurveSensitivity(), TOLERANCE));
+    // sorted, so merged
+    sensitivity = new ArrayInterestRateCurveSensitivity(map1).clean().plus(new ArrayInterestRateCurveSensitivity(map2).clean()).multiply(-2.5).clean();
+    assertTrue(InterestRateCurveSensitivity.compare(expected, sensitivity.toInterestRateCurveSensitivity(), TOLERANCE));
+    // added to itself
+    sensitivity = new ArrayInterestRateCurveSensitivity(map2);
+    sensitivity.plus(sensitivity).clean();
+    assertTrue(InterestRateCurveSensitivity.compare(new InterestRateCurveSensitivity(map2).multiply(2).clean(), sensitivity.toInterestRateCurveSensitivity(), TOLERANCE));
+  }
+
+  @Test
+  public void testNodeSensitivities() {
+    final Interpolator1D interpolator = new LinearInterpolator1D();
+    final Interpolator1DDataBundle data = interpolator.getDataBundle(new double[] {0.5, 1, 2, 5, 10}, new double[] {0.01, 0.012, 0.015, 0.02, 0.022});
+    final List<DoublesPair> list = getList(50, 3);
+    final double[] expected = new double[7];
+    for (final DoublesPair pair : list) {
+      final double[] nodeSensitivity = interpolator.getNodeSensitivitiesForValue(data, pair.first);
+      for (int j = 0; j < nodeSensitivity.length; j++) {
+        expected[j + 2] += pair.second * nodeSensitivity[j];
+      }
+    }
+    final Map<String, List<DoublesPair>> map = new HashMap<String, List<DoublesPair>>();
+    map.put(CURVE_1, list);
+    final double[] result = new double[7];
+    new ArrayInterestRateCurveSensitivity(map).addNodeSensitivities(CURVE_1, interpolator, data, false, result, 2);
+    ArrayAsserts.assertArrayEquals(expected, result, TOLERANCE);
+  }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javax.time.calendar.Period;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.instrument.index.IborIndex;
+import com.opengamma.financial.interestrate.cash.derivative.Cash;
+import com.opengamma.financial.interestrate.fra.ForwardRateAgreement;
+import com.opengamma.math.MathException;
+import com.opengamma.math.function.Function1D;
+import com.opengamma.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.math.interpolation.Interpolator1D;
+import com.opengamma.math.interpolation.Interpolator1DFactory;
+import com.opengamma.math.linearalgebra.LUDecompositionCommons;
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.math.rootfinding.newton.NewtonRootFinderResult;
+import com.opengamma.util.money.Currency;
+
+/**
+ * Tests {@link MultipleYieldCurveFinderBlockSolver}
+ */
+public class MultipleYieldCurveFinderBlockSolverTest {
+  private static final Currency CCY = Currency.AUD;
+  private static final String FUNDING_CURVE_NAME = "Funding";
+  private static final String FORWARD_CURVE_NAME = "Forward";
+  private static final int N = 5;
+  private static final double[] YIELDS = new double[2 * N];
+  private static final MultipleYieldCurveFinderDataBundle DATA;
+  private static final MultipleYieldCurveFinderBlockSolver SOLVER;
+  private static final double[] START = new double[2 * N];
+
+  static {
+    final IborIndex index = new IborIndex(CCY, Period.ofMonths(6), 0, new MondayToFridayCalendar("A"), DayCountFactory.INSTANCE.getDayCount("Actual/365"),
+        BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"), true);
+    final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    final double[] forwardNodes = new double[N];
+    final double[] fundingNodes = new double[N];
+    // the forward curve comes first, although it depends on the funding curve through the discounting of the FRAs
+    final List<InstrumentDerivative> instruments = new ArrayList<InstrumentDerivative>();
+    for (int i = 0; i < N; i++) {
+      instruments.add(new ForwardRateAgreement(CCY, i + 1, FUNDING_CURVE_NAME, 0.5, 1, index, i + 1, i + 1, i + 1.5, 0.5, 0.03, FORWARD_CURVE_NAME));
+      forwardNodes[i] = i + 1.5;
+      YIELDS[i] = 0.03 + 0.002 * i;
+    }
+    for (int i = 0; i < N; i++) {
+      instruments.add(new Cash(CCY, 0, i + 1, 1, 0.03, i + 1, FUNDING_CURVE_NAME));
+      fundingNodes[i] = i + 1;
+      YIELDS[N + i] = 0.02 + 0.003 * i;
+    }
+    final LinkedHashMap<String, double[]> nodes = new LinkedHashMap<String, double[]>();
+    nodes.put(FORWARD_CURVE_NAME, forwardNodes);
+    nodes.put(FUNDING_CURVE_NAME, fundingNodes);
+    final LinkedHashMap<String, Interpolator1D> interpolators = new LinkedHashMap<String, Interpolator1D>();
+    interpolators.put(FORWARD_CURVE_NAME, interpolator);
+    interpolators.put(FUNDING_CURVE_NAME, interpolator);
+    final YieldCurveBundle curves = new InterpolatedYieldCurveBuildingFunction(nodes, interpolators).evaluate(new DoubleMatrix1D(YIELDS));
+    final double[] marketValues = new double[2 * N];
+    for (int i = 0; i < 2 * N; i++) {
+      marketValues[i] = PresentValueCalculator.getInstance().visit(instruments.get(i), curves);
+    }
+    Arrays.fill(START, 0.01);
+    DATA = new MultipleYieldCurveFinderDataBundle(instruments, marketValues, null, nodes, interpolators, false);
+    SOLVER = new MultipleYieldCurveFinderBlockSolver(DATA, PresentValueCalculator.getInstance(), PresentValueCurveSensitivityCalculator.getInstance(), new BroydenVectorRootFinder(),
+        new LUDecompositionCommons());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullData() {
+    new MultipleYieldCurveFinderBlockSolver(null, PresentValueCalculator.getInstance(), PresentValueCurveSensitivityCalculator.getInstance(), new BroydenVectorRootFinder(),
+        new LUDecompositionCommons());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongStartSize() {
+    SOLVER.solve(new DoubleMatrix1D(new double[N]));
+  }
+
+  @Test
+  public void testBlocks() {
+    final List<List<String>> blocks = SOLVER.getBlocks(new DoubleMatrix1D(YIELDS));
+    assertEquals(2, blocks.size());
+    assertEquals(Arrays.asList(FUNDING_CURVE_NAME), blocks.get(0));
+    assertEquals(Arrays.asList(FORWARD_CURVE_NAME), blocks.get(1));
+  }
+
+  @Test
+  public void testSolve() {
+    assertSolution(SOLVER.solve(new DoubleMatrix1D(START)));
+  }
+
+  @Test
+  public void testFallbackToJointSolve() {
+    // the forward block fails after the funding block has been solved
+    final FailingRootFinder rootFinder = new FailingRootFinder(2);
+    final MultipleYieldCurveFinderBlockSolver solver = new MultipleYieldCurveFinderBlockSolver(DATA, PresentValueCalculator.getInstance(),
+        PresentValueCurveSensitivityCalculator.getInstance(), rootFinder, new LUDecompositionCommons());
+    assertSolution(solver.solve(new DoubleMatrix1D(START)));
+    assertEquals(3, rootFinder._calls);
+  }
+
+  @Test
+  public void testFallbackAfterFirstBlock() {
+    final FailingRootFinder rootFinder = new FailingRootFinder(1);
+    final MultipleYieldCurveFinderBlockSolver solver = new MultipleYieldCurveFinderBlockSolver(DATA, PresentValueCalculator.getInstance(),
+        PresentValueCurveSensitivityCalculator.getInstance(), rootFinder, new LUDecompositionCommons());
+    assertSolution(solver.solve(new DoubleMatrix1D(START)));
+    assertEquals(2, rootFinder._calls);
+  }
+
+  @Test(expectedExceptions = MathException.class)
+  public void testJointSolveFails() {
+    // there is nothing left to fall back to
+    final FailingRootFinder rootFinder = new FailingRootFinder(1, 2);
+    new MultipleYieldCurveFinderBlockSolver(DATA, PresentValueCalculator.getInstance(), PresentValueCurveSensitivityCalculator.getInstance(), rootFinder,
+        new LUDecompositionCommons()).solve(new DoubleMatrix1D(START));
+  }
+
+  private static void assertSolution(final NewtonRootFinderResult result) {
+    for (int i = 0; i < 2 * N; i++) {
+      assertEquals(YIELDS[i], result.getRoot().getEntry(i), 1e-8);
+    }
+    // the assembled inverse is the inverse of the full Jacobian
+    final DoubleMatrix2D jacobian = new MultipleYieldCurveFinderJacobian(DATA, PresentValueCurveSensitivityCalculator.getInstance()).evaluate(result.getRoot());
+    final DoubleMatrix2D inverse = result.getMatrix();
+    for (int i = 0; i < 2 * N; i++) {
+      for (int j = 0; j < 2 * N; j++) {
+        double product = 0;
+        for (int k = 0; k < 2 * N; k++) {
+          product += jacobian.getEntry(i, k) * inverse.getEntry(k, j);
+        }
+        assertEquals(i == j ? 1 : 0, product, 1e-10);
+      }
+    }
+  }
+
+  /**
+   * A root finder that fails to converge on the given calls.
+   */
+  private static final class FailingRootFinder extends BroydenVectorRootFinder {
+    private final Set<Integer> _failures = new HashSet<Integer>();
+    private int _calls;
+
+    private FailingRootFinder(final Integer... failures) {
+      _failures.addAll(Arrays.asList(failures));
+    }
+
+    @Override
+    public NewtonRootFinderResult findRoot(final Function1D<DoubleMatrix1D, DoubleMatrix1D> function, final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction,
+        final DoubleMatrix1D startPosition, final DoubleMatrix2D initialEstimate) {
+      _calls++;
+      if (_failures.contains(_calls)) {
+        throw new MathException("Failed to converge");
+      }
+      return super.findRoot(function, jacobianFunction, startPosition, initialEstimate);
+    }
+  }
+
+}
@@ -10,6 +10,8 @@ import static org.testng.AssertJUnit.assertEquals;
 import it.unimi.dsi.fastutil.doubles.DoubleAVLTreeSet;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.time.calendar.Period;
 import javax.time.calendar.ZonedDateTime;
@@ -51,6 +53,8 @@ import com.opengamma.financial.model.volatility.BlackImpliedVolatilityFormula;
 import com.opengamma.financial.montecarlo.HullWhiteMonteCarloMethod;
 import com.opengamma.financial.schedule.ScheduleCalculator;
 import com.opengamma.math.random.NormalRandomNumberGenerator;
+import com.opengamma.math.random.NormalRandomNumberStreamFactory;
+import com.opengamma.math.random.SobolRandomNumberStreamFactory;
 import com.opengamma.math.statistics.distribution.NormalDistribution;
 import com.opengamma.math.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.util.money.Currency;
@@ -249,6 +253,29 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     assertEquals("Swaption physical - Hull-White - Monte Carlo - payer/receiver/swap parity", pvReceiverLongMC.getAmount() + pvPayerShortMC.getAmount(), pvSwap, 1.0E+5);
   }
 
+  @Test
+  /**
+   * Tests the present value by Monte Carlo with one random stream by block: the result does not depend on the executor.
+   */
+  public void presentValueMonteCarloStreams() {
+    int nbPath = 12500;
+    CurrencyAmount pvPayerLongExplicit = METHOD_HW.presentValue(SWAPTION_PAYER_LONG, BUNDLE_HW);
+    HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberStreamFactory(0), nbPath, null);
+    CurrencyAmount pvPayerLongMC = methodMC.presentValue(SWAPTION_PAYER_LONG, CUR, FUNDING_CURVE_NAME, BUNDLE_HW);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo", pvPayerLongExplicit.getAmount(), pvPayerLongMC.getAmount(), 1.0E+4);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberStreamFactory(0), nbPath, executor);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo", pvPayerLongMC.getAmount(), methodMC.presentValue(SWAPTION_PAYER_LONG, CUR, FUNDING_CURVE_NAME, BUNDLE_HW)
+          .getAmount(), 0.0);
+      methodMC = new HullWhiteMonteCarloMethod(new SobolRandomNumberStreamFactory(), nbPath, executor);
+      CurrencyAmount pvPayerLongSobol = methodMC.presentValue(SWAPTION_PAYER_LONG, CUR, FUNDING_CURVE_NAME, BUNDLE_HW);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo", pvPayerLongExplicit.getAmount(), pvPayerLongSobol.getAmount(), 1.0E+4);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   /**
    * Tests the Hull-White parameters sensitivity for the explicit formula.
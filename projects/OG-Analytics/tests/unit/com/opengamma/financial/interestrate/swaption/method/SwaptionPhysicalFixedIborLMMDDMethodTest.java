@@ -9,6 +9,8 @@ import static org.testng.AssertJUnit.assertEquals;
 import it.unimi.dsi.fastutil.doubles.DoubleAVLTreeSet;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.time.calendar.Period;
 import javax.time.calendar.ZonedDateTime;
@@ -62,6 +64,7 @@ import com.opengamma.financial.montecarlo.LiborMarketModelMonteCarloMethod;
 import com.opengamma.financial.schedule.ScheduleCalculator;
 import com.opengamma.math.curve.ConstantDoublesCurve;
 import com.opengamma.math.random.NormalRandomNumberGenerator;
+import com.opengamma.math.random.NormalRandomNumberStreamFactory;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.CurrencyAmount;
 import com.opengamma.util.time.DateUtils;
@@ -151,6 +154,28 @@ public class SwaptionPhysicalFixedIborLMMDDMethodTest {
     assertEquals("Swaption physical - LMM - present value Approximation/Monte Carlo", impliedVolMC, impliedVolApprox, 2.0E-3);
   }
 
+  @Test
+  /**
+   * Test the present value with the paths generated in blocks with their own random streams: the result does not depend on the number of threads.
+   */
+  public void presentValueMCStreams() {
+    YieldAndDiscountCurve dsc = CURVES.getCurve(CURVES_NAME[0]);
+    LiborMarketModelMonteCarloMethod methodLmmMc = new LiborMarketModelMonteCarloMethod(new NormalRandomNumberStreamFactory(0), NB_PATH, 1.0, null);
+    CurrencyAmount pvMC = methodLmmMc.presentValue(SWAPTION_PAYER_LONG, CUR, dsc, BUNDLE_LMM);
+    CurrencyAmount pvApprox = METHOD_LMM.presentValue(SWAPTION_PAYER_LONG, BUNDLE_LMM);
+    assertEquals("Swaption physical - LMM - present value Approximation/Monte Carlo streams", pvApprox.getAmount(), pvMC.getAmount(), 0.1 * pvApprox.getAmount());
+    for (int nbThread = 1; nbThread <= 4; nbThread *= 2) {
+      ExecutorService executor = Executors.newFixedThreadPool(nbThread);
+      try {
+        methodLmmMc = new LiborMarketModelMonteCarloMethod(new NormalRandomNumberStreamFactory(0), NB_PATH, 1.0, executor);
+        assertEquals("Swaption physical - LMM - present value Monte Carlo streams - " + nbThread + " threads", pvMC.getAmount(),
+            methodLmmMc.presentValue(SWAPTION_PAYER_LONG, CUR, dsc, BUNDLE_LMM).getAmount(), 0.0);
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
   @Test
   /**
    * Tests long/short parity.
@@ -69,4 +69,45 @@ public class YieldAndDiscountCurveTest {
     assertArrayEquals(shifted1.getCurve().getXData(), shifted2.getXData());
     assertArrayEquals(shifted1.getCurve().getYData(), shifted2.getYData());
   }
+
+  @Test
+  public void testPrimitive() {
+    final double[] t = new double[] {1, 1.4, 2, 2.5, 3};
+    final double[] yieldDf = new double[t.length];
+    final double[] discountDf = new double[t.length];
+    YIELD.getDiscountFactors(t, yieldDf);
+    DISCOUNT.getDiscountFactors(t, discountDf);
+    for (int i = 0; i < t.length; i++) {
+      final Double boxed = t[i];
+      assertEquals(YIELD.getInterestRate(boxed), YIELD.getInterestRate(t[i]), 0);
+      assertEquals(YIELD.getDiscountFactor(boxed), YIELD.getDiscountFactor(t[i]), 0);
+      assertEquals(YIELD.getDiscountFactor(boxed), yieldDf[i], 0);
+      assertEquals(DISCOUNT.getInterestRate(boxed), DISCOUNT.getInterestRate(t[i]), 0);
+      assertEquals(DISCOUNT.getDiscountFactor(boxed), DISCOUNT.getDiscountFactor(t[i]), 0);
+      assertEquals(DISCOUNT.getDiscountFactor(boxed), discountDf[i], 0);
+    }
+  }
+
+  @Test(enabled = false)
+  /**
+   * Performance. For normal tests (enabled = false). Compares discount factor lookups through the boxed and primitive methods.
+   */
+  public void performance() {
+    long startTime, endTime;
+    final int nbTest = 10000000;
+    double sum = 0;
+    startTime = System.currentTimeMillis();
+    for (int looptest = 0; looptest < nbTest; looptest++) {
+      sum += YIELD.getDiscountFactor(Double.valueOf(1 + (looptest % 200) / 100.0));
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbTest + " discount factors (boxed): " + (endTime - startTime) + " ms - " + sum);
+    sum = 0;
+    startTime = System.currentTimeMillis();
+    for (int looptest = 0; looptest < nbTest; looptest++) {
+      sum += YIELD.getDiscountFactor(1 + (looptest % 200) / 100.0);
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbTest + " discount factors (primitive): " + (endTime - startTime) + " ms - " + sum);
+  }
 }
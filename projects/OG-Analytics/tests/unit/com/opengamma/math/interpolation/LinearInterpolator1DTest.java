@@ -69,4 +69,20 @@ public class LinearInterpolator1DTest {
     }
     assertEquals(INTERPOLATOR.interpolate(INTERPOLATOR.getDataBundle(data), 3.4), FUNCTION.evaluate(3.4), 1e-15);
   }
+
+  @Test
+  public void testPrimitive() {
+    final double[] x = new double[] {1, 1.5, 2, 2.25, 3};
+    final double[] y = new double[x.length];
+    INTERPOLATOR.interpolate(MODEL, x, y);
+    for (int i = 0; i < x.length; i++) {
+      assertEquals(INTERPOLATOR.interpolate(MODEL, Double.valueOf(x[i])), INTERPOLATOR.interpolate(MODEL, x[i]), 0);
+      assertEquals(INTERPOLATOR.interpolate(MODEL, x[i]), y[i], 0);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testPrimitiveWrongLength() {
+    INTERPOLATOR.interpolate(MODEL, new double[] {1, 2}, new double[1]);
+  }
 }
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.math.matrix.MatrixAlgebra;
+import com.opengamma.math.matrix.OGMatrixAlgebra;
+
+/**
+ * Tests {@link BandedMatrix}
+ */
+public class BandedMatrixTest {
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final Decomposition<?> LU = new LUDecompositionCommons();
+
+  /**
+   * A diagonally dominant matrix with the given bandwidths, like those from the finite difference solvers
+   */
+  private static BandedMatrix getMatrix(final int n, final int lower, final int upper) {
+    final BandedMatrix m = new BandedMatrix(n, lower, upper);
+    for (int i = 0; i < n; i++) {
+      for (int j = Math.max(0, i - lower); j <= Math.min(n - 1, i + upper); j++) {
+        m.setEntry(i, j, i == j ? 2.0 + lower + upper : Math.sin(i + 2 * j));
+      }
+    }
+    return m;
+  }
+
+  private static double[] getVector(final int n) {
+    final double[] b = new double[n];
+    for (int i = 0; i < n; i++) {
+      b[i] = Math.cos(i);
+    }
+    return b;
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testZeroSize() {
+    new BandedMatrix(0, 1, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeLower() {
+    new BandedMatrix(5, -1, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeUpper() {
+    new BandedMatrix(5, 1, -1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testOutsideBand() {
+    new BandedMatrix(5, 1, 2).setEntry(1, 4, 1.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    final BandedMatrix m = getMatrix(5, 1, 1);
+    m.solve(new double[4], new double[5]);
+  }
+
+  @Test
+  public void testEntries() {
+    final BandedMatrix m = getMatrix(10, 1, 2);
+    assertEquals(10, m.getSize());
+    assertEquals(1, m.getLowerBandwidth());
+    assertEquals(2, m.getUpperBandwidth());
+    final DoubleMatrix2D dense = m.toDoubleMatrix2D();
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        assertEquals(m.getEntry(i, j), dense.getEntry(i, j), 0.0);
+        if (j < i - 1 || j > i + 2) {
+          assertEquals(0.0, m.getEntry(i, j), 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTridiagonal() {
+    final double[] a = new double[] {4, 4, 4, 4, 4};
+    final double[] b = new double[] {1, -1, 1, -1};
+    final double[] c = new double[] {-1, 1, -1, 1};
+    final TridiagonalMatrix tri = new TridiagonalMatrix(a, b, c);
+    final BandedMatrix m = new BandedMatrix(5, 1, 1);
+    for (int i = 0; i < 5; i++) {
+      m.setEntry(i, i, a[i]);
+      if (i < 4) {
+        m.setEntry(i, i + 1, b[i]);
+        m.setEntry(i + 1, i, c[i]);
+      }
+    }
+    ArrayAsserts.assertArrayEquals(tri.toDoubleMatrix2D().getData()[2], m.toDoubleMatrix2D().getData()[2], 0.0);
+    final double[] rhs = getVector(5);
+    final double[] x = new double[5];
+    m.solve(rhs, x);
+    final DoubleMatrix1D ax = (DoubleMatrix1D) ALGEBRA.multiply(tri.toDoubleMatrix2D(), new DoubleMatrix1D(x));
+    ArrayAsserts.assertArrayEquals(rhs, ax.getData(), 1e-12);
+  }
+
+  @Test
+  public void testSolveAgainstLU() {
+    final int[][] bandwidths = new int[][] { {1, 1}, {2, 2}, {2, 1}, {0, 3}, {4, 4}};
+    for (final int[] bandwidth : bandwidths) {
+      final BandedMatrix m = getMatrix(30, bandwidth[0], bandwidth[1]);
+      final double[] b = getVector(30);
+      final double[] expected = LU.evaluate(m.toDoubleMatrix2D()).solve(b);
+      final double[] x = new double[30];
+      m.solve(b, x);
+      ArrayAsserts.assertArrayEquals(expected, x, 1e-12);
+      // solving in place gives the same answer, and leaves the matrix unchanged for the next solve
+      m.solve(b, b);
+      ArrayAsserts.assertArrayEquals(expected, b, 1e-12);
+      m.solve(getVector(30), x);
+      ArrayAsserts.assertArrayEquals(expected, x, 1e-12);
+    }
+  }
+
+  @Test(enabled = false)
+  /**
+   * Performance. For normal tests (enabled = false). Compares the banded solver against LU decomposition of the dense matrix, for a
+   * system the size of a typical finite difference grid.
+   */
+  public void performance() {
+    long startTime, endTime;
+    final int n = 500;
+    final int nbTest = 100;
+    final BandedMatrix m = getMatrix(n, 2, 2);
+    final double[] b = getVector(n);
+    final double[] x = new double[n];
+    double[] y = null;
+
+    startTime = System.currentTimeMillis();
+    for (int looptest = 0; looptest < nbTest; looptest++) {
+      m.solve(b, x);
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbTest + " banded solves " + n + "x" + n + ": " + (endTime - startTime) + " ms - " + x[0]);
+    startTime = System.currentTimeMillis();
+    for (int looptest = 0; looptest < nbTest; looptest++) {
+      y = LU.evaluate(m.toDoubleMatrix2D()).solve(b);
+    }
+    endTime = System.currentTimeMillis();
+    System.out.println(nbTest + " dense LU solves " + n + "x" + n + ": " + (endTime - startTime) + " ms - " + y[0]);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import cern.jet.stat.Probability;
+
+/**
+ * Tests {@link SobolRandomNumberGenerator}
+ */
+public class SobolRandomNumberGeneratorTest {
+  private static final int DIMENSION = 50;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadConstructor() {
+    new SobolRandomNumberGenerator(0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDimensionTooLarge() {
+    new SobolRandomNumberGenerator(DIMENSION).getVector(DIMENSION + 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadN() {
+    new SobolRandomNumberGenerator(DIMENSION).getVectors(1, -5);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadSkip() {
+    new SobolRandomNumberGenerator(DIMENSION).skipTo(-1);
+  }
+
+  @Test
+  public void testFirstPoints() {
+    final SobolRandomNumberGenerator generator = new SobolRandomNumberGenerator(2);
+    final double[][] expected = new double[][] { {0.5, 0.5}, {0.75, 0.25}, {0.25, 0.75}};
+    for (final double[] point : expected) {
+      final double[] x = generator.getVector(2);
+      for (int i = 0; i < 2; i++) {
+        assertEquals(point[i], Probability.normal(x[i]), 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testStratification() {
+    // each coordinate of the first 2^k points takes each value j / 2^k exactly once
+    final int n = 1024;
+    final SobolRandomNumberGenerator generator = new SobolRandomNumberGenerator(DIMENSION);
+    final boolean[][] seen = new boolean[DIMENSION][n];
+    for (int j = 1; j < n; j++) {
+      final double[] x = generator.getVector(DIMENSION);
+      for (int i = 0; i < DIMENSION; i++) {
+        final int bucket = (int) Math.round(Probability.normal(x[i]) * n);
+        assertTrue(bucket > 0 && bucket < n);
+        assertTrue(!seen[i][bucket]);
+        seen[i][bucket] = true;
+      }
+    }
+  }
+
+  @Test
+  public void testSkipTo() {
+    final SobolRandomNumberGenerator generator = new SobolRandomNumberGenerator(DIMENSION);
+    final List<double[]> all = generator.getVectors(DIMENSION, 100);
+    final SobolRandomNumberGenerator skipped = new SobolRandomNumberGenerator(DIMENSION);
+    skipped.skipTo(60);
+    for (int i = 60; i < 100; i++) {
+      ArrayAsserts.assertArrayEquals(all.get(i), skipped.getVector(DIMENSION), 0);
+    }
+    final RandomNumberGenerator stream = new SobolRandomNumberStreamFactory().getStream(DIMENSION, 60);
+    ArrayAsserts.assertArrayEquals(all.get(60), stream.getVector(DIMENSION), 0);
+  }
+
+}
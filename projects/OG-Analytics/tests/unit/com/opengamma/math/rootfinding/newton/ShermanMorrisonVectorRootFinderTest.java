@@ -5,9 +5,15 @@
  */
 package com.opengamma.math.rootfinding.newton;
 
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.math.function.Function1D;
 import com.opengamma.math.linearalgebra.SVDecompositionCommons;
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
 
 /**
  * 
@@ -43,4 +49,35 @@ public class ShermanMorrisonVectorRootFinderTest extends VectorRootFinderTest {
     assertFunction3D(SV_JACOBIAN_3D, EPS);
     assertYieldCurveBootstrap(DEFAULT, EPS);
   }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongSizeEstimate() {
+    DEFAULT.findRoot(FUNCTION3D, JACOBIAN3D, new DoubleMatrix1D(new double[] {0, 0, 0}), new DoubleMatrix2D(2, 2));
+  }
+
+  @Test
+  public void testWarmStart() {
+    final DoubleMatrix1D x0 = new DoubleMatrix1D(new double[] {0.8, 0.2, -0.7});
+    final NewtonRootFinderResult cold = DEFAULT.findRoot(FUNCTION3D, JACOBIAN3D, x0, null);
+    assertEquals(1.0, cold.getRoot().getEntry(0), EPS);
+    assertEquals(0.0, cold.getRoot().getEntry(1), EPS);
+    assertEquals(-1.0, cold.getRoot().getEntry(2), EPS);
+    // a nearby problem, started from the previous root and inverse Jacobian
+    final Function1D<DoubleMatrix1D, DoubleMatrix1D> shifted = new Function1D<DoubleMatrix1D, DoubleMatrix1D>() {
+      @Override
+      public DoubleMatrix1D evaluate(final DoubleMatrix1D x) {
+        final double[] y = FUNCTION3D.evaluate(x).getData();
+        for (int i = 0; i < y.length; i++) {
+          y[i] -= 1e-4 * (i + 1);
+        }
+        return new DoubleMatrix1D(y);
+      }
+    };
+    final NewtonRootFinderResult warm = DEFAULT.findRoot(shifted, JACOBIAN3D, cold.getRoot(), cold.getMatrix());
+    final DoubleMatrix1D expected = DEFAULT.getRoot(shifted, JACOBIAN3D, x0);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected.getEntry(i), warm.getRoot().getEntry(i), EPS);
+    }
+    assertTrue(warm.getIterations() < cold.getIterations());
+  }
 }
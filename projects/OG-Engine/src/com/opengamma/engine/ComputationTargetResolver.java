@@ -5,6 +5,9 @@
  */
 package com.opengamma.engine;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.opengamma.id.UniqueId;
 
 /**
@@ -26,4 +29,14 @@ public interface ComputationTargetResolver {
    */
   ComputationTarget resolve(ComputationTargetSpecification specification);
 
+  /**
+   * Resolves a collection of specifications to real targets.
+   * <p>
+   * This is a potentially more efficient form of {@link #resolve(ComputationTargetSpecification)}
+   * for multiple lookups, allowing an implementation to fetch the underlying objects in bulk.
+   * @param specifications  the specifications to resolve, not null
+   * @return the resolved targets keyed by specification, not null. If a specification could not be resolved it will be missing from the map.
+   */
+  Map<ComputationTargetSpecification, ComputationTarget> resolve(Collection<ComputationTargetSpecification> specifications);
+
 }
@@ -5,7 +5,11 @@
  */
 package com.opengamma.engine;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -86,6 +90,49 @@ public class DefaultCachingComputationTargetResolver extends DelegatingComputati
     }
   }
 
+  /**
+   * Resolves a collection of specifications, passing only those not already cached to the
+   * underlying resolver in a single request.
+   * 
+   * @param specifications  the specifications to resolve, not null
+   * @return the resolved targets keyed by specification, not null
+   */
+  @Override
+  public Map<ComputationTargetSpecification, ComputationTarget> resolve(final Collection<ComputationTargetSpecification> specifications) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    final Map<ComputationTargetSpecification, ComputationTarget> result = new HashMap<ComputationTargetSpecification, ComputationTarget>(specifications.size());
+    final List<ComputationTargetSpecification> uncached = new ArrayList<ComputationTargetSpecification>();
+    for (ComputationTargetSpecification specification : specifications) {
+      final Element e = isCached(specification.getType()) ? _computationTarget.get(specification) : null;
+      if (e != null) {
+        result.put(specification, (ComputationTarget) e.getValue());
+      } else {
+        uncached.add(specification);
+      }
+    }
+    if (!uncached.isEmpty()) {
+      for (Map.Entry<ComputationTargetSpecification, ComputationTarget> resolved : super.resolve(uncached).entrySet()) {
+        if (isCached(resolved.getKey().getType())) {
+          addToCache(resolved.getKey(), resolved.getValue());
+        }
+        result.put(resolved.getKey(), resolved.getValue());
+      }
+    }
+    return result;
+  }
+
+  private static boolean isCached(final ComputationTargetType type) {
+    switch (type) {
+      case POSITION:
+      case TRADE:
+      case PORTFOLIO_NODE:
+      case SECURITY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public void cachePositions(Collection<Position> positions) {
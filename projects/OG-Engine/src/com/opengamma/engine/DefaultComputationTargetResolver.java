@@ -5,6 +5,12 @@
  */
 package com.opengamma.engine;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -159,6 +165,39 @@ public class DefaultComputationTargetResolver implements ComputationTargetResolv
     }
   }
 
+  /**
+   * Resolves a collection of specifications using the security and position sources.
+   * <p>
+   * Securities are fetched from the security source in a single request.
+   * Other types of target are resolved one at a time.
+   * 
+   * @param specifications  the specifications to resolve, not null
+   * @return the resolved targets keyed by specification, not null
+   */
+  @Override
+  public Map<ComputationTargetSpecification, ComputationTarget> resolve(final Collection<ComputationTargetSpecification> specifications) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    final Map<ComputationTargetSpecification, ComputationTarget> result = new HashMap<ComputationTargetSpecification, ComputationTarget>();
+    List<UniqueId> securityIds = null;
+    for (ComputationTargetSpecification specification : specifications) {
+      if (specification.getType() == ComputationTargetType.SECURITY) {
+        if (securityIds == null) {
+          securityIds = new ArrayList<UniqueId>();
+        }
+        securityIds.add(specification.getUniqueId());
+      } else {
+        final ComputationTarget target = resolve(specification);
+        if (target != null) {
+          result.put(specification, target);
+        }
+      }
+    }
+    if (securityIds != null) {
+      result.putAll(resolveSecurities(securityIds));
+    }
+    return result;
+  }
+
   /**
    * Handles the resolve of a primitive.
    * This is only called if the specification is of type primitive.
@@ -193,6 +232,25 @@ public class DefaultComputationTargetResolver implements ComputationTargetResolv
     return new ComputationTarget(ComputationTargetType.SECURITY, security);
   }
 
+  /**
+   * Handles the resolve of several securities in a single request to the security source.
+   * 
+   * @param securityIds  the unique identifiers of the targets, not null
+   * @return the resolved security targets keyed by specification, not null
+   */
+  protected Map<ComputationTargetSpecification, ComputationTarget> resolveSecurities(final Collection<UniqueId> securityIds) {
+    checkSecuritySource(ComputationTargetType.SECURITY);
+    
+    final Map<UniqueId, Security> securities = getSecuritySource().getSecurity(securityIds);
+    s_logger.info("Resolved {} of {} security UIDs", securities.size(), securityIds.size());
+    final Map<ComputationTargetSpecification, ComputationTarget> result = new HashMap<ComputationTargetSpecification, ComputationTarget>(securities.size());
+    for (Map.Entry<UniqueId, Security> security : securities.entrySet()) {
+      result.put(new ComputationTargetSpecification(ComputationTargetType.SECURITY, security.getKey()),
+          new ComputationTarget(ComputationTargetType.SECURITY, security.getValue()));
+    }
+    return result;
+  }
+
   /**
    * Handles the resolve of a position.
    * This is only called if the specification is of type position.
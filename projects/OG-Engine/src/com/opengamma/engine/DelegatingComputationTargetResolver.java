@@ -5,6 +5,9 @@
  */
 package com.opengamma.engine;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -44,4 +47,9 @@ public abstract class DelegatingComputationTargetResolver implements Computation
     return getUnderlying().resolve(specification);
   }
 
+  @Override
+  public Map<ComputationTargetSpecification, ComputationTarget> resolve(Collection<ComputationTargetSpecification> specifications) {
+    return getUnderlying().resolve(specifications);
+  }
+
 }
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine;
 
+import java.util.Collection;
 import java.util.Map;
 
 import com.google.common.collect.Maps;
@@ -28,6 +29,19 @@ public class MapComputationTargetResolver implements ComputationTargetResolver {
     return _backingMap.get(specification); 
   }
 
+  @Override
+  public Map<ComputationTargetSpecification, ComputationTarget> resolve(Collection<ComputationTargetSpecification> specifications) {
+    ArgumentChecker.notNull(specifications, "specifications");
+    final Map<ComputationTargetSpecification, ComputationTarget> result = Maps.newHashMapWithExpectedSize(specifications.size());
+    for (ComputationTargetSpecification specification : specifications) {
+      final ComputationTarget target = _backingMap.get(specification);
+      if (target != null) {
+        result.put(specification, target);
+      }
+    }
+    return result;
+  }
+
   /**
    * Adds a target to the resolver.
    * 
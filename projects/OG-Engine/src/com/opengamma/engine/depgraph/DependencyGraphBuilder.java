@@ -13,14 +13,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -231,21 +230,25 @@ public final class DependencyGraphBuilder {
     private CompiledFunctionResolver _functionResolver;
     private FunctionCompilationContext _compilationContext;
 
-    // The resolve task is ref-counted once for the map (it is being used as a set)
-    private final Map<ValueRequirement, Map<ResolveTask, ResolveTask>> _requirements;
+    // The resolve task is ref-counted once for the map (it is being used as a set). The inner maps are never removed from the
+    // outer one until the intermediate state is discarded and each is locked individually so that threads working on different
+    // requirements do not contend.
+    private final ConcurrentMap<ValueRequirement, Map<ResolveTask, ResolveTask>> _requirements;
 
-    // The resolve task is NOT ref-counted (it is only used for parent comparisons), but the value producer is
-    private final Map<ValueSpecification, Map<ResolveTask, ResolvedValueProducer>> _specifications;
+    // The resolve task is NOT ref-counted (it is only used for parent comparisons), but the value producer is. The inner maps
+    // are locked individually as for _requirements.
+    private final ConcurrentMap<ValueSpecification, Map<ResolveTask, ResolvedValueProducer>> _specifications;
 
     // This data is per-thread
 
     private Map<ExceptionWrapper, ExceptionWrapper> _exceptions;
     private int _stackDepth;
+    private RunQueue.LocalQueue _localQueue;
 
     private GraphBuildingContext() {
       s_loggerContext.info("Created new context");
-      _requirements = new HashMap<ValueRequirement, Map<ResolveTask, ResolveTask>>();
-      _specifications = new HashMap<ValueSpecification, Map<ResolveTask, ResolvedValueProducer>>();
+      _requirements = new ConcurrentHashMap<ValueRequirement, Map<ResolveTask, ResolveTask>>();
+      _specifications = new ConcurrentHashMap<ValueSpecification, Map<ResolveTask, ResolvedValueProducer>>();
     }
 
     private GraphBuildingContext(final GraphBuildingContext copyFrom) {
@@ -258,6 +261,11 @@ public final class DependencyGraphBuilder {
       _specifications = copyFrom._specifications;
     }
 
+    private GraphBuildingContext(final GraphBuildingContext copyFrom, final RunQueue.LocalQueue localQueue) {
+      this(copyFrom);
+      _localQueue = localQueue;
+    }
+
     // Configuration & resources
 
     public String getCalculationConfigurationName() {
@@ -310,7 +318,7 @@ public final class DependencyGraphBuilder {
     public void run(final ResolveTask runnable) {
       s_loggerContext.debug("Running {}", runnable);
       runnable.addRef();
-      addToRunQueue(runnable);
+      addToRunQueue(runnable, _localQueue);
     }
 
     /**
@@ -322,7 +330,7 @@ public final class DependencyGraphBuilder {
     public void pump(final ResolutionPump pump) {
       s_loggerContext.debug("Pumping {}", pump);
       if (++_stackDepth > MAX_CALLBACK_DEPTH) {
-        addToRunQueue(new ResolutionPump.Pump(pump));
+        addToRunQueue(new ResolutionPump.Pump(pump), _localQueue);
       } else {
         pump.pump(this);
       }
@@ -338,7 +346,7 @@ public final class DependencyGraphBuilder {
     public void close(final ResolutionPump pump) {
       s_loggerContext.debug("Closing {}", pump);
       if (++_stackDepth > MAX_CALLBACK_DEPTH) {
-        addToRunQueue(new ResolutionPump.Close(pump));
+        addToRunQueue(new ResolutionPump.Close(pump), _localQueue);
       } else {
         pump.close(this);
       }
@@ -446,12 +454,15 @@ public final class DependencyGraphBuilder {
     private ResolveTask getOrCreateTaskResolving(final ValueRequirement valueRequirement, final ResolveTask parentTask) {
       ResolveTask newTask = new ResolveTask(valueRequirement, parentTask);
       ResolveTask task;
-      synchronized (_requirements) {
-        Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
-        if (tasks == null) {
-          tasks = new HashMap<ResolveTask, ResolveTask>();
-          _requirements.put(valueRequirement, tasks);
+      Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
+      if (tasks == null) {
+        tasks = new HashMap<ResolveTask, ResolveTask>();
+        final Map<ResolveTask, ResolveTask> existing = _requirements.putIfAbsent(valueRequirement, tasks);
+        if (existing != null) {
+          tasks = existing;
         }
+      }
+      synchronized (tasks) {
         task = tasks.get(newTask);
         if (task == null) {
           newTask.addRef();
@@ -472,11 +483,11 @@ public final class DependencyGraphBuilder {
 
     private Set<ResolveTask> getTasksResolving(final ValueRequirement valueRequirement) {
       final Set<ResolveTask> result;
-      synchronized (_requirements) {
-        final Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
-        if (tasks == null) {
-          return Collections.emptySet();
-        }
+      final Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
+      if (tasks == null) {
+        return Collections.emptySet();
+      }
+      synchronized (tasks) {
         result = new HashSet<ResolveTask>(tasks.keySet());
         for (ResolveTask task : result) {
           task.addRef();
@@ -487,11 +498,11 @@ public final class DependencyGraphBuilder {
 
     public Map<ResolveTask, ResolvedValueProducer> getTasksProducing(final ValueSpecification valueSpecification) {
       final Map<ResolveTask, ResolvedValueProducer> result;
-      synchronized (_specifications) {
-        final Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
-        if (tasks == null) {
-          return Collections.emptyMap();
-        }
+      final Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      if (tasks == null) {
+        return Collections.emptyMap();
+      }
+      synchronized (tasks) {
         result = new HashMap<ResolveTask, ResolvedValueProducer>(tasks);
         for (Map.Entry<ResolveTask, ResolvedValueProducer> task : result.entrySet()) {
           // Don't ref-count the tasks; they're just used for parent comparisons
@@ -502,8 +513,8 @@ public final class DependencyGraphBuilder {
     }
 
     public void discardTask(final ResolveTask task) {
-      synchronized (_requirements) {
-        final Map<ResolveTask, ResolveTask> tasks = _requirements.get(task.getValueRequirement());
+      final Map<ResolveTask, ResolveTask> tasks = _requirements.get(task.getValueRequirement());
+      synchronized (tasks) {
         if (tasks.remove(task) == null) {
           // Wasn't in the set
           return;
@@ -515,12 +526,15 @@ public final class DependencyGraphBuilder {
     public ResolvedValueProducer declareTaskProducing(final ValueSpecification valueSpecification, final ResolveTask task, final ResolvedValueProducer producer) {
       ResolvedValueProducer discard = null;
       ResolvedValueProducer result = null;
-      synchronized (_specifications) {
-        Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
-        if (tasks == null) {
-          tasks = new HashMap<ResolveTask, ResolvedValueProducer>();
-          _specifications.put(valueSpecification, tasks);
+      Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      if (tasks == null) {
+        tasks = new HashMap<ResolveTask, ResolvedValueProducer>();
+        final Map<ResolveTask, ResolvedValueProducer> existing = _specifications.putIfAbsent(valueSpecification, tasks);
+        if (existing != null) {
+          tasks = existing;
         }
+      }
+      synchronized (tasks) {
         if (!tasks.isEmpty()) {
           // The loop below is nasty, but the map won't return its "actual" key and value when we just do a "get"
           for (Map.Entry<ResolveTask, ResolvedValueProducer> resolveTask : tasks.entrySet()) {
@@ -554,8 +568,8 @@ public final class DependencyGraphBuilder {
 
     public void discardTaskProducing(final ValueSpecification valueSpecification, final ResolveTask task) {
       final ResolvedValueProducer producer;
-      synchronized (_specifications) {
-        final Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      final Map<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      synchronized (tasks) {
         producer = tasks.remove(task);
         if (producer == null) {
           // Wasn't in the set
@@ -568,8 +582,8 @@ public final class DependencyGraphBuilder {
     private boolean abortLoops() {
       s_loggerBuilder.debug("Checking for active tasks to abort");
       List<ResolveTask> activeTasks = null;
-      synchronized (_specifications) {
-        for (Map<ResolveTask, ResolvedValueProducer> tasks : _specifications.values()) {
+      for (Map<ResolveTask, ResolvedValueProducer> tasks : _specifications.values()) {
+        synchronized (tasks) {
           for (ResolveTask task : tasks.keySet()) {
             if (task.isActive()) {
               if (activeTasks == null) {
@@ -633,37 +647,31 @@ public final class DependencyGraphBuilder {
       if (!s_loggerContext.isInfoEnabled()) {
         return;
       }
-      synchronized (_requirements) {
-        int count = 0;
-        for (Map.Entry<ValueRequirement, Map<ResolveTask, ResolveTask>> requirements : _requirements.entrySet()) {
-          final Map<ResolveTask, ResolveTask> entries = requirements.getValue();
+      // Loose synchronization okay; the counts are only for reporting
+      int count = 0;
+      for (Map<ResolveTask, ResolveTask> entries : _requirements.values()) {
+        synchronized (entries) {
           count += entries.size();
         }
-        s_loggerContext.info("Requirements cache = {} tasks for {} requirements", count, _requirements.size());
       }
-      if (s_loggerContext.isInfoEnabled()) {
-        synchronized (_specifications) {
-          int count = 0;
-          for (Map<ResolveTask, ResolvedValueProducer> entries : _specifications.values()) {
-            count += entries.size();
-          }
-          s_loggerContext.info("Specifications cache = {} tasks for {} specifications", count, _specifications.size());
+      s_loggerContext.info("Requirements cache = {} tasks for {} requirements", count, _requirements.size());
+      count = 0;
+      for (Map<ResolveTask, ResolvedValueProducer> entries : _specifications.values()) {
+        synchronized (entries) {
+          count += entries.size();
         }
       }
+      s_loggerContext.info("Specifications cache = {} tasks for {} specifications", count, _specifications.size());
       //final Runtime rt = Runtime.getRuntime();
       //rt.gc();
       //s_loggerContext.info("Used memory = {}M", (double) (rt.totalMemory() - rt.freeMemory()) / 1e6);
     }
 
     private void discardIntermediateState() {
-      synchronized (_requirements) {
-        s_loggerContext.debug("Discarding intermediate state {} requirements", _requirements.size());
-        _requirements.clear();
-      }
-      synchronized (_specifications) {
-        s_loggerContext.debug("Discarding intermediate state {} specifications", _specifications.size());
-        _specifications.clear();
-      }
+      s_loggerContext.debug("Discarding intermediate state {} requirements", _requirements.size());
+      _requirements.clear();
+      s_loggerContext.debug("Discarding intermediate state {} specifications", _specifications.size());
+      _specifications.clear();
     }
 
   };
@@ -671,7 +679,7 @@ public final class DependencyGraphBuilder {
   private final int _objectId = s_nextObjectId.incrementAndGet();
   private final AtomicInteger _activeJobCount = new AtomicInteger();
   private final Set<Job> _activeJobs = new HashSet<Job>();
-  private final Queue<ContextRunnable> _runQueue = new ConcurrentLinkedQueue<ContextRunnable>();
+  private final RunQueue _runQueue = new RunQueue();
   private final GraphBuildingContext _context = new GraphBuildingContext();
   private final AtomicLong _completedSteps = new AtomicLong();
   private final AtomicLong _scheduledSteps = new AtomicLong();
@@ -808,6 +816,26 @@ public final class DependencyGraphBuilder {
     ArgumentChecker.notNullInjected(getCalculationConfigurationName(), "calculationConfigurationName");
   }
 
+  /**
+   * Seeds the builder with the nodes of a previously constructed graph. Requirements subsequently added with
+   * {@link #addTarget} that resolve to values already produced by the graph will reuse the existing nodes, and the
+   * graph returned by {@link #getDependencyGraph} will contain the existing nodes and terminal outputs in addition
+   * to any new ones. This allows a graph to be extended incrementally without resolving all of the original
+   * requirements again.
+   * <p>
+   * The builder takes ownership of the nodes, which may be modified as new nodes are connected to them. The
+   * caller must not continue to use the graph after this call.
+   * 
+   * @param graph the existing graph, not null
+   */
+  public void addExistingGraph(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    if (!getCalculationConfigurationName().equals(graph.getCalculationConfigurationName())) {
+      throw new IllegalArgumentException("Graph " + graph + " is not for calculation configuration " + getCalculationConfigurationName());
+    }
+    _getTerminalValuesCallback.populateState(graph);
+  }
+
   /**
    * Adds a target requirement to the graph. The requirement is queued and the call returns; construction
    * of the graph will happen on a background thread (if additional threads is non-zero), or when the
@@ -913,9 +941,20 @@ public final class DependencyGraphBuilder {
   }
 
   protected void addToRunQueue(final ContextRunnable runnable) {
+    addToRunQueue(runnable, null);
+  }
+
+  /**
+   * Schedules a task for execution. Tasks scheduled by a building thread go onto that thread's local queue from which
+   * other threads may steal if they run out of work.
+   * 
+   * @param runnable the task to execute, not null
+   * @param localQueue the local queue of the calling thread, null if not called from a building thread
+   */
+  protected void addToRunQueue(final ContextRunnable runnable, final RunQueue.LocalQueue localQueue) {
     s_loggerBuilder.debug("Queuing {}", runnable);
     final boolean dontSpawn = _runQueue.isEmpty();
-    _runQueue.add(runnable);
+    _runQueue.add(runnable, localQueue);
     // Don't start construction jobs if the queue is empty or a sequential piece of work bounces between two threads (i.e. there
     // is already a background thread that is running the caller which can then execute the task it has just put into the run
     // queue). The moment the queue is non-empty, start a job if possible.
@@ -957,11 +996,12 @@ public final class DependencyGraphBuilder {
       s_loggerBuilder.info("Building job {} started for {}", _objectId, DependencyGraphBuilder.this);
       boolean jobsLeftToRun;
       int completed = 0;
+      final RunQueue.LocalQueue localQueue = _runQueue.createLocalQueue();
       do {
         s_loggerBuilder.info("Build fraction = {}", estimateBuildFraction());
         // Create a new context for each logical block so that an exception from the build won't leave us with
         // an inconsistent context.
-        final GraphBuildingContext context = new GraphBuildingContext(getContext());
+        final GraphBuildingContext context = new GraphBuildingContext(getContext(), localQueue);
         do {
           try {
             jobsLeftToRun = buildGraph(context);
@@ -993,6 +1033,7 @@ public final class DependencyGraphBuilder {
           activeJobs = _activeJobCount.get();
         }
       } while (!_poison && jobsLeftToRun);
+      _runQueue.releaseLocalQueue(localQueue);
       final boolean abortLoops;
       synchronized (_activeJobs) {
         _activeJobs.remove(this);
@@ -1031,7 +1072,7 @@ public final class DependencyGraphBuilder {
    * @return true if there is more work still to do, false if all the work is done
    */
   protected boolean buildGraph(final GraphBuildingContext context) {
-    final ContextRunnable task = _runQueue.poll();
+    final ContextRunnable task = _runQueue.take(context._localQueue);
     if (task == null) {
       return false;
     }
@@ -1108,9 +1149,10 @@ public final class DependencyGraphBuilder {
     if (_runQueue.isEmpty()) {
       s_loggerBuilder.info("No pending runnable tasks for background building");
     } else {
-      final Iterator<ContextRunnable> itr = _runQueue.iterator();
-      while (itr.hasNext() && startBackgroundConstructionJob()) {
-        itr.next();
+      for (int pending = _runQueue.size(); pending > 0; pending--) {
+        if (!startBackgroundConstructionJob()) {
+          break;
+        }
       }
     }
   }
@@ -154,7 +154,7 @@ public class DependencyNode {
    */
   public void addOutputValue(ValueSpecification outputValue) {
     ArgumentChecker.notNull(outputValue, "Output value");
-    _outputValues.add(outputValue);
+    _outputValues.add(outputValue.intern());
   }
 
   /**
@@ -183,10 +183,11 @@ public class DependencyNode {
     if (!_outputValues.remove(existingOutputValue)) {
       throw new IllegalStateException("Existing output value " + existingOutputValue + " not in output set of " + this);
     }
-    _outputValues.add(newOutputValue);
+    final ValueSpecification newValue = newOutputValue.intern();
+    _outputValues.add(newValue);
     for (DependencyNode outputNode : _dependentNodes) {
       if (outputNode._inputValues.remove(existingOutputValue)) {
-        outputNode._inputValues.add(newOutputValue);
+        outputNode._inputValues.add(newValue);
       }
     }
   }
@@ -205,7 +206,7 @@ public class DependencyNode {
 
   public void addInputValue(ValueSpecification inputValue) {
     ArgumentChecker.notNull(inputValue, "Input value");
-    _inputValues.add(inputValue);
+    _inputValues.add(inputValue.intern());
   }
 
   /**
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Reverse adjacency index over the nodes of a dependency graph. The index is built once for a graph and can then
+ * identify the nodes affected by a change to some market data in time proportional to the number of affected nodes
+ * rather than the size of the graph.
+ * <p>
+ * The graph must not be modified after the index is built.
+ */
+public final class DependentNodeIndex {
+
+  private static final int[] NO_DEPENDENTS = new int[0];
+
+  private final DependencyNode[] _nodes;
+  private final Map<DependencyNode, Integer> _indices;
+  private final int[][] _dependents;
+  private final Map<ValueSpecification, int[]> _marketDataNodes;
+  private final List<ValueSpecification> _marketData;
+
+  /**
+   * Builds the index for a graph.
+   *
+   * @param graph the graph to index, not null
+   */
+  public DependentNodeIndex(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    final Collection<DependencyNode> nodes = graph.getDependencyNodes();
+    _nodes = nodes.toArray(new DependencyNode[nodes.size()]);
+    final Map<DependencyNode, Integer> indices = new IdentityHashMap<DependencyNode, Integer>(_nodes.length);
+    for (int i = 0; i < _nodes.length; i++) {
+      indices.put(_nodes[i], i);
+    }
+    _indices = indices;
+    _dependents = new int[_nodes.length][];
+    final Map<ValueSpecification, int[]> marketDataNodes = new HashMap<ValueSpecification, int[]>();
+    for (int i = 0; i < _nodes.length; i++) {
+      final DependencyNode node = _nodes[i];
+      // Only dependents within this graph are indexed; a node may be shared with a larger graph
+      final Collection<DependencyNode> dependentNodes = node.getDependentNodes();
+      int[] dependents = new int[dependentNodes.size()];
+      int count = 0;
+      for (DependencyNode dependentNode : dependentNodes) {
+        final Integer index = indices.get(dependentNode);
+        if (index != null) {
+          dependents[count++] = index;
+        }
+      }
+      if (count == 0) {
+        dependents = NO_DEPENDENTS;
+      } else if (count < dependents.length) {
+        dependents = Arrays.copyOf(dependents, count);
+      }
+      _dependents[i] = dependents;
+      final Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
+      if (marketData != null) {
+        final int[] existing = marketDataNodes.get(marketData.getSecond());
+        if (existing == null) {
+          marketDataNodes.put(marketData.getSecond(), new int[] {i });
+        } else {
+          final int[] extended = Arrays.copyOf(existing, existing.length + 1);
+          extended[existing.length] = i;
+          marketDataNodes.put(marketData.getSecond(), extended);
+        }
+      }
+    }
+    _marketDataNodes = marketDataNodes;
+    _marketData = Collections.unmodifiableList(new ArrayList<ValueSpecification>(marketDataNodes.keySet()));
+  }
+
+  /**
+   * Returns the number of nodes in the indexed graph.
+   *
+   * @return the number of nodes
+   */
+  public int getSize() {
+    return _nodes.length;
+  }
+
+  /**
+   * Returns the market data specifications sourced by nodes in the graph.
+   *
+   * @return the market data specifications, not null
+   */
+  public List<ValueSpecification> getMarketData() {
+    return _marketData;
+  }
+
+  /**
+   * Marks the nodes which source any of the given market data, and every node downstream of them.
+   *
+   * @param changedMarketData the market data specifications that have changed, not null
+   * @return the marked node indices, not null
+   */
+  private BitSet markDirty(final Collection<ValueSpecification> changedMarketData) {
+    final BitSet dirty = new BitSet(_nodes.length);
+    int[] stack = new int[16];
+    int top = 0;
+    for (ValueSpecification marketData : changedMarketData) {
+      final int[] nodes = _marketDataNodes.get(marketData);
+      if (nodes == null) {
+        continue;
+      }
+      for (int node : nodes) {
+        if (!dirty.get(node)) {
+          dirty.set(node);
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+          }
+          stack[top++] = node;
+        }
+      }
+      // Explicit stack rather than recursion so that long chains of nodes don't exhaust the thread's stack
+      while (top > 0) {
+        final int[] dependents = _dependents[stack[--top]];
+        for (int dependent : dependents) {
+          if (!dirty.get(dependent)) {
+            dirty.set(dependent);
+            if (top == stack.length) {
+              stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = dependent;
+          }
+        }
+      }
+    }
+    return dirty;
+  }
+
+  /**
+   * Returns the nodes affected by changes to market data. A node is affected if it sources any of the changed market
+   * data or if any of its inputs are affected.
+   *
+   * @param changedMarketData the market data specifications that have changed, not null
+   * @return the affected nodes, not null
+   */
+  public Set<DependencyNode> getDirtyNodes(final Collection<ValueSpecification> changedMarketData) {
+    ArgumentChecker.notNull(changedMarketData, "changedMarketData");
+    return new NodeSet(markDirty(changedMarketData), false);
+  }
+
+  /**
+   * Partitions the nodes into those affected by changes to market data, as returned by {@link #getDirtyNodes}, and
+   * those which are not.
+   *
+   * @param changedMarketData the market data specifications that have changed, not null
+   * @return the affected nodes and the unaffected nodes, not null
+   */
+  public Pair<Set<DependencyNode>, Set<DependencyNode>> getDelta(final Collection<ValueSpecification> changedMarketData) {
+    ArgumentChecker.notNull(changedMarketData, "changedMarketData");
+    final BitSet dirty = markDirty(changedMarketData);
+    return Pair.<Set<DependencyNode>, Set<DependencyNode>>of(new NodeSet(dirty, false), new NodeSet(dirty, true));
+  }
+
+  /**
+   * Immutable view of a subset of the indexed nodes, backed by a bit set.
+   */
+  private final class NodeSet extends AbstractSet<DependencyNode> {
+
+    private final BitSet _members;
+    private final boolean _complement;
+    private final int _size;
+
+    public NodeSet(final BitSet marked, final boolean complement) {
+      _members = marked;
+      _complement = complement;
+      _size = complement ? (_nodes.length - marked.cardinality()) : marked.cardinality();
+    }
+
+    private int next(final int from) {
+      return _complement ? _members.nextClearBit(from) : _members.nextSetBit(from);
+    }
+
+    @Override
+    public Iterator<DependencyNode> iterator() {
+      return new Iterator<DependencyNode>() {
+
+        private int _next = next(0);
+
+        @Override
+        public boolean hasNext() {
+          return (_next >= 0) && (_next < _nodes.length);
+        }
+
+        @Override
+        public DependencyNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final DependencyNode node = _nodes[_next];
+          _next = DependentNodeIndex.NodeSet.this.next(_next + 1);
+          return node;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+
+      };
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      final Integer index = _indices.get(o);
+      return (index != null) && (_members.get(index) != _complement);
+    }
+
+    @Override
+    public int size() {
+      return _size;
+    }
+
+  }
+
+}
@@ -478,6 +478,35 @@ import com.opengamma.engine.value.ValueSpecification;
     return "TerminalValueCallback";
   }
 
+  /**
+   * Populates the callback state with the nodes of an existing graph. Any resolutions that produce values already
+   * available from the graph will reuse the existing nodes rather than creating new ones. The terminal outputs of the
+   * graph are retained as resolved values.
+   * 
+   * @param graph the existing graph, not null
+   */
+  public synchronized void populateState(final DependencyGraph graph) {
+    for (final DependencyNode node : graph.getDependencyNodes()) {
+      for (ValueSpecification output : node.getOutputValues()) {
+        _spec2Node.put(output, node);
+      }
+      _graphNodes.add(node);
+      getOrCreateNodes(node.getFunction(), node.getComputationTarget()).add(new DependencyNodeProducer() {
+
+        @Override
+        public void getNode(final DependencyNodeCallback callback) {
+          callback.node(node);
+        }
+
+      });
+    }
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminal : graph.getTerminalOutputs().entrySet()) {
+      for (ValueRequirement requirement : terminal.getValue()) {
+        _resolvedValues.put(requirement, terminal.getKey());
+      }
+    }
+  }
+
   public synchronized Collection<DependencyNode> getGraphNodes() {
     return new ArrayList<DependencyNode>(_graphNodes);
   }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Work-stealing run queue for the graph builder. Each building thread has its own local queue that it pushes
+ * to and takes from at the head. A thread with nothing in its local queue takes from the shared queue and then
+ * steals from the tail of the other threads' queues. Work scheduled from outside of a building thread goes to
+ * the shared queue.
+ */
+/* package */final class RunQueue {
+
+  /**
+   * Local queue for a single building thread.
+   */
+  /* package */static final class LocalQueue {
+
+    private final BlockingDeque<ContextRunnable> _deque = new LinkedBlockingDeque<ContextRunnable>();
+
+  }
+
+  private final Queue<ContextRunnable> _shared = new ConcurrentLinkedQueue<ContextRunnable>();
+  private final List<LocalQueue> _local = new CopyOnWriteArrayList<LocalQueue>();
+  private final AtomicInteger _size = new AtomicInteger();
+  private final AtomicInteger _nextVictim = new AtomicInteger();
+
+  /**
+   * Creates a local queue for a building thread. The queue must be released with {@link #releaseLocalQueue} when
+   * the thread stops building.
+   *
+   * @return the local queue, not null
+   */
+  public LocalQueue createLocalQueue() {
+    final LocalQueue queue = new LocalQueue();
+    _local.add(queue);
+    return queue;
+  }
+
+  /**
+   * Releases a local queue. Any work remaining in it is moved to the shared queue.
+   *
+   * @param queue the local queue, not null
+   */
+  public void releaseLocalQueue(final LocalQueue queue) {
+    _local.remove(queue);
+    ContextRunnable runnable = queue._deque.pollFirst();
+    while (runnable != null) {
+      _shared.add(runnable);
+      runnable = queue._deque.pollFirst();
+    }
+  }
+
+  /**
+   * Adds work to the queue.
+   *
+   * @param runnable the work to add, not null
+   * @param local the local queue of the calling thread, or null if not called from a building thread
+   */
+  public void add(final ContextRunnable runnable, final LocalQueue local) {
+    // Increment first so that the queue never appears empty while the item is being added
+    _size.incrementAndGet();
+    if (local != null) {
+      local._deque.addFirst(runnable);
+    } else {
+      _shared.add(runnable);
+    }
+  }
+
+  /**
+   * Takes work from the queue, preferring the calling thread's local queue.
+   *
+   * @param local the local queue of the calling thread, or null if not called from a building thread
+   * @return the work item, or null if none was available
+   */
+  public ContextRunnable take(final LocalQueue local) {
+    ContextRunnable runnable = null;
+    if (local != null) {
+      runnable = local._deque.pollFirst();
+    }
+    if (runnable == null) {
+      runnable = _shared.poll();
+      if (runnable == null) {
+        runnable = steal(local);
+        if (runnable == null) {
+          return null;
+        }
+      }
+    }
+    _size.decrementAndGet();
+    return runnable;
+  }
+
+  private ContextRunnable steal(final LocalQueue local) {
+    final Object[] queues = _local.toArray();
+    if (queues.length == 0) {
+      return null;
+    }
+    // Start from a different victim each time to spread contention
+    final int start = (_nextVictim.getAndIncrement() & Integer.MAX_VALUE) % queues.length;
+    for (int i = 0; i < queues.length; i++) {
+      final LocalQueue victim = (LocalQueue) queues[(start + i) % queues.length];
+      if (victim != local) {
+        final ContextRunnable runnable = victim._deque.pollLast();
+        if (runnable != null) {
+          return runnable;
+        }
+      }
+    }
+    return null;
+  }
+
+  public boolean isEmpty() {
+    return _size.get() <= 0;
+  }
+
+  public int size() {
+    return _size.get();
+  }
+
+}
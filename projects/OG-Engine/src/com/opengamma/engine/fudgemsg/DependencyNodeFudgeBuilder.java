@@ -27,9 +27,11 @@ import com.opengamma.engine.function.FunctionCompilationContext;
 import com.opengamma.engine.function.FunctionDefinition;
 import com.opengamma.engine.function.FunctionInvoker;
 import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
 import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * Fudge message builder for {@link DependencyNode}.
@@ -45,6 +47,7 @@ public class DependencyNodeFudgeBuilder implements FudgeBuilder<DependencyNode>
   private static final String INPUT_VALUES_FIELD = "inputValues";
   private static final String OUTPUT_VALUES_FIELD = "outputValues";
   private static final String TERMINAL_OUTPUT_VALUES_FIELD = "terminalOutputValues";
+  private static final String MARKET_DATA_REQUIREMENT_FIELD = "marketDataRequirement";
   
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, DependencyNode node) {
@@ -56,6 +59,10 @@ public class DependencyNodeFudgeBuilder implements FudgeBuilder<DependencyNode>
       FunctionDefinition functionDefinition = node.getFunction().getFunction().getFunctionDefinition();
       msg.add(FUNCTION_UNIQUE_ID_FIELD, functionDefinition.getUniqueId());
       msg.add(FUNCTION_SHORT_NAME_FIELD, functionDefinition.getShortName());
+      Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
+      if (marketData != null) {
+        serializer.addToMessage(msg, MARKET_DATA_REQUIREMENT_FIELD, null, marketData.getFirst());
+      }
     }
     serializer.addToMessage(msg, INPUT_VALUES_FIELD, null, node.getInputValues());
     serializer.addToMessage(msg, OUTPUT_VALUES_FIELD, null, node.getOutputValues());
@@ -81,7 +88,15 @@ public class DependencyNodeFudgeBuilder implements FudgeBuilder<DependencyNode>
     
     DependencyNode node = new DependencyNode(target);
     
-    CompiledFunctionDefinition function = new CompiledFunctionDefinitionStub(target.getType(), functionShortName, functionUniqueId);
+    FudgeField marketDataRequirementField = msg.getByName(MARKET_DATA_REQUIREMENT_FIELD);
+    CompiledFunctionDefinition function;
+    if (marketDataRequirementField != null) {
+      // the pseudo-function sourcing market data is small and needed to identify the node's market data
+      ValueRequirement marketDataRequirement = deserializer.fieldValueToObject(ValueRequirement.class, marketDataRequirementField);
+      function = new MarketDataSourcingFunction(marketDataRequirement, outputValues.iterator().next());
+    } else {
+      function = new CompiledFunctionDefinitionStub(target.getType(), functionUniqueId, functionShortName);
+    }
     ParameterizedFunction parameterizedFunction = new ParameterizedFunction(function, functionParameters);
     parameterizedFunction.setUniqueId(parameterizedFunctionUniqueId);
     node.setFunction(parameterizedFunction);
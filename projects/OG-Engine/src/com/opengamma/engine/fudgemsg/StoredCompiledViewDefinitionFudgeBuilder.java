@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.engine.view.compilation.StoredCompiledViewDefinition;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Fudge message builder for {@link StoredCompiledViewDefinition}.
+ */
+@FudgeBuilderFor(StoredCompiledViewDefinition.class)
+public class StoredCompiledViewDefinitionFudgeBuilder implements FudgeBuilder<StoredCompiledViewDefinition> {
+
+  private static final String VIEW_DEFINITION_ID_FIELD = "viewDefinitionId";
+  private static final String FUNCTION_INIT_ID_FIELD = "functionInitId";
+  private static final String VERSION_CORRECTION_FIELD = "versionCorrection";
+  private static final String MARKET_DATA_SPECIFICATION_FIELD = "marketDataSpecification";
+  private static final String GRAPH_FIELD = "graph";
+
+  @Override
+  public MutableFudgeMsg buildMessage(FudgeSerializer serializer, StoredCompiledViewDefinition object) {
+    MutableFudgeMsg msg = serializer.newMessage();
+    msg.add(VIEW_DEFINITION_ID_FIELD, object.getViewDefinitionId());
+    msg.add(FUNCTION_INIT_ID_FIELD, object.getFunctionInitId());
+    serializer.addToMessage(msg, VERSION_CORRECTION_FIELD, null, object.getVersionCorrection());
+    serializer.addToMessageWithClassHeaders(msg, MARKET_DATA_SPECIFICATION_FIELD, null, object.getMarketDataSpecification());
+    for (DependencyGraph graph : object.getDependencyGraphsByConfiguration().values()) {
+      serializer.addToMessage(msg, GRAPH_FIELD, null, graph);
+    }
+    return msg;
+  }
+
+  @Override
+  public StoredCompiledViewDefinition buildObject(FudgeDeserializer deserializer, FudgeMsg msg) {
+    UniqueId viewDefinitionId = msg.getValue(UniqueId.class, VIEW_DEFINITION_ID_FIELD);
+    long functionInitId = msg.getLong(FUNCTION_INIT_ID_FIELD);
+    VersionCorrection versionCorrection = deserializer.fieldValueToObject(VersionCorrection.class, msg.getByName(VERSION_CORRECTION_FIELD));
+    MarketDataSpecification marketDataSpecification = deserializer.fieldValueToObject(MarketDataSpecification.class, msg.getByName(MARKET_DATA_SPECIFICATION_FIELD));
+    Map<String, DependencyGraph> graphs = new HashMap<String, DependencyGraph>();
+    for (FudgeField graphField : msg.getAllByName(GRAPH_FIELD)) {
+      DependencyGraph graph = deserializer.fieldValueToObject(DependencyGraph.class, graphField);
+      graphs.put(graph.getCalculationConfigurationName(), graph);
+    }
+    return new StoredCompiledViewDefinition(viewDefinitionId, functionInitId, versionCorrection, marketDataSpecification, graphs);
+  }
+
+}
@@ -37,6 +37,17 @@ public class MarketDataSourcingFunction extends AbstractFunction.NonCompiledInvo
     _value = Pair.of(requirement, new ValueSpecification(requirement, getUniqueId()));
   }
 
+  /**
+   * Creates an instance for a requirement that has already been resolved to a specification, for example when
+   * restoring a dependency graph.
+   * 
+   * @param requirement  the market data requirement, not null
+   * @param specification  the specification the requirement resolved to, not null
+   */
+  public MarketDataSourcingFunction(ValueRequirement requirement, ValueSpecification specification) {
+    this(UNIQUE_ID, requirement, specification);
+  }
+
   protected MarketDataSourcingFunction(String uniqueId, ValueRequirement requirement, ValueSpecification specification) {
     ArgumentChecker.notNull(requirement, "Value requirement");
     ArgumentChecker.notNull(specification, "Value specification");
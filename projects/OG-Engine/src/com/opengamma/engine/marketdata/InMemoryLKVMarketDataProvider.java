@@ -6,10 +6,7 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,12 +28,16 @@ import com.opengamma.util.ArgumentChecker;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * The values are held in an immutable trie which is replaced on each change, so a snapshot is taken by
+ * reading the current version rather than copying the values, and two snapshots can be compared cheaply.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector, MarketDataAvailabilityProvider {
   
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
   
-  private final Map<ValueRequirement, Object> _lastKnownValues = new ConcurrentHashMap<ValueRequirement, Object>();
+  private final Object _lock = new Object();
+  private volatile PersistentHashTrie<ValueRequirement, Object> _lastKnownValues = PersistentHashTrie.empty();
   private final SecuritySource _securitySource;
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -110,7 +111,9 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   //-------------------------------------------------------------------------
   @Override
   public void addValue(ValueRequirement requirement, Object value) {
-    _lastKnownValues.put(requirement, value);
+    synchronized (_lock) {
+      _lastKnownValues = _lastKnownValues.with(requirement, value);
+    }
     valueChanged(requirement);
   }
   
@@ -122,7 +125,9 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   @Override
   public void removeValue(final ValueRequirement valueRequirement) {
-    _lastKnownValues.remove(valueRequirement);
+    synchronized (_lock) {
+      _lastKnownValues = _lastKnownValues.without(valueRequirement);
+    }
     valueChanged(valueRequirement);
   }
   
@@ -134,7 +139,7 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   
   //-------------------------------------------------------------------------
   public Set<ValueRequirement> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    return Collections.unmodifiableSet(_lastKnownValues.asMap().keySet());
   }
 
   public Object getCurrentValue(ValueRequirement valueRequirement) {
@@ -142,8 +147,8 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   }
   
   //-------------------------------------------------------------------------
-  /*package*/ Map<ValueRequirement, Object> doSnapshot() {
-    return new HashMap<ValueRequirement, Object>(_lastKnownValues);
+  /*package*/ PersistentHashTrie<ValueRequirement, Object> doSnapshot() {
+    return _lastKnownValues;
   }
   
   private ValueRequirement resolveRequirement(ExternalId identifier, String valueName) {
@@ -6,7 +6,6 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -26,7 +25,7 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
   
   private final InMemoryLKVMarketDataProvider _provider;
   private Instant _snapshotTime;
-  private Map<ValueRequirement, Object> _snapshot;
+  private PersistentHashTrie<ValueRequirement, Object> _snapshot;
   
   public InMemoryLKVMarketDataSnapshot(InMemoryLKVMarketDataProvider provider) {
     _provider = provider;
@@ -61,11 +60,36 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
   //-------------------------------------------------------------------------
   public Set<ValueRequirement> getAllValueKeys() {
-    return Collections.unmodifiableSet(getSnapshot().keySet());
+    return Collections.unmodifiableSet(getSnapshot().asMap().keySet());
+  }
+
+  /**
+   * Gets the requirements whose values were added, removed or changed since an earlier snapshot
+   * of the same provider. The cost depends on the number of changes rather than the number of values.
+   * 
+   * @param previous  the earlier snapshot, null to return all the requirements in this snapshot
+   * @return the changed requirements, not null
+   */
+  public Set<ValueRequirement> getChangedValueKeys(InMemoryLKVMarketDataSnapshot previous) {
+    if (previous == null) {
+      return getAllValueKeys();
+    }
+    return Collections.unmodifiableSet(getSnapshot().changedKeys(previous.getSnapshot()));
+  }
+
+  /**
+   * Checks whether another snapshot was taken from the same provider as this one, and so can be
+   * passed to {@link #getChangedValueKeys}.
+   * 
+   * @param other  the other snapshot, not null
+   * @return true if both snapshots are of the same provider
+   */
+  public boolean isSameProvider(InMemoryLKVMarketDataSnapshot other) {
+    return other.getProvider() == getProvider();
   }
   
   //-------------------------------------------------------------------------
-  private Map<ValueRequirement, Object> getSnapshot() {
+  private PersistentHashTrie<ValueRequirement, Object> getSnapshot() {
     if (_snapshot == null) {
       throw new IllegalStateException("Snapshot has not been initialised");
     }
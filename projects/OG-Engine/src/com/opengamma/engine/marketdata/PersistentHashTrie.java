@@ -0,0 +1,567 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An immutable hash map that shares structure between versions.
+ * <p>
+ * The map is a hash array mapped trie: each level consumes five bits of the hash and stores only the
+ * children that are present. Adding or removing a key copies the path to it, a handful of small arrays,
+ * and shares everything else with the previous version, so keeping a reference to a version costs nothing.
+ * Because unchanged sub-tries are shared, the keys that differ between two versions can be found by
+ * walking only the paths that were copied.
+ * <p>
+ * Null keys and values are not supported.
+ *
+ * @param <K>  the type of the keys
+ * @param <V>  the type of the values
+ */
+/* package */ final class PersistentHashTrie<K, V> {
+
+  /**
+   * The number of hash bits used at each level.
+   */
+  private static final int BITS = 5;
+  /**
+   * The mask for the hash bits of a level.
+   */
+  private static final int MASK = (1 << BITS) - 1;
+  /**
+   * The empty trie.
+   */
+  private static final PersistentHashTrie<Object, Object> EMPTY = new PersistentHashTrie<Object, Object>(null, 0);
+
+  /**
+   * The root, an {@link Entry}, {@link BitmapNode} or {@link CollisionNode}, null if empty.
+   */
+  private final Object _root;
+  /**
+   * The number of entries.
+   */
+  private final int _size;
+
+  private PersistentHashTrie(Object root, int size) {
+    _root = root;
+    _size = size;
+  }
+
+  /**
+   * Gets the empty trie.
+   *
+   * @param <K>  the type of the keys
+   * @param <V>  the type of the values
+   * @return the empty trie, not null
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashTrie<K, V> empty() {
+    return (PersistentHashTrie<K, V>) EMPTY;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of entries.
+   *
+   * @return the size
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Gets the value for a key.
+   *
+   * @param key  the key, not null
+   * @return the value, null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    ArgumentChecker.notNull(key, "key");
+    return (V) get(_root, 0, hash(key), key);
+  }
+
+  /**
+   * Checks if a key is present.
+   *
+   * @param key  the key, not null
+   * @return true if present
+   */
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Returns a trie with a key mapped to a value.
+   * If the key is already mapped to an equal value this trie is returned.
+   *
+   * @param key  the key, not null
+   * @param value  the value, not null
+   * @return the new trie, not null
+   */
+  public PersistentHashTrie<K, V> with(K key, V value) {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(value, "value");
+    boolean[] added = new boolean[1];
+    Object root = insert(_root, 0, new Entry(hash(key), key, value), added);
+    if (root == _root) {
+      return this;
+    }
+    return new PersistentHashTrie<K, V>(root, added[0] ? _size + 1 : _size);
+  }
+
+  /**
+   * Returns a trie without a key.
+   * If the key is not present this trie is returned.
+   *
+   * @param key  the key, not null
+   * @return the new trie, not null
+   */
+  public PersistentHashTrie<K, V> without(Object key) {
+    ArgumentChecker.notNull(key, "key");
+    Object root = remove(_root, 0, hash(key), key);
+    if (root == _root) {
+      return this;
+    }
+    return new PersistentHashTrie<K, V>(root, _size - 1);
+  }
+
+  /**
+   * Gets the keys whose values differ from an earlier version: those added, removed or mapped to
+   * a value that is not equal.
+   * <p>
+   * The cost depends on the number of changes, not the size of the trie, as long as this
+   * trie was derived from the other one.
+   *
+   * @param other  the other version, not null
+   * @return the changed keys, not null
+   */
+  @SuppressWarnings("unchecked")
+  public Set<K> changedKeys(PersistentHashTrie<K, V> other) {
+    ArgumentChecker.notNull(other, "other");
+    Set<Object> changed = new HashSet<Object>();
+    diff(other._root, _root, 0, changed);
+    return (Set<K>) changed;
+  }
+
+  /**
+   * Gets a read-only map view of this trie.
+   *
+   * @return the map, not null
+   */
+  public Map<K, V> asMap() {
+    return new AbstractMap<K, V>() {
+      @Override
+      public V get(Object key) {
+        return key != null ? PersistentHashTrie.this.get(key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public int size() {
+        return _size;
+      }
+
+      @Override
+      public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+          @Override
+          public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator<K, V>(_root);
+          }
+
+          @Override
+          public int size() {
+            return _size;
+          }
+        };
+      }
+    };
+  }
+
+  //-------------------------------------------------------------------------
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static int index(int bitmap, int bit) {
+    return Integer.bitCount(bitmap & (bit - 1));
+  }
+
+  private static Object get(Object node, int shift, int hash, Object key) {
+    while (node != null) {
+      if (node instanceof Entry) {
+        Entry entry = (Entry) node;
+        return (entry._hash == hash && entry._key.equals(key)) ? entry._value : null;
+      } else if (node instanceof BitmapNode) {
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bit(hash, shift);
+        if ((bitmapNode._bitmap & bit) == 0) {
+          return null;
+        }
+        node = bitmapNode._children[index(bitmapNode._bitmap, bit)];
+        shift += BITS;
+      } else {
+        CollisionNode collisionNode = (CollisionNode) node;
+        if (collisionNode._hash != hash) {
+          return null;
+        }
+        for (Entry entry : collisionNode._entries) {
+          if (entry._key.equals(key)) {
+            return entry._value;
+          }
+        }
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static Object insert(Object node, int shift, Entry entry, boolean[] added) {
+    if (node == null) {
+      added[0] = true;
+      return entry;
+    }
+    if (node instanceof Entry) {
+      Entry existing = (Entry) node;
+      if (existing._hash == entry._hash && existing._key.equals(entry._key)) {
+        return existing._value.equals(entry._value) ? existing : entry;
+      }
+      added[0] = true;
+      return merge(existing, entry, shift);
+    }
+    if (node instanceof BitmapNode) {
+      BitmapNode bitmapNode = (BitmapNode) node;
+      int bit = bit(entry._hash, shift);
+      int index = index(bitmapNode._bitmap, bit);
+      Object[] children = bitmapNode._children;
+      if ((bitmapNode._bitmap & bit) == 0) {
+        added[0] = true;
+        Object[] newChildren = new Object[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        newChildren[index] = entry;
+        System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+        return new BitmapNode(bitmapNode._bitmap | bit, newChildren);
+      }
+      Object child = children[index];
+      Object newChild = insert(child, shift + BITS, entry, added);
+      if (newChild == child) {
+        return node;
+      }
+      Object[] newChildren = children.clone();
+      newChildren[index] = newChild;
+      return new BitmapNode(bitmapNode._bitmap, newChildren);
+    }
+    CollisionNode collisionNode = (CollisionNode) node;
+    if (collisionNode._hash != entry._hash) {
+      // push the collision node down a level, where the hashes will be told apart
+      return insert(new BitmapNode(bit(collisionNode._hash, shift), new Object[] {collisionNode}), shift, entry, added);
+    }
+    Entry[] entries = collisionNode._entries;
+    for (int i = 0; i < entries.length; i++) {
+      if (entries[i]._key.equals(entry._key)) {
+        if (entries[i]._value.equals(entry._value)) {
+          return node;
+        }
+        Entry[] newEntries = entries.clone();
+        newEntries[i] = entry;
+        return new CollisionNode(entry._hash, newEntries);
+      }
+    }
+    added[0] = true;
+    Entry[] newEntries = new Entry[entries.length + 1];
+    System.arraycopy(entries, 0, newEntries, 0, entries.length);
+    newEntries[entries.length] = entry;
+    return new CollisionNode(entry._hash, newEntries);
+  }
+
+  private static Object merge(Entry entry1, Entry entry2, int shift) {
+    if (entry1._hash == entry2._hash) {
+      return new CollisionNode(entry1._hash, new Entry[] {entry1, entry2});
+    }
+    int bit1 = bit(entry1._hash, shift);
+    int bit2 = bit(entry2._hash, shift);
+    if (bit1 == bit2) {
+      return new BitmapNode(bit1, new Object[] {merge(entry1, entry2, shift + BITS)});
+    }
+    // children are held in bit order, compared unsigned as the top bit is the sign
+    Object[] children = (bit1 & (bit2 - 1)) != 0 ? new Object[] {entry1, entry2} : new Object[] {entry2, entry1};
+    return new BitmapNode(bit1 | bit2, children);
+  }
+
+  private static Object remove(Object node, int shift, int hash, Object key) {
+    if (node == null) {
+      return null;
+    }
+    if (node instanceof Entry) {
+      Entry entry = (Entry) node;
+      return (entry._hash == hash && entry._key.equals(key)) ? null : node;
+    }
+    if (node instanceof BitmapNode) {
+      BitmapNode bitmapNode = (BitmapNode) node;
+      int bit = bit(hash, shift);
+      if ((bitmapNode._bitmap & bit) == 0) {
+        return node;
+      }
+      int index = index(bitmapNode._bitmap, bit);
+      Object[] children = bitmapNode._children;
+      Object child = children[index];
+      Object newChild = remove(child, shift + BITS, hash, key);
+      if (newChild == child) {
+        return node;
+      }
+      if (newChild == null) {
+        if (children.length == 1) {
+          return null;
+        }
+        if (children.length == 2 && !(children[1 - index] instanceof BitmapNode)) {
+          // a single leaf left can move up to the parent
+          return children[1 - index];
+        }
+        Object[] newChildren = new Object[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+        return new BitmapNode(bitmapNode._bitmap & ~bit, newChildren);
+      }
+      if (children.length == 1 && !(newChild instanceof BitmapNode)) {
+        return newChild;
+      }
+      Object[] newChildren = children.clone();
+      newChildren[index] = newChild;
+      return new BitmapNode(bitmapNode._bitmap, newChildren);
+    }
+    CollisionNode collisionNode = (CollisionNode) node;
+    if (collisionNode._hash != hash) {
+      return node;
+    }
+    Entry[] entries = collisionNode._entries;
+    for (int i = 0; i < entries.length; i++) {
+      if (entries[i]._key.equals(key)) {
+        if (entries.length == 2) {
+          return entries[1 - i];
+        }
+        Entry[] newEntries = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, newEntries, 0, i);
+        System.arraycopy(entries, i + 1, newEntries, i, entries.length - i - 1);
+        return new CollisionNode(hash, newEntries);
+      }
+    }
+    return node;
+  }
+
+  private static void diff(Object before, Object after, int shift, Set<Object> changed) {
+    if (before == after) {
+      return;
+    }
+    if (before instanceof BitmapNode && after instanceof BitmapNode) {
+      BitmapNode beforeNode = (BitmapNode) before;
+      BitmapNode afterNode = (BitmapNode) after;
+      int bitmap = beforeNode._bitmap | afterNode._bitmap;
+      while (bitmap != 0) {
+        int bit = Integer.lowestOneBit(bitmap);
+        bitmap &= ~bit;
+        Object beforeChild = (beforeNode._bitmap & bit) != 0 ? beforeNode._children[index(beforeNode._bitmap, bit)] : null;
+        Object afterChild = (afterNode._bitmap & bit) != 0 ? afterNode._children[index(afterNode._bitmap, bit)] : null;
+        diff(beforeChild, afterChild, shift + BITS, changed);
+      }
+      return;
+    }
+    // the shapes differ, so compare entry by entry
+    List<Entry> beforeEntries = new ArrayList<Entry>();
+    collect(before, beforeEntries);
+    for (Entry entry : beforeEntries) {
+      if (!entry._value.equals(get(after, shift, entry._hash, entry._key))) {
+        changed.add(entry._key);
+      }
+    }
+    List<Entry> afterEntries = new ArrayList<Entry>();
+    collect(after, afterEntries);
+    for (Entry entry : afterEntries) {
+      if (get(before, shift, entry._hash, entry._key) == null) {
+        changed.add(entry._key);
+      }
+    }
+  }
+
+  private static void collect(Object node, List<Entry> entries) {
+    if (node instanceof Entry) {
+      entries.add((Entry) node);
+    } else if (node instanceof BitmapNode) {
+      for (Object child : ((BitmapNode) node)._children) {
+        collect(child, entries);
+      }
+    } else if (node instanceof CollisionNode) {
+      for (Entry entry : ((CollisionNode) node)._entries) {
+        entries.add(entry);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A key and value.
+   */
+  private static final class Entry implements Map.Entry<Object, Object> {
+    private final int _hash;
+    private final Object _key;
+    private final Object _value;
+
+    private Entry(int hash, Object key, Object value) {
+      _hash = hash;
+      _key = key;
+      _value = value;
+    }
+
+    @Override
+    public Object getKey() {
+      return _key;
+    }
+
+    @Override
+    public Object getValue() {
+      return _value;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      throw new UnsupportedOperationException("Immutable");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+      return _key.equals(other.getKey()) && _value.equals(other.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return _key.hashCode() ^ _value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return _key + "=" + _value;
+    }
+  }
+
+  /**
+   * A level of the trie, holding the children present for each of its 32 positions.
+   */
+  private static final class BitmapNode {
+    private final int _bitmap;
+    private final Object[] _children;
+
+    private BitmapNode(int bitmap, Object[] children) {
+      _bitmap = bitmap;
+      _children = children;
+    }
+  }
+
+  /**
+   * Entries whose keys have the same hash.
+   */
+  private static final class CollisionNode {
+    private final int _hash;
+    private final Entry[] _entries;
+
+    private CollisionNode(int hash, Entry[] entries) {
+      _hash = hash;
+      _entries = entries;
+    }
+  }
+
+  /**
+   * Iterates over the entries depth first.
+   */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+    private final List<Object[]> _arrays = new ArrayList<Object[]>();
+    private final List<Integer> _positions = new ArrayList<Integer>();
+    private Entry _next;
+
+    private EntryIterator(Object root) {
+      if (root != null) {
+        push(new Object[] {root});
+        advance();
+      }
+    }
+
+    private void push(Object[] array) {
+      _arrays.add(array);
+      _positions.add(0);
+    }
+
+    private void advance() {
+      _next = null;
+      while (!_arrays.isEmpty()) {
+        int top = _arrays.size() - 1;
+        Object[] array = _arrays.get(top);
+        int position = _positions.get(top);
+        if (position == array.length) {
+          _arrays.remove(top);
+          _positions.remove(top);
+          continue;
+        }
+        _positions.set(top, position + 1);
+        Object node = array[position];
+        if (node instanceof Entry) {
+          _next = (Entry) node;
+          return;
+        } else if (node instanceof BitmapNode) {
+          push(((BitmapNode) node)._children);
+        } else {
+          push(((CollisionNode) node)._entries);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _next != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<K, V> next() {
+      if (_next == null) {
+        throw new NoSuchElementException();
+      }
+      Entry next = _next;
+      advance();
+      return (Map.Entry<K, V>) (Map.Entry<?, ?>) next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Immutable");
+    }
+  }
+
+}
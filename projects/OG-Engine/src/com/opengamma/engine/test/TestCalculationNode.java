@@ -11,6 +11,7 @@ import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 
 import com.opengamma.core.position.impl.MockPositionSource;
+import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.DefaultComputationTargetResolver;
 import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
 import com.opengamma.engine.function.CompiledFunctionService;
@@ -35,8 +36,11 @@ public class TestCalculationNode extends AbstractCalculationNode {
   }
 
   public TestCalculationNode() {
-    super(new InMemoryViewComputationCacheSource(OpenGammaFudgeContext.getInstance()), initializedCFS(), new FunctionExecutionContext(), new DefaultComputationTargetResolver(new MockSecuritySource(),
-        new MockPositionSource()), new ViewProcessorQuerySender(
+    this(new DefaultComputationTargetResolver(new MockSecuritySource(), new MockPositionSource()));
+  }
+
+  public TestCalculationNode(final ComputationTargetResolver targetResolver) {
+    super(new InMemoryViewComputationCacheSource(OpenGammaFudgeContext.getInstance()), initializedCFS(), new FunctionExecutionContext(), targetResolver, new ViewProcessorQuerySender(
         new FudgeRequestSender() {
 
           @Override
@@ -21,6 +21,8 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Sets;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.PublicAPI;
@@ -28,6 +30,10 @@ import com.opengamma.util.PublicAPI;
 /**
  * An immutable set of constraints on the values required, or properties of the value produced.
  * <p>
+ * Property sets are interned when they are created so that equal sets are normally the same object, and the sets
+ * of property values are shared between them. A large dependency graph holds many specifications with identical
+ * properties; interning keeps the heap small and lets most equality tests succeed on object identity.
+ * <p>
  * This class is immutable and thread-safe.
  * 
  * @see ValuePropertyNames
@@ -40,6 +46,11 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
    */
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The canonical property value sets.
+   */
+  private static final Interner<Set<String>> s_valueSets = Interners.newWeakInterner();
+
   /**
    * Builder pattern for constructing {@link ValueProperties} objects.
    */
@@ -237,12 +248,12 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
             _properties.put(optionalProperty, Collections.<String>emptySet());
           }
         }
-        return new ValuePropertiesImpl(getSmallMap(_properties), getUnmodifiableSet(_optional));
+        return ValuePropertiesImpl.create(_properties, _optional);
       } else {
         if (_properties.isEmpty()) {
           return EMPTY;
         }
-        return new ValuePropertiesImpl(getSmallMap(_properties), Collections.<String>emptySet());
+        return ValuePropertiesImpl.create(_properties, null);
       }
     }
     
@@ -256,17 +267,48 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
           return Collections.unmodifiableSet(values);
       }
     }
-    
-    private static <K, V> Map<K, V> getSmallMap(Map<K, V> map) {
-      switch (map.size()) {
-        case 0:
-          return Collections.emptyMap();
-        case 1:
-          for (Entry<K, V> entry : map.entrySet()) {
-            return Collections.singletonMap(entry.getKey(), entry.getValue());
-          }
-        default:
-          return new HashMap<K, V>(map);
+  }
+
+  /**
+   * Returns the canonical immutable form of a set of property values.
+   * 
+   * @param values  the values, null for none
+   * @return the canonical set, not null
+   */
+  private static Set<String> getCanonicalSet(final Set<String> values) {
+    if (values == null) {
+      return Collections.emptySet();
+    }
+    switch (values.size()) {
+      case 0:
+        return Collections.emptySet();
+      case 1:
+        return s_valueSets.intern(Collections.singleton(values.iterator().next()));
+      default:
+        return s_valueSets.intern(Collections.unmodifiableSet(new HashSet<String>(values)));
+    }
+  }
+
+  /**
+   * Returns an immutable copy of a property map that uses the canonical value sets.
+   * 
+   * @param properties  the properties, not null
+   * @return the immutable copy, not null
+   */
+  private static Map<String, Set<String>> getCanonicalMap(final Map<String, Set<String>> properties) {
+    switch (properties.size()) {
+      case 0:
+        return Collections.emptyMap();
+      case 1: {
+        final Entry<String, Set<String>> entry = properties.entrySet().iterator().next();
+        return Collections.singletonMap(entry.getKey(), getCanonicalSet(entry.getValue()));
+      }
+      default: {
+        final Map<String, Set<String>> copy = new HashMap<String, Set<String>>(properties);
+        for (Entry<String, Set<String>> entry : copy.entrySet()) {
+          entry.setValue(getCanonicalSet(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
       }
     }
   }
@@ -280,6 +322,10 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
      * 
      */
     private static final long serialVersionUID = 1L;
+    /**
+     * The canonical instances.
+     */
+    private static final Interner<ValuePropertiesImpl> s_instances = Interners.newWeakInterner();
     /**
      * The properties.
      */
@@ -288,6 +334,10 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
      * The optional properties.
      */
     private final Set<String> _optional;
+    /**
+     * The cached hash code.
+     */
+    private transient volatile int _hashCode;
 
     /**
      * Creates an instance.
@@ -300,6 +350,21 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
       _optional = optional;
     }
 
+    /**
+     * Obtains the canonical instance for a set of properties. The maps passed are copied.
+     * 
+     * @param properties  the required properties, not null
+     * @param optional  the optional properties, null for none
+     * @return the canonical instance, not null
+     */
+    private static ValuePropertiesImpl create(final Map<String, Set<String>> properties, final Set<String> optional) {
+      return s_instances.intern(new ValuePropertiesImpl(getCanonicalMap(properties), getCanonicalSet(optional)));
+    }
+
+    private Object readResolve() {
+      return s_instances.intern(new ValuePropertiesImpl(getCanonicalMap(_properties), getCanonicalSet(_optional)));
+    }
+
     @Override
     public Builder copy() {
       return new BuilderImpl(_properties, _optional);
@@ -460,7 +525,7 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
           }
         }
       }
-      return new ValuePropertiesImpl(Collections.unmodifiableMap(composed), (optional != null) ? Collections.unmodifiableSet(optional) : Collections.<String>emptySet());
+      return create(composed, optional);
     }
 
     @Override
@@ -515,7 +580,7 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
         return EMPTY;
       } else {
         if (different) {
-          return new ValuePropertiesImpl(Collections.unmodifiableMap(intersection), (optional != null) ? Collections.unmodifiableSet(optional) : Collections.<String>emptySet());
+          return create(intersection, optional);
         } else {
           return this;
         }
@@ -541,12 +606,19 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
         return false;
       }
       final ValuePropertiesImpl other = (ValuePropertiesImpl) o;
+      // Equal instances are normally the same interned object, so most unequal ones differ in their hash
+      if (hashCode() != other.hashCode()) {
+        return false;
+      }
       return _properties.equals(other._properties) && ObjectUtils.equals(_optional, other._optional);
     }
 
     @Override
     public int hashCode() {
-      return _properties.hashCode();
+      if (_hashCode == 0) {
+        _hashCode = _properties.hashCode();
+      }
+      return _hashCode;
     }
 
     @Override
@@ -1008,7 +1080,7 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
         if (other._optional.isEmpty()) {
           return properties;
         } else {
-          return new ValuePropertiesImpl(other._properties, Collections.<String>emptySet());
+          return ValuePropertiesImpl.create(other._properties, null);
         }
       } else {
         return properties;
@@ -11,6 +11,8 @@ import java.util.Set;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.text.StrBuilder;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.id.UniqueId;
@@ -35,6 +37,11 @@ import com.opengamma.util.PublicAPI;
 public class ValueSpecification implements Serializable {
 
   private static final long serialVersionUID = 1L;
+
+  /**
+   * The canonical instances.
+   */
+  private static final Interner<ValueSpecification> s_interned = Interners.newWeakInterner();
   
   /**
    * The name of the value being requested.
@@ -310,6 +317,25 @@ public class ValueSpecification implements Serializable {
     }
   }
 
+  /**
+   * Returns the canonical instance of this specification.
+   * <p>
+   * A compiled graph may hold many specifications that are equal to each other; for example the output of one node
+   * and the copies received by other processes in messages. Replacing them with the canonical instance reduces the
+   * heap needed and means that most equality tests succeed on object identity. The canonical instances are only
+   * weakly held.
+   * 
+   * @return the canonical instance equal to this, not null
+   */
+  public ValueSpecification intern() {
+    return s_interned.intern(this);
+  }
+
+  private Object readResolve() {
+    // The deserialized value name isn't interned
+    return new ValueSpecification(_valueName, _targetSpecification, _properties).intern();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public boolean equals(Object obj) {
@@ -318,6 +344,9 @@ public class ValueSpecification implements Serializable {
     }
     if (obj instanceof ValueSpecification) {
       final ValueSpecification other = (ValueSpecification) obj;
+      if (hashCode() != other.hashCode()) {
+        return false;
+      }
       // valueName is interned
       return (_valueName == other._valueName) &&
         ObjectUtils.equals(_targetSpecification, other._targetSpecification) &&
@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view;
 
+import java.util.concurrent.ExecutorService;
+
 import com.opengamma.core.position.PositionSource;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.engine.CachingComputationTargetResolver;
@@ -21,6 +23,7 @@ import com.opengamma.engine.view.calc.DependencyGraphExecutorFactory;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGathererProvider;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionStore;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.util.ArgumentChecker;
@@ -45,6 +48,8 @@ public class ViewProcessContext {
   private final MarketDataInjector _liveDataOverrideInjector;
   private final MarketDataProviderResolver _marketDataProviderResolver;
   private final OverrideOperationCompiler _overrideOperationCompiler;
+  private final CompiledViewDefinitionStore _compiledViewDefinitionStore;
+  private final ExecutorService _backgroundCompilationExecutor;
 
   public ViewProcessContext(
       ViewDefinitionRepository viewDefinitionRepository,
@@ -61,6 +66,28 @@ public class ViewProcessContext {
       DependencyGraphExecutorFactory<?> dependencyGraphExecutorFactory,
       GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
       OverrideOperationCompiler overrideOperationCompiler) {
+    this(viewDefinitionRepository, viewPermissionProvider, marketDataProviderResolver, functionCompilationService, functionResolver, positionSource, securitySource,
+        computationTargetResolver, computationCacheSource, computationJobDispatcher, viewProcessorQueryReceiver, dependencyGraphExecutorFactory,
+        graphExecutorStatisticsProvider, overrideOperationCompiler, null, null);
+  }
+
+  public ViewProcessContext(
+      ViewDefinitionRepository viewDefinitionRepository,
+      ViewPermissionProvider viewPermissionProvider,
+      MarketDataProviderResolver marketDataProviderResolver,
+      CompiledFunctionService functionCompilationService,
+      FunctionResolver functionResolver,
+      PositionSource positionSource,
+      SecuritySource securitySource,
+      CachingComputationTargetResolver computationTargetResolver,
+      ViewComputationCacheSource computationCacheSource,
+      JobDispatcher computationJobDispatcher,
+      ViewProcessorQueryReceiver viewProcessorQueryReceiver,
+      DependencyGraphExecutorFactory<?> dependencyGraphExecutorFactory,
+      GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
+      OverrideOperationCompiler overrideOperationCompiler,
+      CompiledViewDefinitionStore compiledViewDefinitionStore,
+      ExecutorService backgroundCompilationExecutor) {
     ArgumentChecker.notNull(viewDefinitionRepository, "viewDefinitionRepository");
     ArgumentChecker.notNull(viewPermissionProvider, "viewPermissionProvider");
     ArgumentChecker.notNull(marketDataProviderResolver, "marketDataSnapshotProviderResolver");
@@ -93,6 +120,8 @@ public class ViewProcessContext {
     _dependencyGraphExecutorFactory = dependencyGraphExecutorFactory;
     _graphExecutorStatisticsGathererProvider = graphExecutorStatisticsProvider;
     _overrideOperationCompiler = overrideOperationCompiler;
+    _compiledViewDefinitionStore = compiledViewDefinitionStore;
+    _backgroundCompilationExecutor = backgroundCompilationExecutor;
   }
 
   // -------------------------------------------------------------------------
@@ -217,6 +246,25 @@ public class ViewProcessContext {
     return _overrideOperationCompiler;
   }
 
+  /**
+   * Gets the store of compiled view definitions from which view processes may be started without a full compilation.
+   * 
+   * @return the store, null if there is none
+   */
+  public CompiledViewDefinitionStore getCompiledViewDefinitionStore() {
+    return _compiledViewDefinitionStore;
+  }
+
+  /**
+   * Gets the executor on which compilations that replace restored ones run in the background. The executor is owned
+   * by the view processor and shut down when it stops.
+   * 
+   * @return the executor, null if there is none
+   */
+  public ExecutorService getBackgroundCompilationExecutor() {
+    return _backgroundCompilationExecutor;
+  }
+
   // -------------------------------------------------------------------------
   /**
    * Uses this context to form a {@code ViewCompliationServices} instance.
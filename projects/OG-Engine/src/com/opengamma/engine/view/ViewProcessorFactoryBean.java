@@ -26,6 +26,7 @@ import com.opengamma.engine.view.calc.stats.DiscardingGraphStatisticsGathererPro
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGathererProvider;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionStore;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.ArgumentChecker;
@@ -57,6 +58,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   private GraphExecutorStatisticsGathererProvider _graphExecutionStatistics = new DiscardingGraphStatisticsGathererProvider();
   private ViewPermissionProvider _viewPermissionProvider;
   private OverrideOperationCompiler _overrideOperationCompiler = new DummyOverrideOperationCompiler();
+  private CompiledViewDefinitionStore _compiledViewDefinitionStore;
   
   //-------------------------------------------------------------------------
   public Long getId() {
@@ -187,6 +189,14 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
     _overrideOperationCompiler = overrideOperationCompiler;
   }
 
+  public CompiledViewDefinitionStore getCompiledViewDefinitionStore() {
+    return _compiledViewDefinitionStore;
+  }
+
+  public void setCompiledViewDefinitionStore(final CompiledViewDefinitionStore compiledViewDefinitionStore) {
+    _compiledViewDefinitionStore = compiledViewDefinitionStore;
+  }
+
   //-------------------------------------------------------------------------
   protected void checkInjectedInputs() {
     s_logger.debug("Checking injected inputs.");
@@ -212,7 +222,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   @Override
   public ViewProcessor createObject() {
     checkInjectedInputs();
-    return new ViewProcessorImpl(
+    final ViewProcessorImpl viewProcessor = new ViewProcessorImpl(
         UniqueId.of(VIEW_PROCESSOR_ID_SCHEME, getId().toString()),
         getViewDefinitionRepository(),
         getLiveMarketDataSourceRegistry(),
@@ -229,6 +239,8 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
         getGraphExecutionStatistics(),
         getViewPermissionProvider(),
         getOverrideOperationCompiler());
+    viewProcessor.setCompiledViewDefinitionStore(getCompiledViewDefinitionStore());
+    return viewProcessor;
   }
 
 }
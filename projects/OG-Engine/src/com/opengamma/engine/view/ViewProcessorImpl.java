@@ -15,6 +15,7 @@ import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -45,6 +46,7 @@ import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
 import com.opengamma.engine.view.client.ViewClient;
 import com.opengamma.engine.view.client.ViewClientImpl;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionStore;
 import com.opengamma.engine.view.event.ViewProcessorEventListenerRegistry;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.engine.view.listener.ViewResultListener;
@@ -54,6 +56,7 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.monitor.OperationTimer;
 import com.opengamma.util.tuple.Pair;
 
@@ -94,6 +97,8 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final GraphExecutorStatisticsGathererProvider _graphExecutionStatistics;
   private final ViewPermissionProvider _viewPermissionProvider;
   private final OverrideOperationCompiler _overrideOperationCompiler;
+  private CompiledViewDefinitionStore _compiledViewDefinitionStore;
+  private ExecutorService _backgroundCompilationExecutor;
   
   // State
   /**
@@ -151,6 +156,26 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
     _overrideOperationCompiler = overrideOperationCompiler;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the store of compiled view definitions used to avoid full compilations when view processes start.
+   * 
+   * @return the store, null if there is none
+   */
+  public CompiledViewDefinitionStore getCompiledViewDefinitionStore() {
+    return _compiledViewDefinitionStore;
+  }
+
+  /**
+   * Sets the store of compiled view definitions used to avoid full compilations when view processes start. This only
+   * affects view processes created after the call.
+   * 
+   * @param compiledViewDefinitionStore  the store, null for none
+   */
+  public void setCompiledViewDefinitionStore(CompiledViewDefinitionStore compiledViewDefinitionStore) {
+    _compiledViewDefinitionStore = compiledViewDefinitionStore;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public UniqueId getUniqueId() {
@@ -546,7 +571,30 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
         _viewProcessorQueryReceiver,
         _dependencyGraphExecutorFactory,
         _graphExecutionStatistics,
-        _overrideOperationCompiler);
+        _overrideOperationCompiler,
+        _compiledViewDefinitionStore,
+        getBackgroundCompilationExecutor());
+  }
+
+  /**
+   * Gets the executor used by view processes to revalidate restored compilations, creating it if necessary. It is
+   * only needed when there is a store to restore compilations from.
+   * 
+   * @return the executor, null if there is no store
+   */
+  private ExecutorService getBackgroundCompilationExecutor() {
+    if (_compiledViewDefinitionStore == null) {
+      return null;
+    }
+    _processLock.lock();
+    try {
+      if (_backgroundCompilationExecutor == null) {
+        _backgroundCompilationExecutor = Executors.newCachedThreadPool(new NamedThreadPoolFactory("BackgroundCompilation-" + getUniqueId().getValue()));
+      }
+      return _backgroundCompilationExecutor;
+    } finally {
+      _processLock.unlock();
+    }
   }
   
   private String generateIdValue(AtomicLong source) {
@@ -659,6 +707,11 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
       }
       _allClientsById.clear();
       
+      if (_backgroundCompilationExecutor != null) {
+        _backgroundCompilationExecutor.shutdownNow();
+        _backgroundCompilationExecutor = null;
+      }
+      
       _isStarted = false;
       
       // REVIEW Andrew 2010-03-25 -- It might be coincidence, but if this gets called during undeploy/stop within a container the Bloomberg API explodes with a ton of NPEs.
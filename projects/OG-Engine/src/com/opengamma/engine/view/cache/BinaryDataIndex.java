@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table mapping identifiers to the location and length of their data within a set of buffers.
+ * A location holds the buffer index in the upper 32 bits and the offset within that buffer in the lower 32 bits.
+ * <p>
+ * This class is not thread-safe; the data stores using it provide their own locking.
+ */
+/* package */final class BinaryDataIndex {
+
+  private static final long EMPTY = -1L;
+
+  private long[] _keys;
+  private long[] _locations;
+  private int[] _lengths;
+  private int _size;
+
+  /**
+   * @param capacity the initial capacity, must be a power of two
+   */
+  public BinaryDataIndex(final int capacity) {
+    allocate(capacity);
+  }
+
+  private void allocate(final int capacity) {
+    _keys = new long[capacity];
+    _locations = new long[capacity];
+    _lengths = new int[capacity];
+    Arrays.fill(_locations, EMPTY);
+  }
+
+  public static long location(final int buffer, final int offset) {
+    return ((long) buffer << 32) | offset;
+  }
+
+  public static int buffer(final long location) {
+    return (int) (location >>> 32);
+  }
+
+  public static int offset(final long location) {
+    return (int) location;
+  }
+
+  private static int hash(final long identifier) {
+    // Identifiers are typically allocated sequentially; mix the bits so they spread over the table
+    final long h = identifier * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private int slot(final long identifier) {
+    final int mask = _keys.length - 1;
+    int slot = hash(identifier) & mask;
+    while ((_locations[slot] != EMPTY) && (_keys[slot] != identifier)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    final long[] keys = _keys;
+    final long[] locations = _locations;
+    final int[] lengths = _lengths;
+    allocate(keys.length << 1);
+    for (int i = 0; i < keys.length; i++) {
+      if (locations[i] != EMPTY) {
+        final int slot = slot(keys[i]);
+        _keys[slot] = keys[i];
+        _locations[slot] = locations[i];
+        _lengths[slot] = lengths[i];
+      }
+    }
+  }
+
+  /**
+   * Finds the entry for an identifier.
+   *
+   * @param identifier the identifier to look up
+   * @return the entry index to pass to {@link #getLocation} and {@link #getLength}, or -1 if there is no entry
+   */
+  public int find(final long identifier) {
+    final int slot = slot(identifier);
+    return (_locations[slot] != EMPTY) ? slot : -1;
+  }
+
+  public long getLocation(final int entry) {
+    return _locations[entry];
+  }
+
+  public int getLength(final int entry) {
+    return _lengths[entry];
+  }
+
+  /**
+   * Records the location of the data for an identifier, replacing any previous entry.
+   *
+   * @param identifier the identifier
+   * @param location the location of the data, as constructed by {@link #location}
+   * @param length the length of the data
+   */
+  public void put(final long identifier, final long location, final int length) {
+    // Keep the load factor at or below 0.5 so that probe sequences stay short
+    if ((_size + 1) << 1 > _keys.length) {
+      grow();
+    }
+    final int slot = slot(identifier);
+    if (_locations[slot] == EMPTY) {
+      _keys[slot] = identifier;
+      _size++;
+    }
+    _locations[slot] = location;
+    _lengths[slot] = length;
+  }
+
+  public int size() {
+    return _size;
+  }
+
+}
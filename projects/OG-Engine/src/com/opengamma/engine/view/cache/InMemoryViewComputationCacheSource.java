@@ -16,9 +16,18 @@ public class InMemoryViewComputationCacheSource extends DefaultViewComputationCa
    * @param fudgeContext Fudge context to use for serialization
    */
   public InMemoryViewComputationCacheSource(final FudgeContext fudgeContext) {
+    this(fudgeContext, new InMemoryBinaryDataStoreFactory());
+  }
+
+  /**
+   * @param fudgeContext Fudge context to use for serialization
+   * @param dataStoreFactory source of the underlying data stores for the shared and private caches, for example an
+   *        {@link OffHeapBinaryDataStoreFactory} to hold the values outside of the Java heap
+   */
+  public InMemoryViewComputationCacheSource(final FudgeContext fudgeContext, final BinaryDataStoreFactory dataStoreFactory) {
     super(new InMemoryIdentifierMap(), fudgeContext, new DefaultFudgeMessageStoreFactory(
-        new InMemoryBinaryDataStoreFactory(), fudgeContext), new DefaultFudgeMessageStoreFactory(
-            new InMemoryBinaryDataStoreFactory(), fudgeContext));
+        dataStoreFactory, fudgeContext), new DefaultFudgeMessageStoreFactory(
+            dataStoreFactory, fudgeContext));
   }
 
 }
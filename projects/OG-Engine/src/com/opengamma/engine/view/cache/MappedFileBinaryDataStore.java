@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} that appends data to memory-mapped segment files. Each store has its
+ * own directory of segments, and an in-memory {@link BinaryDataIndex} from identifier to segment and offset.
+ * <p>
+ * Nothing is written transactionally; the data only has to live as long as the cycle that produced it. Deleting the
+ * store unmaps its segments and deletes the files without visiting the individual values.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class MappedFileBinaryDataStore extends AbstractBinaryDataStore implements BinaryDataStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedFileBinaryDataStore.class);
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static volatile boolean s_unmapUnavailable;
+
+  private final File _directory;
+  private final int _segmentSize;
+  private final Lock _readLock;
+  private final Lock _writeLock;
+
+  private final List<MappedByteBuffer> _segments = new ArrayList<MappedByteBuffer>();
+  private final List<File> _segmentFiles = new ArrayList<File>();
+  private MappedByteBuffer _currentSegment;
+  private int _currentSegmentIndex;
+  private BinaryDataIndex _index = new BinaryDataIndex(INITIAL_CAPACITY);
+
+  /**
+   * Creates a store writing segments to the given directory. The directory is created if it does not exist, and is
+   * deleted when the store is deleted.
+   *
+   * @param directory the directory to write segments to, not null
+   * @param segmentSize the size of each segment in bytes; larger values are written to a dedicated segment
+   */
+  public MappedFileBinaryDataStore(final File directory, final int segmentSize) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.isTrue(segmentSize > 0, "segmentSize must be positive");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create directory " + directory);
+    }
+    _directory = directory;
+    _segmentSize = segmentSize;
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+    _readLock = lock.readLock();
+    _writeLock = lock.writeLock();
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  private MappedByteBuffer createSegment(final int size) {
+    final File file = new File(getDirectory(), "segment-" + _segments.size());
+    try {
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.setLength(size);
+        // The mapping remains valid after the file is closed
+        final MappedByteBuffer segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        _segments.add(segment);
+        _segmentFiles.add(file);
+        return segment;
+      } finally {
+        raf.close();
+      }
+    } catch (IOException e) {
+      file.delete();
+      throw new OpenGammaRuntimeException("Couldn't create segment " + file, e);
+    }
+  }
+
+  private long append(final byte[] data) {
+    MappedByteBuffer segment = _currentSegment;
+    if ((segment == null) || (segment.remaining() < data.length)) {
+      if (data.length > getSegmentSize()) {
+        // Oversized values get a dedicated segment; the current segment stays open for smaller values
+        segment = createSegment(data.length);
+        segment.put(data);
+        return BinaryDataIndex.location(_segments.size() - 1, 0);
+      }
+      segment = createSegment(getSegmentSize());
+      _currentSegment = segment;
+      _currentSegmentIndex = _segments.size() - 1;
+    }
+    final long location = BinaryDataIndex.location(_currentSegmentIndex, segment.position());
+    segment.put(data);
+    return location;
+  }
+
+  private byte[] getLocked(final long identifier) {
+    if (_index == null) {
+      return null;
+    }
+    final int entry = _index.find(identifier);
+    if (entry < 0) {
+      return null;
+    }
+    final long location = _index.getLocation(entry);
+    final ByteBuffer segment = _segments.get(BinaryDataIndex.buffer(location)).duplicate();
+    segment.position(BinaryDataIndex.offset(location));
+    final byte[] data = new byte[_index.getLength(entry)];
+    segment.get(data);
+    return data;
+  }
+
+  private void putLocked(final long identifier, final byte[] data) {
+    if (_index == null) {
+      throw new IllegalStateException("Data store has been deleted");
+    }
+    _index.put(identifier, append(data), data.length);
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    _readLock.lock();
+    try {
+      return getLocked(identifier);
+    } finally {
+      _readLock.unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    _readLock.lock();
+    try {
+      for (Long identifier : identifiers) {
+        final byte[] data = getLocked(identifier);
+        if (data != null) {
+          result.put(identifier, data);
+        }
+      }
+    } finally {
+      _readLock.unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    _writeLock.lock();
+    try {
+      putLocked(identifier, data);
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    _writeLock.lock();
+    try {
+      for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of identifiers held in the store.
+   *
+   * @return the number of identifiers
+   */
+  public int size() {
+    _readLock.lock();
+    try {
+      return (_index != null) ? _index.size() : 0;
+    } finally {
+      _readLock.unlock();
+    }
+  }
+
+  @Override
+  public void delete() {
+    _writeLock.lock();
+    try {
+      if (_index == null) {
+        return;
+      }
+      _index = null;
+      _currentSegment = null;
+      for (MappedByteBuffer segment : _segments) {
+        unmap(segment);
+      }
+      _segments.clear();
+      for (File file : _segmentFiles) {
+        if (!file.delete()) {
+          // Windows won't delete a file that is still mapped; try again when the JVM exits
+          file.deleteOnExit();
+        }
+      }
+      _segmentFiles.clear();
+      if (!getDirectory().delete()) {
+        getDirectory().deleteOnExit();
+      }
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+  /**
+   * Releases a mapping immediately rather than waiting for the buffer to be garbage collected. This relies on the
+   * cleaner of the JDK's direct buffer implementation; if that is not available the mapping is released by the
+   * garbage collector as normal. The buffer must not be used afterwards.
+   *
+   * @param buffer the buffer to unmap, not null
+   */
+  private static void unmap(final MappedByteBuffer buffer) {
+    if (s_unmapUnavailable) {
+      return;
+    }
+    try {
+      final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      final Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      s_logger.info("Mapped segments will be released by the garbage collector: {}", e.getMessage());
+      s_unmapUnavailable = true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MappedFileBinaryDataStore[" + getDirectory() + "]";
+  }
+
+}
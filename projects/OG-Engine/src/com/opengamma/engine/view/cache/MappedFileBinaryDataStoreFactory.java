@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link MappedFileBinaryDataStore} instances, each in its own sub-directory of a base directory.
+ * <p>
+ * The data never outlives the process that wrote it, so any sub-directories left in the base directory by a
+ * previous process are removed when the factory is created.
+ */
+public class MappedFileBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedFileBinaryDataStoreFactory.class);
+
+  /**
+   * Default size of each segment, 16Mb.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+  private static final String STORE_DIRECTORY_SUFFIX = ".segments";
+
+  private final File _directory;
+  private final int _segmentSize;
+  private final AtomicLong _nextStore = new AtomicLong();
+
+  public MappedFileBinaryDataStoreFactory(final File directory) {
+    this(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  public MappedFileBinaryDataStoreFactory(final File directory, final int segmentSize) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.isTrue(segmentSize > 0, "segmentSize must be positive");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create directory " + directory);
+    }
+    _directory = directory;
+    _segmentSize = segmentSize;
+    deleteStaleStores();
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  private void deleteStaleStores() {
+    final File[] stores = getDirectory().listFiles();
+    if (stores == null) {
+      return;
+    }
+    for (File store : stores) {
+      if (store.isDirectory() && store.getName().endsWith(STORE_DIRECTORY_SUFFIX)) {
+        s_logger.info("Deleting stale data store {}", store);
+        final File[] segments = store.listFiles();
+        if (segments != null) {
+          for (File segment : segments) {
+            segment.delete();
+          }
+        }
+        if (!store.delete()) {
+          s_logger.warn("Couldn't delete stale data store {}", store);
+        }
+      }
+    }
+  }
+
+  private static String sanitize(final String name) {
+    final StringBuilder sb = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      sb.append((Character.isLetterOrDigit(c) || (c == '-')) ? c : '_');
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    // The sequence number keeps the directory unique even if two keys sanitize to the same name
+    final String name = sanitize(cacheKey.getViewCycleId() + "-" + cacheKey.getCalculationConfigurationName()) + "-" + _nextStore.getAndIncrement()
+        + STORE_DIRECTORY_SUFFIX;
+    return new MappedFileBinaryDataStore(new File(getDirectory(), name), getSegmentSize());
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An implementation of {@link BinaryDataStore} that holds the data in direct {@link ByteBuffer} slabs outside of the
+ * Java heap. The identifiers are held in a {@link BinaryDataIndex} that maps each identifier to the location of its
+ * data, so a populated store consists of a handful of arrays and buffers rather than a boxed key,
+ * value and map entry per item.
+ * <p>
+ * Data is only ever appended to the slabs; replacing the value for an identifier leaves the previous bytes in
+ * place until the store is deleted. This suits the lifecycle of a computation cache, which is written once per
+ * cycle and released in bulk when the cycle is finished.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class OffHeapBinaryDataStore extends AbstractBinaryDataStore implements BinaryDataStore {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final OffHeapBinaryDataStoreFactory.SlabPool _slabPool;
+  private final Lock _readLock;
+  private final Lock _writeLock;
+
+  private final List<ByteBuffer> _slabs = new ArrayList<ByteBuffer>();
+  private ByteBuffer _currentSlab;
+  private int _currentSlabIndex;
+  private BinaryDataIndex _index = new BinaryDataIndex(INITIAL_CAPACITY);
+
+  /**
+   * Creates a store that allocates its own slabs.
+   *
+   * @param slabSize the size of each slab in bytes
+   */
+  public OffHeapBinaryDataStore(final int slabSize) {
+    this(new OffHeapBinaryDataStoreFactory.SlabPool(slabSize, 0));
+  }
+
+  /* package */OffHeapBinaryDataStore(final OffHeapBinaryDataStoreFactory.SlabPool slabPool) {
+    _slabPool = slabPool;
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+    _readLock = lock.readLock();
+    _writeLock = lock.writeLock();
+  }
+
+  private long append(final byte[] data) {
+    ByteBuffer slab = _currentSlab;
+    if ((slab == null) || (slab.remaining() < data.length)) {
+      if (data.length > _slabPool.getSlabSize()) {
+        // Oversized values get a dedicated buffer; the current slab stays open for smaller values
+        slab = ByteBuffer.allocateDirect(data.length);
+        _slabs.add(slab);
+        slab.put(data);
+        return BinaryDataIndex.location(_slabs.size() - 1, 0);
+      }
+      slab = _slabPool.take();
+      _slabs.add(slab);
+      _currentSlab = slab;
+      _currentSlabIndex = _slabs.size() - 1;
+    }
+    final long location = BinaryDataIndex.location(_currentSlabIndex, slab.position());
+    slab.put(data);
+    return location;
+  }
+
+  private byte[] getLocked(final long identifier) {
+    if (_index == null) {
+      return null;
+    }
+    final int entry = _index.find(identifier);
+    if (entry < 0) {
+      return null;
+    }
+    final long location = _index.getLocation(entry);
+    final ByteBuffer slab = _slabs.get(BinaryDataIndex.buffer(location)).duplicate();
+    slab.position(BinaryDataIndex.offset(location));
+    final byte[] data = new byte[_index.getLength(entry)];
+    slab.get(data);
+    return data;
+  }
+
+  private void putLocked(final long identifier, final byte[] data) {
+    if (_index == null) {
+      throw new IllegalStateException("Data store has been deleted");
+    }
+    _index.put(identifier, append(data), data.length);
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    _readLock.lock();
+    try {
+      return getLocked(identifier);
+    } finally {
+      _readLock.unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    _readLock.lock();
+    try {
+      for (Long identifier : identifiers) {
+        final byte[] data = getLocked(identifier);
+        if (data != null) {
+          result.put(identifier, data);
+        }
+      }
+    } finally {
+      _readLock.unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    _writeLock.lock();
+    try {
+      putLocked(identifier, data);
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    _writeLock.lock();
+    try {
+      for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of identifiers held in the store.
+   *
+   * @return the number of identifiers
+   */
+  public int size() {
+    _readLock.lock();
+    try {
+      return (_index != null) ? _index.size() : 0;
+    } finally {
+      _readLock.unlock();
+    }
+  }
+
+  @Override
+  public void delete() {
+    _writeLock.lock();
+    try {
+      if (_index == null) {
+        return;
+      }
+      // Standard sized slabs go back to the pool for reuse by the next cycle; anything else is left for the
+      // garbage collector
+      for (ByteBuffer slab : _slabs) {
+        if (slab.capacity() == _slabPool.getSlabSize()) {
+          _slabPool.release(slab);
+        }
+      }
+      _slabs.clear();
+      _currentSlab = null;
+      _index = null;
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
+}
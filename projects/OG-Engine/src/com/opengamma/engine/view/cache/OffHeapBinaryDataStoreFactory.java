@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link OffHeapBinaryDataStore} objects. The stores created share a pool of slabs so that the direct memory
+ * released by one cycle is reused by the next rather than waiting for the garbage collector to free it.
+ */
+public class OffHeapBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  /**
+   * Default size of each slab, 1Mb.
+   */
+  public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+  /**
+   * Default number of idle slabs to retain, 256Mb at the default slab size.
+   */
+  public static final int DEFAULT_MAX_POOLED_SLABS = 256;
+
+  /**
+   * Pool of idle slabs.
+   */
+  /* package */static final class SlabPool {
+
+    private final int _slabSize;
+    private final int _maxPooled;
+    private final Queue<ByteBuffer> _slabs = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger _pooled = new AtomicInteger();
+
+    public SlabPool(final int slabSize, final int maxPooled) {
+      ArgumentChecker.isTrue(slabSize > 0, "slabSize must be positive");
+      ArgumentChecker.isTrue(maxPooled >= 0, "maxPooled must not be negative");
+      _slabSize = slabSize;
+      _maxPooled = maxPooled;
+    }
+
+    public int getSlabSize() {
+      return _slabSize;
+    }
+
+    public ByteBuffer take() {
+      final ByteBuffer slab = _slabs.poll();
+      if (slab != null) {
+        _pooled.decrementAndGet();
+        return slab;
+      }
+      return ByteBuffer.allocateDirect(_slabSize);
+    }
+
+    public void release(final ByteBuffer slab) {
+      if (_pooled.incrementAndGet() <= _maxPooled) {
+        slab.clear();
+        _slabs.add(slab);
+      } else {
+        _pooled.decrementAndGet();
+      }
+    }
+
+    public int getPooled() {
+      return _pooled.get();
+    }
+
+  }
+
+  private final SlabPool _slabPool;
+
+  public OffHeapBinaryDataStoreFactory() {
+    this(DEFAULT_SLAB_SIZE, DEFAULT_MAX_POOLED_SLABS);
+  }
+
+  /**
+   * @param slabSize size of each slab in bytes; values larger than this are held in dedicated buffers
+   * @param maxPooledSlabs the maximum number of idle slabs to retain for reuse
+   */
+  public OffHeapBinaryDataStoreFactory(final int slabSize, final int maxPooledSlabs) {
+    _slabPool = new SlabPool(slabSize, maxPooledSlabs);
+  }
+
+  public int getSlabSize() {
+    return _slabPool.getSlabSize();
+  }
+
+  /**
+   * Returns the number of idle slabs currently held for reuse.
+   *
+   * @return the number of idle slabs
+   */
+  public int getPooledSlabs() {
+    return _slabPool.getPooled();
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    return new OffHeapBinaryDataStore(_slabPool);
+  }
+
+}
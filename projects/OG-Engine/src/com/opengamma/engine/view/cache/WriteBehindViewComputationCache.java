@@ -190,8 +190,11 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
 
   @Override
   public void putValues(final Collection<ComputedValue> values, final DeferredInvocationStatistics statistics) {
-    _pendingStatistics.add(statistics);
-    putValues(values);
+    // The writer matches statistics to values by order, so concurrent job items must not interleave here
+    synchronized (_pendingStatistics) {
+      _pendingStatistics.add(statistics);
+      putValues(values);
+    }
   }
 
   @Override
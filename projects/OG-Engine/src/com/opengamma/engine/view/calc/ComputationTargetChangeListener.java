@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+
+/**
+ * Change listener for the position and security sources which notifies a computation job of changes to entities
+ * that may be computation targets.
+ */
+public class ComputationTargetChangeListener implements ChangeListener {
+
+  private final ViewComputationJob _computationJob;
+
+  public ComputationTargetChangeListener(ViewComputationJob computationJob) {
+    _computationJob = computationJob;
+  }
+
+  @Override
+  public void entityChanged(ChangeEvent event) {
+    if (event.getBeforeId() != null) {
+      getViewComputationJob().computationTargetChanged(event.getBeforeId().getObjectId());
+    }
+    if (event.getAfterId() != null) {
+      getViewComputationJob().computationTargetChanged(event.getAfterId().getObjectId());
+    }
+  }
+
+  private ViewComputationJob getViewComputationJob() {
+    return _computationJob;
+  }
+
+}
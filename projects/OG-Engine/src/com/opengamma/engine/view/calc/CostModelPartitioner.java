@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Partitions a dependency graph into fragments by scheduling it onto a fixed number of calculation nodes using the
+ * measured function costs.
+ * <p>
+ * Nodes are list scheduled in order of their upward rank - the estimated time from the start of the node to the end
+ * of the graph - onto whichever calculation node gives the earliest finish. A value consumed on a different
+ * calculation node to the one that produced it costs its estimated transfer time through the shared cache. This
+ * minimizes the estimated critical path and keeps values that don't need to be shared on the node that produced them.
+ * <p>
+ * The nodes scheduled for each calculation node are then cut into fragments. A fragment ends after any node whose
+ * output is needed elsewhere so that the consumer doesn't wait for unrelated work, and a fragment is never extended
+ * with a node that needs an input from a fragment started after it, which keeps the fragment graph acyclic.
+ */
+/* package */class CostModelPartitioner {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CostModelPartitioner.class);
+
+  /**
+   * Data transfer rate to and from the shared cache. This matches the assumption made by {@link MutableGraphFragment}.
+   */
+  private static final double NANOS_PER_BYTE = 1.0;
+
+  private final int _nodeCount;
+  private final int _maxJobItems;
+  private final long _maxJobCost;
+
+  private long _estimatedMakespan;
+  private long _estimatedTransferCost;
+
+  /**
+   * @param nodeCount the number of calculation nodes to schedule the graph for, at least one
+   * @param maxJobItems the maximum number of items in a fragment
+   * @param maxJobCost the maximum invocation cost of a fragment
+   */
+  public CostModelPartitioner(final int nodeCount, final int maxJobItems, final long maxJobCost) {
+    ArgumentChecker.isTrue(nodeCount > 0, "nodeCount must be positive");
+    _nodeCount = nodeCount;
+    _maxJobItems = maxJobItems;
+    _maxJobCost = maxJobCost;
+  }
+
+  public int getNodeCount() {
+    return _nodeCount;
+  }
+
+  /**
+   * Returns the estimated time to execute the last graph partitioned, in nanoseconds.
+   *
+   * @return the estimated makespan
+   */
+  public long getEstimatedMakespan() {
+    return _estimatedMakespan;
+  }
+
+  /**
+   * Returns the estimated cost of the values passed between calculation nodes through the shared cache by the last
+   * graph partitioned, in nanoseconds.
+   *
+   * @return the estimated transfer cost
+   */
+  public long getEstimatedTransferCost() {
+    return _estimatedTransferCost;
+  }
+
+  /**
+   * Partitions the graph from the context.
+   *
+   * @param context the context, not null
+   * @param allFragments receives all of the fragments created, not null
+   * @return the fragments that no other fragment depends on, not null
+   */
+  public Collection<MutableGraphFragment> partition(final MutableGraphFragmentContext context, final Set<MutableGraphFragment> allFragments) {
+    final DependencyGraph graph = context.getGraph();
+    final List<DependencyNode> executionOrder = graph.getExecutionOrder();
+    final int count = executionOrder.size();
+    final DependencyNode[] nodes = executionOrder.toArray(new DependencyNode[count]);
+    final Map<DependencyNode, Integer> indices = new IdentityHashMap<DependencyNode, Integer>(count);
+    for (int i = 0; i < count; i++) {
+      indices.put(nodes[i], i);
+    }
+    final long[] cost = new long[count];
+    final long[] transfer = new long[count];
+    final int[][] inputs = new int[count][];
+    final int[] dependentCount = new int[count];
+    for (int i = 0; i < count; i++) {
+      final FunctionInvocationStatistics statistics = context.getFunctionStatistics(nodes[i].getFunction().getFunction());
+      cost[i] = (long) statistics.getInvocationCost();
+      transfer[i] = (long) (nodes[i].getOutputValues().size() * statistics.getDataOutputCost() * NANOS_PER_BYTE);
+      final Collection<DependencyNode> inputNodes = nodes[i].getInputNodes();
+      final int[] input = new int[inputNodes.size()];
+      int j = 0;
+      for (DependencyNode inputNode : inputNodes) {
+        final Integer index = indices.get(inputNode);
+        if (index != null) {
+          input[j++] = index;
+          dependentCount[index]++;
+        }
+      }
+      inputs[i] = (j == input.length) ? input : trim(input, j);
+    }
+    final int[][] dependents = new int[count][];
+    for (int i = 0; i < count; i++) {
+      dependents[i] = new int[dependentCount[i]];
+      dependentCount[i] = 0;
+    }
+    for (int i = 0; i < count; i++) {
+      for (int input : inputs[i]) {
+        dependents[input][dependentCount[input]++] = i;
+      }
+    }
+    final long[] rank = rank(cost, transfer, dependents);
+    final int[] lane = new int[count];
+    final int[] scheduled = schedule(cost, transfer, inputs, dependents, rank, lane);
+    final int[] group = new int[count];
+    final int groups = cut(scheduled, cost, inputs, dependents, lane, group);
+    return createFragments(context, nodes, scheduled, inputs, dependents, group, groups, allFragments);
+  }
+
+  private static int[] trim(final int[] array, final int length) {
+    final int[] result = new int[length];
+    System.arraycopy(array, 0, result, 0, length);
+    return result;
+  }
+
+  /**
+   * Calculates the upward rank of each node - its own cost, plus the most expensive path from it to the end of the
+   * graph assuming its output is transferred.
+   */
+  private static long[] rank(final long[] cost, final long[] transfer, final int[][] dependents) {
+    final long[] rank = new long[cost.length];
+    // The execution order has inputs before dependents, so walk it backwards
+    for (int i = cost.length - 1; i >= 0; i--) {
+      long longest = 0;
+      for (int dependent : dependents[i]) {
+        final long path = transfer[i] + rank[dependent];
+        if (path > longest) {
+          longest = path;
+        }
+      }
+      rank[i] = cost[i] + longest;
+    }
+    return rank;
+  }
+
+  /**
+   * Assigns each node to the calculation node on which it is estimated to finish earliest, considering nodes in
+   * order of decreasing rank as their inputs become available.
+   *
+   * @return the nodes in the order they were scheduled
+   */
+  private int[] schedule(final long[] cost, final long[] transfer, final int[][] inputs, final int[][] dependents, final long[] rank, final int[] lane) {
+    final int count = cost.length;
+    final int[] waiting = new int[count];
+    final PriorityQueue<Integer> ready = new PriorityQueue<Integer>(Math.max(count, 1), new Comparator<Integer>() {
+      @Override
+      public int compare(final Integer o1, final Integer o2) {
+        final long r1 = rank[o1];
+        final long r2 = rank[o2];
+        if (r1 != r2) {
+          return (r1 > r2) ? -1 : 1;
+        }
+        return o1.compareTo(o2);
+      }
+    });
+    for (int i = 0; i < count; i++) {
+      waiting[i] = inputs[i].length;
+      if (waiting[i] == 0) {
+        ready.add(i);
+      }
+    }
+    final long[] available = new long[getNodeCount()];
+    final long[] finish = new long[count];
+    final int[] scheduled = new int[count];
+    int scheduledCount = 0;
+    long makespan = 0;
+    long transferCost = 0;
+    while (!ready.isEmpty()) {
+      final int node = ready.poll();
+      int bestLane = 0;
+      long bestFinish = Long.MAX_VALUE;
+      for (int l = 0; l < available.length; l++) {
+        long start = available[l];
+        for (int input : inputs[node]) {
+          final long inputReady = (lane[input] == l) ? finish[input] : finish[input] + transfer[input];
+          if (inputReady > start) {
+            start = inputReady;
+          }
+        }
+        if (start + cost[node] < bestFinish) {
+          bestFinish = start + cost[node];
+          bestLane = l;
+        }
+      }
+      lane[node] = bestLane;
+      finish[node] = bestFinish;
+      available[bestLane] = bestFinish;
+      if (bestFinish > makespan) {
+        makespan = bestFinish;
+      }
+      for (int input : inputs[node]) {
+        if (lane[input] != bestLane) {
+          transferCost += transfer[input];
+        }
+      }
+      scheduled[scheduledCount++] = node;
+      for (int dependent : dependents[node]) {
+        if (--waiting[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    _estimatedMakespan = makespan;
+    _estimatedTransferCost = transferCost;
+    return scheduled;
+  }
+
+  /**
+   * Cuts the nodes scheduled for each calculation node into groups that will become the fragments.
+   *
+   * @return the number of groups
+   */
+  private int cut(final int[] scheduled, final long[] cost, final int[][] inputs, final int[][] dependents, final int[] lane, final int[] group) {
+    final int[] open = new int[getNodeCount()];
+    final int[] openItems = new int[getNodeCount()];
+    final long[] openCost = new long[getNodeCount()];
+    final boolean[] close = new boolean[getNodeCount()];
+    for (int l = 0; l < open.length; l++) {
+      open[l] = -1;
+    }
+    int groups = 0;
+    for (int node : scheduled) {
+      final int l = lane[node];
+      boolean start = (open[l] < 0) || close[l] || (openItems[l] >= _maxJobItems) || (cost[node] > _maxJobCost - openCost[l]);
+      if (!start) {
+        for (int input : inputs[node]) {
+          if ((lane[input] != l) && (group[input] >= open[l])) {
+            // The input's group started after ours; joining it could create a cycle
+            start = true;
+            break;
+          }
+        }
+      }
+      if (start) {
+        open[l] = groups++;
+        openItems[l] = 0;
+        openCost[l] = 0;
+      }
+      group[node] = open[l];
+      openItems[l]++;
+      openCost[l] += cost[node];
+      close[l] = false;
+      for (int dependent : dependents[node]) {
+        if (lane[dependent] != l) {
+          close[l] = true;
+          break;
+        }
+      }
+    }
+    return groups;
+  }
+
+  private Collection<MutableGraphFragment> createFragments(final MutableGraphFragmentContext context, final DependencyNode[] nodes, final int[] scheduled, final int[][] inputs,
+      final int[][] dependents, final int[] group, final int groups, final Set<MutableGraphFragment> allFragments) {
+    // Values consumed by another fragment must go to the shared cache; anything else can stay private to its fragment
+    final Map<ValueSpecification, Boolean> sharedCacheValues = context.getSharedCacheValues();
+    for (int i = 0; i < nodes.length; i++) {
+      for (int dependent : dependents[i]) {
+        if (group[dependent] != group[i]) {
+          for (ValueSpecification input : nodes[dependent].getInputValues()) {
+            if (nodes[i].getOutputValues().contains(input)) {
+              sharedCacheValues.put(input, Boolean.TRUE);
+            }
+          }
+        }
+      }
+    }
+    final MutableGraphFragment[] fragments = new MutableGraphFragment[groups];
+    for (int node : scheduled) {
+      final MutableGraphFragment fragment = fragments[group[node]];
+      if (fragment == null) {
+        fragments[group[node]] = new MutableGraphFragment(context, nodes[node]);
+      } else {
+        fragment.appendNode(nodes[node]);
+      }
+    }
+    for (int i = 0; i < nodes.length; i++) {
+      final MutableGraphFragment fragment = fragments[group[i]];
+      for (int input : inputs[i]) {
+        if (group[input] != group[i]) {
+          final MutableGraphFragment inputFragment = fragments[group[input]];
+          fragment.getInputFragments().add(inputFragment);
+          inputFragment.getOutputFragments().add(fragment);
+        }
+      }
+    }
+    final Collection<MutableGraphFragment> roots = new ArrayList<MutableGraphFragment>();
+    for (MutableGraphFragment fragment : fragments) {
+      allFragments.add(fragment);
+      if (fragment.getOutputFragments().isEmpty()) {
+        roots.add(fragment);
+      }
+    }
+    s_logger.debug("Partitioned {} nodes into {} fragments for {} calculation nodes, estimated makespan {}ns, transfer {}ns",
+        new Object[] {nodes.length, groups, getNodeCount(), _estimatedMakespan, _estimatedTransferCost });
+    return roots;
+  }
+
+}
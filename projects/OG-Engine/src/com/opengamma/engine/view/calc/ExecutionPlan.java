@@ -72,7 +72,9 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 
     @Override
     public SingleFragment withNodes(final Map<DependencyNodeKey, DependencyNode> nodes) {
-      return new SingleFragment(mapNodes(_nodes, nodes), _cacheSelectHint);
+      final SingleFragment plan = new SingleFragment(mapNodes(_nodes, nodes), _cacheSelectHint);
+      plan.setInvocationCost(getInvocationCost());
+      return plan;
     }
 
   }
@@ -229,11 +231,43 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
       for (Map.Entry<Integer, FragmentDescriptor> fragment : fragments.entrySet()) {
         fragment.setValue(new FragmentDescriptor(fragment.getValue(), nodes));
       }
-      return new MultipleFragment(fragments);
+      final MultipleFragment plan = new MultipleFragment(fragments);
+      plan.setInvocationCost(getInvocationCost());
+      return plan;
     }
 
   }
 
+  private long _invocationCost = -1;
+
+  /**
+   * Sets the estimated invocation cost of the graph at the time the plan was built.
+   * 
+   * @param invocationCost the estimated cost in nanoseconds, or -1 if not known
+   */
+  public void setInvocationCost(final long invocationCost) {
+    _invocationCost = invocationCost;
+  }
+
+  public long getInvocationCost() {
+    return _invocationCost;
+  }
+
+  /**
+   * Tests whether the function costs have changed enough since the plan was built that it should be discarded.
+   * 
+   * @param invocationCost the current estimated invocation cost of the graph, in nanoseconds
+   * @param tolerance the factor by which the cost may change, greater than one
+   * @return true if the plan should be rebuilt, false to keep using it
+   */
+  public boolean isStale(final long invocationCost, final double tolerance) {
+    if ((_invocationCost <= 0) || (invocationCost <= 0)) {
+      return false;
+    }
+    final double ratio = (double) invocationCost / (double) _invocationCost;
+    return (ratio > tolerance) || (ratio * tolerance < 1.0);
+  }
+
   /**
    * Creates an execution plan for fragment tree.
    * 
@@ -8,6 +8,7 @@ package com.opengamma.engine.view.calc;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -149,6 +150,26 @@ import com.opengamma.util.ehcache.EHCacheUtils;
    */
   private final Map<DependencyGraph, DependencyGraphKey> _identityLookup = new MapMaker().weakKeys().makeMap();
 
+  /**
+   * The estimated invocation cost of each graph. Estimating is a pass over every node in the graph so an estimate is
+   * reused for a number of cycles before it is made again from the latest function costs.
+   */
+  private final Map<DependencyGraph, InvocationCost> _invocationCosts = new MapMaker().weakKeys().makeMap();
+
+  /**
+   * An estimated invocation cost and the number of times it has been used.
+   */
+  private static final class InvocationCost {
+
+    private final long _cost;
+    private final AtomicInteger _uses = new AtomicInteger();
+
+    public InvocationCost(final long cost) {
+      _cost = cost;
+    }
+
+  }
+
   public ExecutionPlanCache(final CacheManager manager, final int cacheSize) {
     if (cacheSize > 0) {
       EHCacheUtils.addCache(manager, CACHE_NAME, cacheSize, MemoryStoreEvictionPolicy.LRU, false, null, true, 1800, 300, false, 0, null);
@@ -187,6 +208,32 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     }
   }
 
+  /**
+   * Gets the estimated invocation cost recorded for a graph instance, counting this as a use of the estimate.
+   * 
+   * @param graph the graph, not null
+   * @param maxUses the number of times an estimate may be used before it must be made again
+   * @return the estimated cost in nanoseconds, null if none has been recorded for the graph or it has been used
+   *         {@code maxUses} times already
+   */
+  public Long getInvocationCost(final DependencyGraph graph, final int maxUses) {
+    final InvocationCost invocationCost = _invocationCosts.get(graph);
+    if ((invocationCost == null) || (invocationCost._uses.incrementAndGet() > maxUses)) {
+      return null;
+    }
+    return invocationCost._cost;
+  }
+
+  /**
+   * Records a new estimated invocation cost for a graph instance, replacing any previous estimate and its use count.
+   * 
+   * @param graph the graph, not null
+   * @param invocationCost the estimated cost in nanoseconds
+   */
+  public void setInvocationCost(final DependencyGraph graph, final long invocationCost) {
+    _invocationCosts.put(graph, new InvocationCost(invocationCost));
+  }
+
   public void cachePlan(final DependencyGraph graph, final long functionInitId, final ExecutionPlan plan) {
     if (_cache != null) {
       s_logger.info("Caching execution plan for {}/{}", graph, functionInitId);
@@ -200,6 +247,4 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     }
   }
 
-  // TODO [ENG-269] If the function costs change significantly, invalidate the execution plan cache.
-
 }
@@ -5,15 +5,19 @@
  */
 package com.opengamma.engine.view.calc;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.ObjectUtils;
 
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
-import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.depgraph.DependentNodeIndex;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.ViewComputationCache;
 import com.opengamma.util.ArgumentChecker;
@@ -23,17 +27,20 @@ import com.opengamma.util.tuple.Pair;
  * Determines which nodes in a graph have changed. A node has 'changed' if and only 
  * if its subtree contains a node for which PreviousLiveDataInput != CurrentLiveDataInput.
  * Note that this excludes changes due to passage of the system clock. 
+ * <p>
+ * The changed market data is found by comparing the values of all market data in the graph from the two caches,
+ * fetched in a single batch from each. The changed nodes are then found by walking downstream from the nodes that
+ * source the changed market data using a {@link DependentNodeIndex}, so the cost of the walk is proportional to the
+ * number of changed nodes rather than the size of the graph.
  */
 public class LiveDataDeltaCalculator {
 
-  private final DependencyGraph _graph;
+  private final DependentNodeIndex _index;
   private final ViewComputationCache _cache;
   private final ViewComputationCache _previousCache;
 
-  private final Set<DependencyNode> _changedNodes = new HashSet<DependencyNode>();
-  private final Set<DependencyNode> _unchangedNodes = new HashSet<DependencyNode>();
-
-  private boolean _done; // = false
+  private Set<DependencyNode> _changedNodes;
+  private Set<DependencyNode> _unchangedNodes;
 
   /**
    * For the delta calculation to be meaningful, the caches should be populated with LiveData 
@@ -46,16 +53,33 @@ public class LiveDataDeltaCalculator {
    * @param previousCache Contains PreviousLiveDataInputs (for the given graph)
    */
   public LiveDataDeltaCalculator(DependencyGraph graph, ViewComputationCache cache, ViewComputationCache previousCache) {
-    ArgumentChecker.notNull(graph, "Graph");
+    this(createIndex(graph), cache, previousCache);
+  }
+
+  /**
+   * Creates a calculator using an index that has already been built for the dependency graph. The index can be
+   * reused for each cycle that executes the same graph.
+   * 
+   * @param index Reverse adjacency index of the dependency graph
+   * @param cache Contains CurrentLiveDataInputs (for the given graph)
+   * @param previousCache Contains PreviousLiveDataInputs (for the given graph)
+   */
+  public LiveDataDeltaCalculator(DependentNodeIndex index, ViewComputationCache cache, ViewComputationCache previousCache) {
+    ArgumentChecker.notNull(index, "Index");
     ArgumentChecker.notNull(cache, "Cache");
     ArgumentChecker.notNull(previousCache, "Previous cache");
-    _graph = graph;
+    _index = index;
     _cache = cache;
     _previousCache = previousCache;
   }
 
+  private static DependentNodeIndex createIndex(DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "Graph");
+    return new DependentNodeIndex(graph);
+  }
+
   public Set<DependencyNode> getChangedNodes() {
-    if (!_done) {
+    if (_changedNodes == null) {
       throw new IllegalStateException("Call computeDelta() first");
     }
 
@@ -63,7 +87,7 @@ public class LiveDataDeltaCalculator {
   }
 
   public Set<DependencyNode> getUnchangedNodes() {
-    if (!_done) {
+    if (_unchangedNodes == null) {
       throw new IllegalStateException("Call computeDelta() first");
     }
 
@@ -71,50 +95,47 @@ public class LiveDataDeltaCalculator {
   }
 
   public void computeDelta() {
-    if (_done) {
-      throw new IllegalStateException("Cannot determine delta twice");
-    }
-
-    for (DependencyNode rootNode : _graph.getRootNodes()) {
-      computeDelta(rootNode);
-    }
-
-    _done = true;
+    computeDelta(getChangedMarketData());
   }
 
-  private boolean computeDelta(DependencyNode node) {
-    if (_changedNodes.contains(node)) {
-      return true;
-    }
-    if (_unchangedNodes.contains(node)) {
-      return false;
+  /**
+   * Determines the delta from a set of market data known to have changed, without comparing the cache contents.
+   * 
+   * @param changedMarketData the market data specifications whose values have changed, not null
+   */
+  public void computeDelta(Collection<ValueSpecification> changedMarketData) {
+    if (_changedNodes != null) {
+      throw new IllegalStateException("Cannot determine delta twice");
     }
+    final Pair<Set<DependencyNode>, Set<DependencyNode>> delta = _index.getDelta(changedMarketData);
+    _changedNodes = delta.getFirst();
+    _unchangedNodes = delta.getSecond();
+  }
 
-    boolean hasChanged = false;
-    for (DependencyNode inputNode : node.getInputNodes()) {
-      // if any children changed, this node automatically requires recomputation.
-      hasChanged |= computeDelta(inputNode);
+  private Collection<ValueSpecification> getChangedMarketData() {
+    final List<ValueSpecification> marketData = _index.getMarketData();
+    if (marketData.isEmpty()) {
+      return Collections.emptyList();
     }
-
-    if (!hasChanged) {
-      // if no children changed, the node may still require recomputation
-      // due to market data changes affecting the function of the node.
-      Pair<ValueRequirement, ValueSpecification> liveData = node.getRequiredMarketData();
-      if (liveData != null) {
-        Object oldValue = _previousCache.getValue(liveData.getSecond());
-        Object newValue = _cache.getValue(liveData.getSecond());
-        if (!ObjectUtils.equals(oldValue, newValue)) {
-          hasChanged = true;
-        }
+    final Map<ValueSpecification, Object> previousValues = getValues(_previousCache, marketData);
+    final Map<ValueSpecification, Object> values = getValues(_cache, marketData);
+    final List<ValueSpecification> changed = new ArrayList<ValueSpecification>();
+    // Caches may omit missing values from the result so compare over the full set of market data
+    for (ValueSpecification specification : marketData) {
+      if (!ObjectUtils.equals(previousValues.get(specification), values.get(specification))) {
+        changed.add(specification);
       }
     }
+    return changed;
+  }
 
-    if (hasChanged) {
-      _changedNodes.add(node);
-    } else {
-      _unchangedNodes.add(node);
+  private static Map<ValueSpecification, Object> getValues(ViewComputationCache cache, Collection<ValueSpecification> specifications) {
+    final Collection<Pair<ValueSpecification, Object>> values = cache.getValues(specifications);
+    final Map<ValueSpecification, Object> result = new HashMap<ValueSpecification, Object>(values.size());
+    for (Pair<ValueSpecification, Object> value : values) {
+      result.put(value.getFirst(), value.getSecond());
     }
-
-    return hasChanged;
+    return result;
   }
+
 }
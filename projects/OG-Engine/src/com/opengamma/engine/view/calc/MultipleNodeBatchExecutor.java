@@ -42,8 +42,9 @@ public class MultipleNodeBatchExecutor extends MultipleNodeExecutor {
   private final SingleComputationCycle _cycle;
 
   protected MultipleNodeBatchExecutor(final SingleComputationCycle cycle, final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost,
-                                      final int maximumConcurrency, final FunctionCosts functionCosts, final ExecutionPlanCache cache, final ResultWriterFactory writerFactory) {
-    super(cycle, minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost, maximumConcurrency, functionCosts, cache);
+                                      final int maximumConcurrency, final int partitionNodeCount, final FunctionCosts functionCosts, final ExecutionPlanCache cache,
+                                      final ResultWriterFactory writerFactory) {
+    super(cycle, minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost, maximumConcurrency, partitionNodeCount, functionCosts, cache);
     _resultWriterFactory = writerFactory;
     _cycle = cycle;
   }
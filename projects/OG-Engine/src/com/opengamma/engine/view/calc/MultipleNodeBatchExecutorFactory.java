@@ -24,7 +24,7 @@ public class MultipleNodeBatchExecutorFactory extends MultipleNodeExecutorFactor
   public MultipleNodeExecutor createExecutor(final SingleComputationCycle cycle) {
     ArgumentChecker.notNull(cycle, "cycle");
     return new MultipleNodeBatchExecutor(cycle, getMinimumJobItems(), getMaximumJobItems(), getMinimumJobCost(),
-        getMaximumJobCost(), getMaximumConcurrency(), getFunctionCosts(), getExecutionPlanCache(), getResultWriterFactory());
+        getMaximumJobCost(), getMaximumConcurrency(), getPartitionNodeCount(), getFunctionCosts(), getExecutionPlanCache(), getResultWriterFactory());
   }
 
   public ResultWriterFactory getResultWriterFactory() {
@@ -35,6 +35,7 @@ import com.opengamma.engine.view.calcnode.CalculationJobResult;
 import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
 import com.opengamma.engine.view.calcnode.JobResultReceiver;
 import com.opengamma.engine.view.calcnode.stats.FunctionCosts;
+import com.opengamma.engine.view.calcnode.stats.FunctionCostsPerConfiguration;
 import com.opengamma.util.Cancelable;
 import com.opengamma.util.monitor.OperationTimer;
 import com.opengamma.util.tuple.Pair;
@@ -48,17 +49,34 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
 
   private static final Logger s_logger = LoggerFactory.getLogger(MultipleNodeExecutor.class);
 
+  /**
+   * Factor by which the estimated cost of a graph may change before a cached execution plan for it is rebuilt.
+   */
+  private static final double PLAN_COST_TOLERANCE = 2.0;
+
+  /**
+   * Number of cycles an estimate of the cost of a graph is used for before it is made again from the latest function
+   * costs.
+   */
+  /* package */ static final int COST_ESTIMATE_CYCLES = 10;
+
   private final SingleComputationCycle _cycle;
   private final int _minJobItems;
   private final int _maxJobItems;
   private final long _minJobCost;
   private final long _maxJobCost;
   private final int _maxConcurrency;
+  private final int _partitionNodeCount;
   private final FunctionCosts _functionCosts;
   private final ExecutionPlanCache _cache;
 
   protected MultipleNodeExecutor(final SingleComputationCycle cycle, final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost,
       final int maximumConcurrency, final FunctionCosts functionCosts, final ExecutionPlanCache cache) {
+    this(cycle, minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost, maximumConcurrency, 0, functionCosts, cache);
+  }
+
+  protected MultipleNodeExecutor(final SingleComputationCycle cycle, final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost,
+      final int maximumConcurrency, final int partitionNodeCount, final FunctionCosts functionCosts, final ExecutionPlanCache cache) {
     // Don't check for null as the factory does this, plus for testing we don't have a cycle and override the methods that use it
     _cycle = cycle;
     _minJobItems = minimumJobItems;
@@ -66,6 +84,7 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     _minJobCost = minimumJobCost;
     _maxJobCost = maximumJobCost;
     _maxConcurrency = maximumConcurrency;
+    _partitionNodeCount = partitionNodeCount;
     _functionCosts = functionCosts;
     _cache = cache;
   }
@@ -137,27 +156,35 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
   protected MutableGraphFragment.Root executeMultipleFragments(final MutableGraphFragmentContext context, final GraphExecutorStatisticsGatherer statistics) {
     final Set<MutableGraphFragment> allFragments = Sets.newHashSetWithExpectedSize(context.getGraph().getSize());
     final MutableGraphFragment.Root logicalRoot = new MutableGraphFragment.Root(context, statistics);
-    for (MutableGraphFragment root : graphToFragments(context, context.getGraph(), allFragments)) {
-      root.getOutputFragments().add(logicalRoot);
-      logicalRoot.getInputFragments().add(root);
-    }
-    int failCount = 0;
-    do {
-      if (mergeSharedInputs(logicalRoot, allFragments)) {
-        failCount = 0;
-      } else {
-        if (++failCount >= 2) {
-          break;
-        }
+    if (getPartitionNodeCount() > 0) {
+      final CostModelPartitioner partitioner = new CostModelPartitioner(getPartitionNodeCount(), getMaxJobItems(), getMaxJobCost());
+      for (MutableGraphFragment root : partitioner.partition(context, allFragments)) {
+        root.getOutputFragments().add(logicalRoot);
+        logicalRoot.getInputFragments().add(root);
       }
-      if (mergeSingleDependencies(allFragments)) {
-        failCount = 0;
-      } else {
-        if (++failCount >= 2) {
-          break;
-        }
+    } else {
+      for (MutableGraphFragment root : graphToFragments(context, context.getGraph(), allFragments)) {
+        root.getOutputFragments().add(logicalRoot);
+        logicalRoot.getInputFragments().add(root);
       }
-    } while (true);
+      int failCount = 0;
+      do {
+        if (mergeSharedInputs(logicalRoot, allFragments)) {
+          failCount = 0;
+        } else {
+          if (++failCount >= 2) {
+            break;
+          }
+        }
+        if (mergeSingleDependencies(allFragments)) {
+          failCount = 0;
+        } else {
+          if (++failCount >= 2) {
+            break;
+          }
+        }
+      } while (true);
+    }
     findTailFragments(allFragments);
     context.allocateFragmentMap(allFragments.size());
     // Set block counts on non-leaf nodes & leave only the leaves in the set
@@ -199,12 +226,15 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
   protected Future<DependencyGraph> executeImpl(final DependencyGraph graph, final BlockingQueue<CalculationJobResult> calcJobResultQueue, final GraphExecutorStatisticsGatherer statistics) {
     final OperationTimer timer = new OperationTimer(s_logger, "Creating execution plan for {}", graph);
     final MutableGraphFragmentContext context = new MutableGraphFragmentContext(this, graph, calcJobResultQueue);
+    context.setInvocationCost(getInvocationCost(graph));
     // writeGraphForTestingPurposes(graph);
     if (graph.getSize() <= getMinJobItems()) {
       // If the graph is too small, run it as-is
       final CompleteGraphFragment fragment = executeSingleFragment(context, statistics);
       timer.finished();
-      getCache().cachePlan(context.getGraph(), context.getFunctionInitId(), ExecutionPlan.of(fragment));
+      final ExecutionPlan plan = ExecutionPlan.of(fragment);
+      plan.setInvocationCost(context.getInvocationCost());
+      getCache().cachePlan(context.getGraph(), context.getFunctionInitId(), plan);
       return fragment.getFuture();
     } else {
       final MutableGraphFragment.Root fragment = executeMultipleFragments(context, statistics);
@@ -222,14 +252,50 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
    */
   @Override
   public Future<DependencyGraph> execute(final DependencyGraph graph, final BlockingQueue<CalculationJobResult> calcJobResultQueue, final GraphExecutorStatisticsGatherer statistics) {
-    final ExecutionPlan plan = getCache().getCachedPlan(graph, getCycle().getFunctionInitId());
+    final ExecutionPlan plan = getCache().getCachedPlan(graph, getFunctionInitId());
     if (plan != null) {
-      s_logger.info("Using cached execution plan for {}", graph);
-      return plan.run(new GraphFragmentContext(this, graph, calcJobResultQueue), statistics);
+      if (!plan.isStale(getInvocationCost(graph), PLAN_COST_TOLERANCE)) {
+        s_logger.info("Using cached execution plan for {}", graph);
+        return plan.run(new GraphFragmentContext(this, graph, calcJobResultQueue), statistics);
+      }
+      s_logger.info("Function costs have changed since the execution plan for {} was built", graph);
     } else {
       s_logger.debug("Creating new execution plan for {}", graph);
-      return executeImpl(graph, calcJobResultQueue, statistics);
     }
+    return executeImpl(graph, calcJobResultQueue, statistics);
+  }
+
+  /**
+   * Gets the estimated invocation cost of a graph. The estimate is held by the plan cache and made again from the
+   * function costs every {@link #COST_ESTIMATE_CYCLES} cycles, so a cached plan is checked against the costs as they
+   * are learnt without walking the graph on every cycle.
+   * 
+   * @param graph the graph, not null
+   * @return the estimated cost in nanoseconds
+   */
+  protected long getInvocationCost(final DependencyGraph graph) {
+    Long invocationCost = getCache().getInvocationCost(graph, COST_ESTIMATE_CYCLES);
+    if (invocationCost == null) {
+      invocationCost = estimateInvocationCost(graph);
+      getCache().setInvocationCost(graph, invocationCost);
+    }
+    return invocationCost;
+  }
+
+  /**
+   * Estimates the total invocation cost of a graph from the current function costs. This is compared with the cost
+   * recorded when a plan was built so that plans are rebuilt as the costs are learnt.
+   * 
+   * @param graph the graph, not null
+   * @return the estimated cost in nanoseconds
+   */
+  protected long estimateInvocationCost(final DependencyGraph graph) {
+    final FunctionCostsPerConfiguration costs = getFunctionCosts().getStatistics(graph.getCalculationConfigurationName());
+    double cost = 0;
+    for (DependencyNode node : graph.getDependencyNodes()) {
+      cost += costs.getStatistics(node.getFunction().getFunction().getFunctionDefinition().getUniqueId()).getInvocationCost();
+    }
+    return (long) cost;
   }
 
   public int getMinJobItems() {
@@ -252,6 +318,16 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     return _maxConcurrency;
   }
 
+  /**
+   * Returns the number of calculation nodes the graph is scheduled for using the measured function costs. If this
+   * is zero the graph is partitioned using the job size and cost limits only.
+   * 
+   * @return the number of calculation nodes, or zero to not use the cost model
+   */
+  public int getPartitionNodeCount() {
+    return _partitionNodeCount;
+  }
+
   public FunctionCosts getFunctionCosts() {
     return _functionCosts;
   }
@@ -25,6 +25,7 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
   private long _minimumJobCost = 1;
   private long _maximumJobCost = Long.MAX_VALUE;
   private int _maximumConcurrency = Integer.MAX_VALUE;
+  private int _partitionNodeCount;
   private FunctionCosts _functionCosts;
   
   protected ExecutionPlanCache getExecutionPlanCache() {
@@ -81,6 +82,22 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     return _maximumConcurrency;
   }
 
+  /**
+   * Sets the number of calculation nodes to schedule graphs for using the measured function costs. Zero, the
+   * default, partitions graphs using only the job size and cost limits.
+   * 
+   * @param partitionNodeCount the number of calculation nodes, or zero to not use the cost model
+   */
+  public void setPartitionNodeCount(final int partitionNodeCount) {
+    ArgumentChecker.isTrue(partitionNodeCount >= 0, "partitionNodeCount must not be negative");
+    _partitionNodeCount = partitionNodeCount;
+    invalidateExecutionPlanCache();
+  }
+
+  public int getPartitionNodeCount() {
+    return _partitionNodeCount;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     ArgumentChecker.notNull(functionCosts, "functionCosts");
     _functionCosts = functionCosts;
@@ -98,7 +115,8 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
   @Override
   public MultipleNodeExecutor createExecutor(final SingleComputationCycle cycle) {
     ArgumentChecker.notNull(cycle, "cycle");
-    return new MultipleNodeExecutor(cycle, getMinimumJobItems(), getMaximumJobItems(), getMinimumJobCost(), getMaximumJobCost(), getMaximumConcurrency(), getFunctionCosts(), _executionPlanCache);
+    return new MultipleNodeExecutor(cycle, getMinimumJobItems(), getMaximumJobItems(), getMinimumJobCost(), getMaximumJobCost(), getMaximumConcurrency(), getPartitionNodeCount(), getFunctionCosts(),
+        _executionPlanCache);
   }
 
   @Override
@@ -34,6 +34,9 @@ import com.opengamma.util.ArgumentChecker;
  * 
  * <p>Set maximum concurrency to the average node count of the job invokers. Requires a {@link JobDispatcher}.</p>
  * 
+ * <p>If the factory is scheduling graphs with the function cost model, set the number of calculation nodes it
+ * schedules for to the total node count of the job invokers. Requires a {@link JobDispatcher}.</p>
+ * 
  * <p>TODO: [ENG-200] Tuning of job size and cost parameters</p>
  */
 public class MultipleNodeExecutorTuner implements Runnable {
@@ -130,6 +133,13 @@ public class MultipleNodeExecutorTuner implements Runnable {
           s_logger.info("Changing maximum concurrency to {}", newMaxConcurrency);
           getFactory().setMaximumConcurrency(newMaxConcurrency);
         }
+        if (getFactory().getPartitionNodeCount() > 0) {
+          final int newPartitionNodeCount = Math.max((int) Math.round(nodesPerInvoker), 1);
+          if (newPartitionNodeCount != getFactory().getPartitionNodeCount()) {
+            s_logger.info("Changing partition node count to {}", newPartitionNodeCount);
+            getFactory().setPartitionNodeCount(newPartitionNodeCount);
+          }
+        }
       }
     }
     if (getGraphExecutionStatistics() != null) {
@@ -235,6 +235,39 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
     mergeFragmentCost(fragment);
   }
 
+  /**
+   * Appends a single node, which may consume values produced by this fragment. A value produced and consumed within
+   * the fragment becomes private unless it has already been marked as a shared cache value.
+   */
+  public void appendNode(final DependencyNode node) {
+    final FunctionInvocationStatistics statistics = getContext().getFunctionStatistics(node.getFunction().getFunction());
+    final Map<ValueSpecification, Boolean> sharedCacheValues = getContext().getSharedCacheValues();
+    final Integer inputCost = (Integer) (int) (statistics.getDataInputCost() * NANOS_PER_BYTE);
+    for (ValueSpecification input : node.getInputValues()) {
+      if (getInputValues().containsKey(input) || getPrivateValues().contains(input)) {
+        continue;
+      }
+      final Integer produced = getOutputValues().get(input);
+      if (produced != null) {
+        if (sharedCacheValues.get(input) != Boolean.TRUE) {
+          getOutputValues().remove(input);
+          _dataOutputCost -= produced;
+          getPrivateValues().add(input);
+        }
+        continue;
+      }
+      getInputValues().put(input, inputCost);
+      _dataInputCost += inputCost;
+    }
+    final Integer outputCost = (Integer) (int) (statistics.getDataOutputCost() * NANOS_PER_BYTE);
+    for (ValueSpecification output : node.getOutputValues()) {
+      getOutputValues().put(output, outputCost);
+    }
+    _dataOutputCost += node.getOutputValues().size() * outputCost;
+    _invocationCost += (long) statistics.getInvocationCost();
+    getNodes().add(node);
+  }
+
   public void setExecutionId(final int executionId) {
     _executionId = executionId;
   }
@@ -316,7 +349,9 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
 
     @Override
     public void execute() {
-      getContext().getExecutor().getCache().cachePlan(getContext().getGraph(), getContext().getFunctionInitId(), ExecutionPlan.of(this));
+      final ExecutionPlan plan = ExecutionPlan.of(this);
+      plan.setInvocationCost(getContext().getInvocationCost());
+      getContext().getExecutor().getCache().cachePlan(getContext().getGraph(), getContext().getFunctionInitId(), plan);
       _future.executed();
     }
 
@@ -23,6 +23,7 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
 
   private final FunctionCostsPerConfiguration _functionCost;
   private Map<ValueSpecification, Boolean> _sharedCacheValues;
+  private long _invocationCost = -1;
 
   public MutableGraphFragmentContext(final MultipleNodeExecutor executor, final DependencyGraph graph, final BlockingQueue<CalculationJobResult> calcJobResultQueue) {
     super(executor, graph, calcJobResultQueue);
@@ -38,6 +39,19 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
     return _sharedCacheValues;
   }
 
+  /**
+   * Sets the estimated invocation cost of the whole graph, recorded against the execution plan when it is cached.
+   * 
+   * @param invocationCost the estimated cost in nanoseconds
+   */
+  public void setInvocationCost(final long invocationCost) {
+    _invocationCost = invocationCost;
+  }
+
+  public long getInvocationCost() {
+    return _invocationCost;
+  }
+
   public FunctionInvocationStatistics getFunctionStatistics(final CompiledFunctionDefinition function) {
     return _functionCost.getStatistics(function.getFunctionDefinition().getUniqueId());
   }
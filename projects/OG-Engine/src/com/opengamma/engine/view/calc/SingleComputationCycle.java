@@ -11,6 +11,7 @@ import static com.opengamma.util.functional.Functional.submapByKeySet;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -42,6 +43,7 @@ import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.DependencyNodeFilter;
 import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataSnapshot;
 import com.opengamma.engine.marketdata.MarketDataSnapshot;
 import com.opengamma.engine.marketdata.OverrideOperation;
 import com.opengamma.engine.value.ComputedValue;
@@ -96,6 +98,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   private final Set<DependencyNode> _executedNodes = Collections.newSetFromMap(new ConcurrentHashMap<DependencyNode, Boolean>());
   private final Set<DependencyNode> _failedNodes = Collections.newSetFromMap(new ConcurrentHashMap<DependencyNode, Boolean>());
   private final Map<String, ViewComputationCache> _cachesByCalculationConfiguration = new HashMap<String, ViewComputationCache>();
+  private volatile MarketDataSnapshot _marketDataSnapshot;
 
   // Output
   private final InMemoryViewComputationResultModel _resultModel;
@@ -281,6 +284,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
     createAllCaches();
     prepareInputs(marketDataSnapshot);
+    _marketDataSnapshot = marketDataSnapshot;
 
     if (previousCycle != null) {
       computeDelta(previousCycle);
@@ -471,14 +475,20 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       throw new IllegalArgumentException("State of previous cycle must be " + ViewCycleState.EXECUTED);
     }
     InMemoryViewComputationResultModel deltaResultFragment = constructTemplateResultModel();
+    final Set<ValueRequirement> changedMarketData = getChangedMarketData(previousCycle);
     for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
       DependencyGraph depGraph = getCompiledViewDefinition().getDependencyGraph(calcConfigurationName);
 
       ViewComputationCache cache = getComputationCache(calcConfigurationName);
       ViewComputationCache previousCache = previousCycle.getComputationCache(calcConfigurationName);
 
-      LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache);
-      deltaCalculator.computeDelta();
+      LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(getCompiledViewDefinition().getDependentNodeIndex(calcConfigurationName), cache,
+          previousCache);
+      if (changedMarketData != null) {
+        deltaCalculator.computeDelta(getChangedMarketData(calcConfigurationName, changedMarketData));
+      } else {
+        deltaCalculator.computeDelta();
+      }
 
       s_logger.info("Computed delta for calculation configuration '{}'. {} nodes out of {} require recomputation.",
           new Object[] {calcConfigurationName, deltaCalculator.getChangedNodes().size(), depGraph.getSize() });
@@ -509,6 +519,42 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
   }
 
+  /**
+   * Gets the market data that has changed since a previous cycle from the snapshots the cycles used, if they can be
+   * compared directly. This avoids fetching and comparing every market data value from both cycles' caches.
+   * 
+   * @param previousCycle the previous cycle, not null
+   * @return the requirements whose values have changed, null if the snapshots can't be compared
+   */
+  private Set<ValueRequirement> getChangedMarketData(SingleComputationCycle previousCycle) {
+    if (previousCycle.getCompiledViewDefinition() != getCompiledViewDefinition()) {
+      // The market data shifts applied to the caches may differ
+      return null;
+    }
+    if (!(_marketDataSnapshot instanceof InMemoryLKVMarketDataSnapshot) || !(previousCycle._marketDataSnapshot instanceof InMemoryLKVMarketDataSnapshot)) {
+      return null;
+    }
+    final InMemoryLKVMarketDataSnapshot snapshot = (InMemoryLKVMarketDataSnapshot) _marketDataSnapshot;
+    final InMemoryLKVMarketDataSnapshot previousSnapshot = (InMemoryLKVMarketDataSnapshot) previousCycle._marketDataSnapshot;
+    if (!snapshot.isSameProvider(previousSnapshot)) {
+      return null;
+    }
+    return snapshot.getChangedValueKeys(previousSnapshot);
+  }
+
+  private Collection<ValueSpecification> getChangedMarketData(String calcConfigurationName, Set<ValueRequirement> changedMarketData) {
+    final Map<ValueRequirement, ValueSpecification> marketDataRequirements = getCompiledViewDefinition().getCompiledCalculationConfiguration(calcConfigurationName)
+        .getMarketDataRequirements();
+    final Collection<ValueSpecification> changed = new ArrayList<ValueSpecification>();
+    for (ValueRequirement requirement : changedMarketData) {
+      final ValueSpecification specification = marketDataRequirements.get(requirement);
+      if (specification != null) {
+        changed.add(specification);
+      }
+    }
+    return changed;
+  }
+
   private Set<ComputedValue> copyValues(ViewComputationCache cache, ViewComputationCache previousCache, Collection<ValueSpecification> specsToCopy) {
     Collection<Pair<ValueSpecification, Object>> valuesToCopy = previousCache.getValues(specsToCopy);
 
@@ -657,6 +703,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       dumpComputationCachesToDisk();
     }
     getViewProcessContext().getComputationCacheSource().releaseCaches(getUniqueId());
+    _marketDataSnapshot = null;
     _state = ViewCycleState.DESTROYED;
   }
 
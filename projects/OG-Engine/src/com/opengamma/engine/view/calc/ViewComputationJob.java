@@ -13,7 +13,11 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.time.Duration;
 import javax.time.Instant;
@@ -44,13 +48,16 @@ import com.opengamma.engine.view.calc.trigger.ViewCycleEligibility;
 import com.opengamma.engine.view.calc.trigger.ViewCycleTrigger;
 import com.opengamma.engine.view.calc.trigger.ViewCycleTriggerResult;
 import com.opengamma.engine.view.calc.trigger.ViewCycleType;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionStore;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.engine.view.compilation.StoredCompiledViewDefinition;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
 import com.opengamma.engine.view.compilation.ViewDefinitionCompiler;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.engine.view.listener.ComputationResultListener;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
@@ -84,6 +91,13 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private CountDownLatch _pendingSubscriptionLatch;
 
   private ChangeListener _viewDefinitionChangeListener;
+  private ChangeListener _computationTargetChangeListener;
+  private final Set<ObjectId> _changedTargets = Collections.newSetFromMap(new ConcurrentHashMap<ObjectId, Boolean>());
+  private boolean _storedCompilationChecked;
+  private final AtomicReference<CompiledViewDefinitionWithGraphsImpl> _revalidatedViewDefinition = new AtomicReference<CompiledViewDefinitionWithGraphsImpl>();
+  private volatile Future<?> _revalidation;
+  private final AtomicReference<StoredCompiledViewDefinition> _pendingStore = new AtomicReference<StoredCompiledViewDefinition>();
+  private final AtomicBoolean _storeScheduled = new AtomicBoolean();
 
   private volatile boolean _wakeOnMarketDataChanged;
   private volatile boolean _marketDataChanged = true;
@@ -114,6 +128,9 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _executeCycles = !getExecutionOptions().getFlags().contains(ViewExecutionFlags.COMPILE_ONLY);
     updateViewDefinitionIfRequired();
     subscribeToViewDefinition();
+    if (executionOptions.getFlags().contains(ViewExecutionFlags.INCREMENTAL_COMPILATION)) {
+      subscribeToComputationTargets();
+    }
   }
 
   private ViewCycleTrigger createViewCycleTrigger(ViewExecutionOptions executionOptions) {
@@ -244,7 +261,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     VersionCorrection versionCorrection = getResolvedVersionCorrection();
     CompiledViewDefinitionWithGraphsImpl compiledViewDefinition;
     try {
-      compiledViewDefinition = getCompiledViewDefinition(compilationValuationTime, versionCorrection);
+      compiledViewDefinition = getCompiledViewDefinition(compilationValuationTime, versionCorrection, executionOptions.getMarketDataSpecification());
       if (isTerminated()) {
         return; //[PLAT-1904]
       }
@@ -452,10 +469,17 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       _previousCycleReference.release();
     }
     unsubscribeFromViewDefinition();
+    unsubscribeFromComputationTargets();
     removeMarketDataProvider();
     invalidateCachedCompiledViewDefinition();
   }
 
+  @Override
+  public void terminate() {
+    super.terminate();
+    cancelRevalidation();
+  }
+
   private void processCompleted() {
     s_logger.info("Computation job completed for view process {}", getViewProcess());
     try {
@@ -484,6 +508,18 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _compilationDirty = true;
   }
 
+  /**
+   * Indicates that an entity which may be a computation target, or which may be referenced by one, has changed. If
+   * incremental compilation is enabled, the affected parts of the dependency graphs will be recompiled before the next
+   * cycle.
+   * 
+   * @param changedObject  the object identifier of the changed entity, not null
+   */
+  public void computationTargetChanged(ObjectId changedObject) {
+    s_logger.debug("Computation target {} changed for view process {}", changedObject, getViewProcess());
+    _changedTargets.add(changedObject);
+  }
+
   public synchronized void triggerCycle() {
     s_logger.debug("Cycle triggered manually");
     _forceTriggerCycle = true;
@@ -533,7 +569,8 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     return versionCorrection.withLatestFixed(Instant.now());
   }
 
-  private CompiledViewDefinitionWithGraphsImpl getCompiledViewDefinition(Instant valuationTime, VersionCorrection versionCorrection) {
+  private CompiledViewDefinitionWithGraphsImpl getCompiledViewDefinition(Instant valuationTime, VersionCorrection versionCorrection,
+      MarketDataSpecification marketDataSpec) {
     long functionInitId = getProcessContext().getFunctionCompilationService().getFunctionCompilationContext().getFunctionInitId();
     CompiledViewDefinitionWithGraphsImpl compiledViewDefinition;
     updateViewDefinitionIfRequired();
@@ -544,15 +581,47 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     } else {
       compiledViewDefinition = getCachedCompiledViewDefinition();
     }
+    final CompiledViewDefinitionWithGraphsImpl revalidated = _revalidatedViewDefinition.getAndSet(null);
+    if (revalidated != null && compiledViewDefinition != null && revalidated.getViewDefinition() == compiledViewDefinition.getViewDefinition()) {
+      // A full compilation has completed in the background to replace the restored one currently in use
+      s_logger.info("Replacing restored compilation of view definition {} with revalidated one", getViewProcess().getDefinitionId());
+      compiledViewDefinition = revalidated;
+      if (_changedTargets.isEmpty() && compiledViewDefinition.isValidFor(valuationTime) && functionInitId == compiledViewDefinition.getFunctionInitId()) {
+        return compiledViewDefinitionUpdated(compiledViewDefinition, valuationTime);
+      }
+    }
     if (compiledViewDefinition != null && compiledViewDefinition.isValidFor(valuationTime) && functionInitId == compiledViewDefinition.getFunctionInitId()) {
-      // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
-      return compiledViewDefinition;
+      if (_changedTargets.isEmpty()) {
+        // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
+        return compiledViewDefinition;
+      }
+      // Existing cached model is valid but some targets have changed; it can be updated rather than rebuilt
+    } else {
+      compiledViewDefinition = null;
     }
 
     try {
       MarketDataAvailabilityProvider availabilityProvider = getMarketDataProvider().getAvailabilityProvider();
       ViewCompilationServices compilationServices = getProcessContext().asCompilationServices(availabilityProvider);
-      compiledViewDefinition = ViewDefinitionCompiler.compile(_viewDefinition, compilationServices, valuationTime, versionCorrection);
+      if (compiledViewDefinition != null) {
+        final Set<ObjectId> changedTargets = new HashSet<ObjectId>(_changedTargets);
+        _changedTargets.removeAll(changedTargets);
+        s_logger.info("Incrementally compiling view definition {} after {} target changes", getViewProcess().getDefinitionId(), changedTargets.size());
+        compiledViewDefinition = ViewDefinitionCompiler.compileIncremental(_viewDefinition, compilationServices, valuationTime, versionCorrection, compiledViewDefinition,
+            changedTargets);
+        storeCompiledViewDefinition(compiledViewDefinition, marketDataSpec, versionCorrection);
+      } else {
+        if (!_storedCompilationChecked) {
+          _storedCompilationChecked = true;
+          compiledViewDefinition = restoreCompiledViewDefinition(compilationServices, valuationTime, versionCorrection, marketDataSpec);
+        }
+        if (compiledViewDefinition == null) {
+          // A full compilation will pick up the latest state of all targets
+          _changedTargets.clear();
+          compiledViewDefinition = ViewDefinitionCompiler.compile(_viewDefinition, compilationServices, valuationTime, versionCorrection);
+          storeCompiledViewDefinition(compiledViewDefinition, marketDataSpec, versionCorrection);
+        }
+      }
       
       if (isTerminated()) {
         return compiledViewDefinition; //[PLAT-1904] If we can't terminate the compilation at least avoid doing the subscribe etc.
@@ -562,6 +631,10 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       viewDefinitionCompilationFailed(valuationTime, new OpenGammaRuntimeException(message, e));
       throw new OpenGammaRuntimeException(message, e);
     }
+    return compiledViewDefinitionUpdated(compiledViewDefinition, valuationTime);
+  }
+
+  private CompiledViewDefinitionWithGraphsImpl compiledViewDefinitionUpdated(CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, Instant valuationTime) {
     setCachedCompiledViewDefinition(compiledViewDefinition);
     // [PLAT-984]
     // Assume that valuation times are increasing in real-time towards the expiry of the view definition, so that we
@@ -586,6 +659,141 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     return compiledViewDefinition;
   }
 
+  /**
+   * Attempts to restore a compilation of the view definition from the store, if there is one. The portfolio, securities
+   * or functions may have changed since the stored graphs were produced so a full compilation at the current
+   * version-correction is always started in the background. The restored graphs are only used until it completes.
+   * 
+   * @param compilationServices  the compilation services, not null
+   * @param valuationTime  the valuation time, not null
+   * @param versionCorrection  the version-correction, not null
+   * @param marketDataSpec  the market data specification, not null
+   * @return the restored compilation, null if there is none
+   */
+  private CompiledViewDefinitionWithGraphsImpl restoreCompiledViewDefinition(final ViewCompilationServices compilationServices, final Instant valuationTime,
+      final VersionCorrection versionCorrection, final MarketDataSpecification marketDataSpec) {
+    final CompiledViewDefinitionStore store = getProcessContext().getCompiledViewDefinitionStore();
+    if (store == null || getProcessContext().getBackgroundCompilationExecutor() == null || _viewDefinition.getUniqueId() == null) {
+      return null;
+    }
+    final StoredCompiledViewDefinition stored;
+    final CompiledViewDefinitionWithGraphsImpl restored;
+    try {
+      stored = store.get(_viewDefinition.getUniqueId(), marketDataSpec, versionCorrection);
+      if (stored == null) {
+        return null;
+      }
+      restored = ViewDefinitionCompiler.restore(_viewDefinition, compilationServices, valuationTime, versionCorrection,
+          getProcessContext().getFunctionCompilationService().compileFunctionRepository(valuationTime), stored);
+    } catch (Exception e) {
+      s_logger.warn("Couldn't restore stored compilation of view definition {}: {}", getViewProcess().getDefinitionId(), e.getMessage());
+      s_logger.debug("Caught exception", e);
+      return null;
+    }
+    if (restored == null || !restored.isValidFor(valuationTime)) {
+      s_logger.info("Stored compilation of view definition {} is not usable", getViewProcess().getDefinitionId());
+      return null;
+    }
+    try {
+      startRevalidation(compilationServices, valuationTime, versionCorrection, marketDataSpec);
+    } catch (RejectedExecutionException e) {
+      s_logger.warn("Couldn't revalidate stored compilation of view definition {}: {}", getViewProcess().getDefinitionId(), e.getMessage());
+      return null;
+    }
+    s_logger.info("Restored compilation of view definition {} from {}", getViewProcess().getDefinitionId(), stored);
+    return restored;
+  }
+
+  private void startRevalidation(final ViewCompilationServices compilationServices, final Instant valuationTime, final VersionCorrection versionCorrection,
+      final MarketDataSpecification marketDataSpec) {
+    final ViewDefinition viewDefinition = _viewDefinition;
+    cancelRevalidation();
+    _revalidation = getProcessContext().getBackgroundCompilationExecutor().submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final CompiledViewDefinitionWithGraphsImpl compiled = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, valuationTime, versionCorrection);
+          if (!isTerminated()) {
+            storeCompiledViewDefinition(compiled, marketDataSpec, versionCorrection);
+            _revalidatedViewDefinition.set(compiled);
+            triggerCycle();
+          }
+        } catch (Exception e) {
+          if (!isTerminated()) {
+            // Don't carry on with the restored graphs; fall back to a full compilation on the next cycle
+            s_logger.warn("Error revalidating restored compilation of view definition " + getViewProcess().getDefinitionId(), e);
+            dirtyCompilation();
+            triggerCycle();
+          }
+        }
+      }
+    });
+    if (isTerminated()) {
+      cancelRevalidation();
+    }
+  }
+
+  private void cancelRevalidation() {
+    final Future<?> revalidation = _revalidation;
+    if (revalidation != null) {
+      revalidation.cancel(true);
+      _revalidation = null;
+    }
+  }
+
+  /**
+   * Stores a compilation of the view definition so that it can be restored when the view is next started. The graphs
+   * are written by the background compilation executor rather than on the computation job thread; if further
+   * compilations are stored before the writer gets to them only the latest is written.
+   */
+  private void storeCompiledViewDefinition(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, final MarketDataSpecification marketDataSpec,
+      final VersionCorrection versionCorrection) {
+    final CompiledViewDefinitionStore store = getProcessContext().getCompiledViewDefinitionStore();
+    final ExecutorService executor = getProcessContext().getBackgroundCompilationExecutor();
+    final ViewDefinition viewDefinition = compiledViewDefinition.getViewDefinition();
+    if (store == null || executor == null || viewDefinition.getUniqueId() == null) {
+      // Stored compilations are only restored when they can be revalidated in the background
+      return;
+    }
+    _pendingStore.set(new StoredCompiledViewDefinition(viewDefinition.getUniqueId(), compiledViewDefinition.getFunctionInitId(),
+        versionCorrection.containsLatest() ? versionCorrection.withLatestFixed(Instant.now()) : versionCorrection, marketDataSpec,
+        compiledViewDefinition.getDependencyGraphsByConfiguration()));
+    if (_storeScheduled.compareAndSet(false, true)) {
+      try {
+        executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            writePendingStore(store);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        _storeScheduled.set(false);
+        _pendingStore.set(null);
+        s_logger.warn("Couldn't store compilation of view definition {}: {}", getViewProcess().getDefinitionId(), e.getMessage());
+      }
+    }
+  }
+
+  private void writePendingStore(final CompiledViewDefinitionStore store) {
+    while (true) {
+      final StoredCompiledViewDefinition stored = _pendingStore.getAndSet(null);
+      if (stored == null) {
+        _storeScheduled.set(false);
+        // Another compilation may have been stored after the last check but before the flag was cleared
+        if (_pendingStore.get() != null && _storeScheduled.compareAndSet(false, true)) {
+          continue;
+        }
+        return;
+      }
+      try {
+        store.put(stored);
+      } catch (Exception e) {
+        s_logger.warn("Couldn't store compilation of view definition {}: {}", getViewProcess().getDefinitionId(), e.getMessage());
+        s_logger.debug("Caught exception", e);
+      }
+    }
+  }
+
   /**
    * Gets the cached compiled view definition which may be re-used in subsequent computation cycles.
    * <p>
@@ -648,6 +856,32 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _viewDefinitionChangeListener = null;
   }
 
+  private void subscribeToComputationTargets() {
+    if (_computationTargetChangeListener != null) {
+      return;
+    }
+    _computationTargetChangeListener = new ComputationTargetChangeListener(this);
+    if (getProcessContext().getPositionSource() != null) {
+      getProcessContext().getPositionSource().changeManager().addChangeListener(_computationTargetChangeListener);
+    }
+    if (getProcessContext().getSecuritySource() != null) {
+      getProcessContext().getSecuritySource().changeManager().addChangeListener(_computationTargetChangeListener);
+    }
+  }
+
+  private void unsubscribeFromComputationTargets() {
+    if (_computationTargetChangeListener == null) {
+      return;
+    }
+    if (getProcessContext().getPositionSource() != null) {
+      getProcessContext().getPositionSource().changeManager().removeChangeListener(_computationTargetChangeListener);
+    }
+    if (getProcessContext().getSecuritySource() != null) {
+      getProcessContext().getSecuritySource().changeManager().removeChangeListener(_computationTargetChangeListener);
+    }
+    _computationTargetChangeListener = null;
+  }
+
   //-------------------------------------------------------------------------
   private void replaceMarketDataProvider(MarketDataSpecification marketDataSpec) {
     removeMarketDataProvider();
@@ -69,6 +69,11 @@ public final class MultipleNodeExecutor implements MultipleNodeExecutorMBean {
     return getUnderlying().getMinimumJobItems();
   }
 
+  @Override
+  public int getPartitionNodeCount() {
+    return getUnderlying().getPartitionNodeCount();
+  }
+
   @Override
   public void setMaximumConcurrency(int maximumConcurrency) {
     getUnderlying().setMaximumConcurrency(maximumConcurrency);
@@ -94,4 +99,9 @@ public final class MultipleNodeExecutor implements MultipleNodeExecutorMBean {
     getUnderlying().setMinimumJobItems(minimumJobItems);
   }
 
+  @Override
+  public void setPartitionNodeCount(int partitionNodeCount) {
+    getUnderlying().setPartitionNodeCount(partitionNodeCount);
+  }
+
 }
@@ -6,10 +6,18 @@
 package com.opengamma.engine.view.calcnode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
@@ -18,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.function.CompiledFunctionRepository;
 import com.opengamma.engine.function.CompiledFunctionService;
 import com.opengamma.engine.function.FunctionExecutionContext;
@@ -42,6 +51,13 @@ import com.opengamma.util.tuple.Pair;
  * A calculation node implementation. The node can only be used by one thread - i.e. executeJob cannot be called concurrently to do
  * multiple jobs. To execute multiple jobs concurrently separate calculation nodes must be used.
  * <p>
+ * The targets of all of a job's items are resolved in a single request to the target resolver before any items are executed.
+ * The items are normally executed one after another, each fetching its own inputs from the cache. If input
+ * prefetching is enabled the inputs that the job needs from other jobs are fetched in a single batch before any
+ * items are executed, which removes a round trip per item when the cache is remote. If a job item executor is set,
+ * items that do not depend on each other are executed in parallel on it, each invocation getting its own copy of
+ * the function execution context.
+ * <p>
  * The function repository (and anything else) must be properly initialized and ready for use by the node when it receives its first
  * job. Responsibility for initialization should therefore lie with whatever will logically be dispatching jobs. This is typically a
  * {@link ViewProcessor} for local nodes or a {@link RemoteNodeClient} for remote nodes.
@@ -56,6 +72,8 @@ public abstract class AbstractCalculationNode implements CalculationNode {
   private final FunctionInvocationStatisticsGatherer _functionInvocationStatistics;
   private String _nodeId;
   private final ExecutorService _writeBehindExecutorService;
+  private boolean _prefetchInputs;
+  private ExecutorService _jobItemExecutor;
 
   protected AbstractCalculationNode(ViewComputationCacheSource cacheSource, CompiledFunctionService functionCompilationService,
       FunctionExecutionContext functionExecutionContext, ComputationTargetResolver targetResolver, ViewProcessorQuerySender calcNodeQuerySender, String nodeId,
@@ -117,30 +135,222 @@ public abstract class AbstractCalculationNode implements CalculationNode {
     _nodeId = nodeId;
   }
 
+  public boolean isPrefetchInputs() {
+    return _prefetchInputs;
+  }
+
+  /**
+   * Sets whether to fetch the inputs a job needs from other jobs in a single batch before executing its items.
+   * 
+   * @param prefetchInputs true to prefetch the inputs, false to fetch them as each item is executed
+   */
+  public void setPrefetchInputs(final boolean prefetchInputs) {
+    _prefetchInputs = prefetchInputs;
+  }
+
+  public ExecutorService getJobItemExecutor() {
+    return _jobItemExecutor;
+  }
+
+  /**
+   * Sets the executor to run independent items of a job in parallel on. This should not be shared with other nodes
+   * unless it has enough threads for all of them.
+   * 
+   * @param jobItemExecutor the executor, or null to execute the items of a job sequentially
+   */
+  public void setJobItemExecutor(final ExecutorService jobItemExecutor) {
+    _jobItemExecutor = jobItemExecutor;
+  }
+
   protected List<CalculationJobResultItem> executeJobItems(final CalculationJob job, final DelayedViewComputationCache cache,
       final CompiledFunctionRepository functions, final String calculationConfiguration) {
-    final List<CalculationJobResultItem> resultItems = new ArrayList<CalculationJobResultItem>();
+    final Map<ValueSpecification, Object> prefetched = isPrefetchInputs() ? prefetchInputs(job, cache) : null;
+    final Map<ComputationTargetSpecification, ComputationTarget> targets = resolveTargets(job);
+    if ((getJobItemExecutor() != null) && (job.getJobItems().size() > 1)) {
+      return executeJobItemsParallel(job, cache, functions, calculationConfiguration, prefetched, targets);
+    }
+    final List<CalculationJobResultItem> resultItems = new ArrayList<CalculationJobResultItem>(job.getJobItems().size());
     for (CalculationJobItem jobItem : job.getJobItems()) {
       if (job.isCancelled()) {
         return null;
       }
-      CalculationJobResultItem resultItem;
+      resultItems.add(executeJobItem(functions, jobItem, cache, prefetched, targets, getFunctionExecutionContext(), calculationConfiguration));
+    }
+    return resultItems;
+  }
+
+  /**
+   * Executes the items of a job in parallel. An item is submitted to the job item executor once all of the items
+   * producing its inputs have completed; the calling thread does all of the book keeping.
+   */
+  private List<CalculationJobResultItem> executeJobItemsParallel(final CalculationJob job, final DelayedViewComputationCache cache,
+      final CompiledFunctionRepository functions, final String calculationConfiguration, final Map<ValueSpecification, Object> prefetched,
+      final Map<ComputationTargetSpecification, ComputationTarget> targets) {
+    final List<CalculationJobItem> jobItems = job.getJobItems();
+    final int count = jobItems.size();
+    final Map<ValueSpecification, Integer> producers = new HashMap<ValueSpecification, Integer>();
+    for (int i = 0; i < count; i++) {
+      for (ValueSpecification output : jobItems.get(i).getOutputs()) {
+        producers.put(output, i);
+      }
+    }
+    final int[] waiting = new int[count];
+    final List<List<Integer>> dependents = new ArrayList<List<Integer>>(count);
+    for (int i = 0; i < count; i++) {
+      dependents.add(new ArrayList<Integer>(2));
+    }
+    for (int i = 0; i < count; i++) {
+      final Set<Integer> inputItems = new HashSet<Integer>();
+      for (ValueSpecification input : jobItems.get(i).getInputs()) {
+        final Integer producer = producers.get(input);
+        if ((producer != null) && (producer != i) && inputItems.add(producer)) {
+          dependents.get(producer).add(i);
+          waiting[i]++;
+        }
+      }
+    }
+    final CalculationJobResultItem[] resultItems = new CalculationJobResultItem[count];
+    final CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(getJobItemExecutor());
+    int running = 0;
+    boolean cancelled = false;
+    for (int i = 0; i < count; i++) {
+      if (waiting[i] == 0) {
+        submitJobItem(completion, i, jobItems.get(i), functions, cache, prefetched, targets, calculationConfiguration, resultItems);
+        running++;
+      }
+    }
+    while (running > 0) {
+      final int completed;
       try {
-        invoke(functions, jobItem, cache, new DeferredInvocationStatistics(getFunctionInvocationStatistics(), calculationConfiguration));
-        resultItem = new CalculationJobResultItem(jobItem);
-      } catch (MissingInputException e) {
-        // NOTE kirk 2009-10-20 -- We intentionally only do the message here so that we don't
-        // litter the logs with stack traces; the inputs missing have also already been
-        // written at INFO level
-        s_logger.warn("Unable to invoke {} due to missing inputs", jobItem);
-        resultItem = new CalculationJobResultItem(jobItem, e);
-      } catch (Throwable t) {
-        s_logger.error("Invoking " + jobItem.getFunctionUniqueIdentifier() + " threw exception", t);
-        resultItem = new CalculationJobResultItem(jobItem, t);
+        completed = completion.take().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OpenGammaRuntimeException("Interrupted executing " + job, e);
+      } catch (ExecutionException e) {
+        throw new OpenGammaRuntimeException("Error executing " + job, e.getCause());
+      }
+      running--;
+      if (cancelled || job.isCancelled()) {
+        // Let the items already running finish, but don't start any more
+        cancelled = true;
+        continue;
+      }
+      for (Integer dependent : dependents.get(completed)) {
+        if (--waiting[dependent] == 0) {
+          submitJobItem(completion, dependent, jobItems.get(dependent), functions, cache, prefetched, targets, calculationConfiguration, resultItems);
+          running++;
+        }
       }
-      resultItems.add(resultItem);
     }
-    return resultItems;
+    if (cancelled) {
+      return null;
+    }
+    return new ArrayList<CalculationJobResultItem>(Arrays.asList(resultItems));
+  }
+
+  private void submitJobItem(final CompletionService<Integer> completion, final int index, final CalculationJobItem jobItem, final CompiledFunctionRepository functions,
+      final DelayedViewComputationCache cache, final Map<ValueSpecification, Object> prefetched, final Map<ComputationTargetSpecification, ComputationTarget> targets,
+      final String calculationConfiguration, final CalculationJobResultItem[] resultItems) {
+    // The node's context is not modified while the job runs, so each invocation can take its own copy to set parameters on
+    final FunctionExecutionContext context = getFunctionExecutionContext().clone();
+    completion.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        resultItems[index] = executeJobItem(functions, jobItem, cache, prefetched, targets, context, calculationConfiguration);
+        return index;
+      }
+    });
+  }
+
+  private CalculationJobResultItem executeJobItem(final CompiledFunctionRepository functions, final CalculationJobItem jobItem, final DelayedViewComputationCache cache,
+      final Map<ValueSpecification, Object> prefetched, final Map<ComputationTargetSpecification, ComputationTarget> targets, final FunctionExecutionContext context,
+      final String calculationConfiguration) {
+    try {
+      invoke(functions, jobItem, cache, prefetched, targets, context, new DeferredInvocationStatistics(getFunctionInvocationStatistics(), calculationConfiguration));
+      return new CalculationJobResultItem(jobItem);
+    } catch (MissingInputException e) {
+      // NOTE kirk 2009-10-20 -- We intentionally only do the message here so that we don't
+      // litter the logs with stack traces; the inputs missing have also already been
+      // written at INFO level
+      s_logger.warn("Unable to invoke {} due to missing inputs", jobItem);
+      return new CalculationJobResultItem(jobItem, e);
+    } catch (Throwable t) {
+      s_logger.error("Invoking " + jobItem.getFunctionUniqueIdentifier() + " threw exception", t);
+      return new CalculationJobResultItem(jobItem, t);
+    }
+  }
+
+  /**
+   * Resolves the targets of a job's items in a single request to the target resolver. If that fails the targets are
+   * resolved as each item is executed, so that the failures are reported against the items.
+   * 
+   * @return the targets resolved, keyed by specification; targets that could not be resolved are omitted
+   */
+  private Map<ComputationTargetSpecification, ComputationTarget> resolveTargets(final CalculationJob job) {
+    final Set<ComputationTargetSpecification> specifications = new HashSet<ComputationTargetSpecification>();
+    for (CalculationJobItem jobItem : job.getJobItems()) {
+      specifications.add(jobItem.getComputationTargetSpecification());
+    }
+    try {
+      return getTargetResolver().resolve(specifications);
+    } catch (RuntimeException e) {
+      s_logger.warn("Unable to resolve the {} targets of {} in bulk: {}", new Object[] {specifications.size(), job, e.getMessage()});
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * Fetches the inputs of a job that are not produced by its own items in a single batch.
+   * 
+   * @return the values fetched, keyed by specification; values not yet in the cache are omitted
+   */
+  private static Map<ValueSpecification, Object> prefetchInputs(final CalculationJob job, final DelayedViewComputationCache cache) {
+    final Set<ValueSpecification> produced = new HashSet<ValueSpecification>();
+    final Set<ValueSpecification> external = new HashSet<ValueSpecification>();
+    for (CalculationJobItem jobItem : job.getJobItems()) {
+      for (ValueSpecification input : jobItem.getInputs()) {
+        if (!produced.contains(input)) {
+          external.add(input);
+        }
+      }
+      produced.addAll(jobItem.getOutputs());
+    }
+    if (external.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    final Map<ValueSpecification, Object> values = new HashMap<ValueSpecification, Object>();
+    for (Pair<ValueSpecification, Object> value : cache.getValues(external)) {
+      // A missing value might be produced later in the job, so will be requested again when it is needed
+      if (value.getValue() != null) {
+        values.put(value.getKey(), value.getValue());
+      }
+    }
+    s_logger.debug("Prefetched {} of {} inputs", values.size(), external.size());
+    return values;
+  }
+
+  private static Collection<Pair<ValueSpecification, Object>> getInputValues(final Collection<ValueSpecification> inputs, final DelayedViewComputationCache cache,
+      final Map<ValueSpecification, Object> prefetched) {
+    if (prefetched == null) {
+      return cache.getValues(inputs);
+    }
+    final List<Pair<ValueSpecification, Object>> values = new ArrayList<Pair<ValueSpecification, Object>>(inputs.size());
+    List<ValueSpecification> fetch = null;
+    for (ValueSpecification input : inputs) {
+      final Object value = prefetched.get(input);
+      if (value != null) {
+        values.add(Pair.of(input, value));
+      } else {
+        if (fetch == null) {
+          fetch = new ArrayList<ValueSpecification>(inputs.size() - values.size());
+        }
+        fetch.add(input);
+      }
+    }
+    if (fetch != null) {
+      values.addAll(cache.getValues(fetch));
+    }
+    return values;
   }
 
   public CalculationJobResult executeJob(final CalculationJob job) {
@@ -179,9 +389,14 @@ public abstract class AbstractCalculationNode implements CalculationNode {
     return cache;
   }
 
-  private void invoke(final CompiledFunctionRepository functions, final CalculationJobItem jobItem, final DelayedViewComputationCache cache, final DeferredInvocationStatistics statistics) {
+  private void invoke(final CompiledFunctionRepository functions, final CalculationJobItem jobItem, final DelayedViewComputationCache cache,
+      final Map<ValueSpecification, Object> prefetched, final Map<ComputationTargetSpecification, ComputationTarget> targets, final FunctionExecutionContext context,
+      final DeferredInvocationStatistics statistics) {
     final String functionUniqueId = jobItem.getFunctionUniqueIdentifier();
-    final ComputationTarget target = getTargetResolver().resolve(jobItem.getComputationTargetSpecification());
+    ComputationTarget target = targets.get(jobItem.getComputationTargetSpecification());
+    if (target == null) {
+      target = getTargetResolver().resolve(jobItem.getComputationTargetSpecification());
+    }
     if (target == null) {
       throw new OpenGammaRuntimeException("Unable to resolve specification " + jobItem.getComputationTargetSpecification());
     }
@@ -191,14 +406,18 @@ public abstract class AbstractCalculationNode implements CalculationNode {
       throw new NullPointerException("Unable to locate " + functionUniqueId + " in function repository.");
     }
     // set parameters
-    getFunctionExecutionContext().setFunctionParameters(jobItem.getFunctionParameters());
+    context.setFunctionParameters(jobItem.getFunctionParameters());
     // assemble inputs
-    final Collection<ComputedValue> inputs = new HashSet<ComputedValue>();
-    final Collection<ValueSpecification> missingInputs = new HashSet<ValueSpecification>();
+    final Collection<ValueSpecification> inputSpecifications = jobItem.getInputs();
+    final Collection<ComputedValue> inputs = new ArrayList<ComputedValue>(inputSpecifications.size());
+    Collection<ValueSpecification> missingInputs = Collections.emptySet();
     int inputBytes = 0;
     int inputSamples = 0;
-    for (Pair<ValueSpecification, Object> input : cache.getValues(jobItem.getInputs())) {
+    for (Pair<ValueSpecification, Object> input : getInputValues(inputSpecifications, cache, prefetched)) {
       if ((input.getValue() == null) || (input.getValue() instanceof MissingInput)) {
+        if (missingInputs.isEmpty()) {
+          missingInputs = new HashSet<ValueSpecification>();
+        }
         missingInputs.add(input.getKey());
       } else {
         final ComputedValue value = new ComputedValue(input.getKey(), input.getValue());
@@ -222,7 +441,7 @@ public abstract class AbstractCalculationNode implements CalculationNode {
     final FunctionInputs functionInputs = new FunctionInputsImpl(inputs, missingInputs);
     // execute
     statistics.beginInvocation();
-    final Set<ComputedValue> results = invoker.execute(getFunctionExecutionContext(), functionInputs, target, jobItem.getDesiredValues());
+    final Set<ComputedValue> results = invoker.execute(context, functionInputs, target, jobItem.getDesiredValues());
     if (results == null) {
       throw new NullPointerException("No results returned by invoker " + invoker);
     }
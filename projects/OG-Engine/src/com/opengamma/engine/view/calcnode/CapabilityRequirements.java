@@ -14,6 +14,9 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * Specifies the capability requirements of a job. It will only be passed to invokers that can
  * satisfy these requirements.
+ * <p>
+ * Requirements are used as keys when grouping jobs for dispatch, so an instance must not be modified once it has
+ * been returned by a {@link CapabilityRequirementsProvider}.
  */
 public class CapabilityRequirements {
 
@@ -49,4 +52,20 @@ public class CapabilityRequirements {
     return true;
   }
 
+  @Override
+  public boolean equals(final Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof CapabilityRequirements)) {
+      return false;
+    }
+    return _requiredCapabilities.equals(((CapabilityRequirements) o)._requiredCapabilities);
+  }
+
+  @Override
+  public int hashCode() {
+    return _requiredCapabilities.hashCode();
+  }
+
 }
@@ -7,6 +7,7 @@ package com.opengamma.engine.view.calcnode;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -22,6 +23,8 @@ import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -123,6 +126,7 @@ public class JobDispatcher implements JobInvokerRegister {
     private final ConcurrentMap<CalculationJobSpecification, JobResultReceiver> _resultReceivers;
     private final AtomicBoolean _completed = new AtomicBoolean(false);
     private final long _jobCreationTime;
+    private volatile long _dispatchTime;
     private final CapabilityRequirements _capabilityRequirements;
     private final AtomicReference<Timeout> _timeout = new AtomicReference<Timeout>();
     private Set<JobInvoker> _excludeJobInvoker;
@@ -136,6 +140,7 @@ public class JobDispatcher implements JobInvokerRegister {
         _resultReceivers.put(jobref.getSpecification(), resultReceiver);
       }
       _jobCreationTime = System.nanoTime();
+      _dispatchTime = _jobCreationTime;
       _capabilityRequirements = getCapabilityRequirementsProvider().getCapabilityRequirements(jobs);
     }
 
@@ -194,6 +199,8 @@ public class JobDispatcher implements JobInvokerRegister {
             }
             _excludeJobInvoker.add(jobInvoker);
             _completed.set(false);
+            _rescheduledJobs.incrementAndGet();
+            _dispatchTime = System.nanoTime();
             dispatchJobImpl(this);
           }
         }
@@ -229,6 +236,7 @@ public class JobDispatcher implements JobInvokerRegister {
       s_logger.error("Aborted job {} after {} attempts", getJob().getSpecification().getJobId(), _rescheduled);
       if (_completed.getAndSet(true) == false) {
         cancelTimeout(Timeout.FINISHED);
+        _abortedJobs.incrementAndGet();
         if (exception == null) {
           s_logger.error("Aborted job {} with {}", getJob().getSpecification().getJobId(), alternativeError);
           exception = new OpenGammaRuntimeException(alternativeError);
@@ -306,13 +314,13 @@ public class JobDispatcher implements JobInvokerRegister {
       return _jobCreationTime;
     }
 
-    private boolean canRunOn(final JobInvoker jobInvoker) {
-      if (_excludeJobInvoker != null) {
-        if (_excludeJobInvoker.contains(jobInvoker)) {
-          return false;
-        }
-      }
-      return getRequirements().satisfiedBy(jobInvoker.getCapabilities());
+    private long getDispatchTime() {
+      return _dispatchTime;
+    }
+
+    private boolean isExcluded(final JobInvoker jobInvoker) {
+      final Set<JobInvoker> exclude = _excludeJobInvoker;
+      return (exclude != null) && exclude.contains(jobInvoker);
     }
 
     @Override
@@ -342,9 +350,33 @@ public class JobDispatcher implements JobInvokerRegister {
 
   }
 
-  private final Queue<DispatchJob> _pending = new LinkedList<DispatchJob>();
+  /**
+   * Jobs waiting for an invoker, grouped by their capability requirements.
+   */
+  private final ConcurrentMap<CapabilityRequirements, Queue<DispatchJob>> _pending = new ConcurrentHashMap<CapabilityRequirements, Queue<DispatchJob>>();
+  private final AtomicInteger _pendingCount = new AtomicInteger();
+  /**
+   * Invokers that may be able to accept a job, in round-robin order. A thread dispatching a job claims the first
+   * suitable invoker by removing it from the set; an invoker that accepts the job goes back to the tail of the queue.
+   */
   private final Queue<JobInvoker> _invokers = new ConcurrentLinkedQueue<JobInvoker>();
+  private final Set<JobInvoker> _idleInvokers = Collections.newSetFromMap(new ConcurrentHashMap<JobInvoker, Boolean>());
+  /**
+   * Incremented whenever an invoker is added to the queue so that a thread returning a job to the pending set can
+   * detect an invoker that became available while it was trying to dispatch.
+   */
+  private final AtomicLong _invokerEpoch = new AtomicLong();
   private final Map<JobInvoker, Collection<Capability>> _capabilityCache = new ConcurrentHashMap<JobInvoker, Collection<Capability>>();
+  /**
+   * Whether each invoker can satisfy each set of requirements, so that the capability comparison is only made once.
+   */
+  private final ConcurrentMap<CapabilityRequirements, ConcurrentMap<JobInvoker, Boolean>> _compatibility =
+      new ConcurrentHashMap<CapabilityRequirements, ConcurrentMap<JobInvoker, Boolean>>();
+
+  private final AtomicLong _dispatchedJobs = new AtomicLong();
+  private final AtomicLong _dispatchLatencyNanos = new AtomicLong();
+  private final AtomicLong _rescheduledJobs = new AtomicLong();
+  private final AtomicLong _abortedJobs = new AtomicLong();
 
   private int _maxJobAttempts = DEFAULT_MAX_JOB_ATTEMPTS;
   private String _jobFailureNodeId = DEFAULT_JOB_FAILURE_NODE_ID;
@@ -442,10 +474,6 @@ public class JobDispatcher implements JobInvokerRegister {
     return _capabilityRequirementsProvider;
   }
 
-  protected Queue<DispatchJob> getPending() {
-    return _pending;
-  }
-
   protected Queue<JobInvoker> getInvokers() {
     return _invokers;
   }
@@ -455,43 +483,113 @@ public class JobDispatcher implements JobInvokerRegister {
   }
 
   @Override
-  public synchronized void registerJobInvoker(final JobInvoker invoker) {
+  public void registerJobInvoker(final JobInvoker invoker) {
     ArgumentChecker.notNull(invoker, "invoker");
     s_logger.debug("Registering job invoker {}", invoker);
-    getInvokers().add(invoker);
-    getCapabilityCache().put(invoker, invoker.getCapabilities());
-    if (!getPending().isEmpty()) {
-      retryPending(0L);
+    final Collection<Capability> capabilities = invoker.getCapabilities();
+    final Collection<Capability> previous = getCapabilityCache().put(invoker, capabilities);
+    if ((previous != null) && !previous.equals(capabilities)) {
+      s_logger.info("Capabilities of invoker {} changed", invoker);
+      for (Map<JobInvoker, Boolean> compatibility : _compatibility.values()) {
+        compatibility.remove(invoker);
+      }
+    }
+    offerInvoker(invoker);
+    if (_pendingCount.get() > 0) {
+      retryPending();
     }
   }
 
-  // caller must already own monitor
-  private void retryPending(final long failJobsBefore) {
-    s_logger.debug("Retrying pending operations");
-    final Iterator<DispatchJob> iterator = getPending().iterator();
+  private void offerInvoker(final JobInvoker invoker) {
+    if (_idleInvokers.add(invoker)) {
+      _invokers.add(invoker);
+      _invokerEpoch.incrementAndGet();
+    }
+  }
+
+  /**
+   * Claims an idle invoker that can run a job, removing it from the queue. Invokers that are unsuitable for the job
+   * are left in place for other jobs.
+   * 
+   * @param job the job to find an invoker for, not null
+   * @return the claimed invoker, or null if there is none available
+   */
+  private JobInvoker claimInvoker(final DispatchJob job) {
+    final Iterator<JobInvoker> iterator = _invokers.iterator();
     while (iterator.hasNext()) {
-      final DispatchJob job = iterator.next();
-      if (invoke(job)) {
-        iterator.remove();
-      } else {
-        if (failJobsBefore <= 0) {
-          if (getInvokers().isEmpty()) {
-            s_logger.debug("No invokers available - not retrying operations");
-            break;
-          }
-        } else if (job.getJobCreationTime() < failJobsBefore) {
+      final JobInvoker invoker = iterator.next();
+      if (!job.isExcluded(invoker) && isCompatible(job.getRequirements(), invoker)) {
+        // Removal from the set is the claim; another thread may have claimed it since we started iterating
+        if (_idleInvokers.remove(invoker)) {
           iterator.remove();
-          job.jobAbort(null, "no invokers available after timeout");
+          return invoker;
         }
       }
     }
+    return null;
+  }
+
+  private boolean isCompatible(final CapabilityRequirements requirements, final JobInvoker invoker) {
+    ConcurrentMap<JobInvoker, Boolean> compatibility = _compatibility.get(requirements);
+    if (compatibility == null) {
+      compatibility = new ConcurrentHashMap<JobInvoker, Boolean>();
+      final ConcurrentMap<JobInvoker, Boolean> existing = _compatibility.putIfAbsent(requirements, compatibility);
+      if (existing != null) {
+        compatibility = existing;
+      }
+    }
+    Boolean compatible = compatibility.get(invoker);
+    if (compatible == null) {
+      Collection<Capability> capabilities = getCapabilityCache().get(invoker);
+      if (capabilities == null) {
+        capabilities = invoker.getCapabilities();
+      }
+      compatible = requirements.satisfiedBy(capabilities);
+      compatibility.put(invoker, compatible);
+    }
+    return compatible;
   }
 
-  // TODO [ENG-42] schedule retryPending to be called periodically with failJobsBefore set to `System.nanoTime() - a timeout` to cancel jobs which can't be executed at all
-  // TODO [ENG-42] the invoker selection logic is inefficient; it's likely that capability requirements objects won't vary much so comparison against the capabilities of invokers should be cached
-  // TODO [ENG-42] job dispatch should not be O(n) on number of invokers; the caching of capabilities should allow a nearer O(1) selection
+  private void addPending(final DispatchJob job) {
+    Queue<DispatchJob> pending = _pending.get(job.getRequirements());
+    if (pending == null) {
+      pending = new ConcurrentLinkedQueue<DispatchJob>();
+      final Queue<DispatchJob> existing = _pending.putIfAbsent(job.getRequirements(), pending);
+      if (existing != null) {
+        pending = existing;
+      }
+    }
+    pending.add(job);
+    _pendingCount.incrementAndGet();
+  }
+
+  private void retryPending() {
+    s_logger.debug("Retrying pending operations");
+    long epoch;
+    do {
+      epoch = _invokerEpoch.get();
+      for (Queue<DispatchJob> pending : _pending.values()) {
+        // Bound the attempts so that jobs which can't currently be dispatched are only tried once each
+        int attempts = _pendingCount.get();
+        DispatchJob job = pending.poll();
+        while (job != null) {
+          _pendingCount.decrementAndGet();
+          if (!invoke(job)) {
+            pending.add(job);
+            _pendingCount.incrementAndGet();
+            if (_invokers.isEmpty() || (--attempts <= 0)) {
+              break;
+            }
+          }
+          job = pending.poll();
+        }
+      }
+      // Another thread may have made an invoker available while we held a job it could have taken
+    } while ((_pendingCount.get() > 0) && (epoch != _invokerEpoch.get()));
+  }
+
+  // TODO [ENG-42] schedule a check for jobs which have been pending for too long to abort them if they can't be executed at all
 
-  // caller must already own monitor
   private boolean invoke(final DispatchJob job) {
     if (job._completed.get()) {
       s_logger.info("Job {} cancelled", job.getJob().getSpecification().getJobId());
@@ -499,33 +597,38 @@ public class JobDispatcher implements JobInvokerRegister {
     }
     Collection<JobInvoker> retry = null;
     do {
-      final Iterator<JobInvoker> iterator = getInvokers().iterator();
-      while (iterator.hasNext()) {
-        final JobInvoker jobInvoker = iterator.next();
-        if (job.canRunOn(jobInvoker)) {
-          if (jobInvoker.invoke(job.getJob(), job)) {
-            s_logger.debug("Invoker {} accepted job {}", jobInvoker, job.getJob().getSpecification().getJobId());
-            // request a job timeout
-            job.setTimeout(jobInvoker);
-            // put invoker to the end of the list
-            iterator.remove();
-            getInvokers().add(jobInvoker);
-            return true;
-          } else {
-            s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job.getJob().getSpecification().getJobId());
-            iterator.remove();
-            if (jobInvoker.notifyWhenAvailable(this)) {
-              s_logger.info("Invoker {} requested immediate retry", jobInvoker);
-              if (retry == null) {
-                retry = new LinkedList<JobInvoker>();
-              }
-              retry.add(jobInvoker);
+      JobInvoker jobInvoker = claimInvoker(job);
+      while (jobInvoker != null) {
+        if (jobInvoker.invoke(job.getJob(), job)) {
+          s_logger.debug("Invoker {} accepted job {}", jobInvoker, job.getJob().getSpecification().getJobId());
+          // request a job timeout
+          job.setTimeout(jobInvoker);
+          // put invoker to the end of the list
+          offerInvoker(jobInvoker);
+          _dispatchedJobs.incrementAndGet();
+          _dispatchLatencyNanos.addAndGet(System.nanoTime() - job.getDispatchTime());
+          if (retry != null) {
+            for (JobInvoker invoker : retry) {
+              offerInvoker(invoker);
+            }
+          }
+          return true;
+        } else {
+          s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job.getJob().getSpecification().getJobId());
+          if (jobInvoker.notifyWhenAvailable(this)) {
+            s_logger.info("Invoker {} requested immediate retry", jobInvoker);
+            if (retry == null) {
+              retry = new LinkedList<JobInvoker>();
             }
+            retry.add(jobInvoker);
           }
         }
+        jobInvoker = claimInvoker(job);
       }
       if (retry != null) {
-        getInvokers().addAll(retry);
+        for (JobInvoker invoker : retry) {
+          offerInvoker(invoker);
+        }
         retry = null;
       } else {
         break;
@@ -535,13 +638,16 @@ public class JobDispatcher implements JobInvokerRegister {
     return false;
   }
 
-  private synchronized void dispatchJobImpl(final DispatchJob job) {
-    if (!invoke(job)) {
-      s_logger.debug("Adding job to pending set");
-      getPending().add(job);
-      if (_invokers != null) {
-        retryPending(0L);
+  private void dispatchJobImpl(final DispatchJob job) {
+    if (invoke(job)) {
+      // The invoker went back into the queue; pick up any job that was returned to the pending set while we held it
+      if (_pendingCount.get() > 0) {
+        retryPending();
       }
+    } else {
+      s_logger.debug("Adding job to pending set");
+      addPending(job);
+      retryPending();
     }
   }
 
@@ -565,6 +671,71 @@ public class JobDispatcher implements JobInvokerRegister {
     return dispatchJob;
   }
 
+  /**
+   * Returns the number of jobs waiting for an invoker.
+   * 
+   * @return the number of pending jobs
+   */
+  public int getPendingJobCount() {
+    return _pendingCount.get();
+  }
+
+  /**
+   * Returns the number of invokers believed to be able to accept a job.
+   * 
+   * @return the number of idle invokers
+   */
+  public int getIdleInvokerCount() {
+    return _idleInvokers.size();
+  }
+
+  /**
+   * Returns the number of jobs, including retries, accepted by an invoker.
+   * 
+   * @return the number of jobs dispatched
+   */
+  public long getDispatchedJobCount() {
+    return _dispatchedJobs.get();
+  }
+
+  /**
+   * Returns the mean time between a job being submitted, or rescheduled after a failure, and an invoker accepting it.
+   * 
+   * @return the mean dispatch latency in milliseconds
+   */
+  public double getMeanDispatchLatencyMillis() {
+    final long count = _dispatchedJobs.get();
+    return (count > 0) ? ((double) _dispatchLatencyNanos.get() / (double) count) / 1000000d : 0d;
+  }
+
+  /**
+   * Returns the number of times a failed job has been rescheduled on another invoker.
+   * 
+   * @return the number of reschedules
+   */
+  public long getRescheduledJobCount() {
+    return _rescheduledJobs.get();
+  }
+
+  /**
+   * Returns the number of jobs aborted after failing on too many invokers.
+   * 
+   * @return the number of aborted jobs
+   */
+  public long getAbortedJobCount() {
+    return _abortedJobs.get();
+  }
+
+  /**
+   * Resets the dispatch counters.
+   */
+  public void resetStatistics() {
+    _dispatchedJobs.set(0);
+    _dispatchLatencyNanos.set(0);
+    _rescheduledJobs.set(0);
+    _abortedJobs.set(0);
+  }
+
   /**
    * Returns capabilities from all available invokers.
    * 
@@ -9,8 +9,11 @@ import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
 import com.opengamma.engine.ComputationTargetResolver;
@@ -20,11 +23,14 @@ import com.opengamma.engine.view.cache.ViewComputationCacheSource;
 import com.opengamma.engine.view.calcnode.stats.DiscardingInvocationStatisticsGatherer;
 import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatisticsGatherer;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 
 /**
  * Creates a set of more-or-less identical nodes, e.g. one for each core or a fixed number.
+ * <p>
+ * Any job item executors created for the nodes are shut down when the set is destroyed.
  */
-public class LocalCalculationNodeSet extends AbstractCollection<LocalCalculationNode> implements InitializingBean {
+public class LocalCalculationNodeSet extends AbstractCollection<LocalCalculationNode> implements InitializingBean, DisposableBean {
 
   private ViewComputationCacheSource _viewComputationCache;
   private CompiledFunctionService _functionCompilationService;
@@ -37,8 +43,11 @@ public class LocalCalculationNodeSet extends AbstractCollection<LocalCalculation
 
   private int _nodeCount;
   private double _nodesPerCore;
+  private boolean _prefetchInputs;
+  private int _jobItemThreads;
 
   private Collection<LocalCalculationNode> _nodes;
+  private final List<ExecutorService> _jobItemExecutors = new ArrayList<ExecutorService>();
 
   /**
    * Gets the viewComputationCache field.
@@ -168,6 +177,28 @@ public class LocalCalculationNodeSet extends AbstractCollection<LocalCalculation
     return _statisticsGatherer;
   }
 
+  public void setPrefetchInputs(final boolean prefetchInputs) {
+    _prefetchInputs = prefetchInputs;
+  }
+
+  public boolean isPrefetchInputs() {
+    return _prefetchInputs;
+  }
+
+  /**
+   * Sets the number of threads each node uses to execute independent items of a job in parallel.
+   * 
+   * @param jobItemThreads the number of threads per node, or zero to execute job items sequentially
+   */
+  public void setJobItemThreads(final int jobItemThreads) {
+    ArgumentChecker.notNegative(jobItemThreads, "jobItemThreads");
+    _jobItemThreads = jobItemThreads;
+  }
+
+  public int getJobItemThreads() {
+    return _jobItemThreads;
+  }
+
   protected int getCores() {
     return Runtime.getRuntime().availableProcessors();
   }
@@ -209,8 +240,22 @@ public class LocalCalculationNodeSet extends AbstractCollection<LocalCalculation
           node.setNodeId(getNodeIdentifier());
         }
       }
+      node.setPrefetchInputs(isPrefetchInputs());
+      if (getJobItemThreads() > 0) {
+        final ExecutorService jobItemExecutor = Executors.newFixedThreadPool(getJobItemThreads(), new NamedThreadPoolFactory("JobItems-" + node.getNodeId(), true));
+        _jobItemExecutors.add(jobItemExecutor);
+        node.setJobItemExecutor(jobItemExecutor);
+      }
       _nodes.add(node);
     }
   }
 
+  @Override
+  public void destroy() {
+    for (ExecutorService jobItemExecutor : _jobItemExecutors) {
+      jobItemExecutor.shutdown();
+    }
+    _jobItemExecutors.clear();
+  }
+
 }
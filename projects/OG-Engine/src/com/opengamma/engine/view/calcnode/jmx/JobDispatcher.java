@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode.jmx;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JobDispatcherMBean implementation.
+ */
+public final class JobDispatcher implements JobDispatcherMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(JobDispatcher.class);
+
+  private final com.opengamma.engine.view.calcnode.JobDispatcher _underlying;
+
+  private JobDispatcher(final com.opengamma.engine.view.calcnode.JobDispatcher underlying) {
+    _underlying = underlying;
+  }
+
+  private com.opengamma.engine.view.calcnode.JobDispatcher getUnderlying() {
+    return _underlying;
+  }
+
+  public static void registerMBeans(final com.opengamma.engine.view.calcnode.JobDispatcher dispatcher, final MBeanServer server) throws JMException {
+    final ObjectName name = new ObjectName("com.opengamma:type=JobDispatcher,name=" + dispatcher.toString());
+    final JobDispatcher instance = new JobDispatcher(dispatcher);
+    try {
+      server.registerMBean(instance, name);
+    } catch (InstanceAlreadyExistsException e) {
+      s_logger.warn("JMX MBean {} already exists - replacing", name);
+      server.unregisterMBean(name);
+      server.registerMBean(instance, name);
+    }
+  }
+
+  @Override
+  public int getPendingJobCount() {
+    return getUnderlying().getPendingJobCount();
+  }
+
+  @Override
+  public int getIdleInvokerCount() {
+    return getUnderlying().getIdleInvokerCount();
+  }
+
+  @Override
+  public long getDispatchedJobCount() {
+    return getUnderlying().getDispatchedJobCount();
+  }
+
+  @Override
+  public double getMeanDispatchLatencyMillis() {
+    return getUnderlying().getMeanDispatchLatencyMillis();
+  }
+
+  @Override
+  public long getRescheduledJobCount() {
+    return getUnderlying().getRescheduledJobCount();
+  }
+
+  @Override
+  public long getAbortedJobCount() {
+    return getUnderlying().getAbortedJobCount();
+  }
+
+  @Override
+  public void resetStatistics() {
+    getUnderlying().resetStatistics();
+  }
+
+  @Override
+  public void setMaxJobAttempts(int maxJobAttempts) {
+    getUnderlying().setMaxJobAttempts(maxJobAttempts);
+  }
+
+  @Override
+  public int getMaxJobAttempts() {
+    return getUnderlying().getMaxJobAttempts();
+  }
+
+}
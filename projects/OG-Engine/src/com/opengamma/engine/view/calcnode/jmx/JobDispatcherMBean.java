@@ -0,0 +1,23 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode.jmx;
+
+/**
+ * JMX MBean interface for the job dispatcher statistics.
+ */
+public interface JobDispatcherMBean {
+
+  int getPendingJobCount();
+  int getIdleInvokerCount();
+  long getDispatchedJobCount();
+  double getMeanDispatchLatencyMillis();
+  long getRescheduledJobCount();
+  long getAbortedJobCount();
+  void resetStatistics();
+  void setMaxJobAttempts(int maxJobAttempts);
+  int getMaxJobAttempts();
+
+}
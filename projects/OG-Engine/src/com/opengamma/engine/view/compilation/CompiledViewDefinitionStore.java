@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Persistent store of compiled dependency graphs. This allows a view process to start from the graphs of an earlier
+ * compilation, for example after a restart of the view processor, instead of waiting for a full compilation.
+ * <p>
+ * Entries are keyed by the unique identifier of the view definition, which includes its version. Each entry is valid
+ * from the version-correction at which it was compiled; it will not be returned for an earlier version-correction, or
+ * for a market data specification other than the one the graphs were built against.
+ * Restored graphs should be revalidated by a subsequent compilation as the portfolio or securities may have changed.
+ */
+public interface CompiledViewDefinitionStore {
+
+  /**
+   * Stores the graphs from a compilation, replacing any previous entry for the view definition.
+   * 
+   * @param compilation the compilation to store, not null
+   */
+  void put(StoredCompiledViewDefinition compilation);
+
+  /**
+   * Fetches the graphs from an earlier compilation.
+   * 
+   * @param viewDefinitionId the unique identifier of the view definition, not null
+   * @param marketDataSpecification the market data specification the graphs will be used with, not null
+   * @param versionCorrection the version-correction at which the graphs are required, not null
+   * @return the stored compilation, or null if there is none valid for the view definition, market data and version-correction
+   */
+  StoredCompiledViewDefinition get(UniqueId viewDefinitionId, MarketDataSpecification marketDataSpecification, VersionCorrection versionCorrection);
+
+  /**
+   * Removes any stored compilation for the view definition.
+   * 
+   * @param viewDefinitionId the unique identifier of the view definition, not null
+   */
+  void remove(UniqueId viewDefinitionId);
+
+}
@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.time.Instant;
 
@@ -18,6 +20,7 @@ import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphExplorer;
 import com.opengamma.engine.depgraph.DependencyGraphExplorerImpl;
 import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.DependentNodeIndex;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.tuple.Pair;
@@ -29,6 +32,7 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
 
   private final Map<String, DependencyGraph> _graphsByConfiguration;
   private final long _functionInitId;
+  private final ConcurrentMap<String, DependentNodeIndex> _dependentNodeIndices = new ConcurrentHashMap<String, DependentNodeIndex>();
 
   /**
    * Constructs an instance.
@@ -83,6 +87,29 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
     return _graphsByConfiguration.get(calcConfigName);
   }
   
+  /**
+   * Gets the reverse adjacency index for the dependency graph of a specified calculation configuration. The index is
+   * built the first time it is requested and then reused for the lifetime of the compilation.
+   * 
+   * @param calcConfigName  the calculation configuration name, not null
+   * @return the index, or null if no dependency graph was found
+   */
+  public DependentNodeIndex getDependentNodeIndex(String calcConfigName) {
+    DependentNodeIndex index = _dependentNodeIndices.get(calcConfigName);
+    if (index == null) {
+      final DependencyGraph graph = getDependencyGraph(calcConfigName);
+      if (graph == null) {
+        return null;
+      }
+      index = new DependentNodeIndex(graph);
+      final DependentNodeIndex existing = _dependentNodeIndices.putIfAbsent(calcConfigName, index);
+      if (existing != null) {
+        index = existing;
+      }
+    }
+    return index;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the function init ID that was used when creating the dependency graphs 
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.FudgeMsgReader;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * {@link CompiledViewDefinitionStore} that writes each compilation to a file in a directory as a Fudge message.
+ * <p>
+ * There is one file for each view definition object; storing a compilation for a new version of a view definition
+ * replaces the compilation of the previous version. Files are written to a temporary name and then renamed so that a
+ * partially written file is never read.
+ */
+public class FileCompiledViewDefinitionStore implements CompiledViewDefinitionStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FileCompiledViewDefinitionStore.class);
+
+  private static final String FILE_SUFFIX = ".fudge";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private final File _directory;
+  private final FudgeContext _fudgeContext;
+
+  public FileCompiledViewDefinitionStore(final File directory) {
+    this(directory, OpenGammaFudgeContext.getInstance());
+  }
+
+  public FileCompiledViewDefinitionStore(final File directory, final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create directory " + directory);
+    }
+    _directory = directory;
+    _fudgeContext = fudgeContext;
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Returns the file used to hold the compilation of a view definition. All versions of the view definition map to
+   * the same file.
+   *
+   * @param viewDefinitionId the unique identifier of the view definition, not null
+   * @return the file, not null
+   */
+  protected File getFile(final UniqueId viewDefinitionId) {
+    final String name = viewDefinitionId.getObjectId().toString();
+    final StringBuilder sb = new StringBuilder(name.length() + FILE_SUFFIX.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (Character.isLetterOrDigit(c) || (c == '-') || (c == '.')) {
+        sb.append(c);
+      } else {
+        sb.append('_');
+      }
+    }
+    sb.append(FILE_SUFFIX);
+    return new File(getDirectory(), sb.toString());
+  }
+
+  @Override
+  public synchronized void put(final StoredCompiledViewDefinition compilation) {
+    ArgumentChecker.notNull(compilation, "compilation");
+    final File file = getFile(compilation.getViewDefinitionId());
+    final File temp = new File(file.getPath() + TEMP_FILE_SUFFIX);
+    final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+    final FudgeMsg msg = serializer.objectToFudgeMsg(compilation);
+    try {
+      final OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+      try {
+        final FudgeMsgWriter writer = getFudgeContext().createMessageWriter(out);
+        writer.writeMessage(msg);
+        writer.flush();
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      s_logger.warn("Couldn't write {} to {}", compilation, temp);
+      s_logger.debug("Caught exception", e);
+      temp.delete();
+      return;
+    }
+    if (file.exists() && !file.delete()) {
+      s_logger.warn("Couldn't replace {}", file);
+      temp.delete();
+      return;
+    }
+    if (!temp.renameTo(file)) {
+      s_logger.warn("Couldn't rename {} to {}", temp, file);
+      temp.delete();
+      return;
+    }
+    s_logger.info("Stored {} in {}", compilation, file);
+  }
+
+  @Override
+  public synchronized StoredCompiledViewDefinition get(final UniqueId viewDefinitionId, final MarketDataSpecification marketDataSpecification,
+      final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(viewDefinitionId, "viewDefinitionId");
+    ArgumentChecker.notNull(marketDataSpecification, "marketDataSpecification");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    final File file = getFile(viewDefinitionId);
+    if (!file.exists()) {
+      s_logger.debug("No stored compilation for {}", viewDefinitionId);
+      return null;
+    }
+    final StoredCompiledViewDefinition compilation;
+    try {
+      final InputStream in = new BufferedInputStream(new FileInputStream(file));
+      try {
+        final FudgeMsgReader reader = getFudgeContext().createMessageReader(in);
+        final FudgeMsg msg = reader.nextMessage();
+        final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
+        compilation = deserializer.fudgeMsgToObject(StoredCompiledViewDefinition.class, msg);
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      // A corrupt or incompatible file is no worse than a cache miss
+      s_logger.warn("Couldn't read stored compilation from {}: {}", file, e.getMessage());
+      s_logger.debug("Caught exception", e);
+      return null;
+    }
+    if (!viewDefinitionId.equals(compilation.getViewDefinitionId())) {
+      s_logger.info("Stored compilation is for {}, not {}", compilation.getViewDefinitionId(), viewDefinitionId);
+      return null;
+    }
+    if (!compilation.isValidFor(marketDataSpecification)) {
+      s_logger.info("Stored compilation {} not valid for {}", compilation, marketDataSpecification);
+      return null;
+    }
+    if (!compilation.isValidFor(versionCorrection)) {
+      s_logger.info("Stored compilation {} not valid for {}", compilation, versionCorrection);
+      return null;
+    }
+    return compilation;
+  }
+
+  @Override
+  public synchronized void remove(final UniqueId viewDefinitionId) {
+    ArgumentChecker.notNull(viewDefinitionId, "viewDefinitionId");
+    final File file = getFile(viewDefinitionId);
+    if (file.exists() && !file.delete()) {
+      s_logger.warn("Couldn't delete {}", file);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FileCompiledViewDefinitionStore[" + getDirectory() + "]";
+  }
+
+}
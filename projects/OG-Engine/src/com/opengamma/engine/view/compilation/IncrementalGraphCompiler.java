@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.PortfolioNode;
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.PositionOrTrade;
+import com.opengamma.core.position.Trade;
+import com.opengamma.core.security.Security;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Updates the dependency graphs from a previous compilation to reflect changes to the portfolio structure,
+ * positions, trades or securities. Only the nodes whose targets are affected by the changes, and the nodes
+ * which depend on them, are discarded; the requirements they satisfied are then resolved again by a graph
+ * builder seeded with the remaining nodes.
+ */
+/* package */final class IncrementalGraphCompiler {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(IncrementalGraphCompiler.class);
+
+  private IncrementalGraphCompiler() {
+  }
+
+  /**
+   * Produces updated dependency graphs for each calculation configuration. The compilation context must already
+   * contain the full set of value requirements for the current view definition and portfolio.
+   *
+   * @param compilationContext the context of the view definition compilation, not null
+   * @param previous the previous compilation, not null
+   * @param portfolio the current fully-resolved portfolio, null if there are no portfolio targets
+   * @param changedObjects the identifiers of any objects known to have changed since the previous compilation, not null
+   * @return the updated dependency graphs, keyed by calculation configuration name
+   */
+  public static Map<String, DependencyGraph> execute(final ViewCompilationContext compilationContext, final CompiledViewDefinitionWithGraphsImpl previous, final Portfolio portfolio,
+      final Set<ObjectId> changedObjects) {
+    final Set<UniqueId> invalidTargets = getInvalidPortfolioTargets(previous.getPortfolio(), portfolio);
+    s_logger.info("{} portfolio targets and {} changed objects to recompile", invalidTargets.size(), changedObjects.size());
+    final Map<String, DependencyGraph> result = new HashMap<String, DependencyGraph>();
+    for (Pair<DependencyGraphBuilder, Set<ValueRequirement>> entry : compilationContext.getBuilders()) {
+      final DependencyGraphBuilder builder = entry.getFirst();
+      final Set<ValueRequirement> requirements = entry.getSecond();
+      final DependencyGraph previousGraph = previous.getDependencyGraph(builder.getCalculationConfigurationName());
+      if (previousGraph != null) {
+        final DependencyGraph validGraph = getValidSubGraph(previousGraph, invalidTargets, changedObjects, requirements);
+        s_logger.info("Reusing {} of {} nodes from {}", new Object[] {validGraph.getSize(), previousGraph.getSize(), previousGraph });
+        final Set<ValueRequirement> resolved = new HashSet<ValueRequirement>();
+        for (Set<ValueRequirement> terminal : validGraph.getTerminalOutputs().values()) {
+          resolved.addAll(terminal);
+        }
+        builder.addExistingGraph(validGraph);
+        final Set<ValueRequirement> unresolved = new HashSet<ValueRequirement>(requirements);
+        unresolved.removeAll(resolved);
+        s_logger.debug("Resolving {} requirements for {}", unresolved.size(), builder.getCalculationConfigurationName());
+        builder.addTarget(unresolved);
+      } else {
+        builder.addTarget(requirements);
+      }
+      result.put(builder.getCalculationConfigurationName(), builder.getDependencyGraph());
+    }
+    return result;
+  }
+
+  /**
+   * Compares two versions of a portfolio, identifying the targets from the previous version that are no longer valid.
+   * A target is invalid if it is not present in the current version, or if its content (for example the positions
+   * beneath a node, or the security referenced by a position) is different.
+   *
+   * @param previous the previous portfolio, may be null
+   * @param current the current portfolio, may be null
+   * @return the unique identifiers of the invalid targets from the previous portfolio, not null
+   */
+  public static Set<UniqueId> getInvalidPortfolioTargets(final Portfolio previous, final Portfolio current) {
+    final Set<UniqueId> invalid = new HashSet<UniqueId>();
+    if (previous == null) {
+      return invalid;
+    }
+    final Map<UniqueId, List<UniqueId>> previousContent = new HashMap<UniqueId, List<UniqueId>>();
+    gatherContent(previous.getRootNode(), previousContent);
+    final Map<UniqueId, List<UniqueId>> currentContent = new HashMap<UniqueId, List<UniqueId>>();
+    if (current != null) {
+      gatherContent(current.getRootNode(), currentContent);
+    }
+    for (Map.Entry<UniqueId, List<UniqueId>> target : previousContent.entrySet()) {
+      if (!target.getValue().equals(currentContent.get(target.getKey()))) {
+        invalid.add(target.getKey());
+      }
+    }
+    return invalid;
+  }
+
+  private static void gatherContent(final PortfolioNode node, final Map<UniqueId, List<UniqueId>> content) {
+    final List<UniqueId> nodeContent = new ArrayList<UniqueId>(node.getChildNodes().size() + node.getPositions().size());
+    for (PortfolioNode child : node.getChildNodes()) {
+      nodeContent.add(child.getUniqueId());
+      gatherContent(child, content);
+    }
+    for (Position position : node.getPositions()) {
+      nodeContent.add(position.getUniqueId());
+      final List<UniqueId> positionContent = new ArrayList<UniqueId>(position.getTrades().size() + 1);
+      positionContent.add(getSecurityId(position));
+      for (Trade trade : position.getTrades()) {
+        positionContent.add(trade.getUniqueId());
+        final List<UniqueId> tradeContent = new ArrayList<UniqueId>(1);
+        tradeContent.add(getSecurityId(trade));
+        content.put(trade.getUniqueId(), tradeContent);
+      }
+      content.put(position.getUniqueId(), positionContent);
+      final Security security = position.getSecurity();
+      if (security != null) {
+        // Securities have no content of their own to compare; a new version will have a different identifier
+        content.put(security.getUniqueId(), new ArrayList<UniqueId>(0));
+      }
+    }
+    content.put(node.getUniqueId(), nodeContent);
+  }
+
+  private static UniqueId getSecurityId(final PositionOrTrade positionOrTrade) {
+    final Security security = positionOrTrade.getSecurity();
+    return (security != null) ? security.getUniqueId() : null;
+  }
+
+  private static boolean isInvalid(final ComputationTarget target, final Set<UniqueId> invalidTargets, final Set<ObjectId> changedObjects) {
+    final UniqueId uid = target.getUniqueId();
+    if (uid == null) {
+      return false;
+    }
+    if (invalidTargets.contains(uid) || changedObjects.contains(uid.getObjectId())) {
+      return true;
+    }
+    if ((target.getType() == ComputationTargetType.POSITION) || (target.getType() == ComputationTargetType.TRADE)) {
+      final UniqueId securityId = getSecurityId(target.getPositionOrTrade());
+      return (securityId != null) && changedObjects.contains(securityId.getObjectId());
+    }
+    return false;
+  }
+
+  /**
+   * Creates a copy of a graph that excludes any nodes with invalid targets, any nodes that depend on them and any
+   * nodes that are no longer required. The copy does not share nodes with the original so the original graph is
+   * not affected by subsequent modifications to the copy.
+   *
+   * @param graph the original graph, not null
+   * @param invalidTargets the unique identifiers of targets that are no longer valid, not null
+   * @param changedObjects the identifiers of objects that have changed, not null
+   * @param requirements the value requirements that the graph must satisfy, not null
+   * @return the valid sub-graph, not null
+   */
+  public static DependencyGraph getValidSubGraph(final DependencyGraph graph, final Set<UniqueId> invalidTargets, final Set<ObjectId> changedObjects,
+      final Set<ValueRequirement> requirements) {
+    // Identify the invalid nodes and everything downstream of them
+    final Set<DependencyNode> invalid = new HashSet<DependencyNode>();
+    final Queue<DependencyNode> pending = new LinkedList<DependencyNode>();
+    for (DependencyNode node : graph.getDependencyNodes()) {
+      if (isInvalid(node.getComputationTarget(), invalidTargets, changedObjects)) {
+        pending.add(node);
+      }
+    }
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.remove();
+      if (invalid.add(node)) {
+        for (DependencyNode dependent : node.getDependentNodes()) {
+          if (graph.containsNode(dependent) && !invalid.contains(dependent)) {
+            pending.add(dependent);
+          }
+        }
+      }
+    }
+    // Terminal outputs that are no longer required can be dropped along with anything that only they needed
+    final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminalOutput : graph.getTerminalOutputs().entrySet()) {
+      if (invalid.contains(graph.getNodeProducing(terminalOutput.getKey()))) {
+        continue;
+      }
+      final Set<ValueRequirement> required = new HashSet<ValueRequirement>();
+      for (ValueRequirement requirement : terminalOutput.getValue()) {
+        if (requirements.contains(requirement)) {
+          required.add(requirement);
+        }
+      }
+      if (!required.isEmpty()) {
+        terminalOutputs.put(terminalOutput.getKey(), required);
+      }
+    }
+    final Set<DependencyNode> valid = new HashSet<DependencyNode>();
+    for (ValueSpecification terminalOutput : terminalOutputs.keySet()) {
+      pending.add(graph.getNodeProducing(terminalOutput));
+    }
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.remove();
+      if (valid.add(node)) {
+        for (DependencyNode input : node.getInputNodes()) {
+          if (graph.containsNode(input)) {
+            pending.add(input);
+          }
+        }
+      }
+    }
+    // Copy the valid nodes
+    final Map<DependencyNode, DependencyNode> copies = new HashMap<DependencyNode, DependencyNode>();
+    for (DependencyNode node : valid) {
+      final DependencyNode copy = new DependencyNode(node.getComputationTarget());
+      copy.setFunction(node.getFunction());
+      copy.addOutputValues(node.getOutputValues());
+      for (ValueSpecification input : node.getInputValues()) {
+        copy.addInputValue(input);
+      }
+      copies.put(node, copy);
+    }
+    final DependencyGraph subGraph = new DependencyGraph(graph.getCalculationConfigurationName());
+    for (Map.Entry<DependencyNode, DependencyNode> copy : copies.entrySet()) {
+      for (DependencyNode input : copy.getKey().getInputNodes()) {
+        final DependencyNode inputCopy = copies.get(input);
+        if (inputCopy != null) {
+          copy.getValue().addInputNode(inputCopy);
+        }
+      }
+    }
+    for (DependencyNode copy : copies.values()) {
+      subGraph.addDependencyNode(copy);
+    }
+    subGraph.addTerminalOutputs(terminalOutputs);
+    return subGraph;
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The dependency graphs from a compilation as held by a {@link CompiledViewDefinitionStore}.
+ * <p>
+ * When read back from a store the graph nodes reference stub functions only. They must be replaced with the current
+ * function definitions, see {@link ViewDefinitionCompiler#restore}, before they can be executed. The graphs depend on
+ * the market data available when they were built, so they are only valid for the market data specification used.
+ */
+public class StoredCompiledViewDefinition {
+
+  private final UniqueId _viewDefinitionId;
+  private final long _functionInitId;
+  private final VersionCorrection _versionCorrection;
+  private final MarketDataSpecification _marketDataSpecification;
+  private final Map<String, DependencyGraph> _graphsByConfiguration;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param viewDefinitionId the unique identifier of the compiled view definition, not null
+   * @param functionInitId the function init ID that was used when creating the dependency graphs
+   * @param versionCorrection the version-correction at which the view definition was compiled, not null and not containing latest
+   * @param marketDataSpecification the market data specification whose availability the graphs were built against, not null
+   * @param graphsByConfiguration the dependency graphs by calculation configuration name, not null
+   */
+  public StoredCompiledViewDefinition(final UniqueId viewDefinitionId, final long functionInitId, final VersionCorrection versionCorrection,
+      final MarketDataSpecification marketDataSpecification, final Map<String, DependencyGraph> graphsByConfiguration) {
+    ArgumentChecker.notNull(viewDefinitionId, "viewDefinitionId");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.isFalse(versionCorrection.containsLatest(), "versionCorrection must not contain latest");
+    ArgumentChecker.notNull(marketDataSpecification, "marketDataSpecification");
+    ArgumentChecker.notNull(graphsByConfiguration, "graphsByConfiguration");
+    _viewDefinitionId = viewDefinitionId;
+    _functionInitId = functionInitId;
+    _versionCorrection = versionCorrection;
+    _marketDataSpecification = marketDataSpecification;
+    _graphsByConfiguration = Collections.unmodifiableMap(new HashMap<String, DependencyGraph>(graphsByConfiguration));
+  }
+
+  public UniqueId getViewDefinitionId() {
+    return _viewDefinitionId;
+  }
+
+  public long getFunctionInitId() {
+    return _functionInitId;
+  }
+
+  public VersionCorrection getVersionCorrection() {
+    return _versionCorrection;
+  }
+
+  public MarketDataSpecification getMarketDataSpecification() {
+    return _marketDataSpecification;
+  }
+
+  public Map<String, DependencyGraph> getDependencyGraphsByConfiguration() {
+    return _graphsByConfiguration;
+  }
+
+  /**
+   * Tests whether the stored graphs may be used at a given version-correction. They are not valid for a
+   * version-correction earlier than that at which they were compiled.
+   * 
+   * @param versionCorrection the version-correction, not null and not containing latest
+   * @return true if the graphs may be used, false otherwise
+   */
+  public boolean isValidFor(final VersionCorrection versionCorrection) {
+    return !versionCorrection.getVersionAsOf().isBefore(getVersionCorrection().getVersionAsOf())
+        && !versionCorrection.getCorrectedTo().isBefore(getVersionCorrection().getCorrectedTo());
+  }
+
+  /**
+   * Tests whether the stored graphs may be used with a market data specification. The graphs are only valid for the
+   * specification they were built against as a different source of market data may satisfy different requirements.
+   * 
+   * @param marketDataSpecification the market data specification, not null
+   * @return true if the graphs may be used, false otherwise
+   */
+  public boolean isValidFor(final MarketDataSpecification marketDataSpecification) {
+    return getMarketDataSpecification().equals(marketDataSpecification);
+  }
+
+  @Override
+  public String toString() {
+    return "StoredCompiledViewDefinition[" + getViewDefinitionId() + ", " + getFunctionInitId() + ", " + getVersionCorrection() + ", " + getMarketDataSpecification() + "]";
+  }
+
+}
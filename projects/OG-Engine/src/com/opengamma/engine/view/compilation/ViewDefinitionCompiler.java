@@ -19,15 +19,22 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.core.position.Portfolio;
 import com.opengamma.core.security.SecuritySource;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.DependencyNodeFormatter;
+import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.CompiledFunctionRepository;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.monitor.OperationTimer;
@@ -88,6 +95,153 @@ public final class ViewDefinitionCompiler {
     return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphsByConfiguration, portfolio, compilationServices.getFunctionCompilationContext().getFunctionInitId());
   }
 
+  /**
+   * Compiles a view definition by updating a previous compilation of it. Nodes from the previous dependency graphs are
+   * reused where their targets have not changed; only requirements on new or changed portfolio nodes, positions,
+   * trades and securities (and anything depending on them) are resolved again. This is considerably cheaper than a
+   * full compilation when the changes affect a small part of a large portfolio.
+   * <p>
+   * The previous compilation must have been made from the same view definition, and with the same function
+   * repository, as the result would be from a full compilation. The previous compilation is not modified.
+   * 
+   * @param viewDefinition  the view definition, not null
+   * @param compilationServices  the compilation services, not null
+   * @param valuationTime  the valuation time, not null
+   * @param versionCorrection  the version-correction at which to resolve the portfolio, not null
+   * @param previous  the previous compilation of the view definition, not null
+   * @param changedObjects  the identifiers of any targets (for example securities) known to have changed, not null
+   * @return the compiled view definition, not null
+   */
+  public static CompiledViewDefinitionWithGraphsImpl compileIncremental(ViewDefinition viewDefinition, ViewCompilationServices compilationServices, Instant valuationTime,
+      VersionCorrection versionCorrection, CompiledViewDefinitionWithGraphsImpl previous, Set<ObjectId> changedObjects) {
+    ArgumentChecker.notNull(viewDefinition, "viewDefinition");
+    ArgumentChecker.notNull(compilationServices, "compilationServices");
+    ArgumentChecker.notNull(previous, "previous");
+    ArgumentChecker.notNull(changedObjects, "changedObjects");
+
+    s_logger.debug("Incrementally compiling {} for use with {}", viewDefinition.getName(), valuationTime);
+
+    OperationTimer timer = new OperationTimer(s_logger, "Incrementally compiling ViewDefinition: {}", viewDefinition.getName());
+    ViewCompilationContext viewCompilationContext = new ViewCompilationContext(viewDefinition, compilationServices, valuationTime);
+
+    long t = -System.nanoTime();
+    EnumSet<ComputationTargetType> specificTargetTypes = SpecificRequirementsCompiler.execute(viewCompilationContext);
+    t += System.nanoTime();
+    s_logger.debug("Added specific requirements after {}ms", (double) t / 1e6);
+    t -= System.nanoTime();
+    boolean requirePortfolioResolution = specificTargetTypes.contains(ComputationTargetType.PORTFOLIO_NODE) || specificTargetTypes.contains(ComputationTargetType.POSITION);
+    Portfolio portfolio = PortfolioCompiler.execute(viewCompilationContext, versionCorrection, requirePortfolioResolution);
+    t += System.nanoTime();
+    s_logger.debug("Added portfolio requirements after {}ms", (double) t / 1e6);
+    t -= System.nanoTime();
+    Map<String, DependencyGraph> graphsByConfiguration = IncrementalGraphCompiler.execute(viewCompilationContext, previous, portfolio, changedObjects);
+    t += System.nanoTime();
+    s_logger.debug("Processed dependency graphs after {}ms", (double) t / 1e6);
+    timer.finished();
+
+    if (OUTPUT_DEPENDENCY_GRAPHS) {
+      outputDependencyGraphs(graphsByConfiguration);
+    }
+    if (OUTPUT_LIVE_DATA_REQUIREMENTS) {
+      outputLiveDataRequirements(graphsByConfiguration, compilationServices.getSecuritySource());
+    }
+    if (OUTPUT_FAILURE_REPORTS) {
+      outputFailureReports(viewCompilationContext.getBuilders());
+    }
+    return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphsByConfiguration, portfolio, compilationServices.getFunctionCompilationContext().getFunctionInitId());
+  }
+
+  /**
+   * Reconstructs a compiled view definition from the dependency graphs of an earlier compilation, for example one read
+   * from a {@link CompiledViewDefinitionStore}. The portfolio is resolved as for a full compilation, but the graphs are
+   * not built; the stored nodes are instead bound to the current function definitions and targets. This is much faster
+   * than a full compilation but the result is only as good as the stored graphs - changes to the portfolio or securities
+   * since they were compiled will not be reflected so the caller should revalidate the result with a full compilation.
+   * 
+   * @param viewDefinition  the view definition, not null
+   * @param compilationServices  the compilation services, not null
+   * @param valuationTime  the valuation time, not null
+   * @param versionCorrection  the version-correction at which to resolve the portfolio, not null
+   * @param functions  the current function definitions, not null
+   * @param stored  the stored graphs, not null
+   * @return the compiled view definition, or null if the stored graphs cannot be used
+   */
+  public static CompiledViewDefinitionWithGraphsImpl restore(ViewDefinition viewDefinition, ViewCompilationServices compilationServices, Instant valuationTime,
+      VersionCorrection versionCorrection, CompiledFunctionRepository functions, StoredCompiledViewDefinition stored) {
+    ArgumentChecker.notNull(viewDefinition, "viewDefinition");
+    ArgumentChecker.notNull(compilationServices, "compilationServices");
+    ArgumentChecker.notNull(functions, "functions");
+    ArgumentChecker.notNull(stored, "stored");
+
+    s_logger.debug("Restoring {} for use with {}", viewDefinition.getName(), valuationTime);
+
+    OperationTimer timer = new OperationTimer(s_logger, "Restoring ViewDefinition: {}", viewDefinition.getName());
+    ViewCompilationContext viewCompilationContext = new ViewCompilationContext(viewDefinition, compilationServices, valuationTime);
+    EnumSet<ComputationTargetType> specificTargetTypes = SpecificRequirementsCompiler.execute(viewCompilationContext);
+    boolean requirePortfolioResolution = specificTargetTypes.contains(ComputationTargetType.PORTFOLIO_NODE) || specificTargetTypes.contains(ComputationTargetType.POSITION);
+    Portfolio portfolio = PortfolioCompiler.execute(viewCompilationContext, versionCorrection, requirePortfolioResolution);
+    Map<String, DependencyGraph> graphsByConfiguration = new HashMap<String, DependencyGraph>();
+    for (String calcConfigName : viewDefinition.getAllCalculationConfigurationNames()) {
+      DependencyGraph storedGraph = stored.getDependencyGraphsByConfiguration().get(calcConfigName);
+      if (storedGraph == null) {
+        s_logger.info("No stored dependency graph for {}", calcConfigName);
+        return null;
+      }
+      DependencyGraph graph = restoreDependencyGraph(storedGraph, functions, compilationServices.getComputationTargetResolver());
+      if (graph == null) {
+        return null;
+      }
+      graphsByConfiguration.put(calcConfigName, graph);
+    }
+    timer.finished();
+    return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphsByConfiguration, portfolio, compilationServices.getFunctionCompilationContext().getFunctionInitId());
+  }
+
+  private static DependencyGraph restoreDependencyGraph(DependencyGraph stored, CompiledFunctionRepository functions, ComputationTargetResolver targetResolver) {
+    final Map<DependencyNode, DependencyNode> restored = new HashMap<DependencyNode, DependencyNode>();
+    for (DependencyNode node : stored.getDependencyNodes()) {
+      final ParameterizedFunction storedFunction = node.getFunction();
+      final Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
+      final CompiledFunctionDefinition function;
+      if (marketData != null) {
+        // Market data is sourced by a pseudo-function that is never in the repository
+        function = new MarketDataSourcingFunction(marketData.getFirst(), marketData.getSecond());
+      } else {
+        final String functionId = storedFunction.getFunction().getFunctionDefinition().getUniqueId();
+        function = functions.getDefinition(functionId);
+        if (function == null) {
+          s_logger.info("Function {} from stored graph is not available", functionId);
+          return null;
+        }
+      }
+      final ComputationTarget target = targetResolver.resolve(node.getComputationTarget().toSpecification());
+      if (target == null) {
+        s_logger.info("Target {} from stored graph is not available", node.getComputationTarget());
+        return null;
+      }
+      final DependencyNode copy = new DependencyNode(target);
+      final ParameterizedFunction parameterizedFunction = new ParameterizedFunction(function, storedFunction.getParameters());
+      parameterizedFunction.setUniqueId(storedFunction.getUniqueId());
+      copy.setFunction(parameterizedFunction);
+      copy.addOutputValues(node.getOutputValues());
+      for (ValueSpecification input : node.getInputValues()) {
+        copy.addInputValue(input);
+      }
+      restored.put(node, copy);
+    }
+    final DependencyGraph graph = new DependencyGraph(stored.getCalculationConfigurationName());
+    for (Map.Entry<DependencyNode, DependencyNode> node : restored.entrySet()) {
+      for (DependencyNode input : node.getKey().getInputNodes()) {
+        node.getValue().addInputNode(restored.get(input));
+      }
+    }
+    for (DependencyNode node : restored.values()) {
+      graph.addDependencyNode(node);
+    }
+    graph.addTerminalOutputs(stored.getTerminalOutputs());
+    return graph;
+  }
+
   private static Map<String, DependencyGraph> processDependencyGraphs(ViewCompilationContext context) {
     // TODO: support one of two modes; sequential build of the graphs (below) or parallel build using the executor service from the compilation services
     // TODO: perhaps a heuristic to determine which is better, or a global setting
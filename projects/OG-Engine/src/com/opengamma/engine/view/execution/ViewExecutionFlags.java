@@ -52,6 +52,13 @@ public enum ViewExecutionFlags {
   /**
    * Indicates that the results should be stored in batch database.
    */
-  BATCH;
+  BATCH,
+
+  /**
+   * Indicates that changes to the portfolio, its positions and trades, or the securities they reference should be
+   * applied to the compiled view definition between cycles by recompiling only the affected parts of the dependency
+   * graphs.
+   */
+  INCREMENTAL_COMPILATION;
     
 }
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.ehcache.CacheManager;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.test.MockSecurity;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ehcache.EHCacheUtils;
+
+/**
+ * Test DefaultCachingComputationTargetResolver.
+ */
+@Test
+public class DefaultCachingComputationTargetResolverTest {
+
+  private static final ComputationTarget SECURITY_1 = new ComputationTarget(new MockSecurity(UniqueId.of("Test", "SEC1"), "Security 1", "EQUITY", ExternalIdBundle.EMPTY));
+  private static final ComputationTarget SECURITY_2 = new ComputationTarget(new MockSecurity(UniqueId.of("Test", "SEC2"), "Security 2", "EQUITY", ExternalIdBundle.EMPTY));
+  private static final ComputationTarget PRIMITIVE = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "PRIM"));
+  private static final ComputationTargetSpecification MISSING = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Test", "MISSING"));
+
+  private CacheManager _cacheManager;
+  private RecordingTargetResolver _underlying;
+  private DefaultCachingComputationTargetResolver _resolver;
+
+  @BeforeMethod
+  public void setUp() {
+    _cacheManager = EHCacheUtils.createCacheManager();
+    _underlying = new RecordingTargetResolver();
+    _underlying.addTarget(SECURITY_1);
+    _underlying.addTarget(SECURITY_2);
+    _underlying.addTarget(PRIMITIVE);
+    _resolver = new DefaultCachingComputationTargetResolver(_underlying, _cacheManager);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    // the cache manager is shared, so only the resolver's cache is removed
+    _cacheManager.removeCache("computationTarget");
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_resolve_bulk() {
+    Map<ComputationTargetSpecification, ComputationTarget> result = _resolver.resolve(Arrays.asList(SECURITY_1.toSpecification(), PRIMITIVE.toSpecification(), MISSING));
+    assertEquals(2, result.size());
+    assertEquals(SECURITY_1, result.get(SECURITY_1.toSpecification()));
+    assertEquals(PRIMITIVE, result.get(PRIMITIVE.toSpecification()));
+    assertFalse(result.containsKey(MISSING));
+    assertEquals(1, _underlying._bulkRequests.size());
+  }
+
+  public void test_resolve_bulk_onlyMissesPassedToUnderlying() {
+    assertEquals(SECURITY_1, _resolver.resolve(SECURITY_1.toSpecification()));
+    _underlying._singleRequests.clear();
+
+    Map<ComputationTargetSpecification, ComputationTarget> result = _resolver.resolve(Arrays.asList(SECURITY_1.toSpecification(), SECURITY_2.toSpecification(),
+        PRIMITIVE.toSpecification(), MISSING));
+    assertEquals(3, result.size());
+    assertEquals(SECURITY_1, result.get(SECURITY_1.toSpecification()));
+    assertEquals(SECURITY_2, result.get(SECURITY_2.toSpecification()));
+    assertEquals(PRIMITIVE, result.get(PRIMITIVE.toSpecification()));
+    assertEquals(1, _underlying._bulkRequests.size());
+    assertEquals(new HashSet<ComputationTargetSpecification>(Arrays.asList(SECURITY_2.toSpecification(), PRIMITIVE.toSpecification(), MISSING)),
+        _underlying._bulkRequests.get(0));
+
+    // the security resolved in bulk is now cached, primitives are never cached
+    result = _resolver.resolve(Arrays.asList(SECURITY_1.toSpecification(), SECURITY_2.toSpecification(), PRIMITIVE.toSpecification()));
+    assertEquals(3, result.size());
+    assertEquals(2, _underlying._bulkRequests.size());
+    assertEquals(Collections.singleton(PRIMITIVE.toSpecification()), _underlying._bulkRequests.get(1));
+    assertEquals(SECURITY_2, _resolver.resolve(SECURITY_2.toSpecification()));
+    assertTrue(_underlying._singleRequests.isEmpty());
+  }
+
+  public void test_resolve_bulk_allCached() {
+    _resolver.resolve(SECURITY_1.toSpecification());
+    _resolver.resolve(SECURITY_2.toSpecification());
+    Map<ComputationTargetSpecification, ComputationTarget> result = _resolver.resolve(Arrays.asList(SECURITY_1.toSpecification(), SECURITY_2.toSpecification()));
+    assertEquals(2, result.size());
+    assertTrue(_underlying._bulkRequests.isEmpty());
+  }
+
+  public void test_resolve_bulk_empty() {
+    assertTrue(_resolver.resolve(Collections.<ComputationTargetSpecification>emptySet()).isEmpty());
+    assertTrue(_underlying._bulkRequests.isEmpty());
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Resolver recording the requests made to it.
+   */
+  private static final class RecordingTargetResolver extends MapComputationTargetResolver {
+    private final List<Set<ComputationTargetSpecification>> _bulkRequests = new ArrayList<Set<ComputationTargetSpecification>>();
+    private final List<ComputationTargetSpecification> _singleRequests = new ArrayList<ComputationTargetSpecification>();
+
+    @Override
+    public ComputationTarget resolve(final ComputationTargetSpecification specification) {
+      _singleRequests.add(specification);
+      return super.resolve(specification);
+    }
+
+    @Override
+    public Map<ComputationTargetSpecification, ComputationTarget> resolve(final Collection<ComputationTargetSpecification> specifications) {
+      _bulkRequests.add(new HashSet<ComputationTargetSpecification>(specifications));
+      return super.resolve(specifications);
+    }
+  }
+
+}
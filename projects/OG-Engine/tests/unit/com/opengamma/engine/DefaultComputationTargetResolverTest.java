@@ -6,8 +6,11 @@
 package com.opengamma.engine;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
 
 import javax.time.calendar.OffsetDateTime;
 
@@ -122,12 +125,28 @@ public class DefaultComputationTargetResolverTest {
     assertEquals(expected, test.resolve(spec));
   }
 
+  public void test_resolve_bulk() {
+    MockSecuritySource secSource = new MockSecuritySource();
+    MockPositionSource posSource = new MockPositionSource();
+    secSource.addSecurity(SECURITY);
+    posSource.addPortfolio(PORTFOLIO);
+    DefaultComputationTargetResolver test = new DefaultComputationTargetResolver(secSource, posSource);
+    ComputationTargetSpecification securitySpec = new ComputationTargetSpecification(SECURITY);
+    ComputationTargetSpecification portfolioSpec = new ComputationTargetSpecification(PORTFOLIO);
+    ComputationTargetSpecification missingSpec = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Test", "MISSING"));
+    Map<ComputationTargetSpecification, ComputationTarget> result = test.resolve(Arrays.asList(securitySpec, portfolioSpec, missingSpec));
+    assertEquals(2, result.size());
+    assertEquals(new ComputationTarget(SECURITY), result.get(securitySpec));
+    assertEquals(new ComputationTarget(PORTFOLIO), result.get(portfolioSpec));
+    assertFalse(result.containsKey(missingSpec));
+  }
+
   @Test(expectedExceptions=NullPointerException.class)
   public void test_resolve_nullSpecification() {
     MockSecuritySource secSource = new MockSecuritySource();
     MockPositionSource posSource = new MockPositionSource();
     DefaultComputationTargetResolver test = new DefaultComputationTargetResolver(secSource, posSource);
-    test.resolve(null);
+    test.resolve((ComputationTargetSpecification) null);
   }
 
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+
+/**
+ * Times the engine benchmarks and records their results.
+ * <p>
+ * The benchmarks are disabled TestNG classes, like the other performance tests, so that they can be run from an IDE
+ * but are not part of the unit test build. Each public method of a benchmark times an operation with
+ * {@link #run(String, int, Runnable)} after a number of warm-up iterations. If the {@value #RESULTS_PROPERTY} system
+ * property names a file, a line is appended to it for each benchmark so that the figures from successive builds can
+ * be compared:
+ * <pre>
+ *   timestamp,benchmark,operations,iterations,best ns/op,mean ns/op
+ * </pre>
+ * The {@link #main} method runs all of the public methods of the benchmark classes named on the command line; this is
+ * used by the {@code benchmarks} Ant target.
+ */
+public final class BenchmarkRunner {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+  /**
+   * System property naming the file to append results to.
+   */
+  public static final String RESULTS_PROPERTY = "benchmark.results";
+  /**
+   * System property giving the number of untimed iterations to run first.
+   */
+  public static final String WARMUP_PROPERTY = "benchmark.warmup";
+  /**
+   * System property giving the number of timed iterations.
+   */
+  public static final String ITERATIONS_PROPERTY = "benchmark.iterations";
+
+  private static final int DEFAULT_WARMUP = 5;
+  private static final int DEFAULT_ITERATIONS = 10;
+
+  private BenchmarkRunner() {
+  }
+
+  private static int getInteger(final String property, final int defaultValue) {
+    final String value = System.getProperty(property);
+    return (value != null) ? Integer.parseInt(value) : defaultValue;
+  }
+
+  /**
+   * Times an operation and records the result.
+   *
+   * @param name the benchmark name, not null
+   * @param operations the number of operations performed by each invocation of the task, used to scale the result
+   * @param task the task to time, not null
+   */
+  public static void run(final String name, final int operations, final Runnable task) {
+    final int warmup = getInteger(WARMUP_PROPERTY, DEFAULT_WARMUP);
+    for (int i = 0; i < warmup; i++) {
+      task.run();
+    }
+    final long[] times = new long[getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS)];
+    for (int i = 0; i < times.length; i++) {
+      final long start = System.nanoTime();
+      task.run();
+      times[i] = System.nanoTime() - start;
+    }
+    record(name, operations, times);
+  }
+
+  /**
+   * Records the result of a benchmark timed by the caller.
+   *
+   * @param name the benchmark name, not null
+   * @param operations the number of operations performed by each timed iteration, used to scale the result
+   * @param times the duration of each timed iteration in nanoseconds, not empty
+   */
+  public static synchronized void record(final String name, final int operations, final long[] times) {
+    long best = Long.MAX_VALUE;
+    long total = 0;
+    for (long time : times) {
+      best = Math.min(best, time);
+      total += time;
+    }
+    final double bestPerOperation = (double) best / (double) operations;
+    final double meanPerOperation = (double) total / (double) (times.length * operations);
+    s_logger.info("{}: {}ns/op best, {}ns/op mean over {} iterations", new Object[] {name, bestPerOperation, meanPerOperation, times.length });
+    final String file = System.getProperty(RESULTS_PROPERTY);
+    if (file == null) {
+      return;
+    }
+    try {
+      final PrintWriter out = new PrintWriter(new FileWriter(file, true));
+      try {
+        out.println(System.currentTimeMillis() + "," + name + "," + operations + "," + times.length + "," + bestPerOperation + "," + meanPerOperation);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't write benchmark results to " + file, e);
+    }
+  }
+
+  /**
+   * Runs each public method of the benchmark classes named.
+   *
+   * @param args the benchmark class names
+   * @throws Exception if a benchmark fails
+   */
+  public static void main(final String[] args) throws Exception { // CSIGNORE
+    for (String className : args) {
+      final Class<?> clazz = Class.forName(className);
+      final Object benchmark = clazz.newInstance();
+      for (Method method : clazz.getDeclaredMethods()) {
+        if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()) && (method.getParameterTypes().length == 0)) {
+          s_logger.info("Running {}.{}", clazz.getSimpleName(), method.getName());
+          method.invoke(benchmark);
+        }
+      }
+    }
+  }
+
+}
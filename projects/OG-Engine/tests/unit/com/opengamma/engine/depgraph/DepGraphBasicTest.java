@@ -8,9 +8,11 @@ package com.opengamma.engine.depgraph;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.Collection;
+import java.util.Map;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.testng.Assert;
@@ -170,4 +172,29 @@ public class DepGraphBasicTest extends AbstractDependencyGraphBuilderTest {
     assertEquals(0, graph.getDependencyNodes().size());
   }
 
+  public void existingGraphReused() {
+    final DepGraphTestHelper helper = helper();
+    final MockFunction fn1 = helper.addFunctionRequiring2Producing1();
+    final MockFunction fn2 = helper.addFunctionProducing2();
+    final DependencyGraphBuilder builder = helper.getBuilder(null);
+    builder.addTarget(helper.getRequirement2());
+    final DependencyGraph existing = builder.getDependencyGraph();
+    assertEquals(1, existing.getSize());
+    final DependencyNode existingNode = existing.getDependencyNodes().iterator().next();
+    final DependencyGraphBuilder incremental = new DependencyGraphBuilder();
+    incremental.setMarketDataAvailabilityProvider(builder.getMarketDataAvailabilityProvider());
+    incremental.setCompilationContext(builder.getCompilationContext());
+    incremental.setFunctionResolver(builder.getFunctionResolver());
+    incremental.setTargetResolver(builder.getTargetResolver());
+    incremental.setCalculationConfigurationName(builder.getCalculationConfigurationName());
+    incremental.addExistingGraph(existing);
+    incremental.addTarget(helper.getRequirement1());
+    final DependencyGraph graph = incremental.getDependencyGraph();
+    final Map<MockFunction, DependencyNode> nodes = assertGraphContains(graph, fn1, fn2);
+    assertSame(existingNode, nodes.get(fn2));
+    assertTrue(nodes.get(fn1).getInputNodes().contains(existingNode));
+    assertTrue(graph.getTerminalOutputSpecifications().contains(helper.getSpec1()));
+    assertTrue(graph.getTerminalOutputSpecifications().contains(helper.getSpec2()));
+  }
+
 }
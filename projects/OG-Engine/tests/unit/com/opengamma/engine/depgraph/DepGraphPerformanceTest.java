@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Measures the time taken to build a large synthetic dependency graph with different numbers of threads. The results
+ * are recorded by {@link BenchmarkRunner}.
+ */
+@Test(enabled = false)
+public class DepGraphPerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DepGraphPerformanceTest.class);
+
+  private static final String TARGET_SCHEME = "Target";
+  private static final String CURVE_SCHEME = "Curve";
+  private static final String CURVE = "Curve";
+  private static final String LEVEL = "Level";
+
+  private static final int TARGETS = 5000;
+  private static final int CURVES = 20;
+  private static final int DEPTH = 8;
+  private static final int REPEATS = 5;
+
+  /**
+   * Produces the value at one level of the chain on a position-like target, requiring the level below and a shared curve.
+   */
+  private static final class LevelFunction extends AbstractDependencyGraphBuilderTest.TestFunction {
+
+    private final int _level;
+
+    public LevelFunction(final int level) {
+      _level = level;
+    }
+
+    @Override
+    public boolean canApplyTo(final FunctionCompilationContext context, final ComputationTarget target) {
+      return super.canApplyTo(context, target) && TARGET_SCHEME.equals(target.getUniqueId().getScheme());
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+      requirements.add(new ValueRequirement(CURVE, getCurveId(target.getUniqueId())));
+      if (_level > 0) {
+        requirements.add(new ValueRequirement(LEVEL + (_level - 1), target.toSpecification()));
+      }
+      return requirements;
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(LEVEL + _level, target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  /**
+   * Produces a curve shared by many targets.
+   */
+  private static final class CurveFunction extends AbstractDependencyGraphBuilderTest.TestFunction {
+
+    @Override
+    public boolean canApplyTo(final FunctionCompilationContext context, final ComputationTarget target) {
+      return super.canApplyTo(context, target) && CURVE_SCHEME.equals(target.getUniqueId().getScheme());
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(CURVE, target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  private static UniqueId getCurveId(final UniqueId target) {
+    return UniqueId.of(CURVE_SCHEME, Integer.toString((target.getValue().hashCode() & Integer.MAX_VALUE) % CURVES));
+  }
+
+  private CompiledFunctionResolver createFunctionResolver(final FunctionCompilationContext context) {
+    final InMemoryFunctionRepository functions = new InMemoryFunctionRepository();
+    for (int i = 0; i <= DEPTH; i++) {
+      functions.addFunction(new LevelFunction(i));
+    }
+    functions.addFunction(new CurveFunction());
+    final CompiledFunctionService compilationService = new CompiledFunctionService(functions, new CachingFunctionRepositoryCompiler(), context);
+    compilationService.initialize();
+    return new DefaultFunctionResolver(compilationService).compile(Instant.now());
+  }
+
+  private MapComputationTargetResolver createTargetResolver() {
+    final MapComputationTargetResolver targets = new MapComputationTargetResolver();
+    for (int i = 0; i < TARGETS; i++) {
+      targets.addTarget(new ComputationTarget(UniqueId.of(TARGET_SCHEME, Integer.toString(i))));
+    }
+    for (int i = 0; i < CURVES; i++) {
+      targets.addTarget(new ComputationTarget(UniqueId.of(CURVE_SCHEME, Integer.toString(i))));
+    }
+    return targets;
+  }
+
+  private long buildGraph(final int threads, final FunctionCompilationContext context, final CompiledFunctionResolver functions,
+      final MapComputationTargetResolver targets, final Set<ValueRequirement> requirements) {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder();
+    builder.setMarketDataAvailabilityProvider(new FixedMarketDataAvailabilityProvider());
+    builder.setCompilationContext(context);
+    builder.setFunctionResolver(functions);
+    builder.setTargetResolver(targets);
+    builder.setCalculationConfigurationName("Performance");
+    builder.setMaxAdditionalThreads(threads);
+    final long start = System.nanoTime();
+    builder.addTarget(requirements);
+    final DependencyGraph graph = builder.getDependencyGraph();
+    final long time = System.nanoTime() - start;
+    assertEquals(TARGETS * (DEPTH + 1) + CURVES, graph.getSize());
+    final Map<ValueRequirement, ValueSpecification> resolved = builder.getValueRequirementMapping();
+    assertEquals(requirements.size(), resolved.size());
+    return time;
+  }
+
+  public void scaling() {
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    final CompiledFunctionResolver functions = createFunctionResolver(context);
+    final MapComputationTargetResolver targets = createTargetResolver();
+    final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+    for (int i = 0; i < TARGETS; i++) {
+      requirements.add(new ValueRequirement(LEVEL + DEPTH, UniqueId.of(TARGET_SCHEME, Integer.toString(i))));
+    }
+    // Warm up
+    buildGraph(0, context, functions, targets, requirements);
+    final int cores = Runtime.getRuntime().availableProcessors();
+    long baseline = 0;
+    for (int threads = 0; threads < cores; threads = (threads == 0) ? 1 : (threads * 2)) {
+      final long[] times = new long[REPEATS];
+      long best = Long.MAX_VALUE;
+      for (int i = 0; i < REPEATS; i++) {
+        times[i] = buildGraph(threads, context, functions, targets, requirements);
+        best = Math.min(best, times[i]);
+      }
+      if (threads == 0) {
+        baseline = best;
+      }
+      s_logger.info("{} additional threads: {}ms, speedup {}", new Object[] {threads, best / 1000000, (double) baseline / (double) best });
+      BenchmarkRunner.record("DependencyGraphBuilder.threads" + threads, TARGETS, times);
+    }
+  }
+
+}
@@ -38,6 +38,7 @@ public class DependencyGraphBuilderTest extends AbstractFudgeBuilderTestCase {
     assertEquals(graph.getOutputSpecifications(), cycledGraph.getOutputSpecifications());
     assertEquals(graph.getSize(), cycledGraph.getSize());
     assertEquals(graph.getTerminalOutputSpecifications(), cycledGraph.getTerminalOutputSpecifications());
+    assertEquals(graph.getTerminalOutputs(), cycledGraph.getTerminalOutputs());
     
     for (DependencyNode node : graph.getDependencyNodes()) {
       boolean isRoot = graph.getRootNodes().contains(node);
@@ -47,6 +48,8 @@ public class DependencyGraphBuilderTest extends AbstractFudgeBuilderTestCase {
         assertEquals(node.getInputValues(), equivalentNode.getInputValues());
         assertEquals(node.getOutputValues(), equivalentNode.getOutputValues());
         assertEquals(node.getTerminalOutputValues(), equivalentNode.getTerminalOutputValues());
+        assertEquals(node.getFunction().getFunction().getFunctionDefinition().getUniqueId(),
+            equivalentNode.getFunction().getFunction().getFunctionDefinition().getUniqueId());
       }
     }
   }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests {@link InMemoryLKVMarketDataSnapshot}.
+ */
+@Test
+public class InMemoryLKVMarketDataSnapshotTest {
+
+  private static final ValueRequirement REQ_1 = getRequirement(1);
+  private static final ValueRequirement REQ_2 = getRequirement(2);
+  private static final ValueRequirement REQ_3 = getRequirement(3);
+  private static final ValueRequirement REQ_4 = getRequirement(4);
+
+  private static ValueRequirement getRequirement(int number) {
+    return new ValueRequirement("Req-" + number, new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", "Target")));
+  }
+
+  private static InMemoryLKVMarketDataSnapshot snapshot(InMemoryLKVMarketDataProvider provider) {
+    InMemoryLKVMarketDataSnapshot snapshot = provider.snapshot(null);
+    snapshot.init();
+    return snapshot;
+  }
+
+  public void testSnapshotUnaffectedByLaterChanges() {
+    InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(REQ_1, 1d);
+    InMemoryLKVMarketDataSnapshot snapshot = snapshot(provider);
+    provider.addValue(REQ_1, 2d);
+    provider.addValue(REQ_2, 3d);
+    assertEquals(1d, snapshot.query(REQ_1));
+    assertNull(snapshot.query(REQ_2));
+    assertEquals(Collections.singleton(REQ_1), snapshot.getAllValueKeys());
+  }
+
+  public void testChangedValueKeys() {
+    InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(REQ_1, 1d);
+    provider.addValue(REQ_2, 2d);
+    provider.addValue(REQ_3, 3d);
+    InMemoryLKVMarketDataSnapshot previous = snapshot(provider);
+    // Changed
+    provider.addValue(REQ_1, 10d);
+    // Removed
+    provider.removeValue(REQ_2);
+    // Added
+    provider.addValue(REQ_4, 4d);
+    // Replaced with an equal value
+    provider.addValue(REQ_3, 3d);
+    InMemoryLKVMarketDataSnapshot current = snapshot(provider);
+    assertEquals(new HashSet<ValueRequirement>(Arrays.asList(REQ_1, REQ_2, REQ_4)), current.getChangedValueKeys(previous));
+    assertEquals(new HashSet<ValueRequirement>(Arrays.asList(REQ_1, REQ_2, REQ_4)), previous.getChangedValueKeys(current));
+  }
+
+  public void testChangedValueKeysUnchanged() {
+    InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(REQ_1, 1d);
+    InMemoryLKVMarketDataSnapshot previous = snapshot(provider);
+    InMemoryLKVMarketDataSnapshot current = snapshot(provider);
+    assertTrue(current.getChangedValueKeys(previous).isEmpty());
+  }
+
+  public void testChangedValueKeysNoPrevious() {
+    InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(REQ_1, 1d);
+    provider.addValue(REQ_2, 2d);
+    InMemoryLKVMarketDataSnapshot current = snapshot(provider);
+    assertEquals(new HashSet<ValueRequirement>(Arrays.asList(REQ_1, REQ_2)), current.getChangedValueKeys(null));
+  }
+
+  public void testSameProvider() {
+    InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    InMemoryLKVMarketDataProvider otherProvider = new InMemoryLKVMarketDataProvider();
+    InMemoryLKVMarketDataSnapshot snapshot = snapshot(provider);
+    assertTrue(snapshot.isSameProvider(snapshot(provider)));
+    assertFalse(snapshot.isSameProvider(snapshot(otherProvider)));
+  }
+
+}
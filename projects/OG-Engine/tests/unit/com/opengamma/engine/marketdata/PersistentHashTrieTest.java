@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests {@link PersistentHashTrie}
+ */
+@Test
+public class PersistentHashTrieTest {
+
+  public void testEmpty() {
+    PersistentHashTrie<String, Integer> trie = PersistentHashTrie.empty();
+    assertEquals(0, trie.size());
+    assertNull(trie.get("A"));
+    assertTrue(trie.asMap().isEmpty());
+    assertSame(trie, trie.without("A"));
+  }
+
+  public void testWithWithout() {
+    PersistentHashTrie<String, Integer> trie1 = PersistentHashTrie.<String, Integer>empty().with("A", 1).with("B", 2);
+    PersistentHashTrie<String, Integer> trie2 = trie1.with("A", 3);
+    PersistentHashTrie<String, Integer> trie3 = trie2.without("B");
+    assertEquals(2, trie1.size());
+    assertEquals(1, (int) trie1.get("A"));
+    assertEquals(2, trie2.size());
+    assertEquals(3, (int) trie2.get("A"));
+    assertEquals(1, trie3.size());
+    assertNull(trie3.get("B"));
+    assertEquals(2, (int) trie2.get("B"));
+  }
+
+  public void testWithEqualValueUnchanged() {
+    PersistentHashTrie<String, Integer> trie = PersistentHashTrie.<String, Integer>empty().with("A", 1);
+    assertSame(trie, trie.with("A", new Integer(1)));
+  }
+
+  public void testChangedKeys() {
+    PersistentHashTrie<String, Integer> before = PersistentHashTrie.empty();
+    for (int i = 0; i < 1000; i++) {
+      before = before.with("K" + i, i);
+    }
+    PersistentHashTrie<String, Integer> after = before.with("K1", -1).with("K2", 2).without("K3").with("K1000", 1000);
+    assertEquals(Sets.newHashSet("K1", "K3", "K1000"), after.changedKeys(before));
+    assertEquals(Sets.newHashSet("K1", "K3", "K1000"), before.changedKeys(after));
+    assertTrue(after.changedKeys(after).isEmpty());
+  }
+
+  public void testCollisions() {
+    PersistentHashTrie<Key, Integer> trie = PersistentHashTrie.empty();
+    for (int i = 0; i < 20; i++) {
+      trie = trie.with(new Key(i % 3, i), i);
+    }
+    PersistentHashTrie<Key, Integer> removed = trie.without(new Key(1, 4)).without(new Key(2, 5));
+    assertEquals(20, trie.size());
+    assertEquals(18, removed.size());
+    assertEquals(4, (int) trie.get(new Key(1, 4)));
+    assertNull(removed.get(new Key(1, 4)));
+    assertEquals(7, (int) removed.get(new Key(1, 7)));
+    assertEquals(Sets.newHashSet(new Key(1, 4), new Key(2, 5)), removed.changedKeys(trie));
+  }
+
+  public void testRandomAgainstHashMap() {
+    Random random = new Random(1);
+    PersistentHashTrie<Key, Integer> trie = PersistentHashTrie.empty();
+    Map<Key, Integer> map = new HashMap<Key, Integer>();
+    PersistentHashTrie<Key, Integer> previousTrie = trie;
+    Map<Key, Integer> previousMap = new HashMap<Key, Integer>();
+    for (int i = 0; i < 20000; i++) {
+      int id = random.nextInt(2000);
+      Key key = new Key(id * 0x9E3779B9, id);
+      if (random.nextInt(3) == 0) {
+        trie = trie.without(key);
+        map.remove(key);
+      } else {
+        int value = random.nextInt(4);
+        trie = trie.with(key, value);
+        map.put(key, value);
+      }
+      if (i % 1000 == 999) {
+        Set<Key> expected = new HashSet<Key>();
+        for (Key changed : Sets.union(map.keySet(), previousMap.keySet())) {
+          Integer value = map.get(changed);
+          if (value == null || !value.equals(previousMap.get(changed))) {
+            expected.add(changed);
+          }
+        }
+        assertEquals(expected, trie.changedKeys(previousTrie));
+        previousTrie = trie;
+        previousMap = new HashMap<Key, Integer>(map);
+      }
+    }
+    assertEquals(map.size(), trie.size());
+    assertEquals(map, trie.asMap());
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Key with a chosen hash code.
+   */
+  private static final class Key {
+    private final int _hash;
+    private final int _id;
+
+    private Key(int hash, int id) {
+      _hash = hash;
+      _id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj)._id == _id;
+    }
+
+    @Override
+    public String toString() {
+      return "Key" + _id;
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.value;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+
+/**
+ * Measures the {@link ValueProperties} operations used heavily during graph construction - composing, intersecting,
+ * satisfaction tests and comparison.
+ */
+@Test(enabled = false)
+public class ValuePropertiesBenchmark {
+
+  private static final int PROPERTIES = 1000;
+  private static final int NAMES = 8;
+  private static final int VALUES = 4;
+
+  private final ValueProperties[] _requirements = new ValueProperties[PROPERTIES];
+  private final ValueProperties[] _results = new ValueProperties[PROPERTIES];
+
+  public ValuePropertiesBenchmark() {
+    final Random rnd = new Random(1L);
+    for (int i = 0; i < PROPERTIES; i++) {
+      final ValueProperties.Builder requirement = ValueProperties.builder();
+      final ValueProperties.Builder result = ValueProperties.builder();
+      for (int j = 0; j < NAMES; j++) {
+        final String name = "Property" + j;
+        switch (rnd.nextInt(4)) {
+          case 0:
+            // Not constrained by the requirement
+            result.with(name, "Value" + rnd.nextInt(VALUES));
+            break;
+          case 1:
+            requirement.withAny(name);
+            result.withAny(name);
+            break;
+          case 2:
+            requirement.with(name, "Value" + rnd.nextInt(VALUES));
+            result.with(name, "Value" + rnd.nextInt(VALUES), "Value" + rnd.nextInt(VALUES));
+            break;
+          default:
+            requirement.with(name, "Value" + rnd.nextInt(VALUES)).withOptional(name);
+            result.with(name, "Value" + rnd.nextInt(VALUES));
+            break;
+        }
+      }
+      _requirements[i] = requirement.get();
+      _results[i] = result.get();
+    }
+  }
+
+  public void compose() {
+    BenchmarkRunner.run("ValueProperties.compose", PROPERTIES * PROPERTIES, new Runnable() {
+      @Override
+      public void run() {
+        for (ValueProperties result : _results) {
+          for (ValueProperties requirement : _requirements) {
+            result.compose(requirement);
+          }
+        }
+      }
+    });
+  }
+
+  public void intersect() {
+    BenchmarkRunner.run("ValueProperties.intersect", PROPERTIES * PROPERTIES, new Runnable() {
+      @Override
+      public void run() {
+        for (ValueProperties result : _results) {
+          for (ValueProperties requirement : _requirements) {
+            result.intersect(requirement);
+          }
+        }
+      }
+    });
+  }
+
+  public void isSatisfiedBy() {
+    BenchmarkRunner.run("ValueProperties.isSatisfiedBy", PROPERTIES * PROPERTIES, new Runnable() {
+      @Override
+      public void run() {
+        for (ValueProperties result : _results) {
+          for (ValueProperties requirement : _requirements) {
+            requirement.isSatisfiedBy(result);
+          }
+        }
+      }
+    });
+  }
+
+  public void compareTo() {
+    BenchmarkRunner.run("ValueProperties.compareTo", PROPERTIES * PROPERTIES, new Runnable() {
+      @Override
+      public void run() {
+        for (ValueProperties a : _results) {
+          for (ValueProperties b : _results) {
+            a.compareTo(b);
+          }
+        }
+      }
+    });
+  }
+
+  public void equalsAndHashCode() {
+    BenchmarkRunner.run("ValueProperties.equals", PROPERTIES * PROPERTIES, new Runnable() {
+      @Override
+      public void run() {
+        for (ValueProperties a : _results) {
+          for (ValueProperties b : _requirements) {
+            if (a.hashCode() == b.hashCode()) {
+              a.equals(b);
+            }
+          }
+        }
+      }
+    });
+  }
+
+}
@@ -12,6 +12,10 @@ import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -310,6 +314,27 @@ public class ValuePropertiesTest {
   }
   
 
+
+  public void testInterned() {
+    final ValueProperties a = ValueProperties.with("A", "1").with("B", "2", "3").withOptional("C").get();
+    final ValueProperties b = ValueProperties.withOptional("C").with("B", "3", "2").with("A", "1").get();
+    assertSame(a, b);
+    assertSame(a.getValues("A"), ValueProperties.with("X", "1").get().getValues("X"));
+    final ValueProperties composed = ValueProperties.with("A", "1", "2").with("B", "2").get().compose(ValueProperties.with("A", "1").get());
+    assertSame(ValueProperties.with("A", "1").with("B", "2").get(), composed);
+    final ValueProperties intersected = ValueProperties.with("A", "1", "2").with("B", "2").get().intersect(ValueProperties.with("A", "2").get());
+    assertSame(ValueProperties.with("A", "2").get(), intersected);
+  }
+
+  public void testSerializationInterned() throws Exception {
+    final ValueProperties properties = ValueProperties.with("A", "1").with("B", "2", "3").withOptional("C").get();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(properties);
+    out.close();
+    final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertSame(properties, in.readObject());
+  }
   
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testParseInvalidNoValue() {
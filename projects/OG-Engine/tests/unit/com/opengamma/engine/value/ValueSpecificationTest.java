@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.value;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Tests the {@link ValueSpecification} class.
+ */
+@Test
+public class ValueSpecificationTest {
+
+  private static final ComputationTargetSpecification TARGET = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+
+  private static ValueSpecification create(final String function) {
+    return new ValueSpecification("Value", TARGET, ValueProperties.with(ValuePropertyNames.FUNCTION, function).with("A", "1").get());
+  }
+
+  public void testIntern() {
+    final ValueSpecification a = create("Foo");
+    final ValueSpecification b = create("Foo");
+    assertNotSame(a, b);
+    assertEquals(a, b);
+    assertSame(a.getProperties(), b.getProperties());
+    assertSame(a.intern(), b.intern());
+    assertFalse(create("Bar").intern().equals(a.intern()));
+  }
+
+  public void testFudgeInterned() {
+    final ValueSpecification spec = create("Foo").intern();
+    final FudgeContext context = OpenGammaFudgeContext.getInstance();
+    final FudgeMsg msg = new FudgeSerializer(context).objectToFudgeMsg(spec);
+    final ValueSpecification decoded = new FudgeDeserializer(context).fudgeMsgToObject(ValueSpecification.class, msg);
+    assertSame(spec, decoded);
+  }
+
+}
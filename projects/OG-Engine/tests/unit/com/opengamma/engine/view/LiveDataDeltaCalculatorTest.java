@@ -172,4 +172,30 @@ public class LiveDataDeltaCalculatorTest {
     assertEquals(_graph.getDependencyNodes(), _deltaCalculator.getChangedNodes());
   }
 
+  public void changeSpecified() {
+    _deltaCalculator.computeDelta(Collections.singleton(((MarketDataSourcingFunction) _node1.getFunction().getFunction()).getMarketDataRequirement().getSecond()));
+
+    assertEquals(Sets.newHashSet(_node2, _node3), _deltaCalculator.getUnchangedNodes());
+    assertEquals(Sets.newHashSet(_node0, _node1), _deltaCalculator.getChangedNodes());
+  }
+
+  public void changeLongChain() {
+    final DependencyGraph graph = new DependencyGraph("test");
+    DependencyNode node = createNode("Chain0", Collections.<DependencyNode>emptySet());
+    final DependencyNode bottom = node;
+    graph.addDependencyNode(node);
+    for (int i = 1; i < 50000; i++) {
+      node = createNode("Chain" + i, Collections.singleton(node));
+      graph.addDependencyNode(node);
+    }
+    put(_cache, bottom, 6.0);
+    put(_previousCache, bottom, 7.0);
+    final LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(graph, _cache, _previousCache);
+
+    deltaCalculator.computeDelta();
+
+    assertEquals(Collections.emptySet(), deltaCalculator.getUnchangedNodes());
+    assertEquals(graph.getDependencyNodes(), deltaCalculator.getChangedNodes());
+  }
+
 }
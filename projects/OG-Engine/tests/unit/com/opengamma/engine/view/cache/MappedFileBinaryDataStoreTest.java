@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests {@link MappedFileBinaryDataStore} and {@link MappedFileBinaryDataStoreFactory}.
+ */
+@Test
+public class MappedFileBinaryDataStoreTest {
+
+  private File _directory;
+
+  @BeforeMethod
+  public void createDirectory() {
+    _directory = new File(System.getProperty("java.io.tmpdir"), "MappedFileBinaryDataStoreTest-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    FileUtils.deleteDirectory(_directory);
+  }
+
+  private static byte[] createData(final Random rnd, final int length) {
+    final byte[] data = new byte[length];
+    rnd.nextBytes(data);
+    return data;
+  }
+
+  public void putAndGet() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, 4096);
+    final Random rnd = new Random(1L);
+    final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 5000; i++) {
+      // Include some values larger than a segment
+      final byte[] data = createData(rnd, (i % 500 == 0) ? 10000 : rnd.nextInt(200));
+      store.put(i, data);
+      expected.put(i, data);
+    }
+    assertEquals(expected.size(), store.size());
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      assertTrue(Arrays.equals(entry.getValue(), store.get(entry.getKey())));
+    }
+    assertEquals(expected.size(), store.get(expected.keySet()).size());
+    assertNull(store.get(-1L));
+    store.delete();
+  }
+
+  public void deleteRemovesFiles() {
+    final MappedFileBinaryDataStoreFactory factory = new MappedFileBinaryDataStoreFactory(_directory, 1024);
+    final BinaryDataStore store = factory.createDataStore(new ViewComputationCacheKey(UniqueId.of("Test", "Cycle"), "Default"));
+    store.put(1L, new byte[] {1, 2, 3 });
+    assertEquals(1, _directory.list().length);
+    store.delete();
+    assertNull(store.get(1L));
+    assertEquals(0, _directory.list().length);
+  }
+
+  public void staleStoresRemoved() {
+    final MappedFileBinaryDataStoreFactory factory = new MappedFileBinaryDataStoreFactory(_directory, 1024);
+    final BinaryDataStore store = factory.createDataStore(new ViewComputationCacheKey(UniqueId.of("Test", "Cycle"), "Default"));
+    store.put(1L, new byte[] {1, 2, 3 });
+    new MappedFileBinaryDataStoreFactory(_directory, 1024);
+    assertFalse(_directory.list().length > 0);
+    store.delete();
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link OffHeapBinaryDataStore}.
+ */
+@Test
+public class OffHeapBinaryDataStoreTest {
+
+  private static byte[] createData(final Random rnd, final int length) {
+    final byte[] data = new byte[length];
+    rnd.nextBytes(data);
+    return data;
+  }
+
+  public void putAndGet() {
+    final OffHeapBinaryDataStore store = new OffHeapBinaryDataStore(4096);
+    final Random rnd = new Random(1L);
+    final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+    // Enough values to force the index to grow and several slabs to be used
+    for (long i = 0; i < 10000; i++) {
+      final byte[] data = createData(rnd, rnd.nextInt(200));
+      store.put(i * 7, data);
+      expected.put(i * 7, data);
+    }
+    assertEquals(expected.size(), store.size());
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      assertTrue(Arrays.equals(entry.getValue(), store.get(entry.getKey())));
+    }
+    assertNull(store.get(1L));
+    assertNull(store.get(-7L));
+  }
+
+  public void replace() {
+    final OffHeapBinaryDataStore store = new OffHeapBinaryDataStore(4096);
+    store.put(42L, new byte[] {1, 2, 3 });
+    store.put(42L, new byte[] {4, 5 });
+    assertEquals(1, store.size());
+    assertTrue(Arrays.equals(new byte[] {4, 5 }, store.get(42L)));
+  }
+
+  public void oversizedValue() {
+    final OffHeapBinaryDataStore store = new OffHeapBinaryDataStore(64);
+    final Random rnd = new Random(2L);
+    final byte[] small1 = createData(rnd, 30);
+    final byte[] large = createData(rnd, 1000);
+    final byte[] small2 = createData(rnd, 30);
+    store.put(1L, small1);
+    store.put(2L, large);
+    store.put(3L, small2);
+    assertTrue(Arrays.equals(small1, store.get(1L)));
+    assertTrue(Arrays.equals(large, store.get(2L)));
+    assertTrue(Arrays.equals(small2, store.get(3L)));
+  }
+
+  public void bulkOperations() {
+    final OffHeapBinaryDataStore store = new OffHeapBinaryDataStore(4096);
+    final Random rnd = new Random(3L);
+    final Map<Long, byte[]> data = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 100; i++) {
+      data.put(i, createData(rnd, 16));
+    }
+    store.put(data);
+    final List<Long> identifiers = new ArrayList<Long>(data.keySet());
+    identifiers.add(1000L);
+    final Map<Long, byte[]> result = store.get(identifiers);
+    assertEquals(data.size(), result.size());
+    for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+      assertTrue(Arrays.equals(entry.getValue(), result.get(entry.getKey())));
+    }
+  }
+
+  public void deleteReturnsSlabsToPool() {
+    final OffHeapBinaryDataStoreFactory factory = new OffHeapBinaryDataStoreFactory(256, 2);
+    final BinaryDataStore store = factory.createDataStore(null);
+    final Random rnd = new Random(4L);
+    for (long i = 0; i < 40; i++) {
+      store.put(i, createData(rnd, 100));
+    }
+    assertEquals(0, factory.getPooledSlabs());
+    store.delete();
+    assertEquals(2, factory.getPooledSlabs());
+    assertNull(store.get(0L));
+    final BinaryDataStore next = factory.createDataStore(null);
+    next.put(0L, new byte[] {1 });
+    assertEquals(1, factory.getPooledSlabs());
+    assertTrue(Arrays.equals(new byte[] {1 }, next.get(0L)));
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.DefaultViewComputationCacheTest.Bean;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Measures {@link DefaultViewComputationCache#putValues} and {@link DefaultViewComputationCache#getValues} including
+ * the Fudge encoding of the values.
+ */
+@Test(enabled = false)
+public class ViewComputationCacheBenchmark {
+
+  private static final int VALUES = 10000;
+
+  private static DefaultViewComputationCache createCache() {
+    final FudgeContext fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+    return new DefaultViewComputationCache(new InMemoryIdentifierMap(), new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), fudgeContext),
+        new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), fudgeContext), fudgeContext);
+  }
+
+  private static List<ComputedValue> createValues(final boolean beans) {
+    final List<ComputedValue> values = new ArrayList<ComputedValue>(VALUES);
+    final ValueProperties properties = ValueProperties.with(ValuePropertyNames.FUNCTION, "Benchmark").get();
+    for (int i = 0; i < VALUES; i++) {
+      final ValueSpecification specification = new ValueSpecification("Value", new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Benchmark",
+          Integer.toString(i))), properties);
+      if (beans) {
+        final Bean bean = new Bean();
+        bean.setFoo(i);
+        bean.setBar(-i);
+        values.add(new ComputedValue(specification, bean));
+      } else {
+        values.add(new ComputedValue(specification, (double) i));
+      }
+    }
+    return values;
+  }
+
+  private static List<ValueSpecification> getSpecifications(final List<ComputedValue> values) {
+    final List<ValueSpecification> specifications = new ArrayList<ValueSpecification>(values.size());
+    for (ComputedValue value : values) {
+      specifications.add(value.getSpecification());
+    }
+    return specifications;
+  }
+
+  private void putValues(final String name, final boolean beans, final CacheSelectHint hint) {
+    final List<ComputedValue> values = createValues(beans);
+    BenchmarkRunner.run("DefaultViewComputationCache.putValues." + name, VALUES, new Runnable() {
+      @Override
+      public void run() {
+        createCache().putValues(values, hint);
+      }
+    });
+  }
+
+  private void getValues(final String name, final boolean beans, final CacheSelectHint hint) {
+    final List<ComputedValue> values = createValues(beans);
+    final List<ValueSpecification> specifications = getSpecifications(values);
+    final DefaultViewComputationCache cache = createCache();
+    cache.putValues(values, hint);
+    BenchmarkRunner.run("DefaultViewComputationCache.getValues." + name, VALUES, new Runnable() {
+      @Override
+      public void run() {
+        assertEquals(VALUES, cache.getValues(specifications, hint).size());
+      }
+    });
+  }
+
+  public void putSharedDoubles() {
+    putValues("sharedDoubles", false, CacheSelectHint.allShared());
+  }
+
+  public void putPrivateDoubles() {
+    putValues("privateDoubles", false, CacheSelectHint.allPrivate());
+  }
+
+  public void putSharedBeans() {
+    putValues("sharedBeans", true, CacheSelectHint.allShared());
+  }
+
+  public void getSharedDoubles() {
+    getValues("sharedDoubles", false, CacheSelectHint.allShared());
+  }
+
+  public void getPrivateDoubles() {
+    getValues("privateDoubles", false, CacheSelectHint.allPrivate());
+  }
+
+  public void getSharedBeans() {
+    getValues("sharedBeans", true, CacheSelectHint.allShared());
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Synthetic portfolio-shaped dependency graph used by the benchmarks in this package. Market data nodes feed a
+ * number of intermediate nodes (curves, surfaces and the like), each position uses a few market data and
+ * intermediate values, and the positions are summed into portfolio nodes which are the terminal outputs.
+ */
+/* package */final class BenchmarkGraph {
+
+  private final DependencyGraph _graph = new DependencyGraph("Default");
+  private final DependencyNode[] _marketData;
+  private final List<DependencyNode> _nodes = new ArrayList<DependencyNode>();
+
+  /**
+   * @param marketData the number of market data nodes
+   * @param intermediates the number of intermediate nodes
+   * @param positions the number of position nodes
+   * @param positionsPerPortfolio the number of positions aggregated by each portfolio node
+   */
+  public BenchmarkGraph(final int marketData, final int intermediates, final int positions, final int positionsPerPortfolio) {
+    final Random rnd = new Random(1L);
+    _marketData = new DependencyNode[marketData];
+    for (int i = 0; i < marketData; i++) {
+      final MarketDataSourcingFunction function = new MarketDataSourcingFunction(new ValueRequirement("Market", ComputationTargetType.PRIMITIVE, UniqueId.of("Ticker",
+          Integer.toString(i))));
+      final DependencyNode node = new DependencyNode(new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Ticker", Integer.toString(i))));
+      node.setFunction(function);
+      node.addOutputValue(function.getMarketDataRequirement().getSecond());
+      _nodes.add(node);
+      _marketData[i] = node;
+    }
+    final DependencyNode[] intermediate = new DependencyNode[intermediates];
+    for (int i = 0; i < intermediates; i++) {
+      intermediate[i] = createNode("Curve", i);
+      for (int j = 0; j < 10; j++) {
+        connect(_marketData[rnd.nextInt(marketData)], intermediate[i]);
+      }
+    }
+    final List<DependencyNode> portfolios = new ArrayList<DependencyNode>();
+    DependencyNode portfolio = null;
+    for (int i = 0; i < positions; i++) {
+      final DependencyNode position = createNode("Position", i);
+      connect(_marketData[rnd.nextInt(marketData)], position);
+      connect(intermediate[rnd.nextInt(intermediates)], position);
+      connect(intermediate[rnd.nextInt(intermediates)], position);
+      if ((i % positionsPerPortfolio) == 0) {
+        portfolio = createNode("Portfolio", i / positionsPerPortfolio);
+        portfolios.add(portfolio);
+      }
+      connect(position, portfolio);
+    }
+    // The graph determines its root nodes as each node is added so the edges must already be in place
+    for (DependencyNode node : _nodes) {
+      _graph.addDependencyNode(node);
+    }
+    for (DependencyNode node : portfolios) {
+      final ValueSpecification output = node.getOutputValues().iterator().next();
+      _graph.addTerminalOutput(new ValueRequirement(output.getValueName(), output.getTargetSpecification()), output);
+    }
+  }
+
+  private DependencyNode createNode(final String type, final int index) {
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of(type, Integer.toString(index)));
+    final DependencyNode node = new DependencyNode(target);
+    node.setFunction(MockFunction.getMockFunction(target, 0d));
+    node.addOutputValue(new ValueSpecification(type, target.toSpecification(), ValueProperties.with(ValuePropertyNames.FUNCTION, "Mock").get()));
+    _nodes.add(node);
+    return node;
+  }
+
+  private static void connect(final DependencyNode input, final DependencyNode dependent) {
+    dependent.addInputNode(input);
+    dependent.addInputValue(input.getOutputValues().iterator().next());
+  }
+
+  public DependencyGraph getGraph() {
+    return _graph;
+  }
+
+  public DependencyNode[] getMarketData() {
+    return _marketData;
+  }
+
+  public ValueSpecification getMarketDataValue(final int index) {
+    return _marketData[index].getOutputValues().iterator().next();
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.DependentNodeIndex;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.InMemoryViewComputationCacheSource;
+import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Measures {@link LiveDataDeltaCalculator} on a large graph where a small proportion of the market data has ticked
+ * between cycles.
+ */
+@Test(enabled = false)
+public class LiveDataDeltaCalculatorBenchmark {
+
+  private static final int MARKET_DATA = 5000;
+  private static final int INTERMEDIATES = 500;
+  private static final int POSITIONS = 50000;
+  private static final int POSITIONS_PER_PORTFOLIO = 100;
+  private static final int CHANGED_EVERY = 100;
+
+  private final BenchmarkGraph _graph = new BenchmarkGraph(MARKET_DATA, INTERMEDIATES, POSITIONS, POSITIONS_PER_PORTFOLIO);
+  private final ViewComputationCache _cache;
+  private final ViewComputationCache _previousCache;
+  private final List<ValueSpecification> _changed = new ArrayList<ValueSpecification>();
+
+  public LiveDataDeltaCalculatorBenchmark() {
+    final InMemoryViewComputationCacheSource source = new InMemoryViewComputationCacheSource(FudgeContext.GLOBAL_DEFAULT);
+    _cache = source.getCache(UniqueId.of("Test", "ViewCycle", "1"), "Default");
+    _previousCache = source.getCache(UniqueId.of("Test", "ViewCycle", "0"), "Default");
+    for (int i = 0; i < MARKET_DATA; i++) {
+      final ValueSpecification marketData = _graph.getMarketDataValue(i);
+      _previousCache.putSharedValue(new ComputedValue(marketData, (double) i));
+      if ((i % CHANGED_EVERY) == 0) {
+        _cache.putSharedValue(new ComputedValue(marketData, (double) -i));
+        _changed.add(marketData);
+      } else {
+        _cache.putSharedValue(new ComputedValue(marketData, (double) i));
+      }
+    }
+  }
+
+  public void createIndex() {
+    final DependencyGraph graph = _graph.getGraph();
+    BenchmarkRunner.run("LiveDataDeltaCalculator.createIndex", graph.getSize(), new Runnable() {
+      @Override
+      public void run() {
+        new DependentNodeIndex(graph);
+      }
+    });
+  }
+
+  public void computeDeltaFromCaches() {
+    final DependentNodeIndex index = new DependentNodeIndex(_graph.getGraph());
+    BenchmarkRunner.run("LiveDataDeltaCalculator.computeDelta.caches", MARKET_DATA, new Runnable() {
+      @Override
+      public void run() {
+        new LiveDataDeltaCalculator(index, _cache, _previousCache).computeDelta();
+      }
+    });
+  }
+
+  public void computeDeltaFromChanges() {
+    final DependentNodeIndex index = new DependentNodeIndex(_graph.getGraph());
+    BenchmarkRunner.run("LiveDataDeltaCalculator.computeDelta.changes", _changed.size(), new Runnable() {
+      @Override
+      public void run() {
+        final LiveDataDeltaCalculator calculator = new LiveDataDeltaCalculator(index, _cache, _previousCache);
+        calculator.computeDelta(_changed);
+        // Include the cost of visiting the changed nodes as the cycle does when it executes them
+        for (DependencyNode node : calculator.getChangedNodes()) {
+          node.getFunction();
+        }
+      }
+    });
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.view.calc.stats.DiscardingGraphStatisticsGathererProvider;
+import com.opengamma.engine.view.calcnode.CalculationJob;
+import com.opengamma.engine.view.calcnode.CalculationJobResult;
+import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.view.calcnode.JobResultReceiver;
+import com.opengamma.engine.view.calcnode.stats.FunctionCosts;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.Cancelable;
+import com.opengamma.util.ehcache.EHCacheUtils;
+
+/**
+ * Measures the time taken by {@link MultipleNodeExecutor} to break a large graph into fragments and create the jobs
+ * for them, using both the fragment merging heuristics and the cost model partitioner.
+ */
+@Test(enabled = false)
+public class MultipleNodeExecutorBenchmark {
+
+  private static final int MARKET_DATA = 2000;
+  private static final int INTERMEDIATES = 200;
+  private static final int POSITIONS = 20000;
+  private static final int POSITIONS_PER_PORTFOLIO = 100;
+
+  private final DependencyGraph _graph = new BenchmarkGraph(MARKET_DATA, INTERMEDIATES, POSITIONS, POSITIONS_PER_PORTFOLIO).getGraph();
+
+  private MultipleNodeExecutor createExecutor(final int partitionNodes) {
+    return new MultipleNodeExecutor(null, 1, 1000, 0, Long.MAX_VALUE, Integer.MAX_VALUE, partitionNodes, new FunctionCosts(), new ExecutionPlanCache(EHCacheUtils.createCacheManager(),
+        0)) {
+
+      @Override
+      protected long getFunctionInitId() {
+        return 0;
+      }
+
+      @Override
+      protected CalculationJobSpecification createJobSpecification(final DependencyGraph graph) {
+        return new CalculationJobSpecification(UniqueId.of("Test", "ViewProcess"), graph.getCalculationConfigurationName(), Instant.now(), JobIdSource.getId());
+      }
+
+      @Override
+      protected void addJobToViewProcessorQuery(final CalculationJobSpecification jobSpec, final DependencyGraph graph) {
+        // Nothing
+      }
+
+      @Override
+      protected Cancelable dispatchJob(final CalculationJob job, final JobResultReceiver jobResultReceiver) {
+        // Jobs are never run - only the fragmenting is measured
+        return new Cancelable() {
+          @Override
+          public boolean cancel(final boolean mayInterrupt) {
+            return false;
+          }
+        };
+      }
+
+    };
+  }
+
+  private void fragment(final String name, final int partitionNodes) {
+    final MultipleNodeExecutor executor = createExecutor(partitionNodes);
+    BenchmarkRunner.run("MultipleNodeExecutor." + name, _graph.getSize(), new Runnable() {
+      @Override
+      public void run() {
+        executor.executeImpl(_graph, new LinkedBlockingQueue<CalculationJobResult>(), DiscardingGraphStatisticsGathererProvider.GATHERER_INSTANCE);
+      }
+    });
+  }
+
+  public void mergeFragments() {
+    fragment("merge", 0);
+  }
+
+  public void partition4() {
+    fragment("partition4", 4);
+  }
+
+  public void partition16() {
+    fragment("partition16", 16);
+  }
+
+}
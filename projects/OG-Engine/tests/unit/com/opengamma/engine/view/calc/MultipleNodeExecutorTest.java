@@ -7,6 +7,7 @@ package com.opengamma.engine.view.calc;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.Arrays;
@@ -14,6 +15,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -124,7 +126,16 @@ public class MultipleNodeExecutorTest {
   }
 
   private MultipleNodeExecutor createExecutor(final int minimum, final int maximum, final int concurrency) {
-    return new MultipleNodeExecutor(null, minimum, maximum, 0, Integer.MAX_VALUE, concurrency, new FunctionCosts(), new ExecutionPlanCache(EHCacheUtils.createCacheManager(), 0)) {
+    return createExecutor(minimum, maximum, concurrency, 0);
+  }
+
+  private MultipleNodeExecutor createExecutor(final int minimum, final int maximum, final int concurrency, final int partitionNodes) {
+    return createExecutor(minimum, maximum, concurrency, partitionNodes, new FunctionCosts(), new ExecutionPlanCache(EHCacheUtils.createCacheManager(), 0));
+  }
+
+  private MultipleNodeExecutor createExecutor(final int minimum, final int maximum, final int concurrency, final int partitionNodes, final FunctionCosts functionCosts,
+      final ExecutionPlanCache cache) {
+    return new MultipleNodeExecutor(null, minimum, maximum, 0, Integer.MAX_VALUE, concurrency, partitionNodes, functionCosts, cache) {
 
       @Override
       protected long getFunctionInitId() {
@@ -431,6 +442,91 @@ public class MultipleNodeExecutorTest {
     assertEquals(7, mask);
   }
 
+  private void collectFragments(final GraphFragment<?, ?> fragment, final Set<GraphFragment<?, ?>> fragments) {
+    for (GraphFragment<?, ?> input : fragment.getInputFragments()) {
+      if (fragments.add(input)) {
+        collectFragments(input, fragments);
+      }
+    }
+  }
+
+  /**
+   * Cost model scheduling onto one node - everything in a single job.
+   */
+  public void testCostModel1() {
+    final MultipleNodeExecutor executor = createExecutor(1, Integer.MAX_VALUE, Integer.MAX_VALUE, 1);
+    final GraphFragment<?, ?> root = execute(executor, _testGraph);
+    if (PRINT_GRAPHS) {
+      System.out.println("testCostModel1");
+      executor.printFragment(root);
+    }
+    assertEquals(1, root.getInputFragments().size());
+    final GraphFragment<?, ?> fragment = root.getInputFragments().iterator().next();
+    assertEquals(5, fragment.getNodes().size());
+    assertTrue(fragment.getInputFragments().isEmpty());
+    final CacheSelectHint hint = fragment.getCacheSelectHint();
+    assertTrue(hint.isPrivateValue(_testValue20));
+    assertTrue(hint.isPrivateValue(_testValue21));
+    assertTrue(hint.isPrivateValue(_testValue24));
+    assertTrue(hint.isPrivateValue(_testValue34));
+    assertFalse(hint.isPrivateValue(_testValue0x));
+    assertFalse(hint.isPrivateValue(_testValue1x));
+    assertFalse(hint.isPrivateValue(_testValue4x));
+  }
+
+  /**
+   * Cost model scheduling onto two nodes - N2 and N3 can run in parallel.
+   */
+  public void testCostModel2() {
+    final MultipleNodeExecutor executor = createExecutor(1, Integer.MAX_VALUE, Integer.MAX_VALUE, 2);
+    final GraphFragment<?, ?> root = execute(executor, _testGraph);
+    if (PRINT_GRAPHS) {
+      System.out.println("testCostModel2");
+      executor.printFragment(root);
+    }
+    final Set<GraphFragment<?, ?>> fragments = new HashSet<GraphFragment<?, ?>>();
+    collectFragments(root, fragments);
+    final Set<DependencyNode> nodes = new HashSet<DependencyNode>();
+    GraphFragment<?, ?> n3 = null;
+    for (GraphFragment<?, ?> fragment : fragments) {
+      for (DependencyNode node : fragment.getNodes()) {
+        assertTrue(nodes.add(node));
+      }
+      if (fragment.getNodes().contains(_testNode[3])) {
+        n3 = fragment;
+      }
+    }
+    assertEquals(5, nodes.size());
+    assertFalse(n3.getNodes().contains(_testNode[2]));
+    assertTrue(n3.getInputFragments().isEmpty());
+    // N3 runs as a separate job, so its output has to go through the shared cache to N4
+    assertFalse(n3.getCacheSelectHint().isPrivateValue(_testValue34));
+  }
+
+  /**
+   * A cached plan is used while the function costs are unchanged, and rebuilt once the graph's cost is next estimated
+   * after they change.
+   */
+  public void testPlanRebuiltWhenCostsChange() {
+    final FunctionCosts functionCosts = new FunctionCosts();
+    final ExecutionPlanCache cache = new ExecutionPlanCache(EHCacheUtils.createCacheManager(), 1);
+    cache.clear();
+    final MultipleNodeExecutor executor = createExecutor(5, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, functionCosts, cache);
+    final LinkedBlockingQueue<CalculationJobResult> results = new LinkedBlockingQueue<CalculationJobResult>();
+    executor.execute(_testGraph, results, DiscardingGraphStatisticsGathererProvider.GATHERER_INSTANCE);
+    final ExecutionPlan plan = cache.getCachedPlan(_testGraph, 0);
+    assertNotNull(plan);
+    // Every node starts with a unit cost
+    assertEquals(5L, plan.getInvocationCost());
+    final String functionId = _testNode[0].getFunction().getFunction().getFunctionDefinition().getUniqueId();
+    functionCosts.functionInvoked(_testGraph.getCalculationConfigurationName(), functionId, 1, 1000000d, Double.NaN, Double.NaN);
+    for (int i = 0; i <= MultipleNodeExecutor.COST_ESTIMATE_CYCLES; i++) {
+      executor.execute(_testGraph, results, DiscardingGraphStatisticsGathererProvider.GATHERER_INSTANCE);
+    }
+    assertEquals(5000000L, cache.getCachedPlan(_testGraph, 0).getInvocationCost());
+    cache.clear();
+  }
+
   private void extractColours(final GraphFragment<?, ?> fragment, final Map<Integer, Collection<DependencyNode>> colours) {
     assertTrue(fragment instanceof MutableGraphFragment);
     final int colour = ((MutableGraphFragment) fragment).getExecutionId();
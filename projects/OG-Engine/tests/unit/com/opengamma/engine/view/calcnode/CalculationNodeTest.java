@@ -9,14 +9,36 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.time.Instant;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
 import com.opengamma.engine.test.CalculationNodeUtils;
 import com.opengamma.engine.test.MockFunction;
 import com.opengamma.engine.test.TestCalculationNode;
 import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.id.UniqueId;
 
 /**
  * Tests the {@link AbstractCalculationNode} class. Note the name so that Clover doesn't ignore it.
@@ -61,4 +83,179 @@ public class CalculationNodeTest {
     assertEquals("Nothing we care about", cache.getValue(mockFunction.getResultSpec()));
   }
 
+  private static CalculationJobItem getCalculationJobItem(final MockFunction function) {
+    return new CalculationJobItem(function.getUniqueId(), function.getDefaultParameters(), function.getTarget().toSpecification(), function.getRequirements(),
+        function.getResultRequirements());
+  }
+
+  private void executeDependentJobItems(final boolean prefetch, final ExecutorService executor) {
+    final ComputationTarget target1 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    final ComputationTarget target2 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "GBP");
+    final ComputationTarget target3 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "EUR");
+    final MockFunction function1 = MockFunction.getMockFunction("1", target1, "Result 1", new ValueRequirement("INPUT", target1.toSpecification()));
+    final MockFunction function2 = MockFunction.getMockFunction("2", target2, "Result 2", function1);
+    final MockFunction function3 = MockFunction.getMockFunction("3", target3, "Result 3", new ValueRequirement("INPUT", target3.toSpecification()));
+    final TestCalculationNode calcNode = new TestCalculationNode();
+    final InMemoryFunctionRepository functionRepo = (InMemoryFunctionRepository) calcNode.getFunctionCompilationService().getFunctionRepository();
+    functionRepo.addFunction(function1);
+    functionRepo.addFunction(function2);
+    functionRepo.addFunction(function3);
+    calcNode.getFunctionCompilationService().initialize();
+    calcNode.setPrefetchInputs(prefetch);
+    calcNode.setJobItemExecutor(executor);
+    // The second item consumes the output of the first, the third item is missing its input
+    final CalculationJobItem item1 = getCalculationJobItem(function1);
+    final CalculationJobItem item2 = new CalculationJobItem(function2.getUniqueId(), function2.getDefaultParameters(), target2.toSpecification(), function1.getResultSpecs(),
+        function2.getResultRequirements());
+    final CalculationJobItem item3 = getCalculationJobItem(function3);
+    final CalculationJobSpecification jobSpec = new CalculationJobSpecification(UniqueId.of("Test", "ViewProcess"), CalculationNodeUtils.CALC_CONF_NAME, Instant.now(), 1L);
+    final CalculationJob calcJob = new CalculationJob(jobSpec, 0L, null, Arrays.asList(item2, item3, item1), CacheSelectHint.allShared());
+    final ViewComputationCache cache = calcNode.getCache(jobSpec);
+    cache.putSharedValue(new ComputedValue(function1.getRequirements().iterator().next(), "Input 1"));
+    final CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+    assertNotNull(jobResult);
+    assertEquals(3, jobResult.getResultItems().size());
+    assertEquals(item2, jobResult.getResultItems().get(0).getItem());
+    assertEquals(item3, jobResult.getResultItems().get(1).getItem());
+    assertEquals(item1, jobResult.getResultItems().get(2).getItem());
+    assertEquals(InvocationResult.MISSING_INPUTS, jobResult.getResultItems().get(1).getResult());
+    assertEquals(InvocationResult.SUCCESS, jobResult.getResultItems().get(2).getResult());
+    assertEquals("Result 1", cache.getValue(function1.getResultSpec()));
+    if (executor != null) {
+      // Executed in parallel the dependent item waits for its input to be produced
+      assertEquals(InvocationResult.SUCCESS, jobResult.getResultItems().get(0).getResult());
+      assertEquals("Result 2", cache.getValue(function2.getResultSpec()));
+    } else {
+      // Executed sequentially the dependent item comes before the item producing its input
+      assertEquals(InvocationResult.MISSING_INPUTS, jobResult.getResultItems().get(0).getResult());
+    }
+  }
+
+  public void prefetchInputs() {
+    executeDependentJobItems(true, null);
+  }
+
+  public void parallelJobItems() {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      executeDependentJobItems(false, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void parallelJobItemsWithPrefetch() {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      executeDependentJobItems(true, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private static final ComputationTarget TARGET_1 = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+  private static final ComputationTarget TARGET_2 = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+
+  /**
+   * Executes a job of three items on two targets, each item having its input available.
+   */
+  private CalculationJobResult executeJobResolvingTargets(final RecordingTargetResolver resolver) {
+    final MockFunction function1 = MockFunction.getMockFunction("1", TARGET_1, "Result 1", new ValueRequirement("INPUT", TARGET_1.toSpecification()));
+    final MockFunction function2 = MockFunction.getMockFunction("2", TARGET_1, "Result 2", new ValueRequirement("INPUT", TARGET_1.toSpecification()));
+    final MockFunction function3 = MockFunction.getMockFunction("3", TARGET_2, "Result 3", new ValueRequirement("INPUT", TARGET_2.toSpecification()));
+    final TestCalculationNode calcNode = new TestCalculationNode(resolver);
+    final InMemoryFunctionRepository functionRepo = (InMemoryFunctionRepository) calcNode.getFunctionCompilationService().getFunctionRepository();
+    functionRepo.addFunction(function1);
+    functionRepo.addFunction(function2);
+    functionRepo.addFunction(function3);
+    calcNode.getFunctionCompilationService().initialize();
+    final CalculationJobSpecification jobSpec = new CalculationJobSpecification(UniqueId.of("Test", "ViewProcess"), CalculationNodeUtils.CALC_CONF_NAME, Instant.now(), 1L);
+    final CalculationJob calcJob = new CalculationJob(jobSpec, 0L, null, Arrays.asList(getCalculationJobItem(function1), getCalculationJobItem(function2),
+        getCalculationJobItem(function3)), CacheSelectHint.allShared());
+    final ViewComputationCache cache = calcNode.getCache(jobSpec);
+    cache.putSharedValue(new ComputedValue(function1.getRequirements().iterator().next(), "Input 1"));
+    cache.putSharedValue(new ComputedValue(function2.getRequirements().iterator().next(), "Input 2"));
+    cache.putSharedValue(new ComputedValue(function3.getRequirements().iterator().next(), "Input 3"));
+    final CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+    assertNotNull(jobResult);
+    assertEquals(3, jobResult.getResultItems().size());
+    return jobResult;
+  }
+
+  private static void assertResults(final CalculationJobResult jobResult, final InvocationResult result1, final InvocationResult result2, final InvocationResult result3) {
+    assertEquals(result1, jobResult.getResultItems().get(0).getResult());
+    assertEquals(result2, jobResult.getResultItems().get(1).getResult());
+    assertEquals(result3, jobResult.getResultItems().get(2).getResult());
+  }
+
+  public void targetsResolvedInBulk() {
+    final RecordingTargetResolver resolver = new RecordingTargetResolver();
+    resolver.addTarget(TARGET_1);
+    resolver.addTarget(TARGET_2);
+    final CalculationJobResult jobResult = executeJobResolvingTargets(resolver);
+    assertResults(jobResult, InvocationResult.SUCCESS, InvocationResult.SUCCESS, InvocationResult.SUCCESS);
+    // One request for the distinct targets, and none for the individual items
+    assertEquals(1, resolver._bulkRequests.size());
+    assertEquals(new HashSet<ComputationTargetSpecification>(Arrays.asList(TARGET_1.toSpecification(), TARGET_2.toSpecification())), resolver._bulkRequests.get(0));
+    assertTrue(resolver._singleRequests.isEmpty());
+  }
+
+  public void targetsResolvedSinglyIfBulkFails() {
+    final RecordingTargetResolver resolver = new RecordingTargetResolver();
+    resolver.addTarget(TARGET_1);
+    resolver.addTarget(TARGET_2);
+    resolver._failBulk = true;
+    final CalculationJobResult jobResult = executeJobResolvingTargets(resolver);
+    assertResults(jobResult, InvocationResult.SUCCESS, InvocationResult.SUCCESS, InvocationResult.SUCCESS);
+    assertEquals(1, resolver._bulkRequests.size());
+    assertEquals(Arrays.asList(TARGET_1.toSpecification(), TARGET_1.toSpecification(), TARGET_2.toSpecification()), resolver._singleRequests);
+  }
+
+  public void targetMissingFromBulkResolvedSingly() {
+    final RecordingTargetResolver resolver = new RecordingTargetResolver();
+    resolver.addTarget(TARGET_1);
+    resolver.addTarget(TARGET_2);
+    resolver._omitFromBulk.add(TARGET_2.toSpecification());
+    final CalculationJobResult jobResult = executeJobResolvingTargets(resolver);
+    assertResults(jobResult, InvocationResult.SUCCESS, InvocationResult.SUCCESS, InvocationResult.SUCCESS);
+    assertEquals(1, resolver._bulkRequests.size());
+    assertEquals(Collections.singletonList(TARGET_2.toSpecification()), resolver._singleRequests);
+  }
+
+  public void unresolvedTargetReportedAgainstItem() {
+    final RecordingTargetResolver resolver = new RecordingTargetResolver();
+    resolver.addTarget(TARGET_1);
+    final CalculationJobResult jobResult = executeJobResolvingTargets(resolver);
+    assertResults(jobResult, InvocationResult.SUCCESS, InvocationResult.SUCCESS, InvocationResult.FUNCTION_THREW_EXCEPTION);
+    assertEquals(Collections.singletonList(TARGET_2.toSpecification()), resolver._singleRequests);
+  }
+
+  /**
+   * Resolver recording the requests made to it.
+   */
+  private static final class RecordingTargetResolver extends MapComputationTargetResolver {
+    private final List<Set<ComputationTargetSpecification>> _bulkRequests = new ArrayList<Set<ComputationTargetSpecification>>();
+    private final List<ComputationTargetSpecification> _singleRequests = new ArrayList<ComputationTargetSpecification>();
+    private final Set<ComputationTargetSpecification> _omitFromBulk = new HashSet<ComputationTargetSpecification>();
+    private boolean _failBulk;
+
+    @Override
+    public ComputationTarget resolve(final ComputationTargetSpecification specification) {
+      _singleRequests.add(specification);
+      return super.resolve(specification);
+    }
+
+    @Override
+    public Map<ComputationTargetSpecification, ComputationTarget> resolve(final Collection<ComputationTargetSpecification> specifications) {
+      _bulkRequests.add(new HashSet<ComputationTargetSpecification>(specifications));
+      if (_failBulk) {
+        throw new OpenGammaRuntimeException("Test failure");
+      }
+      final Map<ComputationTargetSpecification, ComputationTarget> result = super.resolve(specifications);
+      result.keySet().removeAll(_omitFromBulk);
+      return result;
+    }
+  }
+
 }
@@ -155,6 +155,33 @@ public class JobDispatcherTest {
     assertNull(node2._callback);
   }
 
+  @Test
+  public void dispatchStatistics() {
+    s_logger.info("dispatchStatistics");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node = new TestJobInvoker("1");
+    jobDispatcher.registerJobInvoker(node);
+    assertEquals(1, jobDispatcher.getIdleInvokerCount());
+    nodeTest("1", jobDispatcher);
+    nodeTest("1", jobDispatcher);
+    assertEquals(2, jobDispatcher.getDispatchedJobCount());
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+    assertEquals(1, jobDispatcher.getIdleInvokerCount());
+    node._disabled = true;
+    final TestJobResultReceiver result = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(createTestJob(), result);
+    assertEquals(1, jobDispatcher.getPendingJobCount());
+    assertEquals(0, jobDispatcher.getIdleInvokerCount());
+    assertNotNull(node._callback);
+    node._disabled = false;
+    jobDispatcher.registerJobInvoker(node);
+    assertNotNull(result.waitForResult(TIMEOUT));
+    assertEquals(3, jobDispatcher.getDispatchedJobCount());
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+    jobDispatcher.resetStatistics();
+    assertEquals(0, jobDispatcher.getDispatchedJobCount());
+  }
+
   @Test
   public void saturateInvokers() {
     s_logger.info("saturateInvokers");
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.view.cache.ViewComputationCacheSource;
+
+/**
+ * Tests {@link LocalCalculationNodeSet}.
+ */
+@Test
+public class LocalCalculationNodeSetTest {
+
+  private LocalCalculationNodeSet createNodeSet(final int jobItemThreads) throws Exception {
+    final LocalCalculationNodeSet nodes = new LocalCalculationNodeSet();
+    nodes.setViewComputationCache(mock(ViewComputationCacheSource.class));
+    nodes.setFunctionCompilationService(mock(CompiledFunctionService.class));
+    nodes.setFunctionExecutionContext(new FunctionExecutionContext());
+    nodes.setComputationTargetResolver(mock(ComputationTargetResolver.class));
+    nodes.setViewProcessorQuery(mock(ViewProcessorQuerySender.class));
+    nodes.setNodeCount(2);
+    nodes.setJobItemThreads(jobItemThreads);
+    nodes.afterPropertiesSet();
+    return nodes;
+  }
+
+  public void testNoJobItemExecutor() throws Exception {
+    final LocalCalculationNodeSet nodes = createNodeSet(0);
+    assertEquals(2, nodes.size());
+    for (LocalCalculationNode node : nodes) {
+      assertNull(node.getJobItemExecutor());
+    }
+    nodes.destroy();
+  }
+
+  public void testJobItemExecutorsShutdownOnDestroy() throws Exception {
+    final LocalCalculationNodeSet nodes = createNodeSet(2);
+    assertEquals(2, nodes.size());
+    for (LocalCalculationNode node : nodes) {
+      assertNotNull(node.getJobItemExecutor());
+      assertFalse(node.getJobItemExecutor().isShutdown());
+    }
+    nodes.destroy();
+    for (LocalCalculationNode node : nodes) {
+      assertTrue(node.getJobItemExecutor().isShutdown());
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.benchmark.BenchmarkRunner;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.NumberDeltaComparer;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Measures {@link ViewDeltaResultCalculator} comparing two large results where a small proportion of the values have
+ * changed.
+ */
+@Test(enabled = false)
+public class ViewDeltaResultCalculatorBenchmark {
+
+  private static final String CALC_CONFIG = "Default";
+  private static final int TARGETS = 10000;
+  private static final int VALUES_PER_TARGET = 10;
+  private static final int CHANGED_EVERY = 50;
+
+  private final ViewDefinition _viewDefinition;
+  private final InMemoryViewComputationResultModel _previousResult;
+  private final InMemoryViewComputationResultModel _result;
+
+  public ViewDeltaResultCalculatorBenchmark() {
+    _viewDefinition = new ViewDefinition("Benchmark", "Test");
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(_viewDefinition, CALC_CONFIG);
+    calcConfig.getDeltaDefinition().setNumberComparer(new NumberDeltaComparer(6));
+    _viewDefinition.addViewCalculationConfiguration(calcConfig);
+    _previousResult = createResult(Instant.ofEpochMillis(0));
+    _result = createResult(Instant.ofEpochMillis(1000));
+    final ValueProperties properties = ValueProperties.with(ValuePropertyNames.FUNCTION, "Benchmark").get();
+    for (int i = 0; i < TARGETS; i++) {
+      final ComputationTargetSpecification target = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Position", Integer.toString(i)));
+      for (int j = 0; j < VALUES_PER_TARGET; j++) {
+        final ValueSpecification specification = new ValueSpecification("Value" + j, target, properties);
+        final double value = i * VALUES_PER_TARGET + j;
+        _previousResult.addValue(CALC_CONFIG, new ComputedValue(specification, value));
+        _result.addValue(CALC_CONFIG, new ComputedValue(specification, ((i + j) % CHANGED_EVERY == 0) ? -value : value));
+      }
+    }
+  }
+
+  private static InMemoryViewComputationResultModel createResult(final Instant time) {
+    final InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+    result.setValuationTime(time);
+    result.setCalculationTime(time);
+    return result;
+  }
+
+  public void computeDeltaModel() {
+    BenchmarkRunner.run("ViewDeltaResultCalculator.computeDeltaModel", TARGETS * VALUES_PER_TARGET, new Runnable() {
+      @Override
+      public void run() {
+        ViewDeltaResultCalculator.computeDeltaModel(_viewDefinition, _previousResult, _result);
+      }
+    });
+  }
+
+  public void computeDeltaModelFirstCycle() {
+    BenchmarkRunner.run("ViewDeltaResultCalculator.computeDeltaModel.noPrevious", TARGETS * VALUES_PER_TARGET, new Runnable() {
+      @Override
+      public void run() {
+        ViewDeltaResultCalculator.computeDeltaModel(_viewDefinition, null, _result);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.io.File;
+
+import javax.time.Instant;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.marketdata.spec.MarketData;
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.engine.test.ViewProcessorTestEnvironment;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Tests {@link FileCompiledViewDefinitionStore}.
+ */
+@Test
+public class FileCompiledViewDefinitionStoreTest {
+
+  private static final UniqueId VIEW_DEFINITION_ID = UniqueId.of("Test", "View", "1");
+  private static final MarketDataSpecification MARKET_DATA = MarketData.live();
+
+  private File _directory;
+
+  @BeforeMethod
+  public void createDirectory() {
+    _directory = new File(System.getProperty("java.io.tmpdir"), "FileCompiledViewDefinitionStoreTest-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void deleteDirectory() {
+    final File[] files = _directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    _directory.delete();
+  }
+
+  private ViewCompilationServices createCompilationServices(final ViewProcessorTestEnvironment env) {
+    return new ViewCompilationServices(env.getMarketDataProvider().getAvailabilityProvider(), env.getFunctionResolver(), env.getFunctionCompilationContext(),
+        env.getCachingComputationTargetResolver(), env.getViewProcessor().getFunctionCompilationService().getExecutorService(), env.getSecuritySource(),
+        env.getPositionSource());
+  }
+
+  public void testStoreAndRestore() {
+    final ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    env.init();
+    final Instant now = Instant.now();
+    final VersionCorrection versionCorrection = VersionCorrection.of(now, now);
+    final CompiledViewDefinitionWithGraphsImpl compiled = env.compileViewDefinition(now, versionCorrection);
+    final CompiledViewDefinitionStore store = new FileCompiledViewDefinitionStore(_directory);
+    assertNull(store.get(VIEW_DEFINITION_ID, MARKET_DATA, versionCorrection));
+    store.put(new StoredCompiledViewDefinition(VIEW_DEFINITION_ID, compiled.getFunctionInitId(), versionCorrection, MARKET_DATA,
+        compiled.getDependencyGraphsByConfiguration()));
+    final StoredCompiledViewDefinition stored = store.get(VIEW_DEFINITION_ID, MARKET_DATA, versionCorrection);
+    assertNotNull(stored);
+    assertEquals(compiled.getFunctionInitId(), stored.getFunctionInitId());
+    assertEquals(MARKET_DATA, stored.getMarketDataSpecification());
+    final CompiledViewDefinitionWithGraphsImpl restored = ViewDefinitionCompiler.restore(env.getViewDefinition(), createCompilationServices(env), now, versionCorrection,
+        env.getViewProcessor().getFunctionCompilationService().compileFunctionRepository(now), stored);
+    assertNotNull(restored);
+    for (DependencyGraph graph : compiled.getAllDependencyGraphs()) {
+      final DependencyGraph restoredGraph = restored.getDependencyGraph(graph.getCalculationConfigurationName());
+      assertEquals(graph.getSize(), restoredGraph.getSize());
+      assertEquals(graph.getTerminalOutputs(), restoredGraph.getTerminalOutputs());
+      // The test view's graphs source their inputs from market data, by a function that is not in the repository
+      assertFalse(restoredGraph.getAllRequiredMarketData().isEmpty());
+      assertEquals(graph.getAllRequiredMarketData(), restoredGraph.getAllRequiredMarketData());
+    }
+    assertEquals(compiled.getMarketDataRequirements(), restored.getMarketDataRequirements());
+  }
+
+  public void testValidity() {
+    final ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    env.init();
+    final Instant now = Instant.now();
+    final VersionCorrection versionCorrection = VersionCorrection.of(now, now);
+    final CompiledViewDefinitionWithGraphsImpl compiled = env.compileViewDefinition(now, versionCorrection);
+    final CompiledViewDefinitionStore store = new FileCompiledViewDefinitionStore(_directory);
+    store.put(new StoredCompiledViewDefinition(VIEW_DEFINITION_ID, compiled.getFunctionInitId(), versionCorrection, MARKET_DATA,
+        compiled.getDependencyGraphsByConfiguration()));
+    final Instant later = now.plusSeconds(60);
+    assertNotNull(store.get(VIEW_DEFINITION_ID, MARKET_DATA, VersionCorrection.of(later, later)));
+    final Instant earlier = now.minusSeconds(60);
+    assertNull(store.get(VIEW_DEFINITION_ID, MARKET_DATA, VersionCorrection.of(earlier, earlier)));
+    assertNull(store.get(UniqueId.of("Test", "View", "2"), MARKET_DATA, versionCorrection));
+    // Graphs built against one source of market data can't be used with another
+    assertNull(store.get(VIEW_DEFINITION_ID, MarketData.live("Other"), versionCorrection));
+    store.remove(VIEW_DEFINITION_ID);
+    assertNull(store.get(VIEW_DEFINITION_ID, MARKET_DATA, versionCorrection));
+  }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.core.security.Security;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.test.MockSecurity;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the graph pruning and portfolio comparison of {@link IncrementalGraphCompiler}.
+ */
+@Test
+public class IncrementalGraphCompilerTest {
+
+  private static final Security SECURITY_1 = new MockSecurity(UniqueId.of("Sec", "1", "V1"), "Security 1", "EQUITY", ExternalIdBundle.EMPTY);
+  private static final Security SECURITY_2 = new MockSecurity(UniqueId.of("Sec", "2", "V1"), "Security 2", "EQUITY", ExternalIdBundle.EMPTY);
+  private static final UniqueId ROOT_ID = UniqueId.of("Node", "Root");
+  private static final UniqueId NODE_ID = UniqueId.of("Node", "A");
+  private static final UniqueId POSITION_1_ID = UniqueId.of("Pos", "1", "V1");
+  private static final UniqueId POSITION_2_ID = UniqueId.of("Pos", "2", "V1");
+
+  private static SimplePosition position(final UniqueId uniqueId, final Security security) {
+    return new SimplePosition(uniqueId, BigDecimal.ONE, security);
+  }
+
+  private static Portfolio portfolio(final SimplePosition... positions) {
+    final SimplePortfolioNode root = new SimplePortfolioNode(ROOT_ID, "Root");
+    final SimplePortfolioNode node = new SimplePortfolioNode(NODE_ID, "A");
+    for (SimplePosition position : positions) {
+      node.addPosition(position);
+    }
+    root.addChildNode(node);
+    return new SimplePortfolio(UniqueId.of("Port", "1"), "Portfolio", root);
+  }
+
+  private static Portfolio basePortfolio() {
+    return portfolio(position(POSITION_1_ID, SECURITY_1), position(POSITION_2_ID, SECURITY_2));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A graph of a security node feeding the position node for position 1, position nodes for both positions feeding an
+   * aggregate on the portfolio node, and an unrelated primitive.
+   */
+  private static final class TestGraph {
+    private final DependencyGraph _graph = new DependencyGraph("Default");
+    private final Set<ValueRequirement> _requirements = new HashSet<ValueRequirement>();
+    private final Portfolio _portfolio = basePortfolio();
+    private final DependencyNode _security1;
+    private final DependencyNode _position1;
+    private final DependencyNode _position2;
+    private final DependencyNode _aggregate;
+    private final DependencyNode _primitive;
+
+    private TestGraph() {
+      final SimplePortfolioNode node = (SimplePortfolioNode) _portfolio.getRootNode().getChildNodes().get(0);
+      _security1 = node(new ComputationTarget(ComputationTargetType.SECURITY, SECURITY_1), false);
+      _position1 = node(new ComputationTarget(ComputationTargetType.POSITION, node.getPositions().get(0)), true, _security1);
+      _position2 = node(new ComputationTarget(ComputationTargetType.POSITION, node.getPositions().get(1)), true);
+      _aggregate = node(new ComputationTarget(ComputationTargetType.PORTFOLIO_NODE, node), true, _position1, _position2);
+      _primitive = node(new ComputationTarget(UniqueId.of("Prim", "1")), true);
+    }
+
+    private DependencyNode node(final ComputationTarget target, final boolean terminal, final DependencyNode... inputs) {
+      final DependencyNode node = new DependencyNode(target);
+      node.setFunction(new MockFunction("Fn", target));
+      final ValueRequirement requirement = new ValueRequirement("Value", target.toSpecification());
+      final ValueSpecification output = new ValueSpecification(requirement, "Fn");
+      node.addOutputValue(output);
+      for (DependencyNode input : inputs) {
+        node.addInputNode(input);
+        node.addInputValue(input.getOutputValues().iterator().next());
+      }
+      _graph.addDependencyNode(node);
+      if (terminal) {
+        _graph.addTerminalOutput(requirement, output);
+        _requirements.add(requirement);
+      }
+      return node;
+    }
+
+    private DependencyGraph getValidSubGraph(final Set<UniqueId> invalidTargets, final Set<ObjectId> changedObjects) {
+      return IncrementalGraphCompiler.getValidSubGraph(_graph, invalidTargets, changedObjects, _requirements);
+    }
+  }
+
+  private static Set<ComputationTarget> targets(final DependencyNode... nodes) {
+    final Set<ComputationTarget> targets = new HashSet<ComputationTarget>();
+    for (DependencyNode node : nodes) {
+      targets.add(node.getComputationTarget());
+    }
+    return targets;
+  }
+
+  //-------------------------------------------------------------------------
+  public void unchangedPortfolio() {
+    assertTrue(IncrementalGraphCompiler.getInvalidPortfolioTargets(basePortfolio(), basePortfolio()).isEmpty());
+  }
+
+  public void noPreviousPortfolio() {
+    assertTrue(IncrementalGraphCompiler.getInvalidPortfolioTargets(null, basePortfolio()).isEmpty());
+  }
+
+  public void positionAdded() {
+    final Portfolio current = portfolio(position(POSITION_1_ID, SECURITY_1), position(POSITION_2_ID, SECURITY_2), position(UniqueId.of("Pos", "3", "V1"), SECURITY_2));
+    // Only the node holding the new position, and no existing position, is affected
+    assertEquals(Collections.singleton(NODE_ID), IncrementalGraphCompiler.getInvalidPortfolioTargets(basePortfolio(), current));
+  }
+
+  public void positionRemoved() {
+    final Portfolio current = portfolio(position(POSITION_1_ID, SECURITY_1));
+    // The security is no longer referenced by any position
+    assertEquals(Sets.newHashSet(NODE_ID, POSITION_2_ID, SECURITY_2.getUniqueId()), IncrementalGraphCompiler.getInvalidPortfolioTargets(basePortfolio(), current));
+  }
+
+  public void positionSecurityChanged() {
+    final Portfolio current = portfolio(position(POSITION_1_ID, SECURITY_2), position(POSITION_2_ID, SECURITY_2));
+    assertEquals(Sets.newHashSet(POSITION_1_ID, SECURITY_1.getUniqueId()), IncrementalGraphCompiler.getInvalidPortfolioTargets(basePortfolio(), current));
+  }
+
+  public void positionVersionChanged() {
+    final Portfolio current = portfolio(position(UniqueId.of("Pos", "1", "V2"), SECURITY_1), position(POSITION_2_ID, SECURITY_2));
+    assertEquals(Sets.newHashSet(NODE_ID, POSITION_1_ID), IncrementalGraphCompiler.getInvalidPortfolioTargets(basePortfolio(), current));
+  }
+
+  //-------------------------------------------------------------------------
+  public void nothingInvalid() {
+    final TestGraph test = new TestGraph();
+    final DependencyGraph subGraph = test.getValidSubGraph(Collections.<UniqueId>emptySet(), Collections.<ObjectId>emptySet());
+    assertEquals(5, subGraph.getSize());
+    assertEquals(test._graph.getTerminalOutputs(), subGraph.getTerminalOutputs());
+    // The sub-graph is a copy, so can be added to without affecting the original
+    for (DependencyNode node : subGraph.getDependencyNodes()) {
+      assertFalse(test._graph.containsNode(node));
+    }
+  }
+
+  public void invalidPositionPrunesDependents() {
+    final TestGraph test = new TestGraph();
+    final DependencyGraph subGraph = test.getValidSubGraph(Collections.singleton(POSITION_1_ID), Collections.<ObjectId>emptySet());
+    // The aggregate depends on the invalid position; the security node was only needed by the invalid position
+    assertEquals(targets(test._position2, test._primitive), subGraph.getAllComputationTargets());
+    assertEquals(2, subGraph.getTerminalOutputs().size());
+    final DependencyNode position2 = subGraph.getNodeProducing(test._position2.getOutputValues().iterator().next());
+    assertNotSame(test._position2, position2);
+    assertTrue(position2.getDependentNodes().isEmpty());
+  }
+
+  public void changedSecurityPrunesPositions() {
+    final TestGraph test = new TestGraph();
+    final DependencyGraph subGraph = test.getValidSubGraph(Collections.<UniqueId>emptySet(), Collections.singleton(SECURITY_1.getUniqueId().getObjectId()));
+    assertEquals(targets(test._position2, test._primitive), subGraph.getAllComputationTargets());
+  }
+
+  public void requirementNoLongerNeeded() {
+    final TestGraph test = new TestGraph();
+    test._requirements.remove(new ValueRequirement("Value", test._aggregate.getComputationTarget().toSpecification()));
+    test._requirements.remove(new ValueRequirement("Value", test._position1.getComputationTarget().toSpecification()));
+    final DependencyGraph subGraph = test.getValidSubGraph(Collections.<UniqueId>emptySet(), Collections.<ObjectId>emptySet());
+    assertEquals(targets(test._position2, test._primitive), subGraph.getAllComputationTargets());
+  }
+
+  public void nothingReusable() {
+    final TestGraph test = new TestGraph();
+    final Set<UniqueId> invalid = Sets.newHashSet(NODE_ID, POSITION_1_ID, POSITION_2_ID, UniqueId.of("Prim", "1"));
+    final DependencyGraph subGraph = test.getValidSubGraph(invalid, Collections.<ObjectId>emptySet());
+    assertEquals(0, subGraph.getSize());
+    assertTrue(subGraph.getTerminalOutputs().isEmpty());
+  }
+
+}
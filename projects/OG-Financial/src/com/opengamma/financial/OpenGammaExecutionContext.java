@@ -13,6 +13,7 @@ import com.opengamma.core.region.RegionSource;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.engine.function.FunctionExecutionContext;
 import com.opengamma.engine.marketdata.OverrideOperationCompiler;
+import com.opengamma.financial.analytics.ircurve.YieldCurveCalibrationCache;
 import com.opengamma.financial.convention.ConventionBundleSource;
 import com.opengamma.master.holiday.HolidayMaster;
 
@@ -56,6 +57,11 @@ public final class OpenGammaExecutionContext {
    */
   public static final String OVERRIDE_OPERATION_COMPILER_NAME = "overrideOperationCompiler";
 
+  /**
+   * The name under which an instance of {@link YieldCurveCalibrationCache} should be bound.
+   */
+  public static final String YIELD_CURVE_CALIBRATION_CACHE_NAME = "yieldCurveCalibrationCache";
+
   /**
    * Restricted constructor.
    */
@@ -217,4 +223,25 @@ public final class OpenGammaExecutionContext {
     context.put(OVERRIDE_OPERATION_COMPILER_NAME, overrideOperationCompiler);
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets a {@code YieldCurveCalibrationCache} from the context.
+   * 
+   * @param context  the context to examine, not null
+   * @return the value, null if not found
+   */
+  public static YieldCurveCalibrationCache getYieldCurveCalibrationCache(final FunctionExecutionContext context) {
+    return (YieldCurveCalibrationCache) context.get(YIELD_CURVE_CALIBRATION_CACHE_NAME);
+  }
+
+  /**
+   * Stores a {@code YieldCurveCalibrationCache} in the context.
+   * 
+   * @param context  the context to store in, not null
+   * @param cache  the value to store, not null
+   */
+  public static void setYieldCurveCalibrationCache(final FunctionExecutionContext context, final YieldCurveCalibrationCache cache) {
+    context.put(YIELD_CURVE_CALIBRATION_CACHE_NAME, cache);
+  }
+
 }
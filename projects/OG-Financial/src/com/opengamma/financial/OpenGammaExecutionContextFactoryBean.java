@@ -15,6 +15,7 @@ import com.opengamma.core.security.SecuritySource;
 import com.opengamma.engine.function.FunctionExecutionContext;
 import com.opengamma.engine.function.PortfolioStructure;
 import com.opengamma.engine.marketdata.OverrideOperationCompiler;
+import com.opengamma.financial.analytics.ircurve.YieldCurveCalibrationCache;
 import com.opengamma.financial.convention.ConventionBundleSource;
 import com.opengamma.util.SingletonFactoryBean;
 
@@ -119,6 +120,7 @@ public class OpenGammaExecutionContextFactoryBean extends SingletonFactoryBean<F
     if (_overrideOperationCompiler != null) {
       OpenGammaExecutionContext.setOverrideOperationCompiler(context, _overrideOperationCompiler);
     }
+    OpenGammaExecutionContext.setYieldCurveCalibrationCache(context, new YieldCurveCalibrationCache());
     return context;
   }
 
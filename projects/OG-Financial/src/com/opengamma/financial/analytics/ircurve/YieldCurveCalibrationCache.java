@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.analytics.ircurve;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Keeps the result of the last calibration of each curve (or set of curves calibrated together) so the next calibration can be
+ * warm-started from it. In live mode consecutive cycles differ by a few basis points, so the previous node values and the previous
+ * estimate of the inverse Jacobian are usually close enough for the root finder to converge in a couple of iterations without
+ * recalculating or decomposing the Jacobian.
+ * <p>
+ * The cache also counts the calibrations and their iterations, as a measure of how well the warm start is working. The counters are
+ * published over JMX by {@link com.opengamma.financial.analytics.ircurve.jmx.YieldCurveCalibration}.
+ * <p>
+ * This class is thread-safe. The cache is held in the function execution context.
+ */
+public class YieldCurveCalibrationCache {
+
+  /**
+   * The state kept for one calibration.
+   */
+  public static final class Entry {
+    private final double[] _nodeValues;
+    private final DoubleMatrix2D _inverseJacobian;
+    private final int _warmStarts;
+
+    private Entry(final double[] nodeValues, final DoubleMatrix2D inverseJacobian, final int warmStarts) {
+      _nodeValues = nodeValues;
+      _inverseJacobian = inverseJacobian;
+      _warmStarts = warmStarts;
+    }
+
+    /**
+     * Gets the solved node values.
+     * @return the node values, not null
+     */
+    public double[] getNodeValues() {
+      return _nodeValues.clone();
+    }
+
+    /**
+     * Gets the estimate of the inverse Jacobian at the solved node values.
+     * @return the inverse Jacobian, null if not known
+     */
+    public DoubleMatrix2D getInverseJacobian() {
+      return _inverseJacobian;
+    }
+
+    /**
+     * Gets the number of consecutive warm-started calibrations that led to this entry.
+     * Each one updates the inverse Jacobian from the previous one, so the estimate should be recalculated after a number of them.
+     * @return the number of warm starts since the inverse Jacobian was last calculated
+     */
+    public int getWarmStarts() {
+      return _warmStarts;
+    }
+
+    /**
+     * Gets the number of nodes.
+     * @return the number of nodes
+     */
+    public int getSize() {
+      return _nodeValues.length;
+    }
+
+  }
+
+  private final ConcurrentMap<Object, Entry> _entries = new ConcurrentHashMap<Object, Entry>();
+  private final AtomicLong _calibrations = new AtomicLong();
+  private final AtomicLong _warmCalibrations = new AtomicLong();
+  private final AtomicLong _iterations = new AtomicLong();
+  private final AtomicLong _warmIterations = new AtomicLong();
+
+  /**
+   * Gets the result of the last calibration.
+   *
+   * @param key  the key identifying the curve specification and calculation method, not null
+   * @return the entry, null if none
+   */
+  public Entry get(final Object key) {
+    ArgumentChecker.notNull(key, "key");
+    return _entries.get(key);
+  }
+
+  /**
+   * Stores the result of a calibration.
+   *
+   * @param key  the key identifying the curve specification and calculation method, not null
+   * @param nodeValues  the solved node values, not null
+   * @param inverseJacobian  the estimate of the inverse Jacobian at the solved node values, null if not known
+   * @param warmStarts  the number of consecutive warm starts since the inverse Jacobian was last calculated
+   */
+  public void put(final Object key, final double[] nodeValues, final DoubleMatrix2D inverseJacobian, final int warmStarts) {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(nodeValues, "nodeValues");
+    _entries.put(key, new Entry(nodeValues.clone(), inverseJacobian, warmStarts));
+  }
+
+  /**
+   * Removes the result of a calibration, for example after it failed to give a usable starting point.
+   *
+   * @param key  the key identifying the curve specification and calculation method, not null
+   */
+  public void remove(final Object key) {
+    ArgumentChecker.notNull(key, "key");
+    _entries.remove(key);
+  }
+
+  /**
+   * Records a calibration.
+   *
+   * @param warmStart  true if the calibration was warm-started from a previous one
+   * @param iterations  the number of iterations of the root finder
+   */
+  public void recordCalibration(final boolean warmStart, final int iterations) {
+    _calibrations.incrementAndGet();
+    if (warmStart) {
+      _warmCalibrations.incrementAndGet();
+      _warmIterations.addAndGet(iterations);
+    }
+    _iterations.addAndGet(iterations);
+  }
+
+  /**
+   * Resets the counters. The stored calibrations are kept.
+   */
+  public void resetCounters() {
+    _calibrations.set(0);
+    _warmCalibrations.set(0);
+    _iterations.set(0);
+    _warmIterations.set(0);
+  }
+
+  /**
+   * Gets the number of stored calibrations.
+   * @return the number of entries
+   */
+  public int getEntryCount() {
+    return _entries.size();
+  }
+
+  /**
+   * Gets the number of calibrations recorded.
+   * @return the number of calibrations
+   */
+  public long getCalibrationCount() {
+    return _calibrations.get();
+  }
+
+  /**
+   * Gets the number of warm-started calibrations recorded.
+   * @return the number of warm-started calibrations
+   */
+  public long getWarmStartCount() {
+    return _warmCalibrations.get();
+  }
+
+  /**
+   * Gets the total number of root finder iterations recorded.
+   * @return the number of iterations
+   */
+  public long getIterationCount() {
+    return _iterations.get();
+  }
+
+  /**
+   * Gets the total number of root finder iterations recorded by warm-started calibrations.
+   * @return the number of iterations
+   */
+  public long getWarmStartIterationCount() {
+    return _warmIterations.get();
+  }
+
+}
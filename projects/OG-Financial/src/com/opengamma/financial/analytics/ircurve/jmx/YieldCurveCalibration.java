@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.analytics.ircurve.jmx;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.financial.OpenGammaExecutionContext;
+import com.opengamma.financial.analytics.ircurve.YieldCurveCalibrationCache;
+
+/**
+ * YieldCurveCalibrationMBean implementation.
+ */
+public final class YieldCurveCalibration implements YieldCurveCalibrationMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(YieldCurveCalibration.class);
+
+  private final YieldCurveCalibrationCache _underlying;
+
+  private YieldCurveCalibration(final YieldCurveCalibrationCache underlying) {
+    _underlying = underlying;
+  }
+
+  private YieldCurveCalibrationCache getUnderlying() {
+    return _underlying;
+  }
+
+  public static void registerMBeans(final FunctionExecutionContext context, final MBeanServer server) throws JMException {
+    final YieldCurveCalibrationCache cache = OpenGammaExecutionContext.getYieldCurveCalibrationCache(context);
+    if (cache == null) {
+      s_logger.info("No yield curve calibration cache in {}", context);
+      return;
+    }
+    final ObjectName name = new ObjectName("com.opengamma:type=YieldCurveCalibration,name=" + cache.toString());
+    final YieldCurveCalibration instance = new YieldCurveCalibration(cache);
+    try {
+      server.registerMBean(instance, name);
+    } catch (InstanceAlreadyExistsException e) {
+      s_logger.warn("JMX MBean {} already exists - replacing", name);
+      server.unregisterMBean(name);
+      server.registerMBean(instance, name);
+    }
+  }
+
+  @Override
+  public int getEntryCount() {
+    return getUnderlying().getEntryCount();
+  }
+
+  @Override
+  public long getCalibrationCount() {
+    return getUnderlying().getCalibrationCount();
+  }
+
+  @Override
+  public long getWarmStartCount() {
+    return getUnderlying().getWarmStartCount();
+  }
+
+  @Override
+  public long getIterationCount() {
+    return getUnderlying().getIterationCount();
+  }
+
+  @Override
+  public long getWarmStartIterationCount() {
+    return getUnderlying().getWarmStartIterationCount();
+  }
+
+  @Override
+  public double getMeanColdStartIterations() {
+    final long calibrations = getUnderlying().getCalibrationCount() - getUnderlying().getWarmStartCount();
+    if (calibrations <= 0) {
+      return 0;
+    }
+    return (double) (getUnderlying().getIterationCount() - getUnderlying().getWarmStartIterationCount()) / (double) calibrations;
+  }
+
+  @Override
+  public double getMeanWarmStartIterations() {
+    final long calibrations = getUnderlying().getWarmStartCount();
+    if (calibrations <= 0) {
+      return 0;
+    }
+    return (double) getUnderlying().getWarmStartIterationCount() / (double) calibrations;
+  }
+
+  @Override
+  public void resetCounters() {
+    getUnderlying().resetCounters();
+  }
+
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.analytics.ircurve.jmx;
+
+/**
+ * JMX MBean interface for the yield curve calibration counters.
+ */
+public interface YieldCurveCalibrationMBean {
+
+  int getEntryCount();
+  long getCalibrationCount();
+  long getWarmStartCount();
+  long getIterationCount();
+  long getWarmStartIterationCount();
+  double getMeanColdStartIterations();
+  double getMeanWarmStartIterations();
+  void resetCounters();
+
+}
@@ -45,6 +45,7 @@ import com.opengamma.financial.analytics.conversion.InterestRateInstrumentTradeO
 import com.opengamma.financial.analytics.fixedincome.FixedIncomeInstrumentCurveExposureHelper;
 import com.opengamma.financial.analytics.ircurve.FixedIncomeStripWithSecurity;
 import com.opengamma.financial.analytics.ircurve.InterpolatedYieldCurveSpecificationWithSecurities;
+import com.opengamma.financial.analytics.ircurve.YieldCurveCalibrationCache;
 import com.opengamma.financial.analytics.ircurve.YieldCurveFunction;
 import com.opengamma.financial.analytics.ircurve.YieldCurveFunctionHelper;
 import com.opengamma.financial.convention.ConventionBundleSource;
@@ -52,6 +53,7 @@ import com.opengamma.financial.instrument.InstrumentDefinition;
 import com.opengamma.financial.interestrate.InstrumentDerivative;
 import com.opengamma.financial.interestrate.InstrumentDerivativeVisitor;
 import com.opengamma.financial.interestrate.LastTimeCalculator;
+import com.opengamma.financial.interestrate.MultipleYieldCurveFinderBlockSolver;
 import com.opengamma.financial.interestrate.MultipleYieldCurveFinderDataBundle;
 import com.opengamma.financial.interestrate.MultipleYieldCurveFinderFunction;
 import com.opengamma.financial.interestrate.MultipleYieldCurveFinderJacobian;
@@ -75,7 +77,9 @@ import com.opengamma.math.linearalgebra.DecompositionFactory;
 import com.opengamma.math.matrix.DoubleMatrix1D;
 import com.opengamma.math.matrix.DoubleMatrix2D;
 import com.opengamma.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.math.rootfinding.newton.NewtonRootFinderResult;
 import com.opengamma.math.rootfinding.newton.NewtonVectorRootFinder;
+import com.opengamma.math.rootfinding.newton.ShermanMorrisonVectorRootFinder;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.tuple.DoublesPair;
 
@@ -92,6 +96,8 @@ public class MarketInstrumentImpliedYieldCurveFunction extends AbstractFunction.
   private static final String REQUIREMENT_PROPERTY_TYPE = ValuePropertyNames.OUTPUT_RESERVED_PREFIX + RESULT_PROPERTY_TYPE;
   private static final String TYPE_FORWARD = "Forward";
   private static final String TYPE_FUNDING = "Funding";
+  /** The number of consecutive warm starts after which the inverse Jacobian is recalculated rather than carried over */
+  /* package */ static final int MAX_WARM_STARTS = 20;
 
   /** Label setting this function to use the par rate of the instruments in root-finding */
   public static final String PAR_RATE_STRING = "ParRate";
@@ -358,6 +364,66 @@ public class MarketInstrumentImpliedYieldCurveFunction extends AbstractFunction.
     }
   }
 
+  /**
+   * Gets the key under which the last calibration of a curve, or of a set of curves calibrated together, is kept.
+   * 
+   * @param targetSpec  the target of the curve specifications
+   * @param curveNames  the names of the curves, in the order of the node values
+   * @return the key
+   */
+  private Object getCalibrationKey(final ComputationTargetSpecification targetSpec, final String... curveNames) {
+    return Arrays.<Object>asList(getCalculationType(), targetSpec, Arrays.asList(curveNames));
+  }
+
+  /**
+   * Calibrates the curves starting from the last calibration of the same curve specifications, if there is one. The root finder starts from the
+   * previous node values and from the inverse Jacobian estimate of the previous calibration, so neither the Jacobian nor its decomposition is
+   * calculated unless the estimate has been carried over too many times or the root finder needs to recover.
+   * 
+   * @param cache  the calibration cache, null if warm starts are not available
+   * @param key  the key of the curve specifications
+   * @param curveCalculator  the function to find the root of
+   * @param jacobianCalculator  the analytic Jacobian of the function
+   * @param n  the number of nodes
+   * @param tolerance  the absolute and relative tolerance of the root finder
+   * @param maxSteps  the maximum number of steps of the root finder
+   * @param decompositionName  the decomposition used when the Jacobian needs to be inverted
+   * @return the node values, null if there is no previous calibration or the root finder did not converge from it
+   */
+  /* package */ static double[] calibrateFromPrevious(final YieldCurveCalibrationCache cache, final Object key, final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator,
+      final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator, final int n, final double tolerance, final int maxSteps, final String decompositionName) {
+    if (cache == null) {
+      return null;
+    }
+    final YieldCurveCalibrationCache.Entry previous = cache.get(key);
+    if (previous == null || previous.getSize() != n) {
+      return null;
+    }
+    final boolean recalculate = previous.getInverseJacobian() == null || previous.getWarmStarts() >= MAX_WARM_STARTS;
+    try {
+      final NewtonVectorRootFinder rootFinder = new ShermanMorrisonVectorRootFinder(tolerance, tolerance, maxSteps, DecompositionFactory.getDecomposition(decompositionName));
+      final NewtonRootFinderResult result = rootFinder.findRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(previous.getNodeValues()),
+          recalculate ? null : previous.getInverseJacobian());
+      final double[] yields = result.getRoot().getData();
+      cache.put(key, yields, result.getMatrix(), recalculate ? 0 : previous.getWarmStarts() + 1);
+      cache.recordCalibration(true, result.getIterations());
+      s_logger.debug("Calibrated {} from the previous result in {} iterations", key, result.getIterations());
+      return yields;
+    } catch (final Exception e) {
+      s_logger.info("Could not calibrate {} from the previous result; starting from the initial guess. Error was: {}", key, e.getMessage());
+      cache.remove(key);
+      return null;
+    }
+  }
+
+  /* package */ static void storeCalibration(final YieldCurveCalibrationCache cache, final Object key, final NewtonRootFinderResult result, final DoubleMatrix2D inverseJacobian) {
+    s_logger.debug("Calibrated {} in {} iterations", key, result.getIterations());
+    if (cache != null) {
+      cache.put(key, result.getRoot().getData(), inverseJacobian, 0);
+      cache.recordCalibration(false, result.getIterations());
+    }
+  }
+
   private static Interpolator1D getInterpolator(final InterpolatedYieldCurveSpecificationWithSecurities specification) {
     return new CombinedInterpolatorExtrapolator(specification.getInterpolator(), new FlatExtrapolator1D(), new FlatExtrapolator1D());
   }
@@ -408,22 +474,29 @@ public class MarketInstrumentImpliedYieldCurveFunction extends AbstractFunction.
     final MultipleYieldCurveFinderDataBundle data = new MultipleYieldCurveFinderDataBundle(derivatives, marketValues, null, curveNodes, interpolators, false);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MultipleYieldCurveFinderFunction(data, getCalculator());
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MultipleYieldCurveFinderJacobian(data, getSensitivityCalculator());
-    NewtonVectorRootFinder rootFinder;
-    double[] yields = null;
-    try {
-      // TODO have the decomposition as an optional input [FIN-146]
-      rootFinder = new BroydenVectorRootFinder(1e-7, 1e-7, 100, DecompositionFactory.getDecomposition(DecompositionFactory.LU_COMMONS_NAME));
-      final DoubleMatrix1D result = rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initialRatesGuess));
-      yields = result.getData();
-    } catch (final Exception eLU) {
+    final YieldCurveCalibrationCache cache = OpenGammaExecutionContext.getYieldCurveCalibrationCache(executionContext);
+    final Object calibrationKey = getCalibrationKey(targetSpec, curveName);
+    double[] yields = calibrateFromPrevious(cache, calibrationKey, curveCalculator, jacobianCalculator, n, 1e-7, 100, DecompositionFactory.LU_COMMONS_NAME);
+    if (yields == null) {
+      NewtonVectorRootFinder rootFinder;
+      NewtonRootFinderResult rootResult;
       try {
-        s_logger.warn("Could not find root using LU decomposition and present value method for curve " + curveName + "; trying SV. Error was: " + eLU.getMessage());
-        rootFinder = new BroydenVectorRootFinder(1e-7, 1e-7, 100, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COMMONS_NAME));
-        yields = rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initialRatesGuess)).getData();
-      } catch (final Exception eSV) {
-        s_logger.warn("Could not find root using SV decomposition and present value method for curve " + curveName + ". Error was: " + eSV.getMessage());
-        throw new OpenGammaRuntimeException(eSV.getMessage());
+        // TODO have the decomposition as an optional input [FIN-146]
+        rootFinder = new BroydenVectorRootFinder(1e-7, 1e-7, 100, DecompositionFactory.getDecomposition(DecompositionFactory.LU_COMMONS_NAME));
+        rootResult = rootFinder.findRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initialRatesGuess), null);
+      } catch (final Exception eLU) {
+        try {
+          s_logger.warn("Could not find root using LU decomposition and present value method for curve " + curveName + "; trying SV. Error was: " + eLU.getMessage());
+          rootFinder = new BroydenVectorRootFinder(1e-7, 1e-7, 100, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COMMONS_NAME));
+          rootResult = rootFinder.findRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initialRatesGuess), null);
+        } catch (final Exception eSV) {
+          s_logger.warn("Could not find root using SV decomposition and present value method for curve " + curveName + ". Error was: " + eSV.getMessage());
+          throw new OpenGammaRuntimeException(eSV.getMessage());
+        }
       }
+      yields = rootResult.getRoot().getData();
+      // the matrix of the Broyden root finder is the Jacobian, not its inverse, so the next calibration will recalculate it
+      storeCalibration(cache, calibrationKey, rootResult, null);
     }
     final YieldAndDiscountCurve curve;
     if (createSensitivities || createYieldCurve) {
@@ -542,16 +615,26 @@ public class MarketInstrumentImpliedYieldCurveFunction extends AbstractFunction.
     // TODO have the calculator and sensitivity calculators as an input [FIN-144], [FIN-145]
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MultipleYieldCurveFinderFunction(data, getCalculator());
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MultipleYieldCurveFinderJacobian(data, getSensitivityCalculator());
-    NewtonVectorRootFinder rootFinder;
-    double[] yields = null;
-    // TODO have the decomposition as an optional input [FIN-146]
-    try {
-      rootFinder = new BroydenVectorRootFinder(1e-4, 1e-4, 10000, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
-      yields = rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initialRatesGuess)).getData();
-    } catch (final Exception eSV) {
-      s_logger.warn("Could not find root using SV decomposition and " + _calculationType + " method for curves " + fundingCurveName + " and " + forwardCurveName + ". Error was: " + eSV.getMessage());
-      throw new OpenGammaRuntimeException("Could not find curves " + fundingCurveName + " (" + targetSpec.getUniqueId().getValue() + "), " + forwardCurveName + " ("
-          + targetSpec.getUniqueId().getValue() + ") using SV decomposition and calculation method " + _calculationType);
+    final YieldCurveCalibrationCache cache = OpenGammaExecutionContext.getYieldCurveCalibrationCache(executionContext);
+    final Object calibrationKey = getCalibrationKey(targetSpec, fundingCurveName, forwardCurveName);
+    double[] yields = calibrateFromPrevious(cache, calibrationKey, curveCalculator, jacobianCalculator, nFunding + nForward, 1e-4, 10000, DecompositionFactory.SV_COLT_NAME);
+    if (yields == null) {
+      NewtonVectorRootFinder rootFinder;
+      NewtonRootFinderResult rootResult;
+      // TODO have the decomposition as an optional input [FIN-146]
+      try {
+        // the funding curve is usually independent of the forward curve, in which case it is solved on its own first
+        rootFinder = new BroydenVectorRootFinder(1e-4, 1e-4, 10000, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
+        rootResult = new MultipleYieldCurveFinderBlockSolver(data, getCalculator(), getSensitivityCalculator(), rootFinder,
+            DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME)).solve(new DoubleMatrix1D(initialRatesGuess));
+      } catch (final Exception eSV) {
+        s_logger.warn("Could not find root using SV decomposition and " + _calculationType + " method for curves " + fundingCurveName + " and " + forwardCurveName + ". Error was: "
+            + eSV.getMessage());
+        throw new OpenGammaRuntimeException("Could not find curves " + fundingCurveName + " (" + targetSpec.getUniqueId().getValue() + "), " + forwardCurveName + " ("
+            + targetSpec.getUniqueId().getValue() + ") using SV decomposition and calculation method " + _calculationType);
+      }
+      yields = rootResult.getRoot().getData();
+      storeCalibration(cache, calibrationKey, rootResult, rootResult.getMatrix());
     }
     final YieldAndDiscountCurve fundingCurve;
     if (createSensitivities || createFundingYieldCurve) {
@@ -49,6 +49,7 @@ import com.opengamma.transport.jaxrs.RestClient;
 import com.opengamma.transport.jaxrs.RestRuntimeException;
 import com.opengamma.transport.jaxrs.RestTarget;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.fudge.CompressedTimeSeriesEncoding;
 import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.tuple.ObjectsPair;
 import com.opengamma.util.tuple.Pair;
@@ -74,9 +75,25 @@ public class RemoteHistoricalTimeSeriesSource implements HistoricalTimeSeriesSou
    * @param baseTarget  the base target URI to call, not null
    */
   public RemoteHistoricalTimeSeriesSource(final FudgeContext fudgeContext, final RestTarget baseTarget) {
+    this(fudgeContext, baseTarget, false);
+  }
+
+  /**
+   * Creates an instance.
+   * <p>
+   * A client asking for compressed time series still reads the plain format, so it can talk to servers that do not support it.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   * @param baseTarget  the base target URI to call, not null
+   * @param compressTimeSeries  true to ask the server for the compressed time series encoding
+   */
+  public RemoteHistoricalTimeSeriesSource(final FudgeContext fudgeContext, final RestTarget baseTarget, final boolean compressTimeSeries) {
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     ArgumentChecker.notNull(baseTarget, "baseTarget");
     _restClient = RestClient.getInstance(fudgeContext, null);
+    if (compressTimeSeries) {
+      _restClient.addRequestHeader(CompressedTimeSeriesEncoding.HEADER_NAME, CompressedTimeSeriesEncoding.HEADER_VALUE);
+    }
     _targetBase = baseTarget;
   }
 
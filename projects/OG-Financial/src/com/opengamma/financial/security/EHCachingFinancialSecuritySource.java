@@ -166,6 +166,42 @@ public class EHCachingFinancialSecuritySource extends AbstractSecuritySource imp
     return result;
   }
 
+  /**
+   * Gets the securities for a collection of unique identifiers.
+   * <p>
+   * The cached securities are returned directly and the rest are fetched from the
+   * underlying source in a single call, rather than one call per identifier.
+   * 
+   * @param uniqueIds  the unique identifiers, not null
+   * @return the securities found, keyed by unique identifier, not null
+   */
+  @Override
+  public Map<UniqueId, Security> getSecurity(Collection<UniqueId> uniqueIds) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    Map<UniqueId, Security> result = new HashMap<UniqueId, Security>(uniqueIds.size());
+    Collection<UniqueId> misses = new HashSet<UniqueId>();
+    for (UniqueId uid : uniqueIds) {
+      Element e = _uidCache.get(uid);
+      if (e != null) {
+        Serializable value = e.getValue();
+        if (value instanceof Security) {
+          result.put(uid, (Security) value);
+        }
+      } else {
+        misses.add(uid);
+      }
+    }
+    if (!misses.isEmpty()) {
+      s_logger.debug("fetching {} of {} securities from the underlying source", misses.size(), uniqueIds.size());
+      Map<UniqueId, Security> fetched = getUnderlying().getSecurity(misses);
+      for (Map.Entry<UniqueId, Security> entry : fetched.entrySet()) {
+        _uidCache.put(new Element(entry.getKey(), entry.getValue()));
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("unchecked")
   private Map<VersionCorrection, Security> getObjectIdCacheEntry(final ObjectId objectId) {
     final Element e = _uidCache.get(objectId);
@@ -194,7 +194,13 @@ public class RemoteFinancialSecuritySource implements FinancialSecuritySource {
   @Override
   public Map<UniqueId, Security> getSecurity(Collection<UniqueId> uniqueIds) {
     ArgumentChecker.notNull(uniqueIds, "uniqueIds");
-    List<String> uniqueIdStr = Lists.newArrayList();
+    if (uniqueIds.isEmpty()) {
+      return Maps.newHashMap();
+    }
+    List<String> uniqueIdStr = Lists.newArrayListWithCapacity(uniqueIds.size());
+    for (UniqueId uniqueId : uniqueIds) {
+      uniqueIdStr.add(uniqueId.toString());
+    }
     
     final RestTarget target = _targetBase.resolveBase("securities").resolve("uid")
         .resolveQuery("uids", uniqueIdStr);
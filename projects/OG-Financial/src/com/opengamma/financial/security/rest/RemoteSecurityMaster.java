@@ -10,7 +10,9 @@ import static com.opengamma.financial.security.rest.SecurityMasterServiceNames.S
 import static com.opengamma.financial.security.rest.SecurityMasterServiceNames.SECURITYMASTER_SEARCH;
 import static com.opengamma.financial.security.rest.SecurityMasterServiceNames.SECURITYMASTER_SECURITY;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
@@ -228,6 +230,26 @@ public class RemoteSecurityMaster implements SecurityMaster {
     return document;
   }
 
+  @Override
+  public List<SecurityDocument> addAll(final List<SecurityDocument> documents) {
+    // this protocol has no bulk operation
+    final List<SecurityDocument> result = new ArrayList<SecurityDocument>(documents.size());
+    for (SecurityDocument document : documents) {
+      result.add(add(document));
+    }
+    return result;
+  }
+
+  @Override
+  public List<SecurityDocument> updateAll(final List<SecurityDocument> documents) {
+    // this protocol has no bulk operation
+    final List<SecurityDocument> result = new ArrayList<SecurityDocument>(documents.size());
+    for (SecurityDocument document : documents) {
+      result.add(update(document));
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public ChangeManager changeManager() {
@@ -5,6 +5,8 @@
  */
 package com.opengamma.financial.user;
 
+import java.util.List;
+
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
@@ -67,6 +69,22 @@ public class UserSecurityMaster implements SecurityMaster {
     return _underlying.update(document);
   }
 
+  @Override
+  public List<SecurityDocument> addAll(List<SecurityDocument> documents) {
+    final List<SecurityDocument> result = _underlying.addAll(documents);
+    for (SecurityDocument document : result) {
+      if (document.getUniqueId() != null) {
+        _tracker.created(document.getUniqueId());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public List<SecurityDocument> updateAll(List<SecurityDocument> documents) {
+    return _underlying.updateAll(documents);
+  }
+
   @Override
   public void remove(UniqueId uniqueId) {
     _underlying.remove(uniqueId);
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.financial.analytics.model.ircurve;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.financial.analytics.ircurve.YieldCurveCalibrationCache;
+import com.opengamma.math.function.Function1D;
+import com.opengamma.math.linearalgebra.DecompositionFactory;
+import com.opengamma.math.matrix.DoubleMatrix1D;
+import com.opengamma.math.matrix.DoubleMatrix2D;
+import com.opengamma.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.math.rootfinding.newton.NewtonRootFinderResult;
+
+/**
+ * Tests the warm-started calibration of {@link MarketInstrumentImpliedYieldCurveFunction}.
+ * <p>
+ * The curve is replaced by a small non-linear system with an analytic Jacobian, which is all the calibration sees of it.
+ */
+@Test
+public class MarketInstrumentImpliedYieldCurveFunctionCalibrationTest {
+
+  private static final int N = 5;
+  private static final double TOLERANCE = 1e-7;
+  private static final String KEY = "Curve";
+
+  private static double[] targets(final double shift) {
+    final double[] b = new double[N];
+    for (int i = 0; i < N; i++) {
+      b[i] = 1.0 + 0.2 * i + shift;
+    }
+    return b;
+  }
+
+  private static Function1D<DoubleMatrix1D, DoubleMatrix1D> function(final double[] b) {
+    return new Function1D<DoubleMatrix1D, DoubleMatrix1D>() {
+      @Override
+      public DoubleMatrix1D evaluate(final DoubleMatrix1D x) {
+        final double[] xs = x.getData();
+        final double[] y = new double[N];
+        for (int i = 0; i < N; i++) {
+          y[i] = 2.0 * xs[i] + 0.5 * xs[i] * xs[i] * xs[i] - b[i];
+          if (i > 0) {
+            y[i] -= 0.5 * xs[i - 1];
+          }
+          if (i < N - 1) {
+            y[i] -= 0.5 * xs[i + 1];
+          }
+        }
+        return new DoubleMatrix1D(y);
+      }
+    };
+  }
+
+  private static Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobian() {
+    return new Function1D<DoubleMatrix1D, DoubleMatrix2D>() {
+      @Override
+      public DoubleMatrix2D evaluate(final DoubleMatrix1D x) {
+        final double[] xs = x.getData();
+        final double[][] j = new double[N][N];
+        for (int i = 0; i < N; i++) {
+          j[i][i] = 2.0 + 1.5 * xs[i] * xs[i];
+          if (i > 0) {
+            j[i][i - 1] = -0.5;
+          }
+          if (i < N - 1) {
+            j[i][i + 1] = -0.5;
+          }
+        }
+        return new DoubleMatrix2D(j);
+      }
+    };
+  }
+
+  private static NewtonRootFinderResult calibrateCold(final double[] b) {
+    final double[] initialGuess = new double[N];
+    Arrays.fill(initialGuess, 0.01);
+    return new BroydenVectorRootFinder(TOLERANCE, TOLERANCE, 100, DecompositionFactory.getDecomposition(DecompositionFactory.LU_COMMONS_NAME)).findRoot(function(b),
+        jacobian(), new DoubleMatrix1D(initialGuess), null);
+  }
+
+  private static double[] calibrateWarm(final YieldCurveCalibrationCache cache, final double[] b) {
+    return MarketInstrumentImpliedYieldCurveFunction.calibrateFromPrevious(cache, KEY, function(b), jacobian(), N, TOLERANCE, 100, DecompositionFactory.LU_COMMONS_NAME);
+  }
+
+  private static void assertRoot(final double[] expected, final double[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], 1e-6);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  public void testNoPreviousCalibration() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    assertNull(calibrateWarm(cache, targets(0)));
+    assertNull(calibrateWarm(null, targets(0)));
+    assertEquals(0, cache.getCalibrationCount());
+  }
+
+  public void testWarmStartConvergesToSameCurveInFewerIterations() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    final NewtonRootFinderResult first = calibrateCold(targets(0));
+    MarketInstrumentImpliedYieldCurveFunction.storeCalibration(cache, KEY, first, null);
+    assertEquals(1, cache.getCalibrationCount());
+    assertEquals(0, cache.getWarmStartCount());
+    // The next cycle's market data has moved by a basis point
+    final double[] shifted = targets(1e-4);
+    final NewtonRootFinderResult cold = calibrateCold(shifted);
+    final double[] warm = calibrateWarm(cache, shifted);
+    assertNotNull(warm);
+    assertRoot(cold.getRoot().getData(), warm);
+    assertEquals(2, cache.getCalibrationCount());
+    assertEquals(1, cache.getWarmStartCount());
+    assertTrue(cache.getWarmStartIterationCount() < cold.getIterations());
+    assertEquals(cache.getIterationCount(), first.getIterations() + cache.getWarmStartIterationCount());
+    // No inverse Jacobian was stored by the cold calibration, so the warm start calculated one to carry over
+    YieldCurveCalibrationCache.Entry entry = cache.get(KEY);
+    assertRoot(warm, entry.getNodeValues());
+    assertNotNull(entry.getInverseJacobian());
+    assertEquals(0, entry.getWarmStarts());
+    // The next warm start uses the carried over estimate
+    final double[] shiftedAgain = targets(2e-4);
+    assertRoot(calibrateCold(shiftedAgain).getRoot().getData(), calibrateWarm(cache, shiftedAgain));
+    entry = cache.get(KEY);
+    assertEquals(1, entry.getWarmStarts());
+    assertEquals(2, cache.getWarmStartCount());
+  }
+
+  public void testIncompatibleEntryIgnored() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    // An entry for a curve specification with a different number of strips
+    cache.put(KEY, new double[N + 1], null, 0);
+    assertNull(calibrateWarm(cache, targets(0)));
+    assertEquals(0, cache.getCalibrationCount());
+  }
+
+  public void testStaleInverseJacobianIgnored() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    final NewtonRootFinderResult first = calibrateCold(targets(0));
+    // An estimate that has been carried over too many times is recalculated rather than used
+    cache.put(KEY, first.getRoot().getData(), new DoubleMatrix2D(N, N), MarketInstrumentImpliedYieldCurveFunction.MAX_WARM_STARTS);
+    final double[] shifted = targets(1e-4);
+    assertRoot(calibrateCold(shifted).getRoot().getData(), calibrateWarm(cache, shifted));
+    assertEquals(0, cache.get(KEY).getWarmStarts());
+  }
+
+  public void testUnusableEntryRemoved() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    final double[] nodeValues = new double[N];
+    Arrays.fill(nodeValues, Double.NaN);
+    cache.put(KEY, nodeValues, null, 0);
+    assertNull(calibrateWarm(cache, targets(0)));
+    assertNull(cache.get(KEY));
+    assertEquals(0, cache.getCalibrationCount());
+  }
+
+  public void testResetCounters() {
+    final YieldCurveCalibrationCache cache = new YieldCurveCalibrationCache();
+    MarketInstrumentImpliedYieldCurveFunction.storeCalibration(cache, KEY, calibrateCold(targets(0)), null);
+    assertTrue(calibrateWarm(cache, targets(1e-4)) != null);
+    cache.resetCounters();
+    assertEquals(0, cache.getCalibrationCount());
+    assertEquals(0, cache.getWarmStartCount());
+    assertEquals(0, cache.getIterationCount());
+    assertEquals(0, cache.getWarmStartIterationCount());
+    assertEquals(1, cache.getEntryCount());
+  }
+
+}
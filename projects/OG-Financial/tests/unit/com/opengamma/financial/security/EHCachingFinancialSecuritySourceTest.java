@@ -9,8 +9,15 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -41,10 +48,18 @@ public class EHCachingFinancialSecuritySourceTest {
   private SimpleSecurity _security1 = new SimpleSecurity("");
   private SimpleSecurity _security1_alternate = new SimpleSecurity("alternate");
   private SimpleSecurity _security2 = new SimpleSecurity("");
+  private List<Collection<UniqueId>> _bulkRequests = new ArrayList<Collection<UniqueId>>();
 
   @BeforeMethod
   public void setUp() throws Exception {    
-    _underlyingSecuritySource = new MockFinancialSecuritySource();
+    _underlyingSecuritySource = new MockFinancialSecuritySource() {
+      @Override
+      public Map<UniqueId, Security> getSecurity(Collection<UniqueId> uniqueIds) {
+        _bulkRequests.add(new HashSet<UniqueId>(uniqueIds));
+        return super.getSecurity(uniqueIds);
+      }
+    };
+    _bulkRequests.clear();
     _cachingSecuritySource = new EHCachingFinancialSecuritySource(_underlyingSecuritySource, EHCacheUtils.createCacheManager ());
     
     _security1.addExternalId(_secId1);
@@ -100,6 +115,42 @@ public class EHCachingFinancialSecuritySourceTest {
     }
   }
 
+  //-------------------------------------------------------------------------
+  @Test
+  public void getSecurity_UniqueIds() {
+    addSecuritiesToMock(_security1, _security2);
+    UniqueId uid1 = _security1.getUniqueId();
+    UniqueId uid2 = _security2.getUniqueId();
+    UniqueId missing = UniqueId.of("Mock", "99");
+    _cachingSecuritySource.getSecurity(uid1);
+    
+    Map<UniqueId, Security> result = _cachingSecuritySource.getSecurity(Arrays.asList(uid1, uid2, missing));
+    assertEquals(2, result.size());
+    assertSame(_security1, result.get(uid1));
+    assertSame(_security2, result.get(uid2));
+    // only the misses are fetched, in a single call
+    assertEquals(1, _bulkRequests.size());
+    assertEquals(new HashSet<UniqueId>(Arrays.asList(uid2, missing)), _bulkRequests.get(0));
+    
+    Cache singleSecCache = _cachingSecuritySource.getCacheManager().getCache(EHCachingFinancialSecuritySource.SINGLE_SECURITY_CACHE);
+    assertEquals(2, singleSecCache.getSize());
+    Element sec2Element = singleSecCache.getQuiet(uid2);
+    assertNotNull(sec2Element);
+    assertSame(_security2, _cachingSecuritySource.getSecurity(uid2));
+    assertEquals(1, sec2Element.getHitCount());
+    
+    result = _cachingSecuritySource.getSecurity(Arrays.asList(uid1, uid2));
+    assertEquals(2, result.size());
+    assertEquals(1, _bulkRequests.size());
+  }
+
+  @Test
+  public void getSecurity_UniqueIds_empty() {
+    Map<UniqueId, Security> result = _cachingSecuritySource.getSecurity(Collections.<UniqueId>emptySet());
+    assertTrue(result.isEmpty());
+    assertTrue(_bulkRequests.isEmpty());
+  }
+
   //-------------------------------------------------------------------------
   @Test
   public void getSecurities_ExternalIdBundle() {
@@ -5,6 +5,9 @@
  */
 package com.opengamma.language.client;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.id.UniqueId;
 import com.opengamma.master.position.ManageableTrade;
@@ -79,4 +82,28 @@ public class CombinedPositionMaster extends CombinedMaster<PositionDocument, Pos
     return null;
   }
 
+  @Override
+  public List<PositionDocument> addAll(final List<PositionDocument> documents) {
+    // added to the same master as a single add
+    if (getSessionMaster() != null) {
+      return getSessionMaster().addAll(documents);
+    } else if (getUserMaster() != null) {
+      return getUserMaster().addAll(documents);
+    } else if (getGlobalMaster() != null) {
+      return getGlobalMaster().addAll(documents);
+    } else {
+      throw new IllegalStateException();
+    }
+  }
+
+  @Override
+  public List<PositionDocument> updateAll(final List<PositionDocument> documents) {
+    // the documents may belong to different masters
+    final List<PositionDocument> result = new ArrayList<PositionDocument>(documents.size());
+    for (PositionDocument document : documents) {
+      result.add(update(document));
+    }
+    return result;
+  }
+
 }
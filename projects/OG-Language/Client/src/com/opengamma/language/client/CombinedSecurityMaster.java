@@ -5,6 +5,9 @@
  */
 package com.opengamma.language.client;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.master.security.SecurityDocument;
 import com.opengamma.master.security.SecurityHistoryRequest;
@@ -79,4 +82,28 @@ public class CombinedSecurityMaster extends CombinedMaster<SecurityDocument, Sec
     }).each(request.getObjectId().getScheme());
   }
 
+  @Override
+  public List<SecurityDocument> addAll(final List<SecurityDocument> documents) {
+    // added to the same master as a single add
+    if (getSessionMaster() != null) {
+      return getSessionMaster().addAll(documents);
+    } else if (getUserMaster() != null) {
+      return getUserMaster().addAll(documents);
+    } else if (getGlobalMaster() != null) {
+      return getGlobalMaster().addAll(documents);
+    } else {
+      throw new IllegalStateException();
+    }
+  }
+
+  @Override
+  public List<SecurityDocument> updateAll(final List<SecurityDocument> documents) {
+    // the documents may belong to different masters
+    final List<SecurityDocument> result = new ArrayList<SecurityDocument>(documents.size());
+    for (SecurityDocument document : documents) {
+      result.add(update(document));
+    }
+    return result;
+  }
+
 }
@@ -22,8 +22,10 @@ import com.opengamma.id.ExternalScheme;
 import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.msg.LiveDataSubscriptionResponse;
 import com.opengamma.livedata.msg.LiveDataSubscriptionResult;
+import com.opengamma.livedata.server.distribution.JmsSenderFactory;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.monitor.LatencyHistogram;
 
 /**
  * JMX management of a LiveData server.
@@ -135,6 +137,48 @@ public class LiveDataServerMBean {
     }
   }
 
+  // The send latency is timed from when a sender is given a normalized update, so it covers queueing for and sending
+  // to JMS but not the time taken to receive and normalize the update. Conflated updates are timed from the oldest.
+
+  @ManagedAttribute(description = "The number of messages sent to JMS since the send latency was last reset.")
+  public long getSendLatencyCount() {
+    LatencyHistogram latency = getSendLatency();
+    return latency != null ? latency.getCount() : 0;
+  }
+
+  @ManagedAttribute(description = "Median microseconds from a normalized market data update being given to its sender to it being sent to JMS, within a factor of two.")
+  public long getSendLatency50thPercentileMicros() {
+    LatencyHistogram latency = getSendLatency();
+    return latency != null ? latency.getPercentileMicros(50) : 0;
+  }
+
+  @ManagedAttribute(description = "99th percentile microseconds from a normalized market data update being given to its sender to it being sent to JMS, within a factor of two.")
+  public long getSendLatency99thPercentileMicros() {
+    LatencyHistogram latency = getSendLatency();
+    return latency != null ? latency.getPercentileMicros(99) : 0;
+  }
+
+  @ManagedAttribute(description = "Histogram of microseconds from a normalized market data update being given to its sender to it being sent to JMS.")
+  public String getSendLatencyHistogram() {
+    LatencyHistogram latency = getSendLatency();
+    return latency != null ? latency.toString() : "";
+  }
+
+  @ManagedOperation(description = "Resets the market data send latency.")
+  public void resetSendLatency() {
+    LatencyHistogram latency = getSendLatency();
+    if (latency != null) {
+      latency.reset();
+    }
+  }
+
+  private LatencyHistogram getSendLatency() {
+    if (_server.getMarketDataSenderFactory() instanceof JmsSenderFactory) {
+      return ((JmsSenderFactory) _server.getMarketDataSenderFactory()).getSendLatency();
+    }
+    return null;
+  }
+
   @ManagedOperation(description = "Subscribes to market data. The subscription will be non-persistent."
       + " If the server already subscribes to the given market data, this method is a "
       + " no-op. Returns the name of the JMS topic market data will be published on.")
@@ -0,0 +1,350 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.jms.JmsConnector;
+
+/**
+ * Publishes the updates of {@link JmsSender}s from a pool of sender threads, conflating
+ * the updates of each ticker that arrive while it waits to be published.
+ * <p>
+ * The feed handler thread only merges the update into the sender's cumulative delta and, if the
+ * sender is not already waiting, adds it to a lock-free queue. Each sender thread repeatedly
+ * takes a batch of waiting senders and publishes one message per sender, all on one JMS session
+ * with one producer per topic, rather than a session and producer per message. A thread that finds
+ * no waiting senders parks until {@link #schedule} unparks it, without taking any lock. A sender is
+ * owned by one thread from being queued until its message is sent, so its updates stay in order
+ * and any further updates are merged into a single later message. The optional conflation
+ * window is a pause after each batch, so that busy tickers are published at most once a window.
+ * <p>
+ * If a batch fails to be sent, its updates are merged back into their senders and queued again.
+ * The thread then backs off before its next batch, doubling the pause after each consecutive
+ * failure up to the maximum retry pause, so that a broken connection is not retried in a busy loop.
+ * <p>
+ * The message format is unchanged: each message holds the update of a single ticker.
+ */
+public class ConflatingJmsPublisher implements Lifecycle {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingJmsPublisher.class);
+  /**
+   * The pause after the first failure to send a batch, in milliseconds.
+   */
+  private static final long MIN_RETRY_MILLIS = 10;
+
+  /**
+   * The JMS connector.
+   */
+  private final JmsConnector _jmsConnector;
+  /**
+   * The senders waiting to be published.
+   */
+  private final Queue<JmsSender> _waiting = new ConcurrentLinkedQueue<JmsSender>();
+  /**
+   * The sender threads parked waiting for a sender to be queued.
+   */
+  private final Queue<Thread> _idle = new ConcurrentLinkedQueue<Thread>();
+  /**
+   * The number of sender threads.
+   */
+  private int _threadCount = 2;
+  /**
+   * The maximum number of messages sent in a batch.
+   */
+  private int _batchSize = 500;
+  /**
+   * The pause after each batch, in milliseconds.
+   */
+  private long _conflationMillis;
+  /**
+   * The maximum pause after a failure to send a batch, in milliseconds.
+   */
+  private long _maxRetryMillis = 1000;
+  /**
+   * The sender threads, null if not running.
+   */
+  private volatile List<Thread> _threads;
+
+  /**
+   * Creates an instance.
+   *
+   * @param jmsConnector  the JMS connector, not null
+   */
+  public ConflatingJmsPublisher(JmsConnector jmsConnector) {
+    ArgumentChecker.notNull(jmsConnector, "jmsConnector");
+    _jmsConnector = jmsConnector;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of sender threads.
+   *
+   * @return the number of threads
+   */
+  public int getThreadCount() {
+    return _threadCount;
+  }
+
+  /**
+   * Sets the number of sender threads, used when next started.
+   *
+   * @param threadCount  the number of threads, positive
+   */
+  public void setThreadCount(int threadCount) {
+    ArgumentChecker.isTrue(threadCount > 0, "threadCount must be positive");
+    _threadCount = threadCount;
+  }
+
+  /**
+   * Gets the maximum number of messages sent in a batch.
+   *
+   * @return the batch size
+   */
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
+  /**
+   * Sets the maximum number of messages sent in a batch.
+   *
+   * @param batchSize  the batch size, positive
+   */
+  public void setBatchSize(int batchSize) {
+    ArgumentChecker.isTrue(batchSize > 0, "batchSize must be positive");
+    _batchSize = batchSize;
+  }
+
+  /**
+   * Gets the conflation window.
+   *
+   * @return the pause after each batch in milliseconds, zero for none
+   */
+  public long getConflationMillis() {
+    return _conflationMillis;
+  }
+
+  /**
+   * Sets the conflation window.
+   *
+   * @param conflationMillis  the pause after each batch in milliseconds, zero for none
+   */
+  public void setConflationMillis(long conflationMillis) {
+    ArgumentChecker.isTrue(conflationMillis >= 0, "conflationMillis must not be negative");
+    _conflationMillis = conflationMillis;
+  }
+
+  /**
+   * Gets the maximum pause after a failure to send a batch.
+   *
+   * @return the maximum pause in milliseconds
+   */
+  public long getMaxRetryMillis() {
+    return _maxRetryMillis;
+  }
+
+  /**
+   * Sets the maximum pause after a failure to send a batch.
+   *
+   * @param maxRetryMillis  the maximum pause in milliseconds, positive
+   */
+  public void setMaxRetryMillis(long maxRetryMillis) {
+    ArgumentChecker.isTrue(maxRetryMillis > 0, "maxRetryMillis must be positive");
+    _maxRetryMillis = maxRetryMillis;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Queues a sender to be published.
+   * The caller must ensure that a sender is only queued once until its message has been sent.
+   *
+   * @param sender  the sender, not null
+   */
+  /* package */ void schedule(JmsSender sender) {
+    _waiting.add(sender);
+    Thread idle = _idle.poll();
+    if (idle != null) {
+      LockSupport.unpark(idle);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public synchronized void start() {
+    if (_threads != null) {
+      return;
+    }
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < _threadCount; i++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          publishLoop();
+        }
+      }, "ConflatingJmsPublisher-" + i);
+      thread.setDaemon(true);
+      threads.add(thread);
+    }
+    _threads = threads;
+    for (Thread thread : threads) {
+      thread.start();
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    List<Thread> threads = _threads;
+    if (threads == null) {
+      return;
+    }
+    _threads = null;
+    for (Thread thread : threads) {
+      LockSupport.unpark(thread);
+      try {
+        thread.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return _threads != null;
+  }
+
+  //-------------------------------------------------------------------------
+  private void publishLoop() {
+    List<JmsSender.PendingMessage> batch = new ArrayList<JmsSender.PendingMessage>(_batchSize);
+    long retryMillis = 0;
+    while (_threads != null) {
+      JmsSender sender;
+      while (batch.size() < _batchSize && (sender = _waiting.poll()) != null) {
+        JmsSender.PendingMessage message = sender.takePendingMessage();
+        if (message != null) {
+          batch.add(message);
+        }
+      }
+      if (batch.isEmpty()) {
+        awaitWork();
+        continue;
+      }
+      boolean sent = false;
+      try {
+        send(batch);
+        sent = true;
+      } catch (RuntimeException ex) {
+        s_logger.error("Failed to publish " + batch.size() + " live data updates", ex);
+      } finally {
+        for (JmsSender.PendingMessage message : batch) {
+          message.getSender().pendingMessageFinished(message, sent);
+        }
+        batch.clear();
+      }
+      if (!sent) {
+        retryMillis = Math.min(retryMillis == 0 ? MIN_RETRY_MILLIS : retryMillis * 2, _maxRetryMillis);
+        pause(retryMillis);
+        continue;
+      }
+      retryMillis = 0;
+      if (_conflationMillis > 0) {
+        pause(_conflationMillis);
+      }
+    }
+  }
+
+  /**
+   * Parks the current thread until a sender is queued or the publisher is stopped.
+   * The thread is made visible to {@link #schedule} before checking the queue again, so a sender
+   * queued in between either is seen by the check or unparks the thread.
+   */
+  private void awaitWork() {
+    Thread thread = Thread.currentThread();
+    _idle.add(thread);
+    if (_waiting.isEmpty() && _threads != null) {
+      LockSupport.park(this);
+    }
+    _idle.remove(thread);
+  }
+
+  /**
+   * Pauses the current thread for the full time unless the publisher is stopped.
+   * A stray unpark from {@link #schedule} does not cut the pause short.
+   *
+   * @param millis  the pause in milliseconds
+   */
+  private void pause(long millis) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    long remaining;
+    while (_threads != null && (remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(this, remaining);
+    }
+  }
+
+  private void send(final List<JmsSender.PendingMessage> batch) {
+    final JmsTemplate jmsTemplate = _jmsConnector.getJmsTemplateTopic();
+    jmsTemplate.execute(new SessionCallback<Object>() {
+      @Override
+      public Object doInJms(Session session) throws JMSException {
+        Map<String, MessageProducer> producers = new HashMap<String, MessageProducer>();
+        try {
+          for (JmsSender.PendingMessage message : batch) {
+            MessageProducer producer = producers.get(message.getTopic());
+            if (producer == null) {
+              Destination destination = jmsTemplate.getDestinationResolver().resolveDestinationName(session, message.getTopic(), true);
+              producer = session.createProducer(destination);
+              producers.put(message.getTopic(), producer);
+            }
+            BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.writeBytes(message.getBytes());
+            if (jmsTemplate.isExplicitQosEnabled()) {
+              producer.send(bytesMessage, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+            } else {
+              producer.send(bytesMessage);
+            }
+          }
+          if (session.getTransacted()) {
+            session.commit();
+          }
+        } finally {
+          for (MessageProducer producer : producers.values()) {
+            producer.close();
+          }
+        }
+        return null;
+      }
+    }, false);
+  }
+
+  @Override
+  public String toString() {
+    return "ConflatingJmsPublisher[threads=" + _threadCount + ", batchSize=" + _batchSize + ", conflationMillis=" + _conflationMillis +
+        ", maxRetryMillis=" + _maxRetryMillis + "]";
+  }
+
+}
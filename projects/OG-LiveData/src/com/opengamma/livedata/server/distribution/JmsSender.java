@@ -6,6 +6,7 @@
 package com.opengamma.livedata.server.distribution;
 
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
@@ -25,6 +26,7 @@ import com.opengamma.livedata.server.DistributionSpecification;
 import com.opengamma.livedata.server.FieldHistoryStore;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.jms.JmsConnector;
+import com.opengamma.util.monitor.LatencyHistogram;
 
 /**
  * This {@link MarketDataSender} sends market data to JMS.
@@ -32,6 +34,9 @@ import com.opengamma.util.jms.JmsConnector;
  * When the sender loses connection to JMS, it starts building a 
  * cumulative delta of changes. This cumulative delta is published when 
  * the sender reconnects.
+ * <p>
+ * By default each update is sent by the thread delivering it. If a {@link ConflatingJmsPublisher}
+ * is set, updates are merged into the cumulative delta and sent by the publisher's threads instead.
  */
 public class JmsSender implements MarketDataSender {
 
@@ -53,7 +58,7 @@ public class JmsSender implements MarketDataSender {
   /**
    * The field value history.
    */
-  private final FieldHistoryStore _cumulativeDelta = new FieldHistoryStore();
+  private FieldHistoryStore _cumulativeDelta = new FieldHistoryStore();
   /**
    * The last sequence number.
    */
@@ -66,6 +71,22 @@ public class JmsSender implements MarketDataSender {
    * The internal lock.
    */
   private final Semaphore _lock = new Semaphore(1);
+  /**
+   * The publisher sending the updates, null to send them directly.
+   */
+  private final ConflatingJmsPublisher _publisher;
+  /**
+   * Whether the sender is queued on, or being sent by, the publisher.
+   */
+  private final AtomicBoolean _scheduled = new AtomicBoolean();
+  /**
+   * The time the oldest update not yet sent was given to this sender, from {@link System#nanoTime()}, zero if none.
+   */
+  private long _pendingSinceNanos;
+  /**
+   * The latency from this sender being given an update to sending it, null to not record it.
+   */
+  private final LatencyHistogram _latency;
 
   /**
    * Creates an instance.
@@ -75,12 +96,28 @@ public class JmsSender implements MarketDataSender {
    * @param fudgeContext  the Fudge context, not null
    */
   public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext) {
+    this(jmsConnector, distributor, fudgeContext, null, null);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param jmsConnector  the JMS connector, not null
+   * @param distributor  the distributor, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param publisher  the publisher to send updates, null to send them directly
+   * @param latency  the histogram to record the latency of updates in, null to not record it
+   */
+  public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext,
+      ConflatingJmsPublisher publisher, LatencyHistogram latency) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     ArgumentChecker.notNull(distributor, "Market data distributor");
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     _jmsConnector = jmsConnector;
     _fudgeContext = fudgeContext;
     _distributor = distributor;
+    _publisher = publisher;
+    _latency = latency;
   }
 
   //-------------------------------------------------------------------------
@@ -96,32 +133,30 @@ public class JmsSender implements MarketDataSender {
     try {
       _cumulativeDelta.liveDataReceived(data.getFields());
       _lastSequenceNumber = data.getSequenceNumber(); 
+      if (_pendingSinceNanos == 0) {
+        _pendingSinceNanos = System.nanoTime();
+      }
       
       if (_interrupted) {
         s_logger.debug("{}: Interrupted - not sending message", this);
         return;
       }
       
-      send();
+      if (_publisher == null) {
+        send();
+      }
     } finally {
       _lock.release();
     }
+    if (_publisher != null) {
+      schedule();
+    }
   }
 
   private void send() {
-    DistributionSpecification distributionSpec = getDistributor().getDistributionSpec();
+    final byte[] bytes = createMessage();
     
-    LiveDataValueUpdateBean liveDataValueUpdateBean = new LiveDataValueUpdateBean(
-        _lastSequenceNumber, 
-        distributionSpec.getFullyQualifiedLiveDataSpecification(), 
-        _cumulativeDelta.getLastKnownValues());
-    s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
-    
-    FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
-    String destinationName = distributionSpec.getJmsTopic();
-    final byte[] bytes = _fudgeContext.toByteArray(fudgeMsg);
-    
-    _jmsConnector.getJmsTemplateTopic().send(destinationName, new MessageCreator() {
+    _jmsConnector.getJmsTemplateTopic().send(getDistributor().getDistributionSpec().getJmsTopic(), new MessageCreator() {
       @Override
       public Message createMessage(Session session) throws JMSException {
         // TODO kirk 2009-10-30 -- We want to put stuff in the properties as well I think.
@@ -132,6 +167,90 @@ public class JmsSender implements MarketDataSender {
     });
     
     _cumulativeDelta.clear();
+    recordLatency();
+  }
+
+  private byte[] createMessage() {
+    DistributionSpecification distributionSpec = getDistributor().getDistributionSpec();
+    
+    LiveDataValueUpdateBean liveDataValueUpdateBean = new LiveDataValueUpdateBean(
+        _lastSequenceNumber, 
+        distributionSpec.getFullyQualifiedLiveDataSpecification(), 
+        _cumulativeDelta.getLastKnownValues());
+    s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
+    
+    FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
+    return _fudgeContext.toByteArray(fudgeMsg);
+  }
+
+  private void recordLatency() {
+    if (_latency != null && _pendingSinceNanos != 0) {
+      _latency.record(System.nanoTime() - _pendingSinceNanos);
+    }
+    _pendingSinceNanos = 0;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Queues this sender on the publisher unless it is already queued or being sent.
+   */
+  private void schedule() {
+    if (!_interrupted && _scheduled.compareAndSet(false, true)) {
+      _publisher.schedule(this);
+    }
+  }
+
+  /**
+   * Takes the cumulative delta to be sent by the publisher.
+   * If there is nothing to send the sender is no longer scheduled.
+   * 
+   * @return the message, null if nothing to send
+   */
+  /* package */ PendingMessage takePendingMessage() {
+    _lock.acquireUninterruptibly();
+    try {
+      if (_interrupted || _cumulativeDelta.isEmpty()) {
+        _scheduled.set(false);
+        return null;
+      }
+      PendingMessage message = new PendingMessage(this, createMessage(), _cumulativeDelta);
+      _cumulativeDelta = new FieldHistoryStore();
+      return message;
+    } finally {
+      _lock.release();
+    }
+  }
+
+  /**
+   * Called by the publisher once a message has been sent, or has failed to be sent.
+   * Any updates received in the meantime are scheduled to be sent next.
+   * 
+   * @param message  the message, not null
+   * @param sent  whether the message was sent
+   */
+  /* package */ void pendingMessageFinished(PendingMessage message, boolean sent) {
+    boolean pending;
+    _lock.acquireUninterruptibly();
+    try {
+      if (sent) {
+        if (_latency != null) {
+          _latency.record(System.nanoTime() - message._pendingSinceNanos);
+        }
+      } else {
+        // the failed delta is sent again, overwritten by any later updates
+        FieldHistoryStore delta = new FieldHistoryStore(message._delta);
+        delta.liveDataReceived(_cumulativeDelta.getLastKnownValues());
+        _cumulativeDelta = delta;
+        _pendingSinceNanos = message._pendingSinceNanos;
+      }
+      _scheduled.set(false);
+      pending = !_cumulativeDelta.isEmpty();
+    } finally {
+      _lock.release();
+    }
+    if (pending) {
+      schedule();
+    }
   }
 
   //-------------------------------------------------------------------------
@@ -162,6 +281,10 @@ public class JmsSender implements MarketDataSender {
   public void transportResumed() {
     s_logger.info("Transport resumed {}", this);
     _interrupted = false;
+    if (_publisher != null) {
+      schedule();
+      return;
+    }
     // tryAcquire() is used to avoid re-entry to the send method if a sendMarketData is already
     // active as that will hold the semaphore.
     if (_lock.tryAcquire()) {
@@ -182,4 +305,37 @@ public class JmsSender implements MarketDataSender {
     return "JmsSender[" + _distributor.getDistributionSpec().toString() +  "]";    
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * An update taken by the publisher to be sent.
+   */
+  /* package */ static final class PendingMessage {
+    private final JmsSender _sender;
+    private final String _topic;
+    private final byte[] _bytes;
+    private final FieldHistoryStore _delta;
+    private final long _pendingSinceNanos;
+
+    private PendingMessage(JmsSender sender, byte[] bytes, FieldHistoryStore delta) {
+      _sender = sender;
+      _topic = sender.getDistributor().getDistributionSpec().getJmsTopic();
+      _bytes = bytes;
+      _delta = delta;
+      _pendingSinceNanos = sender._pendingSinceNanos;
+      sender._pendingSinceNanos = 0;
+    }
+
+    /* package */ JmsSender getSender() {
+      return _sender;
+    }
+
+    /* package */ String getTopic() {
+      return _topic;
+    }
+
+    /* package */ byte[] getBytes() {
+      return _bytes;
+    }
+  }
+
 }
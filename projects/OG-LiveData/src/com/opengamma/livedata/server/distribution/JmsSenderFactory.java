@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.jms.JmsConnector;
+import com.opengamma.util.monitor.LatencyHistogram;
 
 /**
  * Factory to create JMS senders.
@@ -46,6 +47,14 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
    * The executor.
    */
   private final ExecutorService _executor;
+  /**
+   * The publisher sending updates, null to send them directly.
+   */
+  private ConflatingJmsPublisher _publisher;
+  /**
+   * The latency from a sender being given an update to sending it to JMS.
+   */
+  private final LatencyHistogram _sendLatency = new LatencyHistogram();
 
   /**
    * Creates an instance.
@@ -105,6 +114,34 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
     _fudgeContext = fudgeContext;
   }
 
+  /**
+   * Gets the publisher sending updates.
+   * 
+   * @return the publisher, null if senders publish directly
+   */
+  public ConflatingJmsPublisher getPublisher() {
+    return _publisher;
+  }
+
+  /**
+   * Sets the publisher sending updates, used by senders created afterwards.
+   * 
+   * @param publisher  the publisher, null to publish directly
+   */
+  public void setPublisher(ConflatingJmsPublisher publisher) {
+    _publisher = publisher;
+  }
+
+  /**
+   * Gets the latency from a sender being given a normalized update to sending it to JMS, over all senders.
+   * This includes any time queued on the publisher, but not the time taken to receive and normalize the update.
+   * 
+   * @return the latency histogram, not null
+   */
+  public LatencyHistogram getSendLatency() {
+    return _sendLatency;
+  }
+
   //-------------------------------------------------------------------------
   public synchronized void transportInterrupted() {
     s_logger.warn("JMS transport interrupted; notifying {} senders", _allActiveSenders.size());
@@ -133,7 +170,7 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
   @Override
   public synchronized Collection<MarketDataSender> create(MarketDataDistributor distributor) {
     s_logger.debug("Created JmsSender for {}", distributor);
-    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext());
+    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext(), getPublisher(), _sendLatency);
     _allActiveSenders.add(sender);
     return Collections.<MarketDataSender>singleton(sender);
   }
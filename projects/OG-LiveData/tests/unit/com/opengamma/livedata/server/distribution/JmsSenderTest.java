@@ -8,6 +8,14 @@ package com.opengamma.livedata.server.distribution;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsgEnvelope;
@@ -34,6 +42,7 @@ import com.opengamma.util.test.ActiveMQTestUtils;
 @Test // PL 24.6.2010: Putting on ignore as it's failing intermittently on Bamboo and I can't figure out why
 public class JmsSenderTest {
   
+  private ActiveMQConnectionFactory _connectionFactory;
   private CollectingByteArrayMessageReceiver _collectingReceiver;
   private DefaultMessageListenerContainer _container;
   private MarketDataDistributor _mdd;
@@ -42,10 +51,8 @@ public class JmsSenderTest {
   @BeforeClass
   public void setUpClass() {
     ActiveMQConnectionFactory cf = ActiveMQTestUtils.createTestConnectionFactory();
-    JmsConnectorFactoryBean jmsFactory= new JmsConnectorFactoryBean();
-    jmsFactory.setName(getClass().getSimpleName());
-    jmsFactory.setConnectionFactory(cf);
-    JmsConnector jmsConnector = jmsFactory.createObject();
+    _connectionFactory = cf;
+    JmsConnector jmsConnector = createJmsConnector(cf);
     
     _factory = new JmsSenderFactory(jmsConnector);
     _mdd = MarketDataDistributorTest.getTestDistributor(_factory);
@@ -74,6 +81,13 @@ public class JmsSenderTest {
   }
 
   //-------------------------------------------------------------------------
+  private JmsConnector createJmsConnector(ConnectionFactory cf) {
+    JmsConnectorFactoryBean jmsFactory = new JmsConnectorFactoryBean();
+    jmsFactory.setName(getClass().getSimpleName());
+    jmsFactory.setConnectionFactory(cf);
+    return jmsFactory.createObject();
+  }
+
   private void ensureStarted() {
     assertTrue(_container.isActive());
     assertTrue(_container.isRunning());
@@ -156,4 +170,172 @@ public class JmsSenderTest {
     assertEquals(4, updates[2].getSequenceNumber());
   }
 
+  //-------------------------------------------------------------------------
+  @Test(timeOut=30000)
+  public void publisherConflatesUpdates() throws Exception {
+    ensureStarted();
+    JmsConnector jmsConnector = createJmsConnector(_connectionFactory);
+    ConflatingJmsPublisher publisher = new ConflatingJmsPublisher(jmsConnector);
+    MarketDataDistributor mdd = createDistributor(jmsConnector, publisher);
+    
+    FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    MutableFudgeMsg msg1 = fudgeContext.newMessage();
+    msg1.add("name", "olivia");
+    msg1.add("address", "paris");
+    MutableFudgeMsg msg2 = fudgeContext.newMessage();
+    msg2.add("name", "ruby");
+    MutableFudgeMsg msg3 = fudgeContext.newMessage();
+    msg3.add("name", "sophie");
+    
+    // queued while the publisher is not running, so conflated into one message
+    mdd.distributeLiveData(msg1);
+    mdd.distributeLiveData(msg2);
+    mdd.distributeLiveData(msg3);
+    publisher.start();
+    try {
+      waitForMessages(1);
+      Thread.sleep(200);
+      List<LiveDataValueUpdateBean> updates = getUpdates();
+      assertEquals(1, updates.size());
+      MutableFudgeMsg expected = fudgeContext.newMessage();
+      expected.add("name", "sophie");
+      expected.add("address", "paris");
+      assertEquals(expected, updates.get(0).getFields());
+      assertEquals(mdd.getNumMessagesSent() - 1, updates.get(0).getSequenceNumber());
+    } finally {
+      publisher.stop();
+    }
+  }
+
+  @Test(timeOut=30000)
+  public void publisherKeepsTickerInOrder() throws Exception {
+    ensureStarted();
+    JmsConnector jmsConnector = createJmsConnector(_connectionFactory);
+    ConflatingJmsPublisher publisher = new ConflatingJmsPublisher(jmsConnector);
+    publisher.setThreadCount(4);
+    MarketDataDistributor mdd = createDistributor(jmsConnector, publisher);
+    publisher.start();
+    try {
+      FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+      int count = 50;
+      for (int i = 1; i <= count; i++) {
+        MutableFudgeMsg msg = fudgeContext.newMessage();
+        msg.add("count", i);
+        mdd.distributeLiveData(msg);
+      }
+      // some updates may be conflated, but the last one is always published
+      List<LiveDataValueUpdateBean> updates = getUpdates();
+      while (updates.isEmpty() || updates.get(updates.size() - 1).getFields().getInt("count") != count) {
+        Thread.sleep(100);
+        updates = getUpdates();
+      }
+      long lastSequenceNumber = -1;
+      int lastCount = 0;
+      for (LiveDataValueUpdateBean update : updates) {
+        assertTrue(update.getSequenceNumber() > lastSequenceNumber);
+        assertTrue(update.getFields().getInt("count") > lastCount);
+        lastSequenceNumber = update.getSequenceNumber();
+        lastCount = update.getFields().getInt("count");
+      }
+      assertEquals(mdd.getNumMessagesSent() - 1, lastSequenceNumber);
+    } finally {
+      publisher.stop();
+    }
+  }
+
+  @Test(timeOut=30000)
+  public void publisherRequeuesFailedUpdates() throws Exception {
+    ensureStarted();
+    FailingConnectionFactory cf = new FailingConnectionFactory(_connectionFactory);
+    JmsConnector jmsConnector = createJmsConnector(cf);
+    ConflatingJmsPublisher publisher = new ConflatingJmsPublisher(jmsConnector);
+    MarketDataDistributor mdd = createDistributor(jmsConnector, publisher);
+    publisher.start();
+    try {
+      FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+      MutableFudgeMsg msg1 = fudgeContext.newMessage();
+      msg1.add("name", "olivia");
+      MutableFudgeMsg msg2 = fudgeContext.newMessage();
+      msg2.add("address", "london");
+      
+      cf._failing = true;
+      mdd.distributeLiveData(msg1);
+      while (cf._attempts.get() < 2) {
+        Thread.sleep(10);
+      }
+      mdd.distributeLiveData(msg2);
+      Thread.sleep(500);
+      // backs off rather than retrying in a busy loop
+      assertTrue(cf._attempts.get() < 50);
+      assertTrue(_collectingReceiver.getMessages().isEmpty());
+      
+      cf._failing = false;
+      waitForMessages(1);
+      Thread.sleep(200);
+      List<LiveDataValueUpdateBean> updates = getUpdates();
+      assertEquals(1, updates.size());
+      MutableFudgeMsg expected = fudgeContext.newMessage();
+      expected.add("name", "olivia");
+      expected.add("address", "london");
+      assertEquals(expected, updates.get(0).getFields());
+      assertEquals(mdd.getNumMessagesSent() - 1, updates.get(0).getSequenceNumber());
+    } finally {
+      publisher.stop();
+    }
+  }
+
+  private MarketDataDistributor createDistributor(JmsConnector jmsConnector, ConflatingJmsPublisher publisher) {
+    JmsSenderFactory factory = new JmsSenderFactory(jmsConnector);
+    factory.setPublisher(publisher);
+    return MarketDataDistributorTest.getTestDistributor(factory);
+  }
+
+  private void waitForMessages(int count) throws InterruptedException {
+    while (_collectingReceiver.getMessages().size() < count) {
+      Thread.sleep(100);
+    }
+  }
+
+  private List<LiveDataValueUpdateBean> getUpdates() {
+    FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    FudgeDeserializer deserializer = new FudgeDeserializer(fudgeContext);
+    List<LiveDataValueUpdateBean> updates = new ArrayList<LiveDataValueUpdateBean>();
+    for (byte[] byteArray : new ArrayList<byte[]>(_collectingReceiver.getMessages())) {
+      FudgeMsgEnvelope msgEnvelope = fudgeContext.deserialize(byteArray);
+      updates.add(LiveDataValueUpdateBeanFudgeBuilder.fromFudgeMsg(deserializer, msgEnvelope.getMessage()));
+    }
+    return updates;
+  }
+
+  /**
+   * Connection factory that fails to connect while requested to.
+   */
+  private static final class FailingConnectionFactory implements ConnectionFactory {
+    private final ConnectionFactory _underlying;
+    private final AtomicInteger _attempts = new AtomicInteger();
+    private volatile boolean _failing;
+
+    private FailingConnectionFactory(ConnectionFactory underlying) {
+      _underlying = underlying;
+    }
+
+    @Override
+    public Connection createConnection() throws JMSException {
+      if (_failing) {
+        _attempts.incrementAndGet();
+        throw new JMSException("Test failure");
+      }
+      return _underlying.createConnection();
+    }
+
+    @Override
+    public Connection createConnection(String userName, String password) throws JMSException {
+      if (_failing) {
+        _attempts.incrementAndGet();
+        throw new JMSException("Test failure");
+      }
+      return _underlying.createConnection(userName, password);
+    }
+  }
+
 }
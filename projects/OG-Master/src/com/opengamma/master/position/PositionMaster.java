@@ -5,6 +5,8 @@
  */
 package com.opengamma.master.position;
 
+import java.util.List;
+
 import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.ChangeProvider;
 import com.opengamma.id.UniqueId;
@@ -53,4 +55,31 @@ public interface PositionMaster extends AbstractMaster<PositionDocument>, Change
    */
   ManageableTrade getTrade(UniqueId tradeId);
 
+  /**
+   * Adds a list of documents to the data store.
+   * <p>
+   * This has the same effect as calling {@link #add} for each document in turn, but
+   * allows the master to add large numbers of positions efficiently.
+   * Implementations backed by a transactional store add either all or none of the documents.
+   * 
+   * @param documents  the documents, not null
+   * @return the added documents, in the same order, may be updates of the input documents, not null
+   * @throws IllegalArgumentException if the request is invalid
+   */
+  List<PositionDocument> addAll(List<PositionDocument> documents);
+
+  /**
+   * Updates a list of documents in the data store.
+   * <p>
+   * This has the same effect as calling {@link #update} for each document in turn, but
+   * allows the master to update large numbers of positions efficiently.
+   * Implementations backed by a transactional store update either all or none of the documents.
+   * 
+   * @param documents  the documents, not null
+   * @return the current state of the documents, in the same order, may be updates of the input documents, not null
+   * @throws IllegalArgumentException if the request is invalid
+   * @throws DataNotFoundException if there is no document with one of the unique identifiers
+   */
+  List<PositionDocument> updateAll(List<PositionDocument> documents);
+
 }
@@ -6,6 +6,7 @@
 package com.opengamma.master.position;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +36,15 @@ public class PositionSearchResult extends AbstractSearchResult<PositionDocument>
   public PositionSearchResult() {
   }
 
+  /**
+   * Creates an instance.
+   * 
+   * @param coll  the collection of documents to add, not null
+   */
+  public PositionSearchResult(Collection<PositionDocument> coll) {
+    super(coll);
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the returned positions from within the documents.
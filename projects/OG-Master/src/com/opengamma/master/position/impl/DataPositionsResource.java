@@ -6,11 +6,13 @@
 package com.opengamma.master.position.impl;
 
 import java.net.URI;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
@@ -87,6 +89,22 @@ public class DataPositionsResource extends AbstractDataResource {
     return Response.created(createdUri).entity(result).build();
   }
 
+  @POST
+  @Path("positions/bulk")
+  @Consumes(FudgeRest.MEDIA)
+  public Response addAll(PositionSearchResult request) {
+    List<PositionDocument> result = getPositionMaster().addAll(request.getDocuments());
+    return Response.ok(new PositionSearchResult(result)).build();
+  }
+
+  @PUT
+  @Path("positions/bulk")
+  @Consumes(FudgeRest.MEDIA)
+  public Response updateAll(PositionSearchResult request) {
+    List<PositionDocument> result = getPositionMaster().updateAll(request.getDocuments());
+    return Response.ok(new PositionSearchResult(result)).build();
+  }
+
   //-------------------------------------------------------------------------
   @Path("positions/{positionId}")
   public DataPositionResource findPosition(@PathParam("positionId") String idStr) {
@@ -114,4 +132,14 @@ public class DataPositionsResource extends AbstractDataResource {
     return bld.build();
   }
 
+  /**
+   * Builds a URI for bulk operations on positions.
+   * 
+   * @param baseUri  the base URI, not null
+   * @return the URI, not null
+   */
+  public static URI uriBulk(URI baseUri) {
+    return UriBuilder.fromUri(uri(baseUri, null)).path("/bulk").build();
+  }
+
 }
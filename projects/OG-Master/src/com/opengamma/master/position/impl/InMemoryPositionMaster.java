@@ -202,6 +202,27 @@ public class InMemoryPositionMaster implements PositionMaster {
     clonedDoc.setCorrectionToInstant(correctionToInstant);
     document.setCorrectionToInstant(correctionToInstant);
   }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public List<PositionDocument> addAll(final List<PositionDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    final List<PositionDocument> result = new ArrayList<PositionDocument>(documents.size());
+    for (PositionDocument document : documents) {
+      result.add(add(document));
+    }
+    return result;
+  }
+
+  @Override
+  public List<PositionDocument> updateAll(final List<PositionDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    final List<PositionDocument> result = new ArrayList<PositionDocument>(documents.size());
+    for (PositionDocument document : documents) {
+      result.add(update(document));
+    }
+    return result;
+  }
   
   private void removeTrades(List<ManageableTrade> trades) {
     for (ManageableTrade trade : trades) {
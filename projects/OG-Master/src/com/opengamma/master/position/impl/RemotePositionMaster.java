@@ -6,6 +6,7 @@
 package com.opengamma.master.position.impl;
 
 import java.net.URI;
+import java.util.List;
 
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.id.ObjectIdentifiable;
@@ -99,6 +100,31 @@ public class RemotePositionMaster extends AbstractRemoteMaster implements Positi
     return accessRemote(uri).put(PositionDocument.class, document);
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  public List<PositionDocument> addAll(final List<PositionDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    for (PositionDocument document : documents) {
+      ArgumentChecker.notNull(document.getPosition(), "document.position");
+    }
+    
+    URI uri = DataPositionsResource.uriBulk(getBaseUri());
+    return accessRemote(uri).post(PositionSearchResult.class, new PositionSearchResult(documents)).getDocuments();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public List<PositionDocument> updateAll(final List<PositionDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    for (PositionDocument document : documents) {
+      ArgumentChecker.notNull(document.getPosition(), "document.position");
+      ArgumentChecker.notNull(document.getUniqueId(), "document.uniqueId");
+    }
+    
+    URI uri = DataPositionsResource.uriBulk(getBaseUri());
+    return accessRemote(uri).put(PositionSearchResult.class, new PositionSearchResult(documents)).getDocuments();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public void remove(final UniqueId uniqueId) {
@@ -6,11 +6,13 @@
 package com.opengamma.master.security.impl;
 
 import java.net.URI;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
@@ -100,6 +102,22 @@ public class DataSecuritiesResource extends AbstractDataResource {
     return Response.created(createdUri).entity(result).build();
   }
 
+  @POST
+  @Path("securities/bulk")
+  @Consumes(FudgeRest.MEDIA)
+  public Response addAll(SecuritySearchResult request) {
+    List<SecurityDocument> result = getSecurityMaster().addAll(request.getDocuments());
+    return Response.ok(new SecuritySearchResult(result)).build();
+  }
+
+  @PUT
+  @Path("securities/bulk")
+  @Consumes(FudgeRest.MEDIA)
+  public Response updateAll(SecuritySearchResult request) {
+    List<SecurityDocument> result = getSecurityMaster().updateAll(request.getDocuments());
+    return Response.ok(new SecuritySearchResult(result)).build();
+  }
+
   //-------------------------------------------------------------------------
   @Path("securities/{securityId}")
   public DataSecurityResource findSecurity(@PathParam("securityId") String idStr) {
@@ -138,4 +156,14 @@ public class DataSecuritiesResource extends AbstractDataResource {
     return bld.build();
   }
 
+  /**
+   * Builds a URI for bulk operations on securities.
+   * 
+   * @param baseUri  the base URI, not null
+   * @return the URI, not null
+   */
+  public static URI uriBulk(URI baseUri) {
+    return UriBuilder.fromUri(baseUri).path("/securities/bulk").build();
+  }
+
 }
@@ -6,6 +6,7 @@
 package com.opengamma.master.security.impl;
 
 import java.net.URI;
+import java.util.List;
 
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.id.ObjectIdentifiable;
@@ -109,6 +110,31 @@ public class RemoteSecurityMaster extends AbstractRemoteMaster implements Securi
     return accessRemote(uri).put(SecurityDocument.class, document);
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  public List<SecurityDocument> addAll(final List<SecurityDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    for (SecurityDocument document : documents) {
+      ArgumentChecker.notNull(document.getSecurity(), "document.security");
+    }
+    
+    URI uri = DataSecuritiesResource.uriBulk(getBaseUri());
+    return accessRemote(uri).post(SecuritySearchResult.class, new SecuritySearchResult(documents)).getDocuments();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public List<SecurityDocument> updateAll(final List<SecurityDocument> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    for (SecurityDocument document : documents) {
+      ArgumentChecker.notNull(document.getSecurity(), "document.security");
+      ArgumentChecker.notNull(document.getUniqueId(), "document.uniqueId");
+    }
+    
+    URI uri = DataSecuritiesResource.uriBulk(getBaseUri());
+    return accessRemote(uri).put(SecuritySearchResult.class, new SecuritySearchResult(documents)).getDocuments();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public void remove(final UniqueId uniqueId) {
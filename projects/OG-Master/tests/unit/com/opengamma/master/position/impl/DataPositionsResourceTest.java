@@ -13,6 +13,8 @@ import static org.testng.AssertJUnit.assertSame;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -25,6 +27,7 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.master.position.ManageablePosition;
 import com.opengamma.master.position.PositionDocument;
 import com.opengamma.master.position.PositionMaster;
+import com.opengamma.master.position.PositionSearchResult;
 import com.sun.jersey.api.client.ClientResponse.Status;
 
 /**
@@ -61,6 +64,36 @@ public class DataPositionsResourceTest {
     assertSame(result, test.getEntity());
   }
 
+  @Test
+  public void testAddAllPositions() {
+    final ManageablePosition target = new ManageablePosition();
+    target.setQuantity(BigDecimal.ONE);
+    final List<PositionDocument> request = Arrays.asList(new PositionDocument(target));
+    
+    final PositionDocument doc = new PositionDocument(target);
+    doc.setUniqueId(UID);
+    final List<PositionDocument> result = Arrays.asList(doc);
+    when(_underlying.addAll(request)).thenReturn(result);
+    
+    Response test = _resource.addAll(new PositionSearchResult(request));
+    assertEquals(Status.OK.getStatusCode(), test.getStatus());
+    assertEquals(result, ((PositionSearchResult) test.getEntity()).getDocuments());
+  }
+
+  @Test
+  public void testUpdateAllPositions() {
+    final ManageablePosition target = new ManageablePosition();
+    target.setQuantity(BigDecimal.ONE);
+    final PositionDocument doc = new PositionDocument(target);
+    doc.setUniqueId(UID);
+    final List<PositionDocument> request = Arrays.asList(doc);
+    when(_underlying.updateAll(request)).thenReturn(request);
+    
+    Response test = _resource.updateAll(new PositionSearchResult(request));
+    assertEquals(Status.OK.getStatusCode(), test.getStatus());
+    assertEquals(request, ((PositionSearchResult) test.getEntity()).getDocuments());
+  }
+
   @Test
   public void testFindPosition() {
     DataPositionResource test = _resource.findPosition("Test~A");
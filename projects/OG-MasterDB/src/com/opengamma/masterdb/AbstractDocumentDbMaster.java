@@ -5,7 +5,11 @@
  */
 package com.opengamma.masterdb;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.time.Instant;
 
@@ -13,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
@@ -235,6 +240,49 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return docs.get(0);
   }
 
+  /**
+   * Performs a get of a list of versioned unique identifiers in a single query.
+   * <p>
+   * The ids are matched with the {@code GetByIds} query, which must order the rows by document id.
+   * 
+   * @param uniqueIds  the versioned unique identifiers, not null
+   * @param extractor  the extractor to use, not null
+   * @param masterName  a name describing the contents of the master for an error message, not null
+   * @return the documents, in the same order as the identifiers, not null
+   */
+  protected List<D> doGetByIds(final List<UniqueId> uniqueIds, final ResultSetExtractor<List<D>> extractor, final String masterName) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    ArgumentChecker.notNull(extractor, "extractor");
+    s_logger.debug("getByIds {} documents", uniqueIds.size());
+    if (uniqueIds.isEmpty()) {
+      return new ArrayList<D>();
+    }
+    
+    final StringBuilder buf = new StringBuilder(uniqueIds.size() * 10);
+    for (UniqueId uniqueId : uniqueIds) {
+      checkScheme(uniqueId);
+      buf.append(extractRowId(uniqueId)).append(", ");
+    }
+    buf.setLength(buf.length() - 2);
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("sql_search_ids", buf.toString());
+    final NamedParameterJdbcOperations namedJdbc = getJdbcTemplate().getNamedParameterJdbcOperations();
+    final String sql = getExtSqlBundle().getSql("GetByIds", args);
+    final Map<UniqueId, D> docs = new HashMap<UniqueId, D>();
+    for (D doc : namedJdbc.query(sql, args, extractor)) {
+      docs.put(doc.getUniqueId(), doc);
+    }
+    final List<D> result = new ArrayList<D>(uniqueIds.size());
+    for (UniqueId uniqueId : uniqueIds) {
+      final D doc = docs.get(uniqueId);  // also checks the object identifier
+      if (doc == null) {
+        throw new DataNotFoundException(masterName + " not found: " + uniqueId);
+      }
+      result.add(doc);
+    }
+    return result;
+  }
+
   /**
    * Gets the SQL arguments to use for a standard get by versioned unique identifier.
    * 
@@ -343,6 +391,34 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return getJdbcTemplate().queryForLong(getDialect().sqlNextSequenceValueSelect(sequenceName));
   }
 
+  /**
+   * Gets a block of next database ids.
+   * <p>
+   * The ids are queried in a single statement where the database supports it.
+   *
+   * @param sequenceName  the name of the sequence to query, not null
+   * @param count  the number of ids to get, not negative
+   * @return the next database ids, not null
+   */
+  protected long[] nextIds(String sequenceName, int count) {
+    final long[] ids = new long[count];
+    final String sql = (count > 1 ? getDialect().sqlNextSequenceValuesSelect(sequenceName, count) : null);
+    if (sql != null) {
+      final List<Long> values = getJdbcTemplate().getJdbcOperations().queryForList(sql, Long.class);
+      if (values.size() != count) {
+        throw new IncorrectResultSizeDataAccessException(count, values.size());
+      }
+      for (int i = 0; i < count; i++) {
+        ids[i] = values.get(i);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        ids[i] = nextId(sequenceName);
+      }
+    }
+    return ids;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public D add(final D document) {
@@ -443,6 +519,150 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return document;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a list of documents to the data store.
+   * <p>
+   * This has the same effect as calling {@link #add} for each document, but adds
+   * them all in a single transaction, allowing the master to insert them in bulk.
+   * Either all documents are added or none are.
+   * 
+   * @param documents  the documents to add, not null
+   * @return the added documents, in the same order, not null
+   */
+  public List<D> addAll(final List<D> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    s_logger.debug("addAll {} documents", documents.size());
+    if (documents.isEmpty()) {
+      return new ArrayList<D>();
+    }
+    
+    // retry to handle concurrent conflicting inserts into unique content tables
+    for (int retry = 0; true; retry++) {
+      try {
+        List<D> result = getTransactionTemplate().execute(new TransactionCallback<List<D>>() {
+          @Override
+          public List<D> doInTransaction(final TransactionStatus status) {
+            return doAddAllInTransaction(documents);
+          }
+        });
+        for (D added : result) {
+          changeManager().entityChanged(ChangeType.ADDED, null, added.getUniqueId(), added.getVersionFromInstant());
+        }
+        return result;
+      } catch (DataIntegrityViolationException ex) {
+        if (retry == getMaxRetries()) {
+          throw ex;
+        }
+      } catch (DataAccessException ex) {
+        throw fixSQLExceptionCause(ex);
+      }
+    }
+  }
+
+  /**
+   * Processes the bulk document add, within a retrying transaction.
+   * 
+   * @param documents  the documents to add, not null
+   * @return the added documents, not null
+   */
+  protected List<D> doAddAllInTransaction(final List<D> documents) {
+    // insert new rows
+    final Instant now = now();
+    for (D document : documents) {
+      document.setVersionFromInstant(now);
+      document.setVersionToInstant(null);
+      document.setCorrectionFromInstant(now);
+      document.setCorrectionToInstant(null);
+      document.setUniqueId(null);
+    }
+    insertAll(documents);
+    return documents;
+  }
+
+  /**
+   * Updates a list of documents in the data store.
+   * <p>
+   * This has the same effect as calling {@link #update} for each document, but updates
+   * them all in a single transaction, allowing the master to write them in bulk.
+   * Either all documents are updated or none are.
+   * 
+   * @param documents  the documents to update, not null
+   * @return the updated documents, in the same order, not null
+   */
+  public List<D> updateAll(final List<D> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    final List<UniqueId> beforeIds = new ArrayList<UniqueId>(documents.size());
+    for (D document : documents) {
+      ArgumentChecker.notNull(document.getUniqueId(), "document.uniqueId");
+      checkScheme(document.getUniqueId());
+      ArgumentChecker.isTrue(document.getUniqueId().isVersioned(), "UniqueId must be versioned");
+      beforeIds.add(document.getUniqueId());
+    }
+    s_logger.debug("updateAll {} documents", documents.size());
+    if (documents.isEmpty()) {
+      return new ArrayList<D>();
+    }
+    
+    // retry to handle concurrent conflicting inserts into unique content tables
+    for (int retry = 0; true; retry++) {
+      try {
+        List<D> result = getTransactionTemplate().execute(new TransactionCallback<List<D>>() {
+          @Override
+          public List<D> doInTransaction(final TransactionStatus status) {
+            return doUpdateAllInTransaction(documents, beforeIds);
+          }
+        });
+        for (int i = 0; i < result.size(); i++) {
+          final D updated = result.get(i);
+          changeManager().entityChanged(ChangeType.UPDATED, beforeIds.get(i), updated.getUniqueId(), updated.getVersionFromInstant());
+        }
+        return result;
+      } catch (DataIntegrityViolationException ex) {
+        // a failed attempt may have changed the unique identifiers, so restore them
+        for (int i = 0; i < documents.size(); i++) {
+          documents.get(i).setUniqueId(beforeIds.get(i));
+        }
+        if (retry == getMaxRetries()) {
+          throw ex;
+        }
+      } catch (DataAccessException ex) {
+        throw fixSQLExceptionCause(ex);
+      }
+    }
+  }
+
+  /**
+   * Processes the bulk document update, within a retrying transaction.
+   * 
+   * @param documents  the documents to update, not null
+   * @param uniqueIds  the unique identifiers of the versions being updated, not null
+   * @return the updated documents, not null
+   */
+  protected List<D> doUpdateAllInTransaction(final List<D> documents, final List<UniqueId> uniqueIds) {
+    // load old rows
+    final List<D> oldDocs = getCheckLatestVersions(uniqueIds);
+    // update old rows
+    final Instant now = now();
+    for (D oldDoc : oldDocs) {
+      oldDoc.setVersionToInstant(now);
+    }
+    updateVersionToInstants(oldDocs);
+    // insert new rows
+    for (int i = 0; i < documents.size(); i++) {
+      final D document = documents.get(i);
+      final D oldDoc = oldDocs.get(i);
+      document.setVersionFromInstant(now);
+      document.setVersionToInstant(null);
+      document.setCorrectionFromInstant(now);
+      document.setCorrectionToInstant(null);
+      document.setUniqueId(oldDoc.getUniqueId().toLatest());
+      mergeNonUpdatedFields(document, oldDoc);
+    }
+    insertAll(documents);
+    return documents;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public void remove(final UniqueId uniqueId) {
@@ -568,6 +788,22 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
    */
   protected abstract D insert(D document);
 
+  /**
+   * Inserts a list of new documents.
+   * <p>
+   * This implementation inserts each document in turn.
+   * Subclasses may override this to insert the documents in bulk.
+   * 
+   * @param documents  the documents to insert, not null
+   * @return the new documents, not null
+   */
+  protected List<D> insertAll(List<D> documents) {
+    for (D document : documents) {
+      insert(document);
+    }
+    return documents;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the document ensuring that it is the latest version.
@@ -583,6 +819,38 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return oldDoc;
   }
 
+  /**
+   * Gets the documents ensuring that they are the latest versions.
+   * <p>
+   * This implementation loads each document in turn.
+   * Subclasses may override this to load the documents in bulk using {@link #doGetByIds}.
+   * 
+   * @param uniqueIds  the unique identifiers to load, not null
+   * @return the loaded documents, in the same order, not null
+   */
+  protected List<D> getCheckLatestVersions(final List<UniqueId> uniqueIds) {
+    final List<D> oldDocs = new ArrayList<D>(uniqueIds.size());
+    for (UniqueId uniqueId : uniqueIds) {
+      oldDocs.add(getCheckLatestVersion(uniqueId));
+    }
+    return oldDocs;
+  }
+
+  /**
+   * Checks that the loaded documents are the latest versions.
+   * 
+   * @param oldDocs  the loaded documents, not null
+   * @return the documents, not null
+   */
+  protected List<D> checkLatestVersions(final List<D> oldDocs) {
+    for (D oldDoc : oldDocs) {
+      if (oldDoc.getVersionToInstant() != null) {
+        throw new IllegalArgumentException("UniqueId is not latest version: " + oldDoc.getUniqueId());
+      }
+    }
+    return oldDocs;
+  }
+
   /**
    * Updates the document row to mark the version as ended.
    * 
@@ -600,6 +868,30 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     }
   }
 
+  /**
+   * Updates the document rows to mark the versions as ended, in a single batch.
+   * 
+   * @param documents  the documents to update, not null
+   */
+  protected void updateVersionToInstants(final List<D> documents) {
+    final DbMapSqlParameterSource[] argsList = new DbMapSqlParameterSource[documents.size()];
+    for (int i = 0; i < argsList.length; i++) {
+      final D document = documents.get(i);
+      argsList[i] = new DbMapSqlParameterSource()
+        .addValue("doc_id", extractRowId(document.getUniqueId()))
+        .addTimestamp("ver_to_instant", document.getVersionToInstant())
+        .addValue("max_instant", DbDateUtils.MAX_SQL_TIMESTAMP);
+    }
+    final String sql = getExtSqlBundle().getSql("UpdateVersionToInstant", argsList[0]);
+    final int[] rowsUpdated = getJdbcTemplate().batchUpdate(sql, argsList);
+    for (int rows : rowsUpdated) {
+      // drivers may report a successful but unknown count for batched statements
+      if (rows != 1 && rows != Statement.SUCCESS_NO_INFO) {
+        throw new IncorrectUpdateSemanticsDataAccessException("Update end version instant failed, rows updated: " + rows);
+      }
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the document ensuring that it is the latest version.
@@ -6,6 +6,8 @@
 package com.opengamma.masterdb.batch;
 
 import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
@@ -114,6 +117,11 @@ public abstract class AbstractBatchResultWriter {
    */
   private final ResultConverterCache _resultConverterCache;
   
+  /**
+   * Writes risk values in the background, null to write them synchronously
+   */
+  private RiskValueWriter _riskValueWriter;
+  
   // Variables set in initialize()
   
   /**
@@ -192,6 +200,14 @@ public abstract class AbstractBatchResultWriter {
 
     _idGenerator = (SequenceStyleGenerator) idGenerator;
     
+    // there are few functions, so read them all up front rather than one at a time as results arrive
+    getJdbcTemplate().getJdbcOperations().query(FunctionUniqueId.sqlGetAll(), new RowCallbackHandler() {
+      @Override
+      public void processRow(ResultSet rs) throws SQLException {
+        _functionUniqueId2Id.put(rs.getString("unique_id"), rs.getInt("id"));
+      }
+    });
+    
     _initialized = true;
   }
   
@@ -236,6 +252,28 @@ public abstract class AbstractBatchResultWriter {
     return _dbConnector.getJdbcTemplate();
   }
 
+  /**
+   * Gets the writer used to write risk values in the background.
+   * 
+   * @return the writer, null if risk values are written synchronously
+   */
+  public RiskValueWriter getRiskValueWriter() {
+    return _riskValueWriter;
+  }
+
+  /**
+   * Sets the writer used to write risk values in the background.
+   * <p>
+   * When set, risk values and all other rows written by this class are queued on the writer
+   * in order, so for example a target is only marked as successful once its values are stored.
+   * The owner of the writer is responsible for closing it.
+   * 
+   * @param riskValueWriter  the writer, null to write risk values synchronously
+   */
+  public void setRiskValueWriter(RiskValueWriter riskValueWriter) {
+    _riskValueWriter = riskValueWriter;
+  }
+
   // --------------------------------------------------------------------------
 
   public long generateUniqueId() {
@@ -488,20 +526,57 @@ public abstract class AbstractBatchResultWriter {
   
   // --------------------------------------------------------------------------
   
-  public void insertRows(String rowType, String sql, List<SqlParameterSource> rows) {
+  public void insertRiskValues(List<RiskValue> riskValues) {
+    if (riskValues.isEmpty()) {
+      s_logger.info("No risk rows to insert");
+      return;
+    }
+    
+    if (_riskValueWriter != null) {
+      _riskValueWriter.write(riskValues);
+      return;
+    }
+    
+    List<SqlParameterSource> rows = new ArrayList<SqlParameterSource>(riskValues.size());
+    for (RiskValue riskValue : riskValues) {
+      rows.add(riskValue.toSqlParameterSource());
+    }
+    insertRows("risk", RiskValue.sqlInsertRisk(), rows);
+  }
+  
+  public void insertRows(final String rowType, final String sql, final List<SqlParameterSource> rows) {
     if (rows.isEmpty()) {
       s_logger.info("No {} rows to insert", rowType);
       return;
     }
     
-    s_logger.info("Inserting {} {} rows into DB", rows.size(), rowType);
-    
-    SqlParameterSource[] batchArgsArray = rows.toArray(new SqlParameterSource[0]);
+    executeInOrder(new Runnable() {
+      @Override
+      public void run() {
+        s_logger.info("Inserting {} {} rows into DB", rows.size(), rowType);
+        
+        SqlParameterSource[] batchArgsArray = rows.toArray(new SqlParameterSource[0]);
 
-    int[] counts = getJdbcTemplate().batchUpdate(sql, batchArgsArray);
+        int[] counts = getJdbcTemplate().batchUpdate(sql, batchArgsArray);
 
-    checkCount(rowType, batchArgsArray, counts);
-    s_logger.info("Inserted {} {} rows into DB", rows.size(), rowType);
+        checkCount(rowType, batchArgsArray, counts);
+        s_logger.info("Inserted {} {} rows into DB", rows.size(), rowType);
+      }
+    });
+  }
+
+  /**
+   * Runs a database task after the risk values already written.
+   * This is queued on the risk value writer if there is one, and run immediately otherwise.
+   * 
+   * @param task  the task, not null
+   */
+  protected void executeInOrder(Runnable task) {
+    if (_riskValueWriter != null) {
+      _riskValueWriter.execute(task);
+    } else {
+      task.run();
+    }
   }
 
   private int checkCount(String rowType, SqlParameterSource[] batchArgsArray, int[] counts) {
@@ -520,7 +595,7 @@ public abstract class AbstractBatchResultWriter {
   
   public void upsertStatusEntries(
       CalculationJobSpecification job,
-      StatusEntry.Status status, 
+      final StatusEntry.Status status, 
       Set<ComputationTargetSpecification> targets) {
     
     Integer calcConfId = getCalculationConfigurationId(job.getCalcConfigName());
@@ -559,19 +634,25 @@ public abstract class AbstractBatchResultWriter {
       }
     }
     
-    s_logger.info("Inserting {} and updating {} {} status entries", 
-        new Object[] {inserts.size(), updates.size(), status});
-    
-    SqlParameterSource[] batchArgsArray = inserts.toArray(new SqlParameterSource[0]);
-    int[] counts = getJdbcTemplate().batchUpdate(StatusEntry.sqlInsert(), batchArgsArray);
-    checkCount(status + " insert", batchArgsArray, counts);
-    
-    batchArgsArray = updates.toArray(new SqlParameterSource[0]);
-    counts = getJdbcTemplate().batchUpdate(StatusEntry.sqlUpdate(), batchArgsArray);
-    checkCount(status + " update", batchArgsArray, counts);
-    
-    s_logger.info("Inserted {} and updated {} {} status entries", 
-        new Object[] {inserts.size(), updates.size(), status});
+    // the ids and cache are updated here, only the statements are deferred
+    final SqlParameterSource[] insertArgsArray = inserts.toArray(new SqlParameterSource[0]);
+    final SqlParameterSource[] updateArgsArray = updates.toArray(new SqlParameterSource[0]);
+    executeInOrder(new Runnable() {
+      @Override
+      public void run() {
+        s_logger.info("Inserting {} and updating {} {} status entries", 
+            new Object[] {insertArgsArray.length, updateArgsArray.length, status});
+        
+        int[] counts = getJdbcTemplate().batchUpdate(StatusEntry.sqlInsert(), insertArgsArray);
+        checkCount(status + " insert", insertArgsArray, counts);
+        
+        counts = getJdbcTemplate().batchUpdate(StatusEntry.sqlUpdate(), updateArgsArray);
+        checkCount(status + " update", updateArgsArray, counts);
+        
+        s_logger.info("Inserted {} and updated {} {} status entries", 
+            new Object[] {insertArgsArray.length, updateArgsArray.length, status});
+      }
+    });
   }
   
   public StatusEntry.Status getStatus(String calcConfName, ComputationTargetSpecification ct) {
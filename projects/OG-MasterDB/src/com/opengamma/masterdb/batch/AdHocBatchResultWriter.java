@@ -14,7 +14,6 @@ import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
@@ -63,7 +62,7 @@ public class AdHocBatchResultWriter extends AbstractBatchResultWriter {
   
   @SuppressWarnings("unchecked")
   public void writeImpl(ViewComputationResultModel resultModel) {
-    List<SqlParameterSource> successes = new ArrayList<SqlParameterSource>();
+    List<RiskValue> successes = new ArrayList<RiskValue>();
     
     int riskRunId = getRiskRunId();
 
@@ -106,7 +105,7 @@ public class AdHocBatchResultWriter extends AbstractBatchResultWriter {
           riskValue.setValue(riskValueEntry.getValue());
           riskValue.setEvalInstant(new Date(resultModel.getCalculationTime().toEpochMillisLong()));
           riskValue.setComputeNodeId(_computeNodeId);
-          successes.add(riskValue.toSqlParameterSource());
+          successes.add(riskValue);
         }
       }
     }
@@ -121,7 +120,7 @@ public class AdHocBatchResultWriter extends AbstractBatchResultWriter {
     getSessionFactory().getCurrentSession().getTransaction().commit();
     getSessionFactory().getCurrentSession().beginTransaction();
     
-    insertRows("risk", RiskValue.sqlInsertRisk(), successes);
+    insertRiskValues(successes);
   }
 
 }
@@ -294,7 +294,7 @@ public class CommandLineBatchResultWriter extends AbstractBatchResultWriter impl
     
     }
     
-    List<SqlParameterSource> successes = new ArrayList<SqlParameterSource>();
+    List<RiskValue> successes = new ArrayList<RiskValue>();
     List<SqlParameterSource> failures = new ArrayList<SqlParameterSource>();
     List<SqlParameterSource> failureReasons = new ArrayList<SqlParameterSource>();
     
@@ -352,7 +352,7 @@ public class CommandLineBatchResultWriter extends AbstractBatchResultWriter impl
               riskValue.setValue(riskValueEntry.getValue());
               riskValue.setEvalInstant(evalInstant);
               riskValue.setComputeNodeId(computeNodeId);
-              successes.add(riskValue.toSqlParameterSource());
+              successes.add(riskValue);
             }
           }
         }
@@ -439,7 +439,7 @@ public class CommandLineBatchResultWriter extends AbstractBatchResultWriter impl
     getSessionFactory().getCurrentSession().getTransaction().commit();
     getSessionFactory().getCurrentSession().beginTransaction();
     
-    insertRows("risk", RiskValue.sqlInsertRisk(), successes);
+    insertRiskValues(successes);
     insertRows("risk failure", RiskFailure.sqlInsertRiskFailure(), failures);
     insertRows("risk failure reason", FailureReason.sqlInsertRiskFailureReason(), failureReasons);
       
@@ -732,8 +732,13 @@ public class DbBatchMaster extends AbstractDbMaster implements BatchMaster, Batc
   private void endBatchImpl(BatchJobRun batch) {
     s_logger.info("Ending batch {}", batch);
 
-    RiskRun run = getRiskRunFromHandle(batch);
-    endRun(run);
+    DbHandle dbHandle = getDbHandle(batch);
+    try {
+      // waits for the values of the last cycle to be stored
+      dbHandle._riskValueWriter.close();
+    } finally {
+      endRun(dbHandle._riskRun);
+    }
   }
 
   @Override
@@ -870,6 +875,7 @@ public class DbBatchMaster extends AbstractDbMaster implements BatchMaster, Batc
     dbHandle._riskValueRequirements = riskValueRequirements;
     dbHandle._riskValueSpecifications = riskValueSpecifications;
     dbHandle._computationTargets = computationTargets;
+    dbHandle._riskValueWriter = new RiskValueWriter(getDbConnector());
 
     batch.setDbHandle(dbHandle);
   }
@@ -880,6 +886,7 @@ public class DbBatchMaster extends AbstractDbMaster implements BatchMaster, Batc
     private Set<RiskValueRequirement> _riskValueRequirements;
     private Set<RiskValueSpecification> _riskValueSpecifications;
     private Set<ComputationTarget> _computationTargets;
+    private RiskValueWriter _riskValueWriter;
   }
 
   @Override
@@ -915,6 +922,8 @@ public class DbBatchMaster extends AbstractDbMaster implements BatchMaster, Batc
           getDbHandle(_batch)._riskValueNames,
           getDbHandle(_batch)._riskValueRequirements,
           getDbHandle(_batch)._riskValueSpecifications);
+      // values are written by the batch-wide writer in parallel with the rest of the cycle
+      writer.setRiskValueWriter(getDbHandle(_batch)._riskValueWriter);
 
       // Ultimate executor of the tasks
       DependencyGraphExecutor<CalculationJobResult> level3Executor =
@@ -1142,8 +1151,14 @@ public class DbBatchMaster extends AbstractDbMaster implements BatchMaster, Batc
           getDbHandle(batch)._riskValueRequirements,
           getDbHandle(batch)._riskValueSpecifications,
           getDbHandle(batch)._riskValueNames);
+      writer.setRiskValueWriter(getDbHandle(batch)._riskValueWriter);
 
-      writer.write(result.getResult());
+      try {
+        writer.write(result.getResult());
+      } finally {
+        // stops the writer thread even if the write fails, closing again in endBatchImpl() has no effect
+        getDbHandle(batch)._riskValueWriter.close();
+      }
 
       endBatchImpl(batch);
 
@@ -47,5 +47,9 @@ public class FunctionUniqueId {
   public String toString() {
     return ToStringBuilder.reflectionToString(this);
   }
+  
+  public static String sqlGetAll() {
+    return "SELECT id, unique_id FROM " + DbBatchMaster.getDatabaseSchema() + "rsk_function_unique_id";
+  }
 
 }
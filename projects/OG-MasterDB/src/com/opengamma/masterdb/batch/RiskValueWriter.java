@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.batch;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.db.DbConnector;
+import com.opengamma.util.db.PostgresDbDialect;
+
+/**
+ * Writes rows into {@code rsk_value} on a background thread, so that the database work of one
+ * result overlaps the calculation and conversion of the next.
+ * <p>
+ * Each call to {@link #write(List)} is queued and written as a single transaction on its own
+ * connection. On Postgres the rows are streamed through the {@code COPY} protocol; other databases,
+ * or pooled connections that do not expose the driver connection, use multi-row {@code INSERT}
+ * statements sent as a JDBC batch. The queue is bounded, so a caller that gets too far ahead of the
+ * database blocks until there is room.
+ * <p>
+ * Other tasks that must only run once the values before them are stored, such as marking the
+ * computation targets as successful, are passed to {@link #execute(Runnable)}. Tasks run in the
+ * order they are queued. The first failure is recorded, later tasks are skipped, and the failure is
+ * thrown from the next call made by the caller; {@link #close()} waits for the queue to drain.
+ */
+public class RiskValueWriter {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(RiskValueWriter.class);
+
+  /**
+   * The default number of writes that can be queued before callers block.
+   */
+  public static final int DEFAULT_QUEUE_SIZE = 16;
+  /**
+   * The number of rows in each multi-row insert.
+   */
+  public static final int ROWS_PER_INSERT = 100;
+  /**
+   * The columns written, in order.
+   */
+  private static final String COLUMNS = "id, calculation_configuration_id, value_name_id, value_requirement_id, value_specification_id, " +
+      "function_unique_id, computation_target_id, run_id, value, eval_instant, compute_node_id";
+  /**
+   * The number of columns written.
+   */
+  private static final int COLUMN_COUNT = 11;
+
+  /**
+   * The data source.
+   */
+  private final DataSource _dataSource;
+  /**
+   * Whether to try the Postgres COPY protocol.
+   */
+  private final boolean _copy;
+  /**
+   * The queued tasks.
+   */
+  private final BlockingQueue<Runnable> _queue;
+  /**
+   * The thread running the tasks.
+   */
+  private final Thread _thread;
+  /**
+   * The first failure, null if none.
+   */
+  private volatile Throwable _failure;
+  /**
+   * Whether the writer has been closed.
+   */
+  private volatile boolean _closed;
+
+  /**
+   * Creates a writer with the default queue size, starting its thread.
+   *
+   * @param dbConnector  the database connector, not null
+   */
+  public RiskValueWriter(DbConnector dbConnector) {
+    this(dbConnector, DEFAULT_QUEUE_SIZE);
+  }
+
+  /**
+   * Creates a writer, starting its thread.
+   *
+   * @param dbConnector  the database connector, not null
+   * @param queueSize  the number of writes that can be queued before callers block, positive
+   */
+  public RiskValueWriter(DbConnector dbConnector, int queueSize) {
+    ArgumentChecker.notNull(dbConnector, "dbConnector");
+    ArgumentChecker.isTrue(queueSize > 0, "queueSize must be positive");
+    _dataSource = dbConnector.getDataSource();
+    _copy = dbConnector.getDialect() instanceof PostgresDbDialect;
+    _queue = new ArrayBlockingQueue<Runnable>(queueSize);
+    _thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        runTasks();
+      }
+    }, "RiskValueWriter");
+    _thread.setDaemon(true);
+    _thread.start();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Queues rows to be written, blocking if the queue is full.
+   *
+   * @param rows  the rows, not null
+   * @throws OpenGammaRuntimeException if an earlier task failed
+   */
+  public void write(final List<RiskValue> rows) {
+    ArgumentChecker.notNull(rows, "rows");
+    if (rows.isEmpty()) {
+      return;
+    }
+    enqueue(new Runnable() {
+      @Override
+      public void run() {
+        insert(rows);
+      }
+    });
+  }
+
+  /**
+   * Queues a task to run after the rows and tasks already queued, blocking if the queue is full.
+   *
+   * @param task  the task, not null
+   * @throws OpenGammaRuntimeException if an earlier task failed
+   */
+  public void execute(Runnable task) {
+    ArgumentChecker.notNull(task, "task");
+    enqueue(task);
+  }
+
+  /**
+   * Waits for the rows and tasks already queued to be written.
+   *
+   * @throws OpenGammaRuntimeException if a task failed
+   */
+  public void flush() {
+    Flush flush = new Flush();
+    enqueue(flush);
+    try {
+      flush._done.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted waiting for risk values to be written", ex);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Waits for the rows and tasks already queued to be written and stops the thread.
+   * Closing a closed writer has no effect.
+   *
+   * @throws OpenGammaRuntimeException if a task failed
+   */
+  public void close() {
+    if (_closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      _closed = true;
+      _thread.interrupt();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private void enqueue(Runnable task) {
+    if (_closed) {
+      throw new IllegalStateException("Writer has been closed");
+    }
+    checkFailure();
+    try {
+      _queue.put(task);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted queueing risk values", ex);
+    }
+  }
+
+  private void checkFailure() {
+    Throwable failure = _failure;
+    if (failure != null) {
+      throw new OpenGammaRuntimeException("Failed to write risk values", failure);
+    }
+  }
+
+  private void runTasks() {
+    while (!_closed) {
+      Runnable task;
+      try {
+        task = _queue.take();
+      } catch (InterruptedException ex) {
+        continue;
+      }
+      // once a task has failed the rest are skipped, but the queue is still drained so callers never block forever
+      if (_failure == null || task instanceof Flush) {
+        try {
+          task.run();
+        } catch (Throwable ex) {
+          s_logger.error("Failed to write risk values", ex);
+          _failure = ex;
+        }
+      }
+    }
+  }
+
+  private void insert(List<RiskValue> rows) {
+    s_logger.info("Inserting {} risk rows into DB", rows.size());
+    try {
+      Connection connection = _dataSource.getConnection();
+      try {
+        connection.setAutoCommit(false);
+        try {
+          if (!(_copy && copy(connection, rows))) {
+            insertMultiRow(connection, rows);
+          }
+          connection.commit();
+        } catch (SQLException ex) {
+          connection.rollback();
+          throw ex;
+        } catch (RuntimeException ex) {
+          connection.rollback();
+          throw ex;
+        }
+      } finally {
+        connection.close();
+      }
+    } catch (SQLException ex) {
+      throw new OpenGammaRuntimeException("Failed to insert " + rows.size() + " risk rows", ex);
+    }
+    s_logger.info("Inserted {} risk rows into DB", rows.size());
+  }
+
+  private boolean copy(Connection connection, List<RiskValue> rows) throws SQLException {
+    if (!connection.isWrapperFor(PGConnection.class)) {
+      return false;
+    }
+    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+    long count;
+    try {
+      count = pgConnection.getCopyAPI().copyIn(sqlCopyRisk(), new StringReader(toCopyText(rows)));
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Failed to copy risk rows", ex);
+    }
+    checkCount(rows.size(), count);
+    return true;
+  }
+
+  private void insertMultiRow(Connection connection, List<RiskValue> rows) throws SQLException {
+    int size = rows.size();
+    int fullBlocks = size / ROWS_PER_INSERT;
+    long count = 0;
+    if (fullBlocks > 0) {
+      PreparedStatement stmt = connection.prepareStatement(sqlInsertRisk(ROWS_PER_INSERT));
+      try {
+        for (int block = 0; block < fullBlocks; block++) {
+          setParameters(stmt, rows, block * ROWS_PER_INSERT, ROWS_PER_INSERT);
+          stmt.addBatch();
+        }
+        for (int blockCount : stmt.executeBatch()) {
+          count += (blockCount == Statement.SUCCESS_NO_INFO ? ROWS_PER_INSERT : blockCount);
+        }
+      } finally {
+        stmt.close();
+      }
+    }
+    int remainder = size - fullBlocks * ROWS_PER_INSERT;
+    if (remainder > 0) {
+      PreparedStatement stmt = connection.prepareStatement(sqlInsertRisk(remainder));
+      try {
+        setParameters(stmt, rows, fullBlocks * ROWS_PER_INSERT, remainder);
+        count += stmt.executeUpdate();
+      } finally {
+        stmt.close();
+      }
+    }
+    checkCount(size, count);
+  }
+
+  private static void setParameters(PreparedStatement stmt, List<RiskValue> rows, int start, int count) throws SQLException {
+    int index = 1;
+    for (int i = start; i < start + count; i++) {
+      RiskValue row = rows.get(i);
+      stmt.setLong(index++, row.getId());
+      stmt.setInt(index++, row.getCalculationConfigurationId());
+      stmt.setInt(index++, row.getValueNameId());
+      stmt.setInt(index++, row.getValueRequirementId());
+      stmt.setInt(index++, row.getValueSpecificationId());
+      stmt.setInt(index++, row.getFunctionUniqueId());
+      stmt.setInt(index++, row.getComputationTargetId());
+      stmt.setInt(index++, row.getRunId());
+      stmt.setDouble(index++, row.getValue());
+      stmt.setTimestamp(index++, new Timestamp(row.getEvalInstant().getTime()));
+      stmt.setInt(index++, row.getComputeNodeId());
+    }
+  }
+
+  private static void checkCount(long expected, long actual) {
+    if (expected != actual) {
+      throw new OpenGammaRuntimeException("risk insert count is wrong: expected = " + expected + " actual = " + actual);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the SQL to copy rows into {@code rsk_value} from text.
+   *
+   * @return the SQL, not null
+   */
+  /* package */ static String sqlCopyRisk() {
+    return "COPY " + DbBatchMaster.getDatabaseSchema() + "rsk_value (" + COLUMNS + ") FROM STDIN";
+  }
+
+  /**
+   * Gets the SQL to insert a number of rows into {@code rsk_value} in one statement.
+   *
+   * @param rowCount  the number of rows, positive
+   * @return the SQL, not null
+   */
+  /* package */ static String sqlInsertRisk(int rowCount) {
+    StringBuilder buf = new StringBuilder(128 + rowCount * (COLUMN_COUNT * 3 + 4));
+    buf.append("INSERT INTO ").append(DbBatchMaster.getDatabaseSchema()).append("rsk_value (").append(COLUMNS).append(") VALUES ");
+    for (int i = 0; i < rowCount; i++) {
+      buf.append(i == 0 ? "(" : ", (");
+      for (int j = 0; j < COLUMN_COUNT; j++) {
+        buf.append(j == 0 ? "?" : ", ?");
+      }
+      buf.append(')');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Formats rows in the text format of {@code COPY}, one tab-separated line per row.
+   * The evaluation instant is written in the default time-zone, as JDBC would bind it.
+   *
+   * @param rows  the rows, not null
+   * @return the text, not null
+   */
+  /* package */ static String toCopyText(List<RiskValue> rows) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    StringBuilder buf = new StringBuilder(rows.size() * 96);
+    for (RiskValue row : rows) {
+      buf.append(row.getId()).append('\t')
+        .append(row.getCalculationConfigurationId()).append('\t')
+        .append(row.getValueNameId()).append('\t')
+        .append(row.getValueRequirementId()).append('\t')
+        .append(row.getValueSpecificationId()).append('\t')
+        .append(row.getFunctionUniqueId()).append('\t')
+        .append(row.getComputationTargetId()).append('\t')
+        .append(row.getRunId()).append('\t')
+        .append(row.getValue()).append('\t')
+        .append(format.format(row.getEvalInstant())).append('\t')
+        .append(row.getComputeNodeId()).append('\n');
+    }
+    return buf.toString();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Task marking a point in the queue, run even after a failure.
+   */
+  private static final class Flush implements Runnable {
+    private final CountDownLatch _done = new CountDownLatch(1);
+
+    @Override
+    public void run() {
+      _done.countDown();
+    }
+  }
+
+}
@@ -11,6 +11,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 
 import com.google.common.base.Objects;
@@ -81,6 +83,10 @@ public class DbPositionMaster extends AbstractDocumentDbMaster<PositionDocument>
    * The default scheme for unique identifiers.
    */
   public static final String IDENTIFIER_SCHEME_DEFAULT = "DbPos";
+  /**
+   * The maximum number of identifier keys looked up in a single query.
+   */
+  protected static final int ID_KEY_SELECT_SIZE = 100;
   
   /**
    * Creates an instance.
@@ -171,8 +177,20 @@ public class DbPositionMaster extends AbstractDocumentDbMaster<PositionDocument>
    * @return the SQL, not null
    */
   protected String sqlSelectIdKeys(final ExternalIdSearch idSearch) {
+    return sqlSelectIdKeys(idSearch.size());
+  }
+
+  /**
+   * Gets the SQL to match a number of identifier keys.
+   * <p>
+   * The keys are bound as {@code key_scheme0} and {@code key_value0} onwards.
+   * 
+   * @param size  the number of keys
+   * @return the SQL, not null
+   */
+  protected String sqlSelectIdKeys(final int size) {
     List<String> list = new ArrayList<String>();
-    for (int i = 0; i < idSearch.size(); i++) {
+    for (int i = 0; i < size; i++) {
       list.add("(key_scheme = :key_scheme" + i + " AND key_value = :key_value" + i + ") ");
     }
     return StringUtils.join(list, "OR ");
@@ -184,6 +202,12 @@ public class DbPositionMaster extends AbstractDocumentDbMaster<PositionDocument>
     return doGet(uniqueId, new PositionDocumentExtractor(), "Position");
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  protected List<PositionDocument> getCheckLatestVersions(final List<UniqueId> uniqueIds) {
+    return checkLatestVersions(doGetByIds(uniqueIds, new PositionDocumentExtractor(), "Position"));
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public PositionDocument get(final ObjectIdentifiable objectId, final VersionCorrection versionCorrection) {
@@ -205,128 +229,162 @@ public class DbPositionMaster extends AbstractDocumentDbMaster<PositionDocument>
    */
   @Override
   protected PositionDocument insert(final PositionDocument document) {
-    ArgumentChecker.notNull(document.getPosition(), "document.position");
-
-    final long positionId = nextId("pos_master_seq");
-    final long positionOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : positionId);
-    final UniqueId positionUid = createUniqueId(positionOid, positionId);
-    final ManageablePosition position = document.getPosition();
+    insertAll(Collections.singletonList(document));
+    return document;
+  }
 
-    // the arguments for inserting into the position table
-    final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
-        .addValue("position_id", positionId)
-        .addValue("position_oid", positionOid)
-        .addTimestamp("ver_from_instant", document.getVersionFromInstant())
-        .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
-        .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
-        .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
-        .addValue("quantity", position.getQuantity())
-        .addValue("provider_scheme", (position.getProviderId() != null ? position.getProviderId().getScheme().getName() : null))
-        .addValue("provider_value", (position.getProviderId() != null ? position.getProviderId().getValue() : null));
+  /**
+   * Inserts a list of new documents.
+   * <p>
+   * The database ids are allocated in blocks, the identifier keys are resolved
+   * with set-based queries and each table is written with a single batch.
+   * 
+   * @param documents  the documents, not null
+   * @return the new documents, not null
+   */
+  @Override
+  protected List<PositionDocument> insertAll(final List<PositionDocument> documents) {
+    // allocate the ids for all the rows up front
+    int masterIdCount = 0;
+    int attrIdCount = 0;
+    for (PositionDocument document : documents) {
+      ArgumentChecker.notNull(document.getPosition(), "document.position");
+      final ManageablePosition position = document.getPosition();
+      masterIdCount += 1 + position.getTrades().size();
+      attrIdCount += position.getAttributes().size();
+      for (ManageableTrade trade : position.getTrades()) {
+        attrIdCount += trade.getAttributes().size();
+      }
+    }
+    final long[] masterIds = nextIds("pos_master_seq", masterIdCount);
+    final long[] attrIds = nextIds("pos_trade_attr_seq", attrIdCount);
+    int masterIdIndex = 0;
+    int attrIdIndex = 0;
     
-    // the arguments for inserting into the pos_attribute table
+    final List<DbMapSqlParameterSource> docList = Lists.newArrayList();
+    final List<UniqueId> positionUidList = Lists.newArrayList();
     final List<DbMapSqlParameterSource> posAttrList = Lists.newArrayList();
-    for (Entry<String, String> entry : position.getAttributes().entrySet()) {
-      final long posAttrId = nextId("pos_trade_attr_seq");
-      final DbMapSqlParameterSource posAttrArgs = new DbMapSqlParameterSource()
-          .addValue("attr_id", posAttrId)
-          .addValue("pos_id", positionId)
-          .addValue("pos_oid", positionOid)
-          .addValue("key", entry.getKey())
-          .addValue("value", entry.getValue());
-      posAttrList.add(posAttrArgs);
-    }
-
-    // the arguments for inserting into the idkey tables
-    final List<DbMapSqlParameterSource> posAssocList = new ArrayList<DbMapSqlParameterSource>();
-    final Set<Pair<String, String>> schemeValueSet = Sets.newHashSet();
-    for (ExternalId id : position.getSecurityLink().getAllExternalIds()) {
-      final DbMapSqlParameterSource assocArgs = new DbMapSqlParameterSource()
-          .addValue("position_id", positionId)
-          .addValue("key_scheme", id.getScheme().getName())
-          .addValue("key_value", id.getValue());
-      posAssocList.add(assocArgs);
-      schemeValueSet.add(Pair.of(id.getScheme().getName(), id.getValue()));
-    }
-
-    // the arguments for inserting into the trade table
+    final List<DbMapSqlParameterSource> posAssocList = Lists.newArrayList();
     final List<DbMapSqlParameterSource> tradeList = Lists.newArrayList();
     final List<DbMapSqlParameterSource> tradeAssocList = Lists.newArrayList();
     final List<DbMapSqlParameterSource> tradeAttributeList = Lists.newArrayList();
-    for (ManageableTrade trade : position.getTrades()) {
-      final long tradeId = nextId("pos_master_seq");
-      final long tradeOid = (trade.getUniqueId() != null ? extractOid(trade.getUniqueId()) : tradeId);
-      final ExternalId counterpartyId = trade.getCounterpartyExternalId();
-
-      final DbMapSqlParameterSource tradeArgs = new DbMapSqlParameterSource()
-          .addValue("trade_id", tradeId)
-          .addValue("trade_oid", tradeOid)
+    final Set<Pair<String, String>> schemeValueSet = Sets.newLinkedHashSet();
+    for (PositionDocument document : documents) {
+      final long positionId = masterIds[masterIdIndex++];
+      final long positionOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : positionId);
+      final UniqueId positionUid = createUniqueId(positionOid, positionId);
+      final ManageablePosition position = document.getPosition();
+      positionUidList.add(positionUid);
+      
+      // the arguments for inserting into the position table
+      final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
           .addValue("position_id", positionId)
           .addValue("position_oid", positionOid)
-          .addValue("quantity", trade.getQuantity())
-          .addDate("trade_date", trade.getTradeDate())
-          .addTimeAllowNull("trade_time", trade.getTradeTime() != null ? trade.getTradeTime().toLocalTime() : null)
-          .addValue("zone_offset", (trade.getTradeTime() != null ? trade.getTradeTime().getOffset().getAmountSeconds() : null))
-          .addValue("cparty_scheme", counterpartyId.getScheme().getName())
-          .addValue("cparty_value", counterpartyId.getValue())
+          .addTimestamp("ver_from_instant", document.getVersionFromInstant())
+          .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
+          .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
+          .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
+          .addValue("quantity", position.getQuantity())
           .addValue("provider_scheme", (position.getProviderId() != null ? position.getProviderId().getScheme().getName() : null))
-          .addValue("provider_value", (position.getProviderId() != null ? position.getProviderId().getValue() : null))
-          .addValue("premium_value", (trade.getPremium() != null ? trade.getPremium() : null))
-          .addValue("premium_currency", (trade.getPremiumCurrency() != null ? trade.getPremiumCurrency().getCode() : null))
-          .addDateAllowNull("premium_date", trade.getPremiumDate())
-          .addTimeAllowNull("premium_time", (trade.getPremiumTime() != null ? trade.getPremiumTime().toLocalTime() : null))
-          .addValue("premium_zone_offset", (trade.getPremiumTime() != null ? trade.getPremiumTime().getOffset().getAmountSeconds() : null));
-      tradeList.add(tradeArgs);
+          .addValue("provider_value", (position.getProviderId() != null ? position.getProviderId().getValue() : null));
+      docList.add(docArgs);
       
-      // trade attributes
-      Map<String, String> attributes = new HashMap<String, String>(trade.getAttributes());
-      for (Entry<String, String> entry : attributes.entrySet()) {
-        final long tradeAttrId = nextId("pos_trade_attr_seq");
-        final DbMapSqlParameterSource tradeAttributeArgs = new DbMapSqlParameterSource()
-            .addValue("attr_id", tradeAttrId)
-            .addValue("trade_id", tradeId)
-            .addValue("trade_oid", tradeOid)
+      // the arguments for inserting into the pos_attribute table
+      for (Entry<String, String> entry : position.getAttributes().entrySet()) {
+        final long posAttrId = attrIds[attrIdIndex++];
+        final DbMapSqlParameterSource posAttrArgs = new DbMapSqlParameterSource()
+            .addValue("attr_id", posAttrId)
+            .addValue("pos_id", positionId)
+            .addValue("pos_oid", positionOid)
             .addValue("key", entry.getKey())
             .addValue("value", entry.getValue());
-        tradeAttributeList.add(tradeAttributeArgs);
+        posAttrList.add(posAttrArgs);
       }
       
-      // set the trade uniqueId
-      final UniqueId tradeUid = createUniqueId(tradeOid, tradeId);
-      IdUtils.setInto(trade, tradeUid);
-      trade.setParentPositionId(positionUid);
-      for (ExternalId id : trade.getSecurityLink().getAllExternalIds()) {
+      // the arguments for inserting into the idkey tables
+      for (ExternalId id : position.getSecurityLink().getAllExternalIds()) {
         final DbMapSqlParameterSource assocArgs = new DbMapSqlParameterSource()
-            .addValue("trade_id", tradeId)
+            .addValue("position_id", positionId)
             .addValue("key_scheme", id.getScheme().getName())
             .addValue("key_value", id.getValue());
-        tradeAssocList.add(assocArgs);
+        posAssocList.add(assocArgs);
         schemeValueSet.add(Pair.of(id.getScheme().getName(), id.getValue()));
       }
+      
+      // the arguments for inserting into the trade table
+      for (ManageableTrade trade : position.getTrades()) {
+        final long tradeId = masterIds[masterIdIndex++];
+        final long tradeOid = (trade.getUniqueId() != null ? extractOid(trade.getUniqueId()) : tradeId);
+        final ExternalId counterpartyId = trade.getCounterpartyExternalId();
+        
+        final DbMapSqlParameterSource tradeArgs = new DbMapSqlParameterSource()
+            .addValue("trade_id", tradeId)
+            .addValue("trade_oid", tradeOid)
+            .addValue("position_id", positionId)
+            .addValue("position_oid", positionOid)
+            .addValue("quantity", trade.getQuantity())
+            .addDate("trade_date", trade.getTradeDate())
+            .addTimeAllowNull("trade_time", trade.getTradeTime() != null ? trade.getTradeTime().toLocalTime() : null)
+            .addValue("zone_offset", (trade.getTradeTime() != null ? trade.getTradeTime().getOffset().getAmountSeconds() : null))
+            .addValue("cparty_scheme", counterpartyId.getScheme().getName())
+            .addValue("cparty_value", counterpartyId.getValue())
+            .addValue("provider_scheme", (position.getProviderId() != null ? position.getProviderId().getScheme().getName() : null))
+            .addValue("provider_value", (position.getProviderId() != null ? position.getProviderId().getValue() : null))
+            .addValue("premium_value", (trade.getPremium() != null ? trade.getPremium() : null))
+            .addValue("premium_currency", (trade.getPremiumCurrency() != null ? trade.getPremiumCurrency().getCode() : null))
+            .addDateAllowNull("premium_date", trade.getPremiumDate())
+            .addTimeAllowNull("premium_time", (trade.getPremiumTime() != null ? trade.getPremiumTime().toLocalTime() : null))
+            .addValue("premium_zone_offset", (trade.getPremiumTime() != null ? trade.getPremiumTime().getOffset().getAmountSeconds() : null));
+        tradeList.add(tradeArgs);
+        
+        // trade attributes
+        Map<String, String> attributes = new HashMap<String, String>(trade.getAttributes());
+        for (Entry<String, String> entry : attributes.entrySet()) {
+          final long tradeAttrId = attrIds[attrIdIndex++];
+          final DbMapSqlParameterSource tradeAttributeArgs = new DbMapSqlParameterSource()
+              .addValue("attr_id", tradeAttrId)
+              .addValue("trade_id", tradeId)
+              .addValue("trade_oid", tradeOid)
+              .addValue("key", entry.getKey())
+              .addValue("value", entry.getValue());
+          tradeAttributeList.add(tradeAttributeArgs);
+        }
+        
+        // set the trade uniqueId
+        final UniqueId tradeUid = createUniqueId(tradeOid, tradeId);
+        IdUtils.setInto(trade, tradeUid);
+        trade.setParentPositionId(positionUid);
+        for (ExternalId id : trade.getSecurityLink().getAllExternalIds()) {
+          final DbMapSqlParameterSource assocArgs = new DbMapSqlParameterSource()
+              .addValue("trade_id", tradeId)
+              .addValue("key_scheme", id.getScheme().getName())
+              .addValue("key_value", id.getValue());
+          tradeAssocList.add(assocArgs);
+          schemeValueSet.add(Pair.of(id.getScheme().getName(), id.getValue()));
+        }
+      }
     }
-
+    
+    // select avoids creating unecessary id, but id may still not be used
+    final Set<Pair<String, String>> missingKeys = selectMissingIdKeys(schemeValueSet);
+    final long[] idKeyIds = nextIds("pos_idkey_seq", missingKeys.size());
     final List<DbMapSqlParameterSource> idKeyList = new ArrayList<DbMapSqlParameterSource>();
-    final String sqlSelectIdKey = getExtSqlBundle().getSql("SelectIdKey");
-    for (Pair<String, String> pair : schemeValueSet) {
+    for (Pair<String, String> pair : missingKeys) {
       final DbMapSqlParameterSource idkeyArgs = new DbMapSqlParameterSource()
+          .addValue("idkey_id", idKeyIds[idKeyList.size()])
           .addValue("key_scheme", pair.getFirst())
           .addValue("key_value", pair.getSecond());
-      if (getJdbcTemplate().queryForList(sqlSelectIdKey, idkeyArgs).isEmpty()) {
-        // select avoids creating unecessary id, but id may still not be used
-        final long idKeyId = nextId("pos_idkey_seq");
-        idkeyArgs.addValue("idkey_id", idKeyId);
-        idKeyList.add(idkeyArgs);
-      }
+      idKeyList.add(idkeyArgs);
     }
     
-    final String sqlDoc = getExtSqlBundle().getSql("Insert", docArgs);
+    final String sqlDoc = getExtSqlBundle().getSql("Insert", docList.get(0));
     final String sqlIdKey = getExtSqlBundle().getSql("InsertIdKey");
     final String sqlPosition2IdKey = getExtSqlBundle().getSql("InsertPosition2IdKey");
     final String sqlTrade = getExtSqlBundle().getSql("InsertTrade");
     final String sqlTrade2IdKey = getExtSqlBundle().getSql("InsertTrade2IdKey");
     final String sqlPositionAttributes = getExtSqlBundle().getSql("InsertPositionAttributes");
     final String sqlTradeAttributes = getExtSqlBundle().getSql("InsertTradeAttributes");
-    getJdbcTemplate().update(sqlDoc, docArgs);
+    getJdbcTemplate().batchUpdate(sqlDoc, docList.toArray(new DbMapSqlParameterSource[docList.size()]));
     getJdbcTemplate().batchUpdate(sqlIdKey, idKeyList.toArray(new DbMapSqlParameterSource[idKeyList.size()]));
     getJdbcTemplate().batchUpdate(sqlPosition2IdKey, posAssocList.toArray(new DbMapSqlParameterSource[posAssocList.size()]));
     getJdbcTemplate().batchUpdate(sqlTrade, tradeList.toArray(new DbMapSqlParameterSource[tradeList.size()]));
@@ -334,10 +392,45 @@ public class DbPositionMaster extends AbstractDocumentDbMaster<PositionDocument>
     getJdbcTemplate().batchUpdate(sqlPositionAttributes, posAttrList.toArray(new DbMapSqlParameterSource[posAttrList.size()]));
     getJdbcTemplate().batchUpdate(sqlTradeAttributes, tradeAttributeList.toArray(new DbMapSqlParameterSource[tradeAttributeList.size()]));
     
-    // set the uniqueId
-    position.setUniqueId(positionUid);
-    document.setUniqueId(positionUid);
-    return document;
+    // set the uniqueIds
+    for (int i = 0; i < documents.size(); i++) {
+      final PositionDocument document = documents.get(i);
+      document.getPosition().setUniqueId(positionUidList.get(i));
+      document.setUniqueId(positionUidList.get(i));
+    }
+    return documents;
+  }
+
+  /**
+   * Finds the identifier keys that are not yet in the database.
+   * <p>
+   * The keys are looked up in chunks of {@link #ID_KEY_SELECT_SIZE} per query.
+   * 
+   * @param schemeValueSet  the scheme-value pairs of the keys, not null
+   * @return the pairs not found in the database, not null
+   */
+  protected Set<Pair<String, String>> selectMissingIdKeys(final Set<Pair<String, String>> schemeValueSet) {
+    final Set<Pair<String, String>> missing = Sets.newLinkedHashSet(schemeValueSet);
+    final List<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>(schemeValueSet);
+    final NamedParameterJdbcOperations namedJdbc = getJdbcTemplate().getNamedParameterJdbcOperations();
+    for (int start = 0; start < pairs.size(); start += ID_KEY_SELECT_SIZE) {
+      final List<Pair<String, String>> chunk = pairs.subList(start, Math.min(start + ID_KEY_SELECT_SIZE, pairs.size()));
+      final DbMapSqlParameterSource args = new DbMapSqlParameterSource();
+      for (int i = 0; i < chunk.size(); i++) {
+        args.addValue("key_scheme" + i, chunk.get(i).getFirst());
+        args.addValue("key_value" + i, chunk.get(i).getSecond());
+      }
+      args.addValue("sql_search_idkeys", sqlSelectIdKeys(chunk.size()));
+      final String sql = getExtSqlBundle().getSql("SelectIdKeys", args);
+      final List<Pair<String, String>> found = namedJdbc.query(sql, args, new RowMapper<Pair<String, String>>() {
+        @Override
+        public Pair<String, String> mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+          return Pair.<String, String>of(rs.getString("KEY_SCHEME"), rs.getString("KEY_VALUE"));
+        }
+      });
+      missing.removeAll(found);
+    }
+    return missing;
   }
 
   //-------------------------------------------------------------------------
@@ -12,8 +12,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hsqldb.types.Types;
@@ -21,6 +23,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.support.SqlLobValue;
 import org.springframework.jdbc.support.lob.LobHandler;
 
@@ -73,6 +77,10 @@ public class DbSecurityMaster extends AbstractDocumentDbMaster<SecurityDocument>
    * The default scheme for unique identifiers.
    */
   public static final String IDENTIFIER_SCHEME_DEFAULT = "DbSec";
+  /**
+   * The maximum number of identifier keys looked up in a single query.
+   */
+  protected static final int ID_KEY_SELECT_SIZE = 100;
 
   /**
    * SQL order by.
@@ -208,8 +216,20 @@ public class DbSecurityMaster extends AbstractDocumentDbMaster<SecurityDocument>
    * @return the SQL, not null
    */
   protected String sqlSelectIdKeys(final ExternalIdSearch idSearch) {
+    return sqlSelectIdKeys(idSearch.size());
+  }
+
+  /**
+   * Gets the SQL to match a number of identifier keys.
+   * <p>
+   * The keys are bound as {@code key_scheme0} and {@code key_value0} onwards.
+   * 
+   * @param size  the number of keys
+   * @return the SQL, not null
+   */
+  protected String sqlSelectIdKeys(final int size) {
     List<String> list = new ArrayList<String>();
-    for (int i = 0; i < idSearch.size(); i++) {
+    for (int i = 0; i < size; i++) {
       list.add("(key_scheme = :key_scheme" + i + " AND key_value = :key_value" + i + ") ");
     }
     return StringUtils.join(list, "OR ");
@@ -223,6 +243,13 @@ public class DbSecurityMaster extends AbstractDocumentDbMaster<SecurityDocument>
     return doc;
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  protected List<SecurityDocument> getCheckLatestVersions(final List<UniqueId> uniqueIds) {
+    // the detail is not needed to end the old versions
+    return checkLatestVersions(doGetByIds(uniqueIds, new SecurityDocumentExtractor(), "Security"));
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public SecurityDocument get(final ObjectIdentifiable objectId, final VersionCorrection versionCorrection) {
@@ -267,84 +294,154 @@ public class DbSecurityMaster extends AbstractDocumentDbMaster<SecurityDocument>
    */
   @Override
   protected SecurityDocument insert(final SecurityDocument document) {
-    ArgumentChecker.notNull(document.getSecurity(), "document.security");
-    
-    final long docId = nextId("sec_security_seq");
-    final long docOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : docId);
-    // the arguments for inserting into the security table
-    final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
-      .addValue("doc_id", docId)
-      .addValue("doc_oid", docOid)
-      .addTimestamp("ver_from_instant", document.getVersionFromInstant())
-      .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
-      .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
-      .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
-      .addValue("name", document.getSecurity().getName())
-      .addValue("sec_type", document.getSecurity().getSecurityType());
-    if (document.getSecurity() instanceof RawSecurity) {
-      docArgs.addValue("detail_type", "R");
-    } else if (document.getSecurity().getClass() == ManageableSecurity.class) {
-      docArgs.addValue("detail_type", "M");
-    } else {
-      docArgs.addValue("detail_type", "D");
+    insertAll(Collections.singletonList(document));
+    return document;
+  }
+
+  /**
+   * Inserts a list of new documents.
+   * <p>
+   * The database ids are allocated in blocks, the identifier keys are resolved
+   * with set-based queries and each table is written with a single batch.
+   * The security detail is stored one security at a time by the detail provider.
+   * 
+   * @param documents  the documents, not null
+   * @return the new documents, not null
+   */
+  @Override
+  protected List<SecurityDocument> insertAll(final List<SecurityDocument> documents) {
+    // allocate the ids for all the rows up front
+    int attrIdCount = 0;
+    for (SecurityDocument document : documents) {
+      ArgumentChecker.notNull(document.getSecurity(), "document.security");
+      attrIdCount += document.getSecurity().getAttributes().size();
     }
-    // the arguments for inserting into the idkey tables
+    final long[] docIds = nextIds("sec_security_seq", documents.size());
+    final long[] attrIds = nextIds("sec_security_attr_seq", attrIdCount);
+    int attrIdIndex = 0;
+    
+    final List<DbMapSqlParameterSource> docList = new ArrayList<DbMapSqlParameterSource>();
+    final List<UniqueId> uniqueIdList = new ArrayList<UniqueId>();
     final List<DbMapSqlParameterSource> assocList = new ArrayList<DbMapSqlParameterSource>();
-    final List<DbMapSqlParameterSource> idKeyList = new ArrayList<DbMapSqlParameterSource>();
-    final String sqlSelectIdKey = getExtSqlBundle().getSql("SelectIdKey");
-    for (ExternalId id : document.getSecurity().getExternalIdBundle()) {
-      final DbMapSqlParameterSource assocArgs = new DbMapSqlParameterSource()
+    final List<DbMapSqlParameterSource> securityAttributeList = Lists.newArrayList();
+    final Set<ExternalId> externalIds = new LinkedHashSet<ExternalId>();
+    for (int i = 0; i < documents.size(); i++) {
+      final SecurityDocument document = documents.get(i);
+      final long docId = docIds[i];
+      final long docOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : docId);
+      uniqueIdList.add(createUniqueId(docOid, docId));
+      // the arguments for inserting into the security table
+      final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
         .addValue("doc_id", docId)
-        .addValue("key_scheme", id.getScheme().getName())
-        .addValue("key_value", id.getValue());
-      assocList.add(assocArgs);
-      if (getJdbcTemplate().queryForList(sqlSelectIdKey, assocArgs).isEmpty()) {
-        // select avoids creating unnecessary id, but id may still not be used
-        final long idKeyId = nextId("sec_idkey_seq");
-        final DbMapSqlParameterSource idkeyArgs = new DbMapSqlParameterSource()
-          .addValue("idkey_id", idKeyId)
+        .addValue("doc_oid", docOid)
+        .addTimestamp("ver_from_instant", document.getVersionFromInstant())
+        .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
+        .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
+        .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
+        .addValue("name", document.getSecurity().getName())
+        .addValue("sec_type", document.getSecurity().getSecurityType());
+      if (document.getSecurity() instanceof RawSecurity) {
+        docArgs.addValue("detail_type", "R");
+      } else if (document.getSecurity().getClass() == ManageableSecurity.class) {
+        docArgs.addValue("detail_type", "M");
+      } else {
+        docArgs.addValue("detail_type", "D");
+      }
+      docList.add(docArgs);
+      // the arguments for inserting into the idkey tables
+      for (ExternalId id : document.getSecurity().getExternalIdBundle()) {
+        final DbMapSqlParameterSource assocArgs = new DbMapSqlParameterSource()
+          .addValue("doc_id", docId)
           .addValue("key_scheme", id.getScheme().getName())
           .addValue("key_value", id.getValue());
-        idKeyList.add(idkeyArgs);
+        assocList.add(assocArgs);
+        externalIds.add(id);
+      }
+      // the arguments for inserting into the attributes table
+      Map<String, String> attributes = new HashMap<String, String>(document.getSecurity().getAttributes());
+      for (Map.Entry<String, String> entry : attributes.entrySet()) {
+        final long securityAttrId = attrIds[attrIdIndex++];
+        final DbMapSqlParameterSource attributeArgs = new DbMapSqlParameterSource()
+                .addValue("attr_id", securityAttrId)
+                .addValue("security_id", docId)
+                .addValue("security_oid", docOid)
+                .addValue("key", entry.getKey())
+                .addValue("value", entry.getValue());
+        securityAttributeList.add(attributeArgs);
       }
     }
-    final String sqlDoc = getExtSqlBundle().getSql("Insert", docArgs);
+    // select avoids creating unnecessary id, but id may still not be used
+    final Set<ExternalId> missingIds = selectMissingIdKeys(externalIds);
+    final long[] idKeyIds = nextIds("sec_idkey_seq", missingIds.size());
+    final List<DbMapSqlParameterSource> idKeyList = new ArrayList<DbMapSqlParameterSource>();
+    for (ExternalId id : missingIds) {
+      final DbMapSqlParameterSource idkeyArgs = new DbMapSqlParameterSource()
+        .addValue("idkey_id", idKeyIds[idKeyList.size()])
+        .addValue("key_scheme", id.getScheme().getName())
+        .addValue("key_value", id.getValue());
+      idKeyList.add(idkeyArgs);
+    }
+    final String sqlDoc = getExtSqlBundle().getSql("Insert", docList.get(0));
     final String sqlIdKey = getExtSqlBundle().getSql("InsertIdKey");
     final String sqlDoc2IdKey = getExtSqlBundle().getSql("InsertDoc2IdKey");
-    getJdbcTemplate().update(sqlDoc, docArgs);
+    getJdbcTemplate().batchUpdate(sqlDoc, docList.toArray(new DbMapSqlParameterSource[docList.size()]));
     getJdbcTemplate().batchUpdate(sqlIdKey, idKeyList.toArray(new DbMapSqlParameterSource[idKeyList.size()]));
     getJdbcTemplate().batchUpdate(sqlDoc2IdKey, assocList.toArray(new DbMapSqlParameterSource[assocList.size()]));
-    // set the uniqueId
-    final UniqueId uniqueId = createUniqueId(docOid, docId);
-    document.getSecurity().setUniqueId(uniqueId);
-    document.setUniqueId(uniqueId);
     
-    // store the detail
-    if (document.getSecurity() instanceof RawSecurity) {
-      storeRawSecurityDetail((RawSecurity) document.getSecurity());
-    } else {
-      final SecurityMasterDetailProvider detailProvider = getDetailProvider();
-      if (detailProvider != null) {
-        detailProvider.storeSecurityDetail(document.getSecurity());
+    for (int i = 0; i < documents.size(); i++) {
+      // set the uniqueId
+      final SecurityDocument document = documents.get(i);
+      final UniqueId uniqueId = uniqueIdList.get(i);
+      document.getSecurity().setUniqueId(uniqueId);
+      document.setUniqueId(uniqueId);
+      
+      // store the detail
+      if (document.getSecurity() instanceof RawSecurity) {
+        storeRawSecurityDetail((RawSecurity) document.getSecurity());
+      } else {
+        final SecurityMasterDetailProvider detailProvider = getDetailProvider();
+        if (detailProvider != null) {
+          detailProvider.storeSecurityDetail(document.getSecurity());
+        }
       }
     }
     
     // store attributes
-    Map<String, String> attributes = new HashMap<String, String>(document.getSecurity().getAttributes());
-    final List<DbMapSqlParameterSource> securityAttributeList = Lists.newArrayList();
-    for (Map.Entry<String, String> entry : attributes.entrySet()) {
-      final long securityAttrId = nextId("sec_security_attr_seq");
-      final DbMapSqlParameterSource attributeArgs = new DbMapSqlParameterSource()
-              .addValue("attr_id", securityAttrId)
-              .addValue("security_id", docId)
-              .addValue("security_oid", docOid)
-              .addValue("key", entry.getKey())
-              .addValue("value", entry.getValue());
-      securityAttributeList.add(attributeArgs);
-    }
     final String sqlAttributes = getExtSqlBundle().getSql("InsertAttributes");
     getJdbcTemplate().batchUpdate(sqlAttributes, securityAttributeList.toArray(new DbMapSqlParameterSource[securityAttributeList.size()]));
-    return document;
+    return documents;
+  }
+
+  /**
+   * Finds the identifier keys that are not yet in the database.
+   * <p>
+   * The keys are looked up in chunks of {@link #ID_KEY_SELECT_SIZE} per query.
+   * 
+   * @param externalIds  the identifiers, not null
+   * @return the identifiers not found in the database, not null
+   */
+  protected Set<ExternalId> selectMissingIdKeys(final Set<ExternalId> externalIds) {
+    final Set<ExternalId> missing = new LinkedHashSet<ExternalId>(externalIds);
+    final List<ExternalId> ids = new ArrayList<ExternalId>(externalIds);
+    final NamedParameterJdbcOperations namedJdbc = getJdbcTemplate().getNamedParameterJdbcOperations();
+    for (int start = 0; start < ids.size(); start += ID_KEY_SELECT_SIZE) {
+      final List<ExternalId> chunk = ids.subList(start, Math.min(start + ID_KEY_SELECT_SIZE, ids.size()));
+      final DbMapSqlParameterSource args = new DbMapSqlParameterSource();
+      for (int i = 0; i < chunk.size(); i++) {
+        args.addValue("key_scheme" + i, chunk.get(i).getScheme().getName());
+        args.addValue("key_value" + i, chunk.get(i).getValue());
+      }
+      args.addValue("sql_search_idkeys", sqlSelectIdKeys(chunk.size()));
+      final String sql = getExtSqlBundle().getSql("SelectIdKeys", args);
+      final List<ExternalId> found = namedJdbc.query(sql, args, new RowMapper<ExternalId>() {
+        @Override
+        public ExternalId mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+          return ExternalId.of(rs.getString("KEY_SCHEME"), rs.getString("KEY_VALUE"));
+        }
+      });
+      missing.removeAll(found);
+    }
+    return missing;
   }
 
   private void storeRawSecurityDetail(RawSecurity security) {
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.batch;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.test.DbTest;
+
+/**
+ * Test RiskValueWriter writing to the database.
+ */
+public class RiskValueWriterDbTest extends DbTest {
+
+  private static final int REQUIREMENTS = 300;
+  private static final long TIMEOUT = 5000;
+
+  private RiskValueWriter _writer;
+  private long _nextId;
+
+  @Factory(dataProvider = "databases", dataProviderClass = DbTest.class)
+  public RiskValueWriterDbTest(String databaseType, String databaseVersion) {
+    super(databaseType, databaseVersion);
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    super.setUp();
+    // the rows referenced by the risk values
+    SimpleJdbcTemplate template = getDbConnector().getJdbcTemplate();
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    template.update("INSERT INTO rsk_observation_time (id, label) VALUES (?,?)", 1, "LDN_CLOSE");
+    template.update("INSERT INTO rsk_observation_datetime (id, date_part, time_part, observation_time_id) VALUES (?,?,?,?)",
+        1, new Date(now.getTime()), null, 1);
+    template.update("INSERT INTO rsk_compute_host (id, host_name) VALUES (?,?)", 1, "host");
+    template.update("INSERT INTO rsk_compute_node (id, compute_host_id, node_name) VALUES (?,?,?)", 1, 1, "node");
+    template.update("INSERT INTO rsk_opengamma_version (id, version) VALUES (?,?)", 1, "1.0");
+    template.update("INSERT INTO rsk_live_data_snapshot (id, observation_datetime_id) VALUES (?,?)", 1, 1);
+    template.update("INSERT INTO rsk_run (id, opengamma_version_id, master_process_host_id, run_time_id, live_data_snapshot_id, " +
+        "create_instant, start_instant, end_instant, num_restarts, complete) VALUES (?,?,?,?,?, ?,?,?,?,?)",
+        1, 1, 1, 1, 1, now, now, null, 0, false);
+    template.update("INSERT INTO rsk_calculation_configuration (id, run_id, name) VALUES (?,?,?)", 1, 1, "Default");
+    template.update("INSERT INTO rsk_computation_target (id, type_id, id_scheme, id_value, id_version, name) VALUES (?,?,?,?,?,?)",
+        1, 3, "Test", "1", null, null);
+    template.update("INSERT INTO rsk_function_unique_id (id, unique_id) VALUES (?,?)", 1, "Function");
+    template.update("INSERT INTO rsk_value_name (id, name) VALUES (?,?)", 1, "Value");
+    template.update("INSERT INTO rsk_value_specification (id, synthetic_form) VALUES (?,?)", 1, "Specification");
+    // one requirement per row, as the rows of a configuration, name and target must have different requirements
+    for (int i = 1; i <= REQUIREMENTS; i++) {
+      template.update("INSERT INTO rsk_value_requirement (id, synthetic_form) VALUES (?,?)", i, "Requirement" + i);
+    }
+    _nextId = 1;
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    if (_writer != null) {
+      try {
+        _writer.close();
+      } catch (RuntimeException ex) {
+        // failure already tested
+      }
+      _writer = null;
+    }
+    super.tearDown();
+  }
+
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_write_flush() {
+    _writer = new RiskValueWriter(getDbConnector());
+    // two full multi-row inserts and a remainder
+    List<RiskValue> rows = createRows(2 * RiskValueWriter.ROWS_PER_INSERT + 50);
+    _writer.write(rows);
+    _writer.write(createRows(1));
+    _writer.flush();
+    assertEquals(rows.size() + 1, countRows());
+
+    RiskValue row = rows.get(123);
+    assertEquals(row.getValue(), getDbConnector().getJdbcTemplate().queryForObject(
+        "SELECT value FROM rsk_value WHERE id = ?", Double.class, row.getId()), 0d);
+    assertEquals(row.getValueRequirementId(), getDbConnector().getJdbcTemplate().queryForInt(
+        "SELECT value_requirement_id FROM rsk_value WHERE id = ?", row.getId()));
+  }
+
+  @Test
+  public void test_close_waitsForWrites() {
+    _writer = new RiskValueWriter(getDbConnector());
+    for (int i = 0; i < 5; i++) {
+      _writer.write(createRows(30));
+    }
+    _writer.close();
+    assertEquals(150, countRows());
+    _writer.close();  // no effect
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void test_write_afterClose() {
+    _writer = new RiskValueWriter(getDbConnector());
+    _writer.close();
+    _writer.write(createRows(1));
+  }
+
+  @Test
+  public void test_write_failureRaisedToCaller() throws Exception {
+    _writer = new RiskValueWriter(getDbConnector());
+    CountDownLatch release = new CountDownLatch(1);
+    _writer.execute(new Blocker(new CountDownLatch(1), release));
+
+    _writer.write(createRows(10));
+    // the same rows again, failing on the primary key; all or none of the rows of a write are stored
+    _nextId = 1;
+    _writer.write(createRows(10));
+    final AtomicBoolean ran = new AtomicBoolean();
+    _writer.execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.set(true);
+      }
+    });
+    release.countDown();
+    try {
+      _writer.flush();
+      Assert.fail();
+    } catch (OpenGammaRuntimeException ex) {
+      // expected
+    }
+    assertEquals(10, countRows());
+    assertFalse(ran.get());  // tasks after the failure are skipped
+    try {
+      _writer.write(createRows(1));
+      Assert.fail();
+    } catch (OpenGammaRuntimeException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void test_write_blocksWhenQueueFull() throws Exception {
+    _writer = new RiskValueWriter(getDbConnector(), 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    _writer.execute(new Blocker(started, release));
+    assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    // fills the queue while the writer thread is blocked
+    _writer.write(createRows(10));
+
+    final List<RiskValue> rows = createRows(10);
+    final CountDownLatch queued = new CountDownLatch(1);
+    Thread caller = new Thread() {
+      @Override
+      public void run() {
+        _writer.write(rows);
+        queued.countDown();
+      }
+    };
+    caller.start();
+    assertFalse(queued.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(0, countRows());
+
+    release.countDown();
+    assertTrue(queued.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    caller.join(TIMEOUT);
+    _writer.flush();
+    assertEquals(20, countRows());
+  }
+
+  //-------------------------------------------------------------------------
+  private List<RiskValue> createRows(int count) {
+    List<RiskValue> rows = new ArrayList<RiskValue>(count);
+    java.util.Date evalInstant = new java.util.Date();
+    for (int i = 0; i < count; i++) {
+      long id = _nextId++;
+      RiskValue row = new RiskValue();
+      row.setId(id);
+      row.setCalculationConfigurationId(1);
+      row.setValueNameId(1);
+      row.setValueRequirementId((int) id);
+      row.setValueSpecificationId(1);
+      row.setFunctionUniqueId(1);
+      row.setComputationTargetId(1);
+      row.setRunId(1);
+      row.setValue(id * 1.5);
+      row.setEvalInstant(evalInstant);
+      row.setComputeNodeId(1);
+      rows.add(row);
+    }
+    return Collections.unmodifiableList(rows);
+  }
+
+  private int countRows() {
+    return getDbConnector().getJdbcTemplate().queryForInt("SELECT COUNT(*) FROM rsk_value");
+  }
+
+  /**
+   * Task holding up the writer thread until released.
+   */
+  private static final class Blocker implements Runnable {
+    private final CountDownLatch _started;
+    private final CountDownLatch _release;
+
+    private Blocker(CountDownLatch started, CountDownLatch release) {
+      _started = started;
+      _release = release;
+    }
+
+    @Override
+    public void run() {
+      _started.countDown();
+      try {
+        _release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.batch;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test the SQL and text generated by RiskValueWriter.
+ */
+@Test
+public class RiskValueWriterTest {
+
+  public void sqlInsertRisk_oneRow() {
+    assertEquals("INSERT INTO rsk_value (id, calculation_configuration_id, value_name_id, value_requirement_id, value_specification_id, " +
+        "function_unique_id, computation_target_id, run_id, value, eval_instant, compute_node_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", RiskValueWriter.sqlInsertRisk(1));
+  }
+
+  public void sqlInsertRisk_twoRows() {
+    String sql = RiskValueWriter.sqlInsertRisk(2);
+    assertEquals(true, sql.endsWith("VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?), (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+  }
+
+  public void sqlCopyRisk() {
+    assertEquals("COPY rsk_value (id, calculation_configuration_id, value_name_id, value_requirement_id, value_specification_id, " +
+        "function_unique_id, computation_target_id, run_id, value, eval_instant, compute_node_id) FROM STDIN", RiskValueWriter.sqlCopyRisk());
+  }
+
+  public void toCopyText() throws Exception {
+    Date evalInstant = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").parse("2012-03-04 05:06:07.089");
+    RiskValue value1 = createRiskValue(1, 2.5, evalInstant);
+    RiskValue value2 = createRiskValue(2, -1e-20, evalInstant);
+    assertEquals(
+        "1\t10\t11\t12\t13\t14\t15\t16\t2.5\t2012-03-04 05:06:07.089\t17\n" +
+        "2\t10\t11\t12\t13\t14\t15\t16\t-1.0E-20\t2012-03-04 05:06:07.089\t17\n",
+        RiskValueWriter.toCopyText(Arrays.asList(value1, value2)));
+  }
+
+  private RiskValue createRiskValue(long id, double value, Date evalInstant) {
+    RiskValue riskValue = new RiskValue();
+    riskValue.setId(id);
+    riskValue.setCalculationConfigurationId(10);
+    riskValue.setValueNameId(11);
+    riskValue.setValueRequirementId(12);
+    riskValue.setValueSpecificationId(13);
+    riskValue.setFunctionUniqueId(14);
+    riskValue.setComputationTargetId(15);
+    riskValue.setRunId(16);
+    riskValue.setValue(value);
+    riskValue.setEvalInstant(evalInstant);
+    riskValue.setComputeNodeId(17);
+    return riskValue;
+  }
+
+}
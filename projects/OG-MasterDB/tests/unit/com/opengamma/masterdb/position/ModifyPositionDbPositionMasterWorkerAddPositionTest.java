@@ -10,6 +10,10 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.time.Instant;
 import javax.time.calendar.LocalDate;
@@ -252,6 +256,39 @@ public class ModifyPositionDbPositionMasterWorkerAddPositionTest extends Abstrac
     }
   }
 
+  @Test
+  public void test_addAll_addThenGet() {
+    OffsetDateTime offsetDateTime = OffsetDateTime.now();
+    List<PositionDocument> docs = new ArrayList<PositionDocument>();
+    for (int i = 0; i < 3; i++) {
+      ManageablePosition position = new ManageablePosition(BigDecimal.valueOf(i), ExternalIdBundle.of(ExternalId.of("A", "B"), ExternalId.of("BULK", "P" + i)));
+      position.addAttribute("key", "value" + i);
+      ManageableTrade trade = new ManageableTrade(BigDecimal.ONE, ExternalId.of("BULK", "T" + i), offsetDateTime.toLocalDate(), offsetDateTime.toOffsetTime(), ExternalId.of("CPS", "CPV"));
+      trade.addAttribute("key", "trade" + i);
+      position.getTrades().add(trade);
+      docs.add(new PositionDocument(position));
+    }
+    List<PositionDocument> added = _posMaster.addAll(docs);
+    assertEquals(3, added.size());
+    
+    Instant now = Instant.now(_posMaster.getTimeSource());
+    Set<UniqueId> uniqueIds = new HashSet<UniqueId>();
+    for (int i = 0; i < 3; i++) {
+      PositionDocument test = added.get(i);
+      assertTrue(uniqueIds.add(test.getUniqueId()));
+      assertEquals("DbPos", test.getUniqueId().getScheme());
+      assertEquals(now, test.getVersionFromInstant());
+      assertEquals(test.getUniqueId(), test.getPosition().getTrades().get(0).getParentPositionId());
+      
+      PositionDocument fromDb = _posMaster.get(test.getUniqueId());
+      assertEquals(test, fromDb);
+      assertEquals(BigDecimal.valueOf(i), fromDb.getPosition().getQuantity());
+      assertEquals(ExternalIdBundle.of(ExternalId.of("A", "B"), ExternalId.of("BULK", "P" + i)), fromDb.getPosition().getSecurityLink().getExternalId());
+      assertEquals("value" + i, fromDb.getPosition().getAttributes().get("key"));
+      assertEquals("trade" + i, fromDb.getPosition().getTrades().get(0).getAttributes().get("key"));
+    }
+  }
+
   @Test
   public void test_add_addThenGet() {
     ManageablePosition position = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
@@ -11,6 +11,9 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.time.Instant;
 import javax.time.calendar.LocalDate;
@@ -251,6 +254,78 @@ public class ModifyPositionDbPositionMasterWorkerUpdatePositionTest extends Abst
 
   }
 
+  @Test
+  public void test_updateAll_getUpdateGet() {
+    Instant now = Instant.now(_posMaster.getTimeSource());
+    
+    PositionDocument base121 = _posMaster.get(UniqueId.of("DbPos", "121", "0"));
+    PositionDocument base122 = _posMaster.get(UniqueId.of("DbPos", "122", "0"));
+    ManageablePosition pos121 = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
+    pos121.setUniqueId(UniqueId.of("DbPos", "121", "0"));
+    ManageablePosition pos122 = new ManageablePosition(BigDecimal.ONE, ExternalId.of("A", "C"));
+    pos122.setUniqueId(UniqueId.of("DbPos", "122", "0"));
+    List<PositionDocument> inputs = Arrays.asList(new PositionDocument(pos121), new PositionDocument(pos122));
+    
+    List<PositionDocument> updated = _posMaster.updateAll(inputs);
+    assertEquals(2, updated.size());
+    List<PositionDocument> bases = Arrays.asList(base121, base122);
+    for (int i = 0; i < 2; i++) {
+      PositionDocument base = bases.get(i);
+      PositionDocument test = updated.get(i);
+      assertEquals(base.getUniqueId().getObjectId(), test.getUniqueId().getObjectId());
+      assertEquals(false, base.getUniqueId().equals(test.getUniqueId()));
+      assertEquals(now, test.getVersionFromInstant());
+      assertEquals(null, test.getVersionToInstant());
+      assertEquals(now, test.getCorrectionFromInstant());
+      assertEquals(null, test.getCorrectionToInstant());
+      assertEquals(inputs.get(i).getPosition(), test.getPosition());
+      assertEquals(test, _posMaster.get(test.getUniqueId()));
+      
+      PositionDocument old = _posMaster.get(base.getUniqueId());
+      assertEquals(base.getVersionFromInstant(), old.getVersionFromInstant());
+      assertEquals(now, old.getVersionToInstant());  // old version ended
+      assertEquals(base.getCorrectionFromInstant(), old.getCorrectionFromInstant());
+      assertEquals(base.getCorrectionToInstant(), old.getCorrectionToInstant());
+      assertEquals(base.getPosition(), old.getPosition());
+      
+      PositionHistoryResult history = _posMaster.history(new PositionHistoryRequest(base.getUniqueId(), null, now));
+      assertEquals(2, history.getDocuments().size());
+    }
+  }
+
+  @Test
+  public void test_updateAll_notLatestVersion() {
+    PositionDocument base = _posMaster.get(UniqueId.of("DbPos", "121", "0"));
+    ManageablePosition pos121 = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
+    pos121.setUniqueId(UniqueId.of("DbPos", "121", "0"));
+    ManageablePosition pos221 = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
+    pos221.setUniqueId(UniqueId.of("DbPos", "221", "0"));
+    try {
+      _posMaster.updateAll(Arrays.asList(new PositionDocument(pos121), new PositionDocument(pos221)));
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+    // nothing is updated
+    assertEquals(base, _posMaster.get(UniqueId.of("DbPos", "121", "0")));
+    assertEquals(UniqueId.of("DbPos", "121", "0"), pos121.getUniqueId());
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_updateAll_notFound() {
+    ManageablePosition pos121 = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
+    pos121.setUniqueId(UniqueId.of("DbPos", "121", "0"));
+    // the row of the version exists, but for a different object
+    ManageablePosition pos122 = new ManageablePosition(BigDecimal.TEN, ExternalId.of("A", "B"));
+    pos122.setUniqueId(UniqueId.of("DbPos", "121", "1"));
+    _posMaster.updateAll(Arrays.asList(new PositionDocument(pos121), new PositionDocument(pos122)));
+  }
+
+  @Test
+  public void test_updateAll_empty() {
+    assertTrue(_posMaster.updateAll(new ArrayList<PositionDocument>()).isEmpty());
+  }
+
   @Test
   public void test_update_rollback() {
     DbPositionMaster w = new DbPositionMaster(_posMaster.getDbConnector());
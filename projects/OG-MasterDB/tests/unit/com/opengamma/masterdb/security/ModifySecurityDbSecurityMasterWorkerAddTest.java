@@ -9,6 +9,11 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.time.Instant;
 
 import org.slf4j.Logger;
@@ -91,6 +96,43 @@ public class ModifySecurityDbSecurityMasterWorkerAddTest extends AbstractDbSecur
   }
 
   //-------------------------------------------------------------------------
+  @Test
+  public void test_addAll_addThenGet() {
+    Instant now = Instant.now(_secMaster.getTimeSource());
+    List<SecurityDocument> docs = new ArrayList<SecurityDocument>();
+    for (int i = 0; i < 3; i++) {
+      // the first identifier is shared, and already in the database
+      ManageableSecurity security = new ManageableSecurity(null, "TestSecurity" + i, "EQUITY", ExternalIdBundle.of(ExternalId.of("A", "B"), ExternalId.of("BULK", "S" + i)));
+      security.addAttribute("key", "value" + i);
+      docs.add(new SecurityDocument(security));
+    }
+    List<SecurityDocument> added = _secMaster.addAll(docs);
+    assertEquals(3, added.size());
+    
+    Set<UniqueId> uniqueIds = new HashSet<UniqueId>();
+    for (int i = 0; i < 3; i++) {
+      SecurityDocument test = added.get(i);
+      assertTrue(uniqueIds.add(test.getUniqueId()));
+      assertEquals("DbSec", test.getUniqueId().getScheme());
+      assertEquals(test.getUniqueId(), test.getSecurity().getUniqueId());
+      assertEquals(now, test.getVersionFromInstant());
+      assertEquals(null, test.getVersionToInstant());
+      assertEquals(now, test.getCorrectionFromInstant());
+      assertEquals(null, test.getCorrectionToInstant());
+      
+      SecurityDocument fromDb = _secMaster.get(test.getUniqueId());
+      assertEquals(test, fromDb);
+      assertEquals("TestSecurity" + i, fromDb.getSecurity().getName());
+      assertEquals(ExternalIdBundle.of(ExternalId.of("A", "B"), ExternalId.of("BULK", "S" + i)), fromDb.getSecurity().getExternalIdBundle());
+      assertEquals("value" + i, fromDb.getSecurity().getAttributes().get("key"));
+    }
+  }
+
+  @Test
+  public void test_addAll_empty() {
+    assertTrue(_secMaster.addAll(new ArrayList<SecurityDocument>()).isEmpty());
+  }
+
   @Test
   public void test_toString() {
     assertEquals(_secMaster.getClass().getSimpleName() + "[DbSec]", _secMaster.toString());
@@ -7,6 +7,10 @@ package com.opengamma.masterdb.security;
 
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.time.Instant;
 
 import org.slf4j.Logger;
@@ -110,6 +114,66 @@ public class ModifySecurityDbSecurityMasterWorkerUpdateTest extends AbstractDbSe
     assertEquals(2, searchResult.getDocuments().size());
   }
 
+  @Test
+  public void test_updateAll_getUpdateGet() {
+    Instant now = Instant.now(_secMaster.getTimeSource());
+    
+    List<SecurityDocument> bases = Arrays.asList(_secMaster.get(UniqueId.of("DbSec", "101", "0")), _secMaster.get(UniqueId.of("DbSec", "102", "0")));
+    List<SecurityDocument> inputs = new ArrayList<SecurityDocument>();
+    for (int i = 0; i < 2; i++) {
+      ManageableSecurity security = new ManageableSecurity(bases.get(i).getUniqueId(), "Name" + i, "Type", ExternalIdBundle.of("A", "B" + i));
+      security.addAttribute("key", "value" + i);
+      inputs.add(new SecurityDocument(security));
+    }
+    
+    List<SecurityDocument> updated = _secMaster.updateAll(inputs);
+    assertEquals(2, updated.size());
+    for (int i = 0; i < 2; i++) {
+      SecurityDocument base = bases.get(i);
+      SecurityDocument test = updated.get(i);
+      assertEquals(base.getUniqueId().getObjectId(), test.getUniqueId().getObjectId());
+      assertEquals(false, base.getUniqueId().equals(test.getUniqueId()));
+      assertEquals(now, test.getVersionFromInstant());
+      assertEquals(null, test.getVersionToInstant());
+      assertEquals(now, test.getCorrectionFromInstant());
+      assertEquals(null, test.getCorrectionToInstant());
+      assertEquals(inputs.get(i).getSecurity(), test.getSecurity());
+      
+      SecurityDocument old = _secMaster.get(base.getUniqueId());
+      assertEquals(base.getVersionFromInstant(), old.getVersionFromInstant());
+      assertEquals(now, old.getVersionToInstant());  // old version ended
+      assertEquals(base.getCorrectionFromInstant(), old.getCorrectionFromInstant());
+      assertEquals(base.getCorrectionToInstant(), old.getCorrectionToInstant());
+      assertEquals(base.getSecurity(), old.getSecurity());
+      
+      SecurityHistoryRequest search = new SecurityHistoryRequest(base.getUniqueId(), null, now);
+      search.setFullDetail(false);
+      assertEquals(2, _secMaster.history(search).getDocuments().size());
+    }
+  }
+
+  @Test
+  public void test_updateAll_notLatestVersion() {
+    SecurityDocument base = _secMaster.get(UniqueId.of("DbSec", "101", "0"));
+    ManageableSecurity security101 = new ManageableSecurity(UniqueId.of("DbSec", "101", "0"), "Name", "Type", ExternalIdBundle.of("A", "B"));
+    ManageableSecurity security201 = new ManageableSecurity(UniqueId.of("DbSec", "201", "0"), "Name", "Type", ExternalIdBundle.of("A", "B"));
+    try {
+      _secMaster.updateAll(Arrays.asList(new SecurityDocument(security101), new SecurityDocument(security201)));
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+    // nothing is updated
+    assertEquals(base, _secMaster.get(UniqueId.of("DbSec", "101", "0")));
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_updateAll_notFound() {
+    ManageableSecurity security101 = new ManageableSecurity(UniqueId.of("DbSec", "101", "0"), "Name", "Type", ExternalIdBundle.of("A", "B"));
+    ManageableSecurity security0 = new ManageableSecurity(UniqueId.of("DbSec", "0", "0"), "Name", "Type", ExternalIdBundle.of("A", "B"));
+    _secMaster.updateAll(Arrays.asList(new SecurityDocument(security101), new SecurityDocument(security0)));
+  }
+
   @Test
   public void test_update_rollback() {
     DbSecurityMaster w = new DbSecurityMaster(_secMaster.getDbConnector());
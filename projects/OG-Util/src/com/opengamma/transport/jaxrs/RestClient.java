@@ -8,7 +8,9 @@ package com.opengamma.transport.jaxrs;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -51,6 +53,7 @@ public class RestClient {
 
   private final FudgeContext _fudgeContext;
   private final HttpClient _httpClient;
+  private final List<Header> _requestHeaders = new CopyOnWriteArrayList<Header>();
 
   protected RestClient(final FudgeContext fudgeContext, final HttpClient underlyingClient) {
     _fudgeContext = fudgeContext;
@@ -98,8 +101,21 @@ public class RestClient {
     return new FudgeDeserializer(getFudgeContext());
   }
 
+  /**
+   * Adds a header to be sent with every request, for example to announce an optional capability of the client.
+   * 
+   * @param name  the header name, not null
+   * @param value  the header value, not null
+   */
+  public void addRequestHeader(final String name, final String value) {
+    _requestHeaders.add(new BasicHeader(name, value));
+  }
+
   protected <T extends AbstractHttpMessage> T setRequestHeaders(final T request) {
     request.addHeader(s_accept);
+    for (Header header : _requestHeaders) {
+      request.addHeader(header);
+    }
     return request;
   }
 
@@ -218,6 +218,22 @@ public abstract class DbDialect {
     return "NEXT VALUE FOR " + sequenceName + " ";
   }
 
+  /**
+   * Builds SQL to query a block of values from a sequence in a single statement.
+   * The values are returned as a single column, one row per value.
+   * <p>
+   * This returns null if the database has no such query, in which case callers
+   * should query the values one at a time using {@link #sqlNextSequenceValueSelect(String)}.
+   *
+   * @param sequenceName  the sequence name, not null
+   * @param count  the number of values to query, positive
+   * @return the SQL, not space terminated, null if not supported
+   */
+  public String sqlNextSequenceValuesSelect(final String sequenceName, final int count) {
+    // no portable SQL standard way of generating rows
+    return null;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Builds SQL to query the current timestamp.
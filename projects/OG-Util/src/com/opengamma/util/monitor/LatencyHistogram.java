@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A lock-free histogram of latencies, with buckets doubling in width.
+ * <p>
+ * Bucket 0 counts latencies below one microsecond and bucket {@code i} those from
+ * 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds; the last bucket also counts anything longer.
+ * Percentiles are therefore reported as the upper bound of the bucket they fall in, which is
+ * precise to within a factor of two. Recording is safe from any number of threads.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of buckets, the last being for latencies of about eighteen minutes or more.
+   */
+  public static final int BUCKET_COUNT = 32;
+
+  /**
+   * The count in each bucket.
+   */
+  private final AtomicLongArray _counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Creates an empty histogram.
+   */
+  public LatencyHistogram() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records a latency.
+   *
+   * @param nanos  the latency in nanoseconds, negative treated as zero
+   */
+  public void record(long nanos) {
+    _counts.incrementAndGet(bucket(nanos / 1000));
+  }
+
+  /**
+   * Resets all the counts to zero.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      _counts.set(i, 0);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of latencies recorded.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += _counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the counts in each bucket.
+   *
+   * @return the counts, a copy, not null
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = _counts.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * Gets the upper bound, in microseconds, of the bucket holding a percentile.
+   *
+   * @param percentile  the percentile, from 0 to 100
+   * @return the upper bound in microseconds, zero if nothing has been recorded
+   */
+  public long getPercentileMicros(double percentile) {
+    ArgumentChecker.isTrue(percentile >= 0 && percentile <= 100, "percentile must be from 0 to 100");
+    long[] counts = getBucketCounts();
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(total * percentile / 100d), 1);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return getUpperBoundMicros(i);
+      }
+    }
+    return getUpperBoundMicros(BUCKET_COUNT - 1);
+  }
+
+  /**
+   * Gets the upper bound of a bucket.
+   *
+   * @param bucket  the bucket index
+   * @return the upper bound in microseconds
+   */
+  public static long getUpperBoundMicros(int bucket) {
+    return 1L << bucket;
+  }
+
+  private static int bucket(long micros) {
+    if (micros <= 0) {
+      return 0;
+    }
+    return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns a summary of the non-empty buckets, such as {@code "<=64us: 10, <=128us: 3"}.
+   *
+   * @return the summary, not null
+   */
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder();
+    long[] counts = getBucketCounts();
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (counts[i] > 0) {
+        if (buf.length() > 0) {
+          buf.append(", ");
+        }
+        buf.append(i == BUCKET_COUNT - 1 ? ">" + getUpperBoundMicros(i - 1) : "<=" + getUpperBoundMicros(i)).append("us: ").append(counts[i]);
+      }
+    }
+    return buf.toString();
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.rest;
+
+import com.opengamma.util.timeseries.fudge.CompressedTimeSeriesEncoding;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * Servlet filter to negotiate the compressed Fudge encoding of time series.
+ * <p>
+ * Clients that can read the compressed format send the {@link CompressedTimeSeriesEncoding#HEADER_NAME} header.
+ * For those requests the compressed format is enabled on the request thread until the response is filtered, so time series
+ * in messages built by the resource are compressed. Other clients, including older ones, get the plain format.
+ * The filter must be installed as both a request and a response filter.
+ */
+public class CompressedTimeSeriesFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  @Override
+  public ContainerRequest filter(ContainerRequest request) {
+    final String encoding = request.getHeaderValue(CompressedTimeSeriesEncoding.HEADER_NAME);
+    CompressedTimeSeriesEncoding.setEnabled(CompressedTimeSeriesEncoding.HEADER_VALUE.equals(encoding));
+    return request;
+  }
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    CompressedTimeSeriesEncoding.setEnabled(false);
+    return response;
+  }
+
+}
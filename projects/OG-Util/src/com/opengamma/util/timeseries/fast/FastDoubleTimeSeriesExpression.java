@@ -0,0 +1,430 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators.BinaryOperator;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * A lazily evaluated element-wise expression over one or more fast double time series.
+ * <p>
+ * Chaining the operations on the series themselves ({@code a.add(b).multiply(c)}) merges the time axes and allocates a new series for
+ * every operation. Building the same calculation as an expression ({@code of(a).add(of(b)).multiply(of(c))}) records the operations
+ * only; {@link #evaluateInt()} or {@link #evaluateLong()} then merges the time axes of all the series once and evaluates the whole
+ * expression for each common time in the same pass, writing straight into the primitive arrays of the result.
+ * <p>
+ * As with the {@code operate} methods of the series, binary operations between series are applied on the intersection of their times,
+ * and the times of every series are converted to the encoding of the first series in the expression.
+ * <p>
+ * This class is immutable and thread-safe as long as the series and operators are.
+ */
+public final class FastDoubleTimeSeriesExpression {
+
+  private static final int SERIES = 0;
+  private static final int CONSTANT = 1;
+  private static final int ADD = 2;
+  private static final int SUBTRACT = 3;
+  private static final int MULTIPLY = 4;
+  private static final int DIVIDE = 5;
+  private static final int UNARY = 6;
+  private static final int BINARY = 7;
+
+  /** The distinct series, in order of first use. */
+  private final List<FastTimeSeries<?>> _series;
+  /** The instructions, in postfix order. */
+  private final int[] _codes;
+  /** The index of the series for {@link #SERIES} instructions. */
+  private final int[] _arguments;
+  /** The value of {@link #CONSTANT} instructions. */
+  private final double[] _constants;
+  /** The operator of {@link #UNARY} and {@link #BINARY} instructions. */
+  private final Object[] _operators;
+  /** The depth of the evaluation stack needed. */
+  private final int _depth;
+
+  private FastDoubleTimeSeriesExpression(final List<FastTimeSeries<?>> series, final int[] codes, final int[] arguments, final double[] constants,
+      final Object[] operators, final int depth) {
+    _series = series;
+    _codes = codes;
+    _arguments = arguments;
+    _constants = constants;
+    _operators = operators;
+    _depth = depth;
+  }
+
+  private static FastDoubleTimeSeriesExpression ofSeries(final FastTimeSeries<?> series) {
+    final List<FastTimeSeries<?>> list = new ArrayList<FastTimeSeries<?>>(1);
+    list.add(series);
+    return new FastDoubleTimeSeriesExpression(list, new int[] {SERIES}, new int[] {0}, new double[1], new Object[1], 1);
+  }
+
+  /**
+   * Creates an expression consisting of a single series.
+   *
+   * @param series  the series, not null
+   * @return the expression, not null
+   */
+  public static FastDoubleTimeSeriesExpression of(final FastIntDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    return ofSeries(series);
+  }
+
+  /**
+   * Creates an expression consisting of a single series.
+   *
+   * @param series  the series, not null
+   * @return the expression, not null
+   */
+  public static FastDoubleTimeSeriesExpression of(final FastLongDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    return ofSeries(series);
+  }
+
+  /**
+   * Creates an expression consisting of the fast series backing a series.
+   *
+   * @param series  the series, not null
+   * @return the expression, not null
+   */
+  public static FastDoubleTimeSeriesExpression of(final FastBackedDoubleTimeSeries<?> series) {
+    ArgumentChecker.notNull(series, "series");
+    final FastTimeSeries<?> fastSeries = series.getFastSeries();
+    if (fastSeries instanceof FastIntDoubleTimeSeries) {
+      return of((FastIntDoubleTimeSeries) fastSeries);
+    } else { // if (fastSeries instanceof FastLongDoubleTimeSeries)
+      return of((FastLongDoubleTimeSeries) fastSeries);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  public FastDoubleTimeSeriesExpression add(final FastDoubleTimeSeriesExpression other) {
+    return operate(other, DoubleTimeSeriesOperators.ADD_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression add(final double other) {
+    return operate(other, DoubleTimeSeriesOperators.ADD_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression subtract(final FastDoubleTimeSeriesExpression other) {
+    return operate(other, DoubleTimeSeriesOperators.SUBTRACT_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression subtract(final double other) {
+    return operate(other, DoubleTimeSeriesOperators.SUBTRACT_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression multiply(final FastDoubleTimeSeriesExpression other) {
+    return operate(other, DoubleTimeSeriesOperators.MULTIPLY_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression multiply(final double other) {
+    return operate(other, DoubleTimeSeriesOperators.MULTIPLY_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression divide(final FastDoubleTimeSeriesExpression other) {
+    return operate(other, DoubleTimeSeriesOperators.DIVIDE_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression divide(final double other) {
+    return operate(other, DoubleTimeSeriesOperators.DIVIDE_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression negate() {
+    return operate(DoubleTimeSeriesOperators.NEGATE_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression log() {
+    return operate(DoubleTimeSeriesOperators.LOG_OPERATOR);
+  }
+
+  public FastDoubleTimeSeriesExpression abs() {
+    return operate(DoubleTimeSeriesOperators.ABS_OPERATOR);
+  }
+
+  /**
+   * Applies an operator to the values of this expression and another, at the times common to both.
+   *
+   * @param other  the other expression, not null
+   * @param operator  the operator, not null
+   * @return the combined expression, not null
+   */
+  public FastDoubleTimeSeriesExpression operate(final FastDoubleTimeSeriesExpression other, final BinaryOperator operator) {
+    ArgumentChecker.notNull(other, "other");
+    ArgumentChecker.notNull(operator, "operator");
+    final int n = _codes.length;
+    final int m = other._codes.length;
+    // series used by both sides are only read once
+    final List<FastTimeSeries<?>> series = new ArrayList<FastTimeSeries<?>>(_series);
+    final int[] remap = new int[other._series.size()];
+    for (int i = 0; i < remap.length; i++) {
+      remap[i] = indexOf(series, other._series.get(i));
+      if (remap[i] < 0) {
+        remap[i] = series.size();
+        series.add(other._series.get(i));
+      }
+    }
+    final int[] codes = Arrays.copyOf(_codes, n + m + 1);
+    final int[] arguments = Arrays.copyOf(_arguments, n + m + 1);
+    final double[] constants = Arrays.copyOf(_constants, n + m + 1);
+    final Object[] operators = Arrays.copyOf(_operators, n + m + 1);
+    System.arraycopy(other._codes, 0, codes, n, m);
+    System.arraycopy(other._constants, 0, constants, n, m);
+    System.arraycopy(other._operators, 0, operators, n, m);
+    for (int i = 0; i < m; i++) {
+      arguments[n + i] = other._codes[i] == SERIES ? remap[other._arguments[i]] : 0;
+    }
+    setBinary(codes, operators, n + m, operator);
+    return new FastDoubleTimeSeriesExpression(series, codes, arguments, constants, operators, Math.max(_depth, other._depth + 1));
+  }
+
+  /**
+   * Applies an operator to the values of this expression and a constant.
+   *
+   * @param other  the constant, used as the second argument of the operator
+   * @param operator  the operator, not null
+   * @return the combined expression, not null
+   */
+  public FastDoubleTimeSeriesExpression operate(final double other, final BinaryOperator operator) {
+    ArgumentChecker.notNull(operator, "operator");
+    final int n = _codes.length;
+    final int[] codes = Arrays.copyOf(_codes, n + 2);
+    final int[] arguments = Arrays.copyOf(_arguments, n + 2);
+    final double[] constants = Arrays.copyOf(_constants, n + 2);
+    final Object[] operators = Arrays.copyOf(_operators, n + 2);
+    codes[n] = CONSTANT;
+    constants[n] = other;
+    setBinary(codes, operators, n + 1, operator);
+    return new FastDoubleTimeSeriesExpression(_series, codes, arguments, constants, operators, Math.max(_depth, 2));
+  }
+
+  /**
+   * Applies an operator to the values of this expression.
+   *
+   * @param operator  the operator, not null
+   * @return the combined expression, not null
+   */
+  public FastDoubleTimeSeriesExpression operate(final UnaryOperator operator) {
+    ArgumentChecker.notNull(operator, "operator");
+    final int n = _codes.length;
+    final int[] codes = Arrays.copyOf(_codes, n + 1);
+    final int[] arguments = Arrays.copyOf(_arguments, n + 1);
+    final double[] constants = Arrays.copyOf(_constants, n + 1);
+    final Object[] operators = Arrays.copyOf(_operators, n + 1);
+    codes[n] = UNARY;
+    operators[n] = operator;
+    return new FastDoubleTimeSeriesExpression(_series, codes, arguments, constants, operators, _depth);
+  }
+
+  private static void setBinary(final int[] codes, final Object[] operators, final int index, final BinaryOperator operator) {
+    // the common operators are evaluated inline rather than through the interface
+    if (operator == DoubleTimeSeriesOperators.ADD_OPERATOR) {
+      codes[index] = ADD;
+    } else if (operator == DoubleTimeSeriesOperators.SUBTRACT_OPERATOR) {
+      codes[index] = SUBTRACT;
+    } else if (operator == DoubleTimeSeriesOperators.MULTIPLY_OPERATOR) {
+      codes[index] = MULTIPLY;
+    } else if (operator == DoubleTimeSeriesOperators.DIVIDE_OPERATOR) {
+      codes[index] = DIVIDE;
+    } else {
+      codes[index] = BINARY;
+      operators[index] = operator;
+    }
+  }
+
+  private static int indexOf(final List<FastTimeSeries<?>> series, final FastTimeSeries<?> target) {
+    for (int i = 0; i < series.size(); i++) {
+      if (series.get(i) == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the encoding of the result, which is that of the first series in the expression.
+   *
+   * @return the encoding, not null
+   */
+  public DateTimeNumericEncoding getEncoding() {
+    return _series.get(0).getEncoding();
+  }
+
+  /**
+   * Evaluates the expression as a series with {@code int} times.
+   *
+   * @return the series, not null
+   */
+  public FastIntDoubleTimeSeries evaluateInt() {
+    final DateTimeNumericEncoding encoding = getEncoding();
+    final long[][] times = new long[1][];
+    final double[] values = evaluate(times);
+    final int[] intTimes = new int[values.length];
+    if (_series.get(0) instanceof FastIntDoubleTimeSeries) {
+      // every time came from the first series, so fits in an int
+      for (int i = 0; i < intTimes.length; i++) {
+        intTimes[i] = (int) times[0][i];
+      }
+    } else {
+      for (int i = 0; i < intTimes.length; i++) {
+        intTimes[i] = encoding.convertToInt(times[0][i], encoding);
+      }
+    }
+    return new FastArrayIntDoubleTimeSeries(encoding, intTimes, values);
+  }
+
+  /**
+   * Evaluates the expression as a series with {@code long} times.
+   *
+   * @return the series, not null
+   */
+  public FastLongDoubleTimeSeries evaluateLong() {
+    final long[][] times = new long[1][];
+    final double[] values = evaluate(times);
+    return new FastArrayLongDoubleTimeSeries(getEncoding(), times[0], values);
+  }
+
+  private double[] evaluate(final long[][] resultTimes) {
+    final DateTimeNumericEncoding encoding = getEncoding();
+    final int nSeries = _series.size();
+    final long[][] times = new long[nSeries][];
+    final double[][] values = new double[nSeries][];
+    int maxCount = Integer.MAX_VALUE;
+    for (int i = 0; i < nSeries; i++) {
+      times[i] = getTimes(_series.get(i), encoding);
+      values[i] = _series.get(i).valuesArrayFast();
+      maxCount = Math.min(maxCount, times[i].length);
+    }
+    final long[] resTimes = new long[maxCount];
+    final double[] resValues = new double[maxCount];
+    final int[] counts = new int[nSeries];
+    final double[] stack = new double[_depth];
+    int resCount = 0;
+    if (maxCount > 0) {
+      // intersect the time axes and evaluate each common time as soon as it is found
+      long target = times[0][0];
+      int matched = 0;
+      int i = 0;
+      while (true) {
+        final long[] seriesTimes = times[i];
+        int count = counts[i];
+        while (count < seriesTimes.length && seriesTimes[count] < target) {
+          count++;
+        }
+        counts[i] = count;
+        if (count == seriesTimes.length) {
+          break;
+        }
+        if (seriesTimes[count] > target) {
+          target = seriesTimes[count];
+          matched = 1;
+        } else {
+          matched++;
+        }
+        if (matched == nSeries) {
+          resTimes[resCount] = target;
+          resValues[resCount] = evaluate(values, counts, stack);
+          resCount++;
+          boolean finished = false;
+          for (int j = 0; j < nSeries; j++) {
+            counts[j]++;
+            finished |= counts[j] == times[j].length;
+          }
+          if (finished) {
+            break;
+          }
+          target = times[0][counts[0]];
+          matched = 0;
+          i = 0;
+        } else {
+          i = (i + 1) % nSeries;
+        }
+      }
+    }
+    if (resCount == maxCount) {
+      resultTimes[0] = resTimes;
+      return resValues;
+    }
+    resultTimes[0] = Arrays.copyOf(resTimes, resCount);
+    return Arrays.copyOf(resValues, resCount);
+  }
+
+  private double evaluate(final double[][] values, final int[] counts, final double[] stack) {
+    int top = 0;
+    for (int i = 0; i < _codes.length; i++) {
+      switch (_codes[i]) {
+        case SERIES:
+          stack[top++] = values[_arguments[i]][counts[_arguments[i]]];
+          break;
+        case CONSTANT:
+          stack[top++] = _constants[i];
+          break;
+        case ADD:
+          top--;
+          stack[top - 1] += stack[top];
+          break;
+        case SUBTRACT:
+          top--;
+          stack[top - 1] -= stack[top];
+          break;
+        case MULTIPLY:
+          top--;
+          stack[top - 1] *= stack[top];
+          break;
+        case DIVIDE:
+          top--;
+          stack[top - 1] /= stack[top];
+          break;
+        case UNARY:
+          stack[top - 1] = ((UnaryOperator) _operators[i]).operate(stack[top - 1]);
+          break;
+        default: // BINARY
+          top--;
+          stack[top - 1] = ((BinaryOperator) _operators[i]).operate(stack[top - 1], stack[top]);
+          break;
+      }
+    }
+    return stack[0];
+  }
+
+  /**
+   * Gets the times of a series as {@code long} values in the given encoding.
+   *
+   * @param series  the series, not null
+   * @param encoding  the target encoding, not null
+   * @return the times, not null
+   */
+  /* package */ static long[] getTimes(final FastTimeSeries<?> series, final DateTimeNumericEncoding encoding) {
+    final DateTimeNumericEncoding sourceEncoding = series.getEncoding();
+    final long[] result;
+    if (series instanceof FastIntDoubleTimeSeries) {
+      final int[] times = ((FastIntDoubleTimeSeries) series).timesArrayFast();
+      result = new long[times.length];
+      for (int i = 0; i < times.length; i++) {
+        result[i] = times[i];
+      }
+    } else {
+      result = ((FastLongDoubleTimeSeries) series).timesArrayFast();
+    }
+    if (sourceEncoding != encoding) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] = sourceEncoding.convertToLong(result[i], encoding);
+      }
+    }
+    return result;
+  }
+
+}
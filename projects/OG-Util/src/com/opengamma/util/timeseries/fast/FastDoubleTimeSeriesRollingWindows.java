@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fast;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * Single-pass kernels over the primitive arrays of fast double time series: period returns and rolling window statistics.
+ * <p>
+ * The rolling statistics are updated as the window moves rather than recalculated for each window, so each costs a single pass over
+ * the series whatever the window length. The update uses deviations from the running means rather than running sums of squares, which
+ * keeps the precision of the two-pass calculation for series with a large mean. The value for each window is given at the last time in
+ * the window; the sample (unbiased) estimators are used.
+ */
+public final class FastDoubleTimeSeriesRollingWindows {
+
+  private FastDoubleTimeSeriesRollingWindows() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the simple returns {@code x[i] / x[i - 1] - 1} of a series.
+   *
+   * @param series  the series, not null
+   * @return the returns, at each time but the first, not null
+   */
+  public static FastIntDoubleTimeSeries simpleReturns(final FastIntDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    final int[] times = series.timesArrayFast();
+    return series.newInstanceFast(times.length == 0 ? times : Arrays.copyOfRange(times, 1, times.length), returns(series.valuesArrayFast(), false));
+  }
+
+  /**
+   * Calculates the simple returns {@code x[i] / x[i - 1] - 1} of a series.
+   *
+   * @param series  the series, not null
+   * @return the returns, at each time but the first, not null
+   */
+  public static FastLongDoubleTimeSeries simpleReturns(final FastLongDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    final long[] times = series.timesArrayFast();
+    return series.newInstanceFast(times.length == 0 ? times : Arrays.copyOfRange(times, 1, times.length), returns(series.valuesArrayFast(), false));
+  }
+
+  /**
+   * Calculates the continuously-compounded returns {@code ln(x[i] / x[i - 1])} of a series.
+   *
+   * @param series  the series, not null
+   * @return the returns, at each time but the first, not null
+   */
+  public static FastIntDoubleTimeSeries logReturns(final FastIntDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    final int[] times = series.timesArrayFast();
+    return series.newInstanceFast(times.length == 0 ? times : Arrays.copyOfRange(times, 1, times.length), returns(series.valuesArrayFast(), true));
+  }
+
+  /**
+   * Calculates the continuously-compounded returns {@code ln(x[i] / x[i - 1])} of a series.
+   *
+   * @param series  the series, not null
+   * @return the returns, at each time but the first, not null
+   */
+  public static FastLongDoubleTimeSeries logReturns(final FastLongDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    final long[] times = series.timesArrayFast();
+    return series.newInstanceFast(times.length == 0 ? times : Arrays.copyOfRange(times, 1, times.length), returns(series.valuesArrayFast(), true));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the rolling mean of a series.
+   *
+   * @param series  the series, not null
+   * @param window  the number of points in each window, positive
+   * @return the mean of each window, at the last time in the window, not null
+   */
+  public static FastIntDoubleTimeSeries rollingMean(final FastIntDoubleTimeSeries series, final int window) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.isTrue(window > 0, "window must be positive");
+    return series.newInstanceFast(windowTimes(series.timesArrayFast(), window), mean(series.valuesArrayFast(), window));
+  }
+
+  /**
+   * Calculates the rolling mean of a series.
+   *
+   * @param series  the series, not null
+   * @param window  the number of points in each window, positive
+   * @return the mean of each window, at the last time in the window, not null
+   */
+  public static FastLongDoubleTimeSeries rollingMean(final FastLongDoubleTimeSeries series, final int window) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.isTrue(window > 0, "window must be positive");
+    return series.newInstanceFast(windowTimes(series.timesArrayFast(), window), mean(series.valuesArrayFast(), window));
+  }
+
+  /**
+   * Calculates the rolling sample standard deviation of a series. Applied to a series of returns, this is the (not annualised) volatility.
+   *
+   * @param series  the series, not null
+   * @param window  the number of points in each window, greater than one
+   * @return the standard deviation of each window, at the last time in the window, not null
+   */
+  public static FastIntDoubleTimeSeries rollingVolatility(final FastIntDoubleTimeSeries series, final int window) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    final double[] values = series.valuesArrayFast();
+    return series.newInstanceFast(windowTimes(series.timesArrayFast(), window), sqrt(covariance(values, values, window)));
+  }
+
+  /**
+   * Calculates the rolling sample standard deviation of a series. Applied to a series of returns, this is the (not annualised) volatility.
+   *
+   * @param series  the series, not null
+   * @param window  the number of points in each window, greater than one
+   * @return the standard deviation of each window, at the last time in the window, not null
+   */
+  public static FastLongDoubleTimeSeries rollingVolatility(final FastLongDoubleTimeSeries series, final int window) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    final double[] values = series.valuesArrayFast();
+    return series.newInstanceFast(windowTimes(series.timesArrayFast(), window), sqrt(covariance(values, values, window)));
+  }
+
+  /**
+   * Calculates the rolling sample covariance of two series, over the times common to both.
+   * The times of the second series are converted to the encoding of the first.
+   *
+   * @param series1  the first series, not null
+   * @param series2  the second series, not null
+   * @param window  the number of common points in each window, greater than one
+   * @return the covariance of each window, at the last time in the window, not null
+   */
+  public static FastIntDoubleTimeSeries rollingCovariance(final FastIntDoubleTimeSeries series1, final FastIntDoubleTimeSeries series2, final int window) {
+    ArgumentChecker.notNull(series1, "series1");
+    ArgumentChecker.notNull(series2, "series2");
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    final double[][] values = new double[2][];
+    final long[] times = intersect(series1, series2, values);
+    final int[] intTimes = new int[times.length];
+    for (int i = 0; i < times.length; i++) {
+      intTimes[i] = (int) times[i];
+    }
+    return series1.newInstanceFast(windowTimes(intTimes, window), covariance(values[0], values[1], window));
+  }
+
+  /**
+   * Calculates the rolling sample covariance of two series, over the times common to both.
+   * The times of the second series are converted to the encoding of the first.
+   *
+   * @param series1  the first series, not null
+   * @param series2  the second series, not null
+   * @param window  the number of common points in each window, greater than one
+   * @return the covariance of each window, at the last time in the window, not null
+   */
+  public static FastLongDoubleTimeSeries rollingCovariance(final FastLongDoubleTimeSeries series1, final FastLongDoubleTimeSeries series2, final int window) {
+    ArgumentChecker.notNull(series1, "series1");
+    ArgumentChecker.notNull(series2, "series2");
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    final double[][] values = new double[2][];
+    final long[] times = intersect(series1, series2, values);
+    return series1.newInstanceFast(windowTimes(times, window), covariance(values[0], values[1], window));
+  }
+
+  //-------------------------------------------------------------------------
+  private static double[] returns(final double[] values, final boolean log) {
+    if (values.length == 0) {
+      return values;
+    }
+    final double[] result = new double[values.length - 1];
+    for (int i = 0; i < result.length; i++) {
+      final double ratio = values[i + 1] / values[i];
+      result[i] = log ? Math.log(ratio) : ratio - 1;
+    }
+    return result;
+  }
+
+  private static int[] windowTimes(final int[] times, final int window) {
+    return times.length < window ? new int[0] : Arrays.copyOfRange(times, window - 1, times.length);
+  }
+
+  private static long[] windowTimes(final long[] times, final int window) {
+    return times.length < window ? new long[0] : Arrays.copyOfRange(times, window - 1, times.length);
+  }
+
+  private static double[] mean(final double[] values, final int window) {
+    final int n = values.length;
+    if (n < window) {
+      return new double[0];
+    }
+    final double[] result = new double[n - window + 1];
+    double mean = 0;
+    for (int i = 0; i < window; i++) {
+      mean += values[i];
+    }
+    mean /= window;
+    result[0] = mean;
+    for (int i = window; i < n; i++) {
+      mean += (values[i] - values[i - window]) / window;
+      result[i - window + 1] = mean;
+    }
+    return result;
+  }
+
+  private static double[] covariance(final double[] x, final double[] y, final int window) {
+    final int n = x.length;
+    if (n < window) {
+      return new double[0];
+    }
+    final double[] result = new double[n - window + 1];
+    double meanX = 0;
+    double meanY = 0;
+    double comoment = 0;
+    // the first window is accumulated one point at a time
+    for (int i = 0; i < window; i++) {
+      final double dx = x[i] - meanX;
+      meanX += dx / (i + 1);
+      meanY += (y[i] - meanY) / (i + 1);
+      comoment += dx * (y[i] - meanY);
+    }
+    result[0] = comoment / (window - 1);
+    // then each step replaces the oldest point by the newest
+    for (int i = window; i < n; i++) {
+      final double xIn = x[i];
+      final double xOut = x[i - window];
+      final double newMeanX = meanX + (xIn - xOut) / window;
+      comoment += (xIn - newMeanX) * (y[i] - meanY) - (xOut - newMeanX) * (y[i - window] - meanY);
+      meanX = newMeanX;
+      meanY += (y[i] - y[i - window]) / window;
+      result[i - window + 1] = comoment / (window - 1);
+    }
+    return result;
+  }
+
+  private static double[] sqrt(final double[] variances) {
+    for (int i = 0; i < variances.length; i++) {
+      // rounding can leave a tiny negative variance for a constant window
+      variances[i] = Math.sqrt(Math.max(variances[i], 0));
+    }
+    return variances;
+  }
+
+  private static long[] intersect(final FastTimeSeries<?> series1, final FastTimeSeries<?> series2, final double[][] values) {
+    final DateTimeNumericEncoding encoding = series1.getEncoding();
+    final long[] aTimes = FastDoubleTimeSeriesExpression.getTimes(series1, encoding);
+    final long[] bTimes = FastDoubleTimeSeriesExpression.getTimes(series2, encoding);
+    final double[] aValues = series1.valuesArrayFast();
+    final double[] bValues = series2.valuesArrayFast();
+    final int maxCount = Math.min(aTimes.length, bTimes.length);
+    final long[] resTimes = new long[maxCount];
+    final double[] resA = new double[maxCount];
+    final double[] resB = new double[maxCount];
+    int aCount = 0;
+    int bCount = 0;
+    int resCount = 0;
+    while (aCount < aTimes.length && bCount < bTimes.length) {
+      if (aTimes[aCount] == bTimes[bCount]) {
+        resTimes[resCount] = aTimes[aCount];
+        resA[resCount] = aValues[aCount];
+        resB[resCount] = bValues[bCount];
+        resCount++;
+        aCount++;
+        bCount++;
+      } else if (aTimes[aCount] < bTimes[bCount]) {
+        aCount++;
+      } else {
+        bCount++;
+      }
+    }
+    values[0] = Arrays.copyOf(resA, resCount);
+    values[1] = Arrays.copyOf(resB, resCount);
+    return Arrays.copyOf(resTimes, resCount);
+  }
+
+}
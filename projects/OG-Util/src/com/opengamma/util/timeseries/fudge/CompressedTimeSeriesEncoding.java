@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fudge;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The compact wire format for the times and values of fast time series.
+ * <p>
+ * The points are split into chunks of {@link #CHUNK_SIZE}, each encoded as an independent bit stream. Times are encoded as the
+ * difference between consecutive deltas, so a regular (for example daily) series needs a single bit for most points. Values are
+ * XOR-ed with the previous value and only the meaningful bits are written, which compresses slowly moving prices well. Decoding
+ * writes each chunk straight into the primitive arrays of the series.
+ * <p>
+ * Senders must only use the format with receivers that understand it. The Fudge builders write it only while
+ * {@link #isEnabled()} is true for the current thread, which is set by whoever knows the receiver supports it: for REST calls,
+ * clients announce support with the {@link #HEADER_NAME} request header. The builders read both formats.
+ */
+public final class CompressedTimeSeriesEncoding {
+
+  /**
+   * The HTTP request header used by clients to ask for the compressed format.
+   */
+  public static final String HEADER_NAME = "X-OpenGamma-TimeSeries-Encoding";
+  /**
+   * The value of the {@link #HEADER_NAME} header asking for the compressed format.
+   */
+  public static final String HEADER_VALUE = "compressed";
+  /**
+   * The maximum number of points in a chunk.
+   */
+  public static final int CHUNK_SIZE = 4096;
+
+  private static final ThreadLocal<Boolean> s_enabled = new ThreadLocal<Boolean>();
+
+  private CompressedTimeSeriesEncoding() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Checks whether time series serialized by the current thread should use the compressed format.
+   *
+   * @return true if the compressed format should be used
+   */
+  public static boolean isEnabled() {
+    return s_enabled.get() != null;
+  }
+
+  /**
+   * Sets whether time series serialized by the current thread should use the compressed format.
+   *
+   * @param enabled  true to use the compressed format
+   * @return the previous setting, for restoring afterwards
+   */
+  public static boolean setEnabled(final boolean enabled) {
+    final boolean previous = isEnabled();
+    if (enabled) {
+      s_enabled.set(Boolean.TRUE);
+    } else {
+      s_enabled.remove();
+    }
+    return previous;
+  }
+
+  /**
+   * Gets the number of chunks needed for a number of points.
+   *
+   * @param size  the number of points
+   * @return the number of chunks
+   */
+  public static int getChunkCount(final int size) {
+    return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Encodes a chunk of points.
+   *
+   * @param times  the times, not null
+   * @param values  the values, not null
+   * @param chunk  the index of the chunk
+   * @return the encoded chunk, not null
+   */
+  public static byte[] encodeChunk(final int[] times, final double[] values, final int chunk) {
+    ArgumentChecker.notNull(times, "times");
+    ArgumentChecker.notNull(values, "values");
+    final int start = chunk * CHUNK_SIZE;
+    final int end = Math.min(start + CHUNK_SIZE, times.length);
+    final Encoder encoder = new Encoder(end - start);
+    for (int i = start; i < end; i++) {
+      encoder.write(times[i], values[i]);
+    }
+    return encoder.toByteArray();
+  }
+
+  /**
+   * Encodes a chunk of points.
+   *
+   * @param times  the times, not null
+   * @param values  the values, not null
+   * @param chunk  the index of the chunk
+   * @return the encoded chunk, not null
+   */
+  public static byte[] encodeChunk(final long[] times, final double[] values, final int chunk) {
+    ArgumentChecker.notNull(times, "times");
+    ArgumentChecker.notNull(values, "values");
+    final int start = chunk * CHUNK_SIZE;
+    final int end = Math.min(start + CHUNK_SIZE, times.length);
+    final Encoder encoder = new Encoder(end - start);
+    for (int i = start; i < end; i++) {
+      encoder.write(times[i], values[i]);
+    }
+    return encoder.toByteArray();
+  }
+
+  /**
+   * Decodes a chunk of points into the arrays of the series.
+   *
+   * @param data  the encoded chunk, not null
+   * @param chunk  the index of the chunk
+   * @param times  the times of the whole series, populated by this method, not null
+   * @param values  the values of the whole series, populated by this method, not null
+   */
+  public static void decodeChunk(final byte[] data, final int chunk, final int[] times, final double[] values) {
+    ArgumentChecker.notNull(data, "data");
+    final int start = chunk * CHUNK_SIZE;
+    final int end = Math.min(start + CHUNK_SIZE, times.length);
+    final Decoder decoder = new Decoder(data);
+    for (int i = start; i < end; i++) {
+      times[i] = (int) decoder.readTime();
+      values[i] = decoder.readValue();
+    }
+  }
+
+  /**
+   * Decodes a chunk of points into the arrays of the series.
+   *
+   * @param data  the encoded chunk, not null
+   * @param chunk  the index of the chunk
+   * @param times  the times of the whole series, populated by this method, not null
+   * @param values  the values of the whole series, populated by this method, not null
+   */
+  public static void decodeChunk(final byte[] data, final int chunk, final long[] times, final double[] values) {
+    ArgumentChecker.notNull(data, "data");
+    final int start = chunk * CHUNK_SIZE;
+    final int end = Math.min(start + CHUNK_SIZE, times.length);
+    final Decoder decoder = new Decoder(data);
+    for (int i = start; i < end; i++) {
+      times[i] = decoder.readTime();
+      values[i] = decoder.readValue();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes the bit stream of a chunk.
+   */
+  private static final class Encoder {
+    private byte[] _buffer;
+    private int _byte;
+    private int _bit;
+    private boolean _first = true;
+    private long _previousTime;
+    private long _previousDelta;
+    private long _previousBits;
+    private int _previousLeading = -1;
+    private int _previousTrailing;
+
+    private Encoder(final int size) {
+      // a regular series of slowly moving values takes a few bits a point
+      _buffer = new byte[16 + size * 2];
+    }
+
+    private void write(final long time, final double value) {
+      final long bits = Double.doubleToRawLongBits(value);
+      if (_first) {
+        writeBits(time, 64);
+        writeBits(bits, 64);
+        _first = false;
+      } else {
+        final long delta = time - _previousTime;
+        writeDeltaOfDelta(delta - _previousDelta);
+        _previousDelta = delta;
+        writeXor(bits ^ _previousBits);
+      }
+      _previousTime = time;
+      _previousBits = bits;
+    }
+
+    private void writeDeltaOfDelta(final long deltaOfDelta) {
+      if (deltaOfDelta == 0) {
+        writeBits(0, 1);
+      } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+        writeBits(2, 2);
+        writeBits(deltaOfDelta, 7);
+      } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+        writeBits(6, 3);
+        writeBits(deltaOfDelta, 9);
+      } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+        writeBits(14, 4);
+        writeBits(deltaOfDelta, 12);
+      } else {
+        writeBits(15, 4);
+        writeBits(deltaOfDelta, 64);
+      }
+    }
+
+    private void writeXor(final long xor) {
+      if (xor == 0) {
+        writeBits(0, 1);
+        return;
+      }
+      writeBits(1, 1);
+      final int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+      final int trailing = Long.numberOfTrailingZeros(xor);
+      if (_previousLeading >= 0 && leading >= _previousLeading && trailing >= _previousTrailing) {
+        // the meaningful bits fit in the previous window
+        writeBits(0, 1);
+        writeBits(xor >>> _previousTrailing, 64 - _previousLeading - _previousTrailing);
+      } else {
+        final int significant = 64 - leading - trailing;
+        writeBits(1, 1);
+        writeBits(leading, 5);
+        writeBits(significant - 1, 6);
+        writeBits(xor >>> trailing, significant);
+        _previousLeading = leading;
+        _previousTrailing = trailing;
+      }
+    }
+
+    private void writeBits(final long value, final int count) {
+      int remaining = count;
+      while (remaining > 0) {
+        if (_byte == _buffer.length) {
+          _buffer = Arrays.copyOf(_buffer, _buffer.length * 2);
+        }
+        final int free = 8 - _bit;
+        final int n = Math.min(free, remaining);
+        final int bits = (int) (value >>> (remaining - n)) & ((1 << n) - 1);
+        _buffer[_byte] |= bits << (free - n);
+        _bit += n;
+        remaining -= n;
+        if (_bit == 8) {
+          _bit = 0;
+          _byte++;
+        }
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(_buffer, _bit == 0 ? _byte : _byte + 1);
+    }
+  }
+
+  /**
+   * Reads the bit stream of a chunk.
+   */
+  private static final class Decoder {
+    private final byte[] _buffer;
+    private int _byte;
+    private int _bit;
+    private boolean _firstTime = true;
+    private boolean _firstValue = true;
+    private long _previousTime;
+    private long _previousDelta;
+    private long _previousBits;
+    private int _previousLeading;
+    private int _previousTrailing;
+
+    private Decoder(final byte[] buffer) {
+      _buffer = buffer;
+    }
+
+    private long readTime() {
+      if (_firstTime) {
+        _firstTime = false;
+        _previousTime = readBits(64);
+        return _previousTime;
+      }
+      final long deltaOfDelta;
+      if (readBits(1) == 0) {
+        deltaOfDelta = 0;
+      } else if (readBits(1) == 0) {
+        deltaOfDelta = readSigned(7);
+      } else if (readBits(1) == 0) {
+        deltaOfDelta = readSigned(9);
+      } else if (readBits(1) == 0) {
+        deltaOfDelta = readSigned(12);
+      } else {
+        deltaOfDelta = readBits(64);
+      }
+      _previousDelta += deltaOfDelta;
+      _previousTime += _previousDelta;
+      return _previousTime;
+    }
+
+    private double readValue() {
+      if (_firstValue) {
+        _firstValue = false;
+        _previousBits = readBits(64);
+      } else if (readBits(1) != 0) {
+        if (readBits(1) != 0) {
+          _previousLeading = (int) readBits(5);
+          final int significant = (int) readBits(6) + 1;
+          _previousTrailing = 64 - _previousLeading - significant;
+        }
+        _previousBits ^= readBits(64 - _previousLeading - _previousTrailing) << _previousTrailing;
+      }
+      return Double.longBitsToDouble(_previousBits);
+    }
+
+    private long readSigned(final int count) {
+      return (readBits(count) << (64 - count)) >> (64 - count);
+    }
+
+    private long readBits(final int count) {
+      long result = 0;
+      int remaining = count;
+      while (remaining > 0) {
+        final int available = 8 - _bit;
+        final int n = Math.min(available, remaining);
+        final int bits = ((_buffer[_byte] & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+        result = (result << n) | bits;
+        _bit += n;
+        remaining -= n;
+        if (_bit == 8) {
+          _bit = 0;
+          _byte++;
+        }
+      }
+      return result;
+    }
+  }
+
+}
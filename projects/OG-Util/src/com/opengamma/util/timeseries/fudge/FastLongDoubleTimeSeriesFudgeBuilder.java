@@ -5,6 +5,9 @@
  */
 package com.opengamma.util.timeseries.fudge;
 
+import java.util.List;
+
+import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.MutableFudgeMsg;
 import org.fudgemsg.mapping.FudgeBuilder;
@@ -17,6 +20,8 @@ import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
 /**
  * Abstract fudge message builder to serialize and de=serialize FastLongDoubleTimeSeries concrete implementations.
  * To use, just override and implement makeSeries to build the appropriate concrete class. 
+ * The times and values are written as arrays, or in the {@link CompressedTimeSeriesEncoding} format if enabled for the
+ * current thread; both formats are read.
  * @param <T> the concrete type to decode
  */
 public abstract class FastLongDoubleTimeSeriesFudgeBuilder<T extends FastLongDoubleTimeSeries> implements FudgeBuilder<T> {
@@ -27,16 +32,36 @@ public abstract class FastLongDoubleTimeSeriesFudgeBuilder<T extends FastLongDou
     final MutableFudgeMsg message = serializer.newMessage();
     serializer.addToMessage(message, null, 0, object.getClass().getName());
     serializer.addToMessage(message, null, 1, object.getEncoding());
-    serializer.addToMessage(message, null, 2, object.timesArrayFast());
-    serializer.addToMessage(message, null, 3, object.valuesArrayFast());
+    final long[] times = object.timesArrayFast();
+    final double[] values = object.valuesArrayFast();
+    if (CompressedTimeSeriesEncoding.isEnabled()) {
+      serializer.addToMessage(message, null, 4, times.length);
+      final int chunks = CompressedTimeSeriesEncoding.getChunkCount(times.length);
+      for (int i = 0; i < chunks; i++) {
+        serializer.addToMessage(message, null, 5, CompressedTimeSeriesEncoding.encodeChunk(times, values, i));
+      }
+    } else {
+      serializer.addToMessage(message, null, 2, times);
+      serializer.addToMessage(message, null, 3, values);
+    }
     return message;
   }
 
   @Override
   public T buildObject(FudgeDeserializer deserializer, FudgeMsg message) {
-    return makeSeries((DateTimeNumericEncoding) deserializer.fieldValueToObject(message.getByOrdinal(1)), 
-                      (long[]) message.getValue(2), 
-                      (double[]) message.getValue(3));
+    final DateTimeNumericEncoding encoding = (DateTimeNumericEncoding) deserializer.fieldValueToObject(message.getByOrdinal(1));
+    if (message.getByOrdinal(2) != null) {
+      return makeSeries(encoding, (long[]) message.getValue(2), (double[]) message.getValue(3));
+    }
+    // compressed format
+    final int size = ((Number) message.getValue(4)).intValue();
+    final long[] times = new long[size];
+    final double[] values = new double[size];
+    final List<FudgeField> chunks = message.getAllByOrdinal(5);
+    for (int i = 0; i < chunks.size(); i++) {
+      CompressedTimeSeriesEncoding.decodeChunk((byte[]) chunks.get(i).getValue(), i, times, values);
+    }
+    return makeSeries(encoding, times, values);
   }
 
 }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.monitor;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test LatencyHistogram.
+ */
+@Test
+public class LatencyHistogramTest {
+
+  public void empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileMicros(50));
+    assertEquals("", histogram.toString());
+  }
+
+  public void buckets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(999);
+    histogram.record(1000);
+    histogram.record(1999);
+    histogram.record(2000);
+    histogram.record(Long.MAX_VALUE);
+    long[] counts = histogram.getBucketCounts();
+    assertEquals(2, counts[0]);
+    assertEquals(2, counts[1]);
+    assertEquals(1, counts[2]);
+    assertEquals(1, counts[LatencyHistogram.BUCKET_COUNT - 1]);
+    assertEquals(6, histogram.getCount());
+  }
+
+  public void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(50000);
+    }
+    histogram.record(5000000);
+    assertEquals(64, histogram.getPercentileMicros(50));
+    assertEquals(64, histogram.getPercentileMicros(99));
+    assertEquals(8192, histogram.getPercentileMicros(100));
+    assertEquals("<=64us: 99, <=8192us: 1", histogram.toString());
+  }
+
+  public void reset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(50000);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void percentileOutOfRange() {
+    new LatencyHistogram().getPercentileMicros(101);
+  }
+
+}
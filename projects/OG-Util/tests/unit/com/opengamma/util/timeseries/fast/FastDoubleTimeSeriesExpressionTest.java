@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fast;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.timeseries.DoubleTimeSeries;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * Tests {@link FastDoubleTimeSeriesExpression}
+ */
+@Test
+public class FastDoubleTimeSeriesExpressionTest {
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  private static final FastIntDoubleTimeSeries A = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS,
+      new int[] {1, 2, 3, 4, 6, 7, 9}, new double[] {1, 2, 3, 4, 6, 7, 9});
+  private static final FastIntDoubleTimeSeries B = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS,
+      new int[] {2, 3, 5, 6, 7, 8, 9}, new double[] {20, 30, 50, 60, 70, 80, 90});
+  private static final FastLongDoubleTimeSeries C = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.TIME_EPOCH_MILLIS,
+      new long[] {3 * MILLIS_PER_DAY, 6 * MILLIS_PER_DAY, 7 * MILLIS_PER_DAY, 10 * MILLIS_PER_DAY}, new double[] {300, 600, 700, 1000});
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSeries() {
+    FastDoubleTimeSeriesExpression.of((FastIntDoubleTimeSeries) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullOperator() {
+    FastDoubleTimeSeriesExpression.of(A).operate(FastDoubleTimeSeriesExpression.of(B), null);
+  }
+
+  public void testMatchesChainedOperations() {
+    final FastDoubleTimeSeriesExpression a = FastDoubleTimeSeriesExpression.of(A);
+    final FastDoubleTimeSeriesExpression b = FastDoubleTimeSeriesExpression.of(B);
+    final DoubleTimeSeries<Integer> expected = A.add(B).multiply(A).subtract(2).divide(B).log();
+    final FastIntDoubleTimeSeries actual = a.add(b).multiply(a).subtract(2).divide(b).log().evaluateInt();
+    assertEquals(DateTimeNumericEncoding.DATE_EPOCH_DAYS, actual.getEncoding());
+    assertEquals(expected, actual);
+    assertEquals(5, actual.size());
+  }
+
+  public void testGenericOperators() {
+    final FastDoubleTimeSeriesExpression a = FastDoubleTimeSeriesExpression.of(A);
+    final FastIntDoubleTimeSeries actual = a.operate(FastDoubleTimeSeriesExpression.of(B), DoubleTimeSeriesOperators.MAXIMUM_OPERATOR)
+        .operate(DoubleTimeSeriesOperators.NEGATE_OPERATOR).evaluateInt();
+    assertEquals(A.maximum(B).negate(), actual);
+  }
+
+  public void testMixedEncodings() {
+    final FastDoubleTimeSeriesExpression expression = FastDoubleTimeSeriesExpression.of(A).add(FastDoubleTimeSeriesExpression.of(B))
+        .add(FastDoubleTimeSeriesExpression.of(C));
+    final FastIntDoubleTimeSeries days = expression.evaluateInt();
+    assertEquals(3, days.size());
+    assertEquals(3, days.getTimeFast(0));
+    assertEquals(333., days.getValueAtFast(0));
+    assertEquals(666., days.getValueAtFast(1));
+    assertEquals(777., days.getValueAtFast(2));
+    final FastLongDoubleTimeSeries longDays = expression.evaluateLong();
+    assertEquals(DateTimeNumericEncoding.DATE_EPOCH_DAYS, longDays.getEncoding());
+    assertEquals(7L, longDays.getTimeFast(2));
+    assertEquals(777., longDays.getValueAtFast(2));
+    final FastLongDoubleTimeSeries millis = FastDoubleTimeSeriesExpression.of(C).subtract(FastDoubleTimeSeriesExpression.of(A)).evaluateLong();
+    assertEquals(DateTimeNumericEncoding.TIME_EPOCH_MILLIS, millis.getEncoding());
+    assertEquals(3, millis.size());
+    assertEquals(6 * MILLIS_PER_DAY, millis.getTimeFast(1));
+    assertEquals(594., millis.getValueAtFast(1));
+  }
+
+  public void testEmptyIntersection() {
+    final FastIntDoubleTimeSeries other = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new int[] {10, 11}, new double[] {1, 2});
+    assertEquals(0, FastDoubleTimeSeriesExpression.of(A).add(FastDoubleTimeSeriesExpression.of(other)).evaluateInt().size());
+    assertEquals(0, FastDoubleTimeSeriesExpression.of(A).add(FastDoubleTimeSeriesExpression.of(FastArrayIntDoubleTimeSeries.EMPTY_SERIES)).evaluateInt().size());
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fast;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * Tests {@link FastDoubleTimeSeriesRollingWindows}
+ */
+@Test
+public class FastDoubleTimeSeriesRollingWindowsTest {
+  private static final double EPS = 1e-12;
+  private static final int N = 50;
+  private static final int WINDOW = 7;
+  private static final int[] TIMES = new int[N];
+  private static final double[] X = new double[N];
+  private static final double[] Y = new double[N];
+  private static final FastIntDoubleTimeSeries TS_X;
+  private static final FastIntDoubleTimeSeries TS_Y;
+
+  static {
+    for (int i = 0; i < N; i++) {
+      TIMES[i] = 100 + i;
+      // a large mean, which loses precision with running sums of squares
+      X[i] = 1e6 + Math.sin(i);
+      Y[i] = 100 + Math.cos(3 * i) * i;
+    }
+    TS_X = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, TIMES, X);
+    TS_Y = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, TIMES, Y);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSeries() {
+    FastDoubleTimeSeriesRollingWindows.simpleReturns((FastIntDoubleTimeSeries) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWindowTooShort() {
+    FastDoubleTimeSeriesRollingWindows.rollingVolatility(TS_X, 1);
+  }
+
+  public void testReturns() {
+    final FastIntDoubleTimeSeries simple = FastDoubleTimeSeriesRollingWindows.simpleReturns(TS_Y);
+    final FastIntDoubleTimeSeries log = FastDoubleTimeSeriesRollingWindows.logReturns(TS_Y);
+    assertEquals(N - 1, simple.size());
+    assertEquals(N - 1, log.size());
+    for (int i = 1; i < N; i++) {
+      assertEquals(TIMES[i], simple.getTimeFast(i - 1));
+      assertEquals(Y[i] / Y[i - 1] - 1, simple.getValueAtFast(i - 1), EPS);
+      assertEquals(Math.log(Y[i] / Y[i - 1]), log.getValueAtFast(i - 1), EPS);
+    }
+    assertEquals(0, FastDoubleTimeSeriesRollingWindows.simpleReturns(FastArrayIntDoubleTimeSeries.EMPTY_SERIES).size());
+  }
+
+  public void testRollingStatistics() {
+    final FastIntDoubleTimeSeries mean = FastDoubleTimeSeriesRollingWindows.rollingMean(TS_Y, WINDOW);
+    final FastIntDoubleTimeSeries volatility = FastDoubleTimeSeriesRollingWindows.rollingVolatility(TS_X, WINDOW);
+    final FastIntDoubleTimeSeries covariance = FastDoubleTimeSeriesRollingWindows.rollingCovariance(TS_X, TS_Y, WINDOW);
+    assertEquals(N - WINDOW + 1, volatility.size());
+    for (int i = WINDOW - 1; i < N; i++) {
+      final int start = i - WINDOW + 1;
+      assertEquals(TIMES[i], volatility.getTimeFast(start));
+      assertEquals(mean(Y, start), mean.getValueAtFast(start), 1e-10);
+      assertEquals(Math.sqrt(covariance(X, X, start)), volatility.getValueAtFast(start), 1e-9);
+      assertEquals(covariance(X, Y, start), covariance.getValueAtFast(start), 1e-9);
+    }
+    assertEquals(0, FastDoubleTimeSeriesRollingWindows.rollingVolatility(TS_X.headFast(WINDOW - 1), WINDOW).size());
+  }
+
+  public void testCovarianceIntersection() {
+    final long millisPerDay = 24L * 60 * 60 * 1000;
+    final FastLongDoubleTimeSeries a = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new long[] {1, 2, 3, 4, 5}, new double[] {1, 2, 4, 8, 16});
+    final FastLongDoubleTimeSeries b = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.TIME_EPOCH_MILLIS,
+        new long[] {millisPerDay, 3 * millisPerDay, 4 * millisPerDay, 5 * millisPerDay}, new double[] {3, 5, 1, 2});
+    final FastLongDoubleTimeSeries covariance = FastDoubleTimeSeriesRollingWindows.rollingCovariance(a, b, 3);
+    assertEquals(2, covariance.size());
+    assertEquals(4L, covariance.getTimeFast(0));
+    assertEquals(covariance(new double[] {1, 4, 8}, new double[] {3, 5, 1}, 0, 3), covariance.getValueAtFast(0), EPS);
+    assertEquals(covariance(new double[] {4, 8, 16}, new double[] {5, 1, 2}, 0, 3), covariance.getValueAtFast(1), EPS);
+  }
+
+  private static double mean(final double[] x, final int start) {
+    double sum = 0;
+    for (int i = start; i < start + WINDOW; i++) {
+      sum += x[i];
+    }
+    return sum / WINDOW;
+  }
+
+  private static double covariance(final double[] x, final double[] y, final int start) {
+    return covariance(x, y, start, WINDOW);
+  }
+
+  private static double covariance(final double[] x, final double[] y, final int start, final int window) {
+    double meanX = 0;
+    double meanY = 0;
+    for (int i = start; i < start + window; i++) {
+      meanX += x[i] / window;
+      meanY += y[i] / window;
+    }
+    double sum = 0;
+    for (int i = start; i < start + window; i++) {
+      sum += (x[i] - meanX) * (y[i] - meanY);
+    }
+    return sum / (window - 1);
+  }
+
+}
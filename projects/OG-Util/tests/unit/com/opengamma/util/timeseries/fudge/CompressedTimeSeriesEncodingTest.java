@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fudge;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.time.calendar.LocalDate;
+
+import org.fudgemsg.FudgeMsg;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
+import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
+
+/**
+ * Tests {@link CompressedTimeSeriesEncoding}
+ */
+@Test
+public class CompressedTimeSeriesEncodingTest {
+  private static final int N = 2 * CompressedTimeSeriesEncoding.CHUNK_SIZE + 100;
+
+  @AfterMethod
+  public void tearDown() {
+    CompressedTimeSeriesEncoding.setEnabled(false);
+  }
+
+  public void testEnabled() {
+    assertFalse(CompressedTimeSeriesEncoding.isEnabled());
+    assertFalse(CompressedTimeSeriesEncoding.setEnabled(true));
+    assertTrue(CompressedTimeSeriesEncoding.isEnabled());
+    assertTrue(CompressedTimeSeriesEncoding.setEnabled(false));
+    assertFalse(CompressedTimeSeriesEncoding.isEnabled());
+  }
+
+  public void testChunkCount() {
+    assertEquals(0, CompressedTimeSeriesEncoding.getChunkCount(0));
+    assertEquals(1, CompressedTimeSeriesEncoding.getChunkCount(1));
+    assertEquals(1, CompressedTimeSeriesEncoding.getChunkCount(CompressedTimeSeriesEncoding.CHUNK_SIZE));
+    assertEquals(3, CompressedTimeSeriesEncoding.getChunkCount(N));
+  }
+
+  public void testIntRoundTrip() {
+    final int[] times = new int[N];
+    final double[] values = new double[N];
+    // weekdays only, a random walk with a few special values
+    final Random random = new Random(17);
+    int day = 14000;
+    double price = 100;
+    for (int i = 0; i < N; i++) {
+      times[i] = day;
+      day += day % 7 == 4 ? 3 : 1;
+      price += Math.round(random.nextGaussian() * 100) / 100.;
+      values[i] = price;
+    }
+    values[5] = Double.NaN;
+    values[6] = -0.;
+    values[7] = Double.MAX_VALUE;
+    values[8] = Double.MIN_VALUE;
+    times[N - 1] = Integer.MAX_VALUE;
+    final int chunks = CompressedTimeSeriesEncoding.getChunkCount(N);
+    final int[] decodedTimes = new int[N];
+    final double[] decodedValues = new double[N];
+    int bytes = 0;
+    for (int i = 0; i < chunks; i++) {
+      final byte[] chunk = CompressedTimeSeriesEncoding.encodeChunk(times, values, i);
+      bytes += chunk.length;
+      CompressedTimeSeriesEncoding.decodeChunk(chunk, i, decodedTimes, decodedValues);
+    }
+    for (int i = 0; i < N; i++) {
+      assertEquals(times[i], decodedTimes[i]);
+      assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decodedValues[i]));
+    }
+    // smaller than the 12 bytes a point of the plain arrays, even for random prices
+    assertTrue(bytes < 12 * N);
+  }
+
+  public void testLongRoundTrip() {
+    final long[] times = new long[N];
+    final double[] values = new double[N];
+    final Random random = new Random(31);
+    long time = 1300000000000L;
+    for (int i = 0; i < N; i++) {
+      times[i] = time;
+      time += i % 10 == 0 ? random.nextInt(1000000) : 60000;
+      values[i] = random.nextDouble();
+    }
+    final int[] sizes = new int[] {N, 1, 2};
+    for (final int size : sizes) {
+      final long[] decodedTimes = new long[size];
+      final double[] decodedValues = new double[size];
+      final long[] sizedTimes = Arrays.copyOf(times, size);
+      final double[] sizedValues = Arrays.copyOf(values, size);
+      for (int i = 0; i < CompressedTimeSeriesEncoding.getChunkCount(size); i++) {
+        CompressedTimeSeriesEncoding.decodeChunk(CompressedTimeSeriesEncoding.encodeChunk(sizedTimes, sizedValues, i), i, decodedTimes, decodedValues);
+      }
+      for (int i = 0; i < size; i++) {
+        assertEquals(times[i], decodedTimes[i]);
+        assertEquals(values[i], decodedValues[i]);
+      }
+    }
+  }
+
+  public void testFudgeFastSeries() {
+    final FastArrayIntDoubleTimeSeries intSeries = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS,
+        new int[] {1, 2, 3, 6, 7}, new double[] {1.5, 1.25, 1.25, 2, 0});
+    final FastArrayLongDoubleTimeSeries longSeries = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.TIME_EPOCH_MILLIS,
+        new long[] {1000, 2000, 3500}, new double[] {1, 2, 3});
+    final FudgeMsg plain = OpenGammaFudgeContext.getInstance().toFudgeMsg(intSeries).getMessage();
+    assertNotNull(plain.getByOrdinal(2));
+    CompressedTimeSeriesEncoding.setEnabled(true);
+    final FudgeMsg compressed = OpenGammaFudgeContext.getInstance().toFudgeMsg(intSeries).getMessage();
+    assertNull(compressed.getByOrdinal(2));
+    assertNotNull(compressed.getByOrdinal(5));
+    assertEquals(intSeries, OpenGammaFudgeContext.getInstance().fromFudgeMsg(compressed));
+    assertEquals(longSeries, OpenGammaFudgeContext.getInstance().fromFudgeMsg(OpenGammaFudgeContext.getInstance().toFudgeMsg(longSeries).getMessage()));
+    final FastArrayIntDoubleTimeSeries empty = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS);
+    assertEquals(empty, OpenGammaFudgeContext.getInstance().fromFudgeMsg(OpenGammaFudgeContext.getInstance().toFudgeMsg(empty).getMessage()));
+    // both formats are always read
+    CompressedTimeSeriesEncoding.setEnabled(false);
+    assertEquals(intSeries, OpenGammaFudgeContext.getInstance().fromFudgeMsg(compressed));
+    assertEquals(intSeries, OpenGammaFudgeContext.getInstance().fromFudgeMsg(plain));
+  }
+
+  public void testFudgeLocalDateSeries() {
+    final LocalDateDoubleTimeSeries series = new ArrayLocalDateDoubleTimeSeries(
+        new LocalDate[] {LocalDate.of(2012, 3, 1), LocalDate.of(2012, 3, 2), LocalDate.of(2012, 3, 5)}, new double[] {1.01, 1.02, 0.99});
+    CompressedTimeSeriesEncoding.setEnabled(true);
+    final FudgeMsg message = OpenGammaFudgeContext.getInstance().toFudgeMsg(series).getMessage();
+    CompressedTimeSeriesEncoding.setEnabled(false);
+    assertEquals(series, OpenGammaFudgeContext.getInstance().fromFudgeMsg(message));
+  }
+
+}
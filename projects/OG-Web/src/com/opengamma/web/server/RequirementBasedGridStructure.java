@@ -40,6 +40,7 @@ public class RequirementBasedGridStructure {
   private static final Logger s_logger = LoggerFactory.getLogger(RequirementBasedGridStructure.class);
 
   private final Map<ComputationTargetSpecification, Integer> _targetIdMap;
+  private final List<ComputationTargetSpecification> _rowTargets;
   private final List<WebViewGridColumn> _orderedColumns;
   private final Map<RequirementBasedColumnKey, Collection<WebViewGridColumn>> _specificationBasedColumns;
   private final Map<Integer, Set<Integer>> _unsatisfiedCells;
@@ -93,11 +94,13 @@ public class RequirementBasedGridStructure {
       targets = analysisResult.getTargets();
     }
     _targetIdMap = new LinkedHashMap<ComputationTargetSpecification, Integer>();
+    _rowTargets = new ArrayList<ComputationTargetSpecification>(targets.size());
     _unsatisfiedCells = new HashMap<Integer, Set<Integer>>();
     int nextId = 0;
     for (ComputationTargetSpecification target : targets) {
       int targetRowId = nextId++;
       _targetIdMap.put(target, targetRowId);
+      _rowTargets.add(target);
       Set<RequirementBasedColumnKey> missingColumnKeys = analysisResult.getUnsatisfiedRequirements(target);
       if (missingColumnKeys == null) {
         continue;
@@ -246,13 +249,16 @@ public class RequirementBasedGridStructure {
     return _targetIdMap.get(target);
   }
   
+  /**
+   * Returns the target of a row.
+   * @param rowId The zero based row index
+   * @return The target of the row or {@code null} if there is no such row
+   */
   public ComputationTargetSpecification findRow(int rowId) {
-    for (Map.Entry<ComputationTargetSpecification, Integer> targetEntry : getTargets().entrySet()) {
-      if (targetEntry.getValue() == rowId) {
-        return targetEntry.getKey();
-      }
+    if (rowId < 0 || rowId >= _rowTargets.size()) {
+      return null;
     }
-    return null;
+    return _rowTargets.get(rowId);
   }
 
   /**
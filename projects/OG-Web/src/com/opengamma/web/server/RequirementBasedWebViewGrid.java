@@ -75,16 +75,33 @@ public abstract class RequirementBasedWebViewGrid extends WebViewGrid {
   
   //-------------------------------------------------------------------------
 
+  /**
+   * Processes the result of a target, sending it to the client if its row is in the viewport.
+   * Outside the viewport only the history of history output cells is recorded, so nothing is converted
+   * for display or sent; the rows are sent in full from the latest result when they are scrolled into view.
+   * 
+   * @param target  the target
+   * @param resultModel  the results of the target, may be null
+   * @param resultTimestamp  the timestamp of the results
+   */
   public void processTargetResult(ComputationTargetSpecification target, ViewTargetResultModel resultModel, Long resultTimestamp) {
     Integer rowId = getGridStructure().getRowId(target);
     if (rowId == null) {
       // Result not in the grid
       return;
     }
+    boolean rowInViewport = getViewport().containsKey(rowId);
+    if (!rowInViewport && _historyOutputs.isEmpty()) {
+      // No reason to process anything
+      return;
+    }
 
-    Map<String, Object> valuesToSend = createTargetResult(rowId);
-    for (Integer unsatisfiedColId : getGridStructure().getUnsatisfiedCells(rowId)) {
-      valuesToSend.put(Integer.toString(unsatisfiedColId), null);
+    Map<String, Object> valuesToSend = null;
+    if (rowInViewport) {
+      valuesToSend = createTargetResult(rowId);
+      for (Integer unsatisfiedColId : getGridStructure().getUnsatisfiedCells(rowId)) {
+        valuesToSend.put(Integer.toString(unsatisfiedColId), null);
+      }
     }
     
     // Whether or not the row is in the viewport, we may have to store history
@@ -102,16 +119,21 @@ public abstract class RequirementBasedWebViewGrid extends WebViewGrid {
           for (WebViewGridColumn column : columns) {
             int colId = column.getId();
             WebGridCell cell = WebGridCell.of(rowId, colId);
+            if (!rowInViewport && !isHistoryOutput(cell)) {
+              continue;
+            }
             ResultConverter<Object> converter = originalValue != null ? getConverter(column, value.getSpecification().getValueName(), originalValue.getClass()) : null;
             Map<String, Object> cellData = processCellValue(cell, specification, originalValue, resultTimestamp, converter);
-            if (cellData != null) {
+            if (cellData != null && valuesToSend != null) {
               valuesToSend.put(Integer.toString(colId), cellData);
             }
           }
         }
       }
     }
-    getRemoteClient().deliver(getLocalClient(), getUpdateChannel(), valuesToSend, null);
+    if (valuesToSend != null) {
+      getRemoteClient().deliver(getLocalClient(), getUpdateChannel(), valuesToSend, null);
+    }
   }
   
   private Map<String, Object> createTargetResult(Integer rowId) {
@@ -78,12 +78,45 @@ import java.util.Set;
   
   //-------------------------------------------------------------------------
 
+  /**
+   * Returns the results of the rows in the viewport. Outside the viewport only the history of history output
+   * cells is recorded, so nothing is converted for display; rows are converted from the latest results when
+   * the viewport changes to include them. If there are no history outputs only the viewport's rows are visited.
+   * @param resultModel The model containing the results
+   * @param resultTimestamp The timestamp of the results
+   * @return {@code {"rowId1": rowResult1, "rowId2": rowResult2, ...}}, see {@link #getTargetResult}
+   */
+  /* package */ Map<String, Object> getTargetResults(ViewComputationResultModel resultModel, Long resultTimestamp) {
+    Map<String, Object> results = new HashMap<String, Object>();
+    if (_historyOutputs.isEmpty()) {
+      for (Integer rowId : getViewport().keySet()) {
+        ComputationTargetSpecification target = getGridStructure().findRow(rowId);
+        if (target == null) {
+          continue;
+        }
+        ViewTargetResultModel targetResultModel = resultModel.getTargetResult(target);
+        if (targetResultModel != null) {
+          results.put(Integer.toString(rowId), getTargetResult(target, targetResultModel, resultTimestamp));
+        }
+      }
+    } else {
+      for (ComputationTargetSpecification target : resultModel.getAllTargets()) {
+        Map<String, Object> targetResult = getTargetResult(target, resultModel.getTargetResult(target), resultTimestamp);
+        if (targetResult != null) {
+          results.put(Integer.toString((Integer) targetResult.get("rowId")), targetResult);
+        }
+      }
+    }
+    return results;
+  }
+
   /**
    * @param target The target whose result is required
    * @param resultModel The model containing the results
    * @param resultTimestamp The timestamp of the results
    * @return {@code {"rowId": rowId, "0": col0Val, "1": col1Val, ...}}
-   * cell values: {@code {"v": value, "h": [historyVal1, historyVal2, ...]}}
+   * cell values: {@code {"v": value, "h": [historyVal1, historyVal2, ...]}},
+   * {@code null} if the target isn't in the grid or its row isn't in the viewport
    */
   public Map<String, Object> getTargetResult(ComputationTargetSpecification target,
                                              ViewTargetResultModel resultModel,
@@ -91,13 +124,21 @@ import java.util.Set;
     Integer rowId = getGridStructure().getRowId(target);
     if (rowId == null) {
       // Result not in the grid
-      return Collections.emptyMap();
+      return null;
+    }
+    boolean rowInViewport = getViewport().containsKey(rowId);
+    if (!rowInViewport && _historyOutputs.isEmpty()) {
+      // No reason to process anything
+      return null;
     }
 
-    Map<String, Object> valuesToSend = createTargetResult(rowId);
-    // insert nulls into the results for cells which are unsatisfied in the dependency graph
-    for (Integer unsatisfiedColId : getGridStructure().getUnsatisfiedCells(rowId)) {
-      valuesToSend.put(Integer.toString(unsatisfiedColId), null);
+    Map<String, Object> valuesToSend = null;
+    if (rowInViewport) {
+      valuesToSend = createTargetResult(rowId);
+      // insert nulls into the results for cells which are unsatisfied in the dependency graph
+      for (Integer unsatisfiedColId : getGridStructure().getUnsatisfiedCells(rowId)) {
+        valuesToSend.put(Integer.toString(unsatisfiedColId), null);
+      }
     }
 
     // Whether or not the row is in the viewport, we may have to store history
@@ -116,6 +157,9 @@ import java.util.Set;
           for (WebViewGridColumn column : columns) {
             int colId = column.getId();
             WebGridCell cell = WebGridCell.of(rowId, colId);
+            if (!rowInViewport && !isHistoryOutput(cell)) {
+              continue;
+            }
             ResultConverter<Object> converter;
             if (originalValue == null) {
               converter = null;
@@ -123,7 +167,7 @@ import java.util.Set;
               converter = getConverter(column, value.getSpecification().getValueName(), originalValue.getClass());
             }
             Map<String, Object> cellData = getCellValue(cell, specification, originalValue, resultTimestamp, converter);
-            if (cellData != null) {
+            if (cellData != null && valuesToSend != null) {
               valuesToSend.put(Integer.toString(colId), cellData);
             }
           }
@@ -5,7 +5,6 @@
  */
 package com.opengamma.web.server.push.grid;
 
-import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.client.ViewClient;
@@ -191,30 +190,17 @@ import java.util.Set;
         return;
       }
       long resultTimestamp = resultModel.getCalculationTime().toEpochMillisLong();
-      Map<String, Object> portfolioResult = new HashMap<String, Object>();
-      Map<String, Object> primitiveResult = new HashMap<String, Object>();
-
-      for (ComputationTargetSpecification target : resultModel.getAllTargets()) {
-        switch (target.getType()) {
-          case PRIMITIVE:
-            if (_primitivesGrid != null) {
-              Map<String, Object> targetResult = _primitivesGrid.getTargetResult(target, resultModel.getTargetResult(target), resultTimestamp);
-              if (targetResult != null) {
-                Integer rowId = (Integer) targetResult.get("rowId");
-                primitiveResult.put(Integer.toString(rowId), targetResult);
-              }
-            }
-            break;
-          case PORTFOLIO_NODE:
-          case POSITION:
-            if (_portfolioGrid != null) {
-              Map<String, Object> targetResult = _portfolioGrid.getTargetResult(target, resultModel.getTargetResult(target), resultTimestamp);
-              if (targetResult != null) {
-                Integer rowId = (Integer) targetResult.get("rowId");
-                portfolioResult.put(Integer.toString(rowId), targetResult);
-              }
-            }
-        }
+      Map<String, Object> portfolioResult;
+      if (_portfolioGrid != null) {
+        portfolioResult = _portfolioGrid.getTargetResults(resultModel, resultTimestamp);
+      } else {
+        portfolioResult = new HashMap<String, Object>();
+      }
+      Map<String, Object> primitiveResult;
+      if (_primitivesGrid != null) {
+        primitiveResult = _primitivesGrid.getTargetResults(resultModel, resultTimestamp);
+      } else {
+        primitiveResult = new HashMap<String, Object>();
       }
       // TODO should these always be added or omitted if there are no dep graphs?
       if (_portfolioGrid != null) {
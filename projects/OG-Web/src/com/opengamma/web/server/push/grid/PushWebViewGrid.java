@@ -5,6 +5,7 @@
  */
 package com.opengamma.web.server.push.grid;
 
+import com.google.common.collect.ImmutableSortedMap;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.client.ViewClient;
@@ -54,6 +55,7 @@ import java.util.concurrent.atomic.AtomicReference;
     _name = name;
     _viewClient = viewClient;
     _resultConverterCache = resultConverterCache;
+    setViewport(ImmutableSortedMap.<Integer, Long>of());
   }
   
   //-------------------------------------------------------------------------
@@ -140,7 +142,6 @@ import java.util.concurrent.atomic.AtomicReference;
                                              Object value,
                                              Long resultTimestamp,
                                              ResultConverter<Object> converter) {
-    // TODO getViewport is returning null. something needs to be initialised
     boolean rowInViewport = getViewport().containsKey(cell.getRowId());
     Long lastHistoryTimestamp = getViewport().get(cell.getRowId());
     ConversionMode mode = getConversionMode(cell);    
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.server;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.cometd.Client;
+import org.mockito.ArgumentMatcher;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.client.ViewClient;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewDefinition;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.web.server.conversion.ResultConverterCache;
+
+/**
+ * Tests that {@link RequirementBasedWebViewGrid} only converts and sends the rows in the viewport.
+ */
+@Test
+public class RequirementBasedWebViewGridTest {
+
+  private static final String CALC_CONFIG = "Default";
+  private static final String HISTORY_VALUE = "History";
+  private static final String TEXT_VALUE = "Text";
+  private static final String UPDATE_CHANNEL = "/updates/primitives";
+  private static final ComputationTargetSpecification TARGET_1 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+  private static final ComputationTargetSpecification TARGET_2 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+
+  private Client _local;
+  private Client _remote;
+  private WebViewPrimitivesGrid _grid;
+
+  @BeforeMethod
+  public void setUp() {
+    ViewDefinition viewDefinition = new ViewDefinition("Test", "Test");
+    ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, CALC_CONFIG);
+    Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+    for (ComputationTargetSpecification target : new ComputationTargetSpecification[] {TARGET_1, TARGET_2 }) {
+      for (String valueName : new String[] {HISTORY_VALUE, TEXT_VALUE }) {
+        ValueRequirement requirement = new ValueRequirement(valueName, target);
+        calcConfig.addSpecificRequirement(requirement);
+        terminalOutputs.put(getSpecification(valueName, target), Collections.singleton(requirement));
+      }
+    }
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    CompiledViewCalculationConfiguration compiledCalcConfig = mock(CompiledViewCalculationConfiguration.class);
+    when(compiledCalcConfig.getName()).thenReturn(CALC_CONFIG);
+    when(compiledCalcConfig.getTerminalOutputSpecifications()).thenReturn(terminalOutputs);
+    CompiledViewDefinition compiledViewDefinition = mock(CompiledViewDefinition.class);
+    when(compiledViewDefinition.getViewDefinition()).thenReturn(viewDefinition);
+    when(compiledViewDefinition.getCompiledCalculationConfigurations()).thenReturn(Collections.singleton(compiledCalcConfig));
+
+    ResultConverterCache converterCache = new ResultConverterCache(OpenGammaFudgeContext.getInstance());
+    // Doubles are known before the grid structure is sent, so their column records history
+    converterCache.getAndCacheConverter(HISTORY_VALUE, Double.class);
+    _local = mock(Client.class);
+    _remote = mock(Client.class);
+    _grid = new WebViewPrimitivesGrid(mock(ViewClient.class), compiledViewDefinition, converterCache, _local, _remote);
+    _grid.getInitialJsonGridStructure();
+    reset(_remote);
+    setViewport(TARGET_1);
+  }
+
+  private static ValueSpecification getSpecification(String valueName, ComputationTargetSpecification target) {
+    return new ValueSpecification(valueName, target, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static InMemoryViewComputationResultModel getResult(double historyValue, String textValue) {
+    InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+    for (ComputationTargetSpecification target : new ComputationTargetSpecification[] {TARGET_1, TARGET_2 }) {
+      result.addValue(CALC_CONFIG, new ComputedValue(getSpecification(HISTORY_VALUE, target), historyValue));
+      result.addValue(CALC_CONFIG, new ComputedValue(getSpecification(TEXT_VALUE, target), textValue));
+    }
+    return result;
+  }
+
+  private void setViewport(ComputationTargetSpecification target) {
+    TreeMap<Integer, Long> viewport = new TreeMap<Integer, Long>();
+    viewport.put(getRowId(target), null);
+    _grid.setViewport(viewport);
+  }
+
+  private int getRowId(ComputationTargetSpecification target) {
+    return _grid.getGridStructure().getRowId(target);
+  }
+
+  private String getColumnId(String valueName) {
+    Collection<WebViewGridColumn> columns = _grid.getGridStructure().getColumns(CALC_CONFIG, getSpecification(valueName, TARGET_1));
+    return Integer.toString(columns.iterator().next().getId());
+  }
+
+  private void process(InMemoryViewComputationResultModel result, ComputationTargetSpecification target, long timestamp) {
+    _grid.processTargetResult(target, result.getTargetResult(target), timestamp);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getDelivered() {
+    CapturingMatcher captor = new CapturingMatcher();
+    verify(_remote).deliver(same(_local), eq(UPDATE_CHANNEL), argThat(captor), (String) isNull());
+    return (Map<String, Object>) captor._value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> getCell(Map<String, Object> row, String columnId) {
+    return (Map<String, Object>) row.get(columnId);
+  }
+
+  //-------------------------------------------------------------------------
+  public void viewportRowIsConvertedAndDelivered() {
+    process(getResult(1.5, "a"), TARGET_1, 1000L);
+    Map<String, Object> row = getDelivered();
+    assertEquals(getRowId(TARGET_1), row.get("rowId"));
+    assertEquals("a", getCell(row, getColumnId(TEXT_VALUE)).get("v"));
+    Map<String, Object> historyCell = getCell(row, getColumnId(HISTORY_VALUE));
+    assertNotNull(historyCell.get("v"));
+    assertEquals(1, ((Collection<?>) historyCell.get("h")).size());
+  }
+
+  public void rowOutsideViewportOnlyRecordsHistory() {
+    process(getResult(1.5, "a"), TARGET_2, 1000L);
+    // Nothing sent, not even the column type of the text value as it wasn't converted
+    verify(_remote, never()).deliver(any(Client.class), anyString(), any(), anyString());
+
+    setViewport(TARGET_2);
+    process(getResult(2.5, "b"), TARGET_2, 2000L);
+    Map<String, Object> row = getDelivered();
+    // The history includes the value from when the row was outside the viewport
+    assertEquals(2, ((Collection<?>) getCell(row, getColumnId(HISTORY_VALUE)).get("h")).size());
+  }
+
+  public void rowScrolledIntoViewIsSentInFull() {
+    InMemoryViewComputationResultModel latest = getResult(1.5, "a");
+    process(latest, TARGET_2, 1000L);
+    verify(_remote, never()).deliver(any(Client.class), eq(UPDATE_CHANNEL), any(), anyString());
+
+    // A viewport change reprocesses the latest result for the rows now in view
+    setViewport(TARGET_2);
+    process(latest, TARGET_2, 1000L);
+    Map<String, Object> row = getDelivered();
+    assertEquals(getRowId(TARGET_2), row.get("rowId"));
+    assertTrue(row.containsKey(getColumnId(HISTORY_VALUE)));
+    assertEquals("a", getCell(row, getColumnId(TEXT_VALUE)).get("v"));
+    assertNotNull(getCell(row, getColumnId(HISTORY_VALUE)).get("v"));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Matches any argument, keeping the last one matched.
+   */
+  private static class CapturingMatcher extends ArgumentMatcher<Object> {
+
+    private Object _value;
+
+    @Override
+    public boolean matches(Object argument) {
+      _value = argument;
+      return true;
+    }
+
+  }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.server.push.grid;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.client.ViewClient;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewDefinition;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.web.server.WebViewGridColumn;
+import com.opengamma.web.server.conversion.ResultConverterCache;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests that {@link PushRequirementBasedWebViewGrid} only converts the rows in the viewport.
+ */
+@Test
+public class PushRequirementBasedWebViewGridTest {
+
+  private static final String CALC_CONFIG = "Default";
+  private static final String HISTORY_VALUE = "History";
+  private static final String TEXT_VALUE = "Text";
+  private static final ComputationTargetSpecification TARGET_1 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+  private static final ComputationTargetSpecification TARGET_2 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+
+  private ResultConverterCache _converterCache;
+  private PushWebViewPrimitivesGrid _grid;
+
+  @BeforeMethod
+  public void setUp() {
+    ViewDefinition viewDefinition = new ViewDefinition("Test", "Test");
+    ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, CALC_CONFIG);
+    Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+    for (ComputationTargetSpecification target : new ComputationTargetSpecification[] {TARGET_1, TARGET_2 }) {
+      for (String valueName : new String[] {HISTORY_VALUE, TEXT_VALUE }) {
+        ValueRequirement requirement = new ValueRequirement(valueName, target);
+        calcConfig.addSpecificRequirement(requirement);
+        terminalOutputs.put(getSpecification(valueName, target), Collections.singleton(requirement));
+      }
+    }
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    CompiledViewCalculationConfiguration compiledCalcConfig = mock(CompiledViewCalculationConfiguration.class);
+    when(compiledCalcConfig.getName()).thenReturn(CALC_CONFIG);
+    when(compiledCalcConfig.getTerminalOutputSpecifications()).thenReturn(terminalOutputs);
+    CompiledViewDefinition compiledViewDefinition = mock(CompiledViewDefinition.class);
+    when(compiledViewDefinition.getViewDefinition()).thenReturn(viewDefinition);
+    when(compiledViewDefinition.getCompiledCalculationConfigurations()).thenReturn(Collections.singleton(compiledCalcConfig));
+
+    _converterCache = new ResultConverterCache(OpenGammaFudgeContext.getInstance());
+    // Doubles are known before the grid structure is sent, so their column records history
+    _converterCache.getAndCacheConverter(HISTORY_VALUE, Double.class);
+    _grid = new PushWebViewPrimitivesGrid(mock(ViewClient.class), compiledViewDefinition, _converterCache);
+    _grid.getInitialJsonGridStructure();
+    setViewport(TARGET_1);
+  }
+
+  private static ValueSpecification getSpecification(String valueName, ComputationTargetSpecification target) {
+    return new ValueSpecification(valueName, target, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static InMemoryViewComputationResultModel getResult(double historyValue, String textValue) {
+    InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+    for (ComputationTargetSpecification target : new ComputationTargetSpecification[] {TARGET_1, TARGET_2 }) {
+      result.addValue(CALC_CONFIG, new ComputedValue(getSpecification(HISTORY_VALUE, target), historyValue));
+      result.addValue(CALC_CONFIG, new ComputedValue(getSpecification(TEXT_VALUE, target), textValue));
+    }
+    return result;
+  }
+
+  private void setViewport(ComputationTargetSpecification target) {
+    TreeMap<Integer, Long> viewport = new TreeMap<Integer, Long>();
+    viewport.put(getRowId(target), null);
+    _grid.setViewport(viewport);
+  }
+
+  private int getRowId(ComputationTargetSpecification target) {
+    return _grid.getGridStructure().getRowId(target);
+  }
+
+  private String getColumnId(String valueName) {
+    Collection<WebViewGridColumn> columns = _grid.getGridStructure().getColumns(CALC_CONFIG, getSpecification(valueName, TARGET_1));
+    return Integer.toString(columns.iterator().next().getId());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> getRow(Map<String, Object> results, ComputationTargetSpecification target, PushRequirementBasedWebViewGrid grid) {
+    return (Map<String, Object>) results.get(Integer.toString(grid.getGridStructure().getRowId(target)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> getCell(Map<String, Object> row, String columnId) {
+    return (Map<String, Object>) row.get(columnId);
+  }
+
+  //-------------------------------------------------------------------------
+  public void viewportRowIsConverted() {
+    Map<String, Object> results = _grid.getTargetResults(getResult(1.5, "a"), 1000L);
+    assertEquals(1, results.size());
+    Map<String, Object> row = getRow(results, TARGET_1, _grid);
+    assertEquals(getRowId(TARGET_1), row.get("rowId"));
+    assertEquals("a", getCell(row, getColumnId(TEXT_VALUE)).get("v"));
+    Map<String, Object> historyCell = getCell(row, getColumnId(HISTORY_VALUE));
+    assertNotNull(historyCell.get("v"));
+    assertEquals(1, ((Collection<?>) historyCell.get("h")).size());
+  }
+
+  public void rowOutsideViewportOnlyRecordsHistory() {
+    Map<String, Object> results = _grid.getTargetResults(getResult(1.5, "a"), 1000L);
+    assertFalse(results.containsKey(Integer.toString(getRowId(TARGET_2))));
+    assertNull(_grid.getTargetResult(TARGET_2, getResult(1.5, "a").getTargetResult(TARGET_2), 1000L));
+
+    setViewport(TARGET_2);
+    results = _grid.getTargetResults(getResult(2.5, "b"), 2000L);
+    Map<String, Object> row = getRow(results, TARGET_2, _grid);
+    // The history includes the value from when the row was outside the viewport
+    assertEquals(2, ((Collection<?>) getCell(row, getColumnId(HISTORY_VALUE)).get("h")).size());
+  }
+
+  public void rowScrolledIntoViewIsSentInFull() {
+    InMemoryViewComputationResultModel latest = getResult(1.5, "a");
+    assertFalse(_grid.getTargetResults(latest, 1000L).containsKey(Integer.toString(getRowId(TARGET_2))));
+
+    // A viewport change reprocesses the latest result for the rows now in view
+    setViewport(TARGET_2);
+    Map<String, Object> results = _grid.getTargetResults(latest, 1000L);
+    assertEquals(1, results.size());
+    Map<String, Object> row = getRow(results, TARGET_2, _grid);
+    assertEquals(getRowId(TARGET_2), row.get("rowId"));
+    assertEquals("a", getCell(row, getColumnId(TEXT_VALUE)).get("v"));
+    assertNotNull(getCell(row, getColumnId(HISTORY_VALUE)).get("v"));
+  }
+
+}